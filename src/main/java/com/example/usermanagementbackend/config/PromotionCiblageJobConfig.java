@@ -0,0 +1,199 @@
+package com.example.usermanagementbackend.config;
+
+import com.example.usermanagementbackend.entity.Promotion;
+import com.example.usermanagementbackend.repository.PromotionRepository;
+import com.example.usermanagementbackend.service.MoteurPromotions;
+import com.example.usermanagementbackend.service.PrixEffectif;
+import com.example.usermanagementbackend.service.PromotionIntervalles;
+import com.example.usermanagementbackend.service.VuePromotionsDynamiques;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Job Spring Batch de ciblage de masse: rattache à une promotion tous les produits du catalogue, ou
+ * d'une catégorie, en écrivant promotion_produit par lots.
+ * <p>
+ * Les produits sont découpés en plages d'ids traitées en parallèle ({@code promotion.ciblage.partitions}).
+ * Chaque plage est lue par pages (tri sur l'id) et écrite par lots de {@code promotion.ciblage.chunk}
+ * lignes en batch JDBC, un commit par lot. Après un échec, relancer le job avec les mêmes paramètres
+ * reprend chaque plage après son dernier lot commité; les produits déjà rattachés ne sont pas relus.
+ * Les produits déjà dans une autre promotion active sur la même période sont ignorés.
+ */
+@Configuration
+public class PromotionCiblageJobConfig {
+
+    public static final String JOB = "ciblagePromotion";
+    public static final String ETAPE = "ciblageProduits";
+
+    @Value("${promotion.ciblage.chunk:500}")
+    private int tailleLot;
+
+    @Value("${promotion.ciblage.partitions:4}")
+    private int partitions;
+
+    @Bean
+    public Job ciblagePromotionJob(JobRepository jobRepository, Step ciblageProduitsStep,
+                                   JobExecutionListener ciblageListener) {
+        return new JobBuilder(JOB, jobRepository)
+                .listener(ciblageListener)
+                .start(ciblageProduitsStep)
+                .build();
+    }
+
+    /** Réindexe la promotion en mémoire à la fin du job, y compris après un échec (lots déjà commités). */
+    @Bean
+    public JobExecutionListener ciblageListener(PrixEffectif prixEffectif, MoteurPromotions moteur,
+                                                VuePromotionsDynamiques vuePromotionsDynamiques) {
+        return new JobExecutionListener() {
+            @Override
+            public void afterJob(JobExecution execution) {
+                Long promotionId = execution.getJobParameters().getLong("promotionId");
+                if (promotionId != null) {
+                    prixEffectif.recharger(promotionId.intValue());
+                    moteur.invalider();
+                    vuePromotionsDynamiques.invalider();
+                }
+            }
+        };
+    }
+
+    @Bean
+    public Step ciblageProduitsStep(JobRepository jobRepository, Partitioner ciblagePartitioner, Step ciblagePlageStep) {
+        SimpleAsyncTaskExecutor executeur = new SimpleAsyncTaskExecutor("ciblage-");
+        executeur.setConcurrencyLimit(partitions);
+        return new StepBuilder(ETAPE, jobRepository)
+                .partitioner(ciblagePlageStep.getName(), ciblagePartitioner)
+                .step(ciblagePlageStep)
+                .gridSize(partitions)
+                .taskExecutor(executeur)
+                .build();
+    }
+
+    @Bean
+    public Step ciblagePlageStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                 JdbcPagingItemReader<Long> ciblageReader,
+                                 ItemProcessor<Long, Long> ciblageProcessor,
+                                 JdbcBatchItemWriter<Long> ciblageWriter) {
+        return new StepBuilder("ciblagePlage", jobRepository)
+                .<Long, Long>chunk(tailleLot, transactionManager)
+                .reader(ciblageReader)
+                .processor(ciblageProcessor)
+                .writer(ciblageWriter)
+                .build();
+    }
+
+    /** Plages d'ids [min, max] de taille égale entre le plus petit et le plus grand id visé. */
+    @Bean
+    @JobScope
+    public Partitioner ciblagePartitioner(JdbcTemplate jdbcTemplate,
+                                          @Value("#{jobParameters['categorie']}") String categorie) {
+        return taille -> {
+            String sql = "SELECT MIN(id), MAX(id) FROM produit" + (categorie == null ? "" : " WHERE category = ?");
+            Object[] args = categorie == null ? new Object[0] : new Object[]{categorie};
+            long[] bornes = jdbcTemplate.queryForObject(sql, (rs, i) -> {
+                long min = rs.getLong(1);
+                return rs.wasNull() ? new long[]{1, 0} : new long[]{min, rs.getLong(2)};
+            }, args);
+            long pas = Math.max(1, (bornes[1] - bornes[0]) / Math.max(1, taille) + 1);
+            Map<String, ExecutionContext> plages = new HashMap<>();
+            int numero = 0;
+            long debut = bornes[0];
+            do {
+                ExecutionContext plage = new ExecutionContext();
+                plage.putLong("min", debut);
+                plage.putLong("max", Math.min(bornes[1], debut + pas - 1));
+                plages.put("plage" + numero++, plage);
+                debut += pas;
+            } while (debut <= bornes[1]);
+            return plages;
+        };
+    }
+
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<Long> ciblageReader(DataSource dataSource,
+                                                    @Value("#{jobParameters['promotionId']}") Long promotionId,
+                                                    @Value("#{jobParameters['categorie']}") String categorie,
+                                                    @Value("#{stepExecutionContext['min']}") Long min,
+                                                    @Value("#{stepExecutionContext['max']}") Long max) {
+        Map<String, Object> parametres = new HashMap<>();
+        parametres.put("promotionId", promotionId);
+        parametres.put("min", min);
+        parametres.put("max", max);
+        String filtre = "id BETWEEN :min AND :max AND NOT EXISTS (SELECT 1 FROM promotion_produit pp "
+                + "WHERE pp.promotion_id = :promotionId AND pp.produit_id = produit.id)";
+        if (categorie != null) {
+            filtre += " AND category = :categorie";
+            parametres.put("categorie", categorie);
+        }
+        return new JdbcPagingItemReaderBuilder<Long>()
+                .name("ciblageReader")
+                .dataSource(dataSource)
+                .selectClause("SELECT id")
+                .fromClause("FROM produit")
+                .whereClause(filtre)
+                .sortKeys(Map.of("id", Order.ASCENDING))
+                .parameterValues(parametres)
+                .pageSize(tailleLot)
+                .rowMapper((rs, i) -> rs.getLong(1))
+                .build();
+    }
+
+    /**
+     * Ignore (renvoie null pour) les produits déjà dans une autre promotion active sur la même période.
+     * Les périodes actives sont lues une fois par plage, pas une fois par produit.
+     */
+    @Bean
+    @StepScope
+    public ItemProcessor<Long, Long> ciblageProcessor(PromotionRepository promotionRepository,
+                                                      @Value("#{jobParameters['promotionId']}") Long promotionId) {
+        Promotion promotion = promotionRepository.findById(promotionId.intValue())
+                .orElseThrow(() -> new IllegalArgumentException("Promotion " + promotionId + " introuvable"));
+        if (!promotion.isActive()) {
+            return produitId -> produitId;
+        }
+        PromotionIntervalles intervalles = PromotionIntervalles.de(promotionRepository.findIntervallesActifs());
+        return produitId -> intervalles.chevauche(produitId, promotion.getDateDebut(), promotion.getDateFin(),
+                null, promotion.getId()) ? null : produitId;
+    }
+
+    @Bean
+    @StepScope
+    public JdbcBatchItemWriter<Long> ciblageWriter(DataSource dataSource,
+                                                   @Value("#{jobParameters['promotionId']}") Long promotionId) {
+        return new JdbcBatchItemWriterBuilder<Long>()
+                .dataSource(dataSource)
+                .sql("INSERT INTO promotion_produit (promotion_id, produit_id) VALUES (?, ?)")
+                .itemPreparedStatementSetter((produitId, ps) -> {
+                    ps.setLong(1, promotionId);
+                    ps.setLong(2, produitId);
+                })
+                .assertUpdates(false)
+                .build();
+    }
+}
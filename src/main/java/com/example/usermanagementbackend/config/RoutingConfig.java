@@ -0,0 +1,35 @@
+package com.example.usermanagementbackend.config;
+
+import com.example.usermanagementbackend.service.GraphRoutingEngine;
+import com.example.usermanagementbackend.service.OsrmClient;
+import com.example.usermanagementbackend.service.RoutingEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class RoutingConfig {
+
+    /** {@code routing.engine=osrm} (default) or {@code graph}, the local extract {@code routing.graph.file}. */
+    @Bean
+    @Primary
+    public RoutingEngine routingEngine(OsrmClient osrmClient,
+                                       @Value("${routing.engine:osrm}") String engine,
+                                       @Value("${routing.graph.file:}") String graphFile,
+                                       @Value("${routing.graph.max-snap-meters:1000}") double maxSnapMeters) throws IOException {
+        return switch (engine.strip().toLowerCase()) {
+            case "osrm" -> osrmClient;
+            case "graph" -> {
+                if (graphFile.isBlank()) {
+                    throw new IllegalStateException("routing.engine=graph requires routing.graph.file");
+                }
+                yield GraphRoutingEngine.load(Path.of(graphFile), maxSnapMeters);
+            }
+            default -> throw new IllegalStateException("Unknown routing.engine: " + engine);
+        };
+    }
+}
@@ -1,12 +1,24 @@
 package com.example.usermanagementbackend.controller;
 
 import com.example.usermanagementbackend.dto.LivraisonDTO;
+import com.example.usermanagementbackend.dto.PropositionTournees;
+import com.example.usermanagementbackend.dto.TraceLivraison;
 import com.example.usermanagementbackend.entity.TypeLivraison;
 import com.example.usermanagementbackend.service.ILivraisonService;
+import com.example.usermanagementbackend.service.PhotosLivraisons;
+import com.example.usermanagementbackend.service.PlanificationTournees;
+import com.example.usermanagementbackend.service.SuiviGps;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -16,9 +28,16 @@ import java.util.Map;
 public class LivraisonController {
 
     private final ILivraisonService livraisonService;
+    private final PlanificationTournees planificationTournees;
+    private final SuiviGps suiviGps;
+    private final PhotosLivraisons photosLivraisons;
 
-    public LivraisonController(ILivraisonService livraisonService) {
+    public LivraisonController(ILivraisonService livraisonService, PlanificationTournees planificationTournees,
+                               SuiviGps suiviGps, PhotosLivraisons photosLivraisons) {
         this.livraisonService = livraisonService;
+        this.planificationTournees = planificationTournees;
+        this.suiviGps = suiviGps;
+        this.photosLivraisons = photosLivraisons;
     }
 
     @PostMapping("/create")
@@ -51,12 +70,53 @@ public class LivraisonController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdLivraison);
     }
 
+    // Tournées proposées pour les commandes en attente, rien n'est enregistré
+    @GetMapping("/tournees")
+    public ResponseEntity<PropositionTournees> proposerTournees(@RequestParam(required = false) Long budgetMs) {
+        return ResponseEntity.ok(planificationTournees.proposer(budgetMs != null ? Duration.ofMillis(budgetMs) : null));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<LivraisonDTO> getLivraison(@PathVariable Long id) {
         LivraisonDTO livraisonDTO = livraisonService.getLivraisonById(id);
         return ResponseEntity.ok(livraisonDTO);
     }
 
+    // Trace GPS écrite (voir SuiviGps): les positions des dernières secondes peuvent manquer
+    @GetMapping("/{id}/trace")
+    public ResponseEntity<TraceLivraison> getTrace(@PathVariable Long id) {
+        livraisonService.getLivraisonById(id);
+        return ResponseEntity.ok(new TraceLivraison(id, suiviGps.distanceParcourueKm(id), suiviGps.trace(id)));
+    }
+
+    // Photo de preuve de livraison en multipart (champ "file"), remplace la précédente
+    @PostMapping(value = "/{id}/photo", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<LivraisonDTO> uploadPhoto(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(livraisonService.uploadPhoto(id, file));
+    }
+
+    // Le contenu d'une clé ne change jamais: cache long, ETag pour If-None-Match; Range géré par Spring (206)
+    @GetMapping("/photos/{cle}")
+    public ResponseEntity<Resource> getPhoto(@PathVariable String cle) {
+        return photo(photosLivraisons.fichier(cle));
+    }
+
+    @GetMapping("/photos/{cle}/miniature")
+    public ResponseEntity<Resource> getPhotoMiniature(@PathVariable String cle) {
+        return photo(photosLivraisons.miniature(cle));
+    }
+
+    private static ResponseEntity<Resource> photo(Path fichier) {
+        if (fichier == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(fichier.getFileName().toString())
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .contentType(PhotosLivraisons.type(fichier))
+                .body(new FileSystemResource(fichier));
+    }
+
     @GetMapping("/all")
     public ResponseEntity<List<LivraisonDTO>> getAllLivraisons() {
         List<LivraisonDTO> livraisons = livraisonService.getAllLivraisons();
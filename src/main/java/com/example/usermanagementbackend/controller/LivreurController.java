@@ -1,8 +1,11 @@
 package com.example.usermanagementbackend.controller;
 
 import com.example.usermanagementbackend.dto.LivreurDTO;
+import com.example.usermanagementbackend.dto.PositionLivreur;
 import com.example.usermanagementbackend.service.LivreurService;
+import com.example.usermanagementbackend.service.PositionsLivreurs;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -19,6 +22,9 @@ public class LivreurController {
     @Autowired
     private LivreurService livreurService;
 
+    @Autowired
+    private PositionsLivreurs positionsLivreurs;
+
     @GetMapping("/all")
     public ResponseEntity<List<LivreurDTO>> getAllLivreurs() {
         List<LivreurDTO> livreurs = livreurService.getAllLivreurs();
@@ -51,5 +57,36 @@ public class LivreurController {
         }
     }
 
-}
+    // Position courante, en mémoire seulement: ni lecture ni écriture en base
+    @PutMapping("/{id}/position")
+    public ResponseEntity<Void> updatePosition(@PathVariable Long id, @RequestBody PositionLivreur position) {
+        if (position.getLatitude() == null || position.getLongitude() == null
+                || Math.abs(position.getLatitude()) > 90 || Math.abs(position.getLongitude()) > 180) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Position invalide");
+        }
+        boolean acceptee = positionsLivreurs.mettreAJour(id, position.getLatitude(), position.getLongitude(),
+                position.getHorodatage());
+        // une position plus ancienne que la dernière connue est ignorée
+        return ResponseEntity.status(acceptee ? HttpStatus.NO_CONTENT : HttpStatus.CONFLICT).build();
+    }
 
+    @DeleteMapping("/{id}/position")
+    public ResponseEntity<Void> removePosition(@PathVariable Long id) {
+        positionsLivreurs.retirer(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Les k livreurs les plus proches, ou tous ceux à moins de rayon mètres
+    @GetMapping("/proches")
+    public ResponseEntity<List<PositionsLivreurs.Proche>> getLivreursProches(@RequestParam double lat,
+                                                                            @RequestParam double lng,
+                                                                            @RequestParam(defaultValue = "5") int k,
+                                                                            @RequestParam(required = false) Double rayon) {
+        if (k <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "k doit être positif");
+        }
+        return ResponseEntity.ok(rayon != null
+                ? positionsLivreurs.dansLeRayon(lat, lng, rayon)
+                : positionsLivreurs.plusProches(lat, lng, k));
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.usermanagementbackend.controller;
 
 import com.cloudinary.utils.ObjectUtils;
+import com.example.usermanagementbackend.dto.CatalogueStats;
 import com.example.usermanagementbackend.entity.Produit;
 import com.example.usermanagementbackend.enums.Category;
+import com.example.usermanagementbackend.service.ProduitCatalogue;
 import com.example.usermanagementbackend.service.ProduitService;
 import com.example.usermanagementbackend.service.StockService;
 import com.cloudinary.Cloudinary;
@@ -26,6 +28,7 @@ public class ProduitController {
     private final ProduitService produitService;
     private final StockService stockService;
     private final Cloudinary cloudinary;
+    private final ProduitCatalogue catalogue;
 
     @GetMapping
     public ResponseEntity<List<Produit>> getAllProduits() {
@@ -38,6 +41,11 @@ public class ProduitController {
         }
     }
 
+    @GetMapping("/catalogue/stats")
+    public ResponseEntity<CatalogueStats> getCatalogueStats() {
+        return ResponseEntity.ok(catalogue.stats());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Produit> getProduitById(@PathVariable Long id) {
         try {
@@ -170,9 +178,11 @@ public class ProduitController {
         }
     }
     @GetMapping("/top-selling")
-    public ResponseEntity<List<Produit>> getTopSellingProducts(@RequestParam int limit) {
+    public ResponseEntity<List<Produit>> getTopSellingProducts(
+            @RequestParam int limit,
+            @RequestParam(required = false) Category category) {
         try {
-            return ResponseEntity.ok(produitService.getTopSellingProducts(limit));
+            return ResponseEntity.ok(produitService.getTopSellingProducts(category, limit));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(null);
         } catch (Exception e) {
@@ -188,7 +198,7 @@ public class ProduitController {
             @RequestParam(required = false) String fournisseur,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "nom") String sort) {
+            @RequestParam(required = false) String sort) {
 
         Page<Produit> result = produitService.searchProducts(
                 nom,
@@ -1,12 +1,17 @@
 package com.example.usermanagementbackend.controller;
 
+import com.example.usermanagementbackend.dto.PanierRequest;
 import com.example.usermanagementbackend.entity.Produit;
 import com.example.usermanagementbackend.entity.Promotion;
+import com.example.usermanagementbackend.enums.Category;
 import com.example.usermanagementbackend.repository.ProduitRepository;
 import com.example.usermanagementbackend.repository.PromotionRepository;
 import com.example.usermanagementbackend.service.PromotionService;
+import com.example.usermanagementbackend.service.VuePromotionsDynamiques;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
@@ -115,10 +120,15 @@ public class PromotionController {
         return ResponseEntity.notFound().build();
     }
 
+    // JSON précalculé; If-None-Match égal à l'ETag: 304 sans corps (géré par Spring pour les ResponseEntity en GET)
     @GetMapping("/dynamic")
-    public ResponseEntity<Map<String, List<Map<String, Object>>>> getDynamicPromotions() {
-        Map<String, List<Map<String, Object>>> dynamicPromotions = promotionService.getDynamicPromotions();
-        return ResponseEntity.ok(dynamicPromotions);
+    public ResponseEntity<byte[]> getDynamicPromotions() {
+        VuePromotionsDynamiques.Vue vue = promotionService.getVuePromotionsDynamiques();
+        return ResponseEntity.ok()
+                .eTag(vue.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(vue.json());
     }
 
     @GetMapping("/appliquer/{id}/{montant}")
@@ -134,6 +144,40 @@ public class PromotionController {
         return ResponseEntity.badRequest().body(montant);
     }
 
+    @PostMapping(value = "/panier/evaluer", consumes = "application/json")
+    public ResponseEntity<?> evaluerPanier(@RequestBody PanierRequest panier) {
+        try {
+            return ResponseEntity.ok(promotionService.evaluerPanier(panier));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/panier/appliquer", consumes = "application/json")
+    public ResponseEntity<?> appliquerPanier(@RequestBody PanierRequest panier) {
+        try {
+            return ResponseEntity.ok(promotionService.appliquerPanier(panier));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/cibler")
+    public ResponseEntity<?> ciblerPromotion(@PathVariable Integer id, @RequestParam(required = false) Category categorie) {
+        try {
+            return ResponseEntity.accepted().body(promotionService.ciblerPromotion(id, categorie));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/ciblage/{executionId}")
+    public ResponseEntity<Map<String, Object>> getEtatCiblage(@PathVariable Long executionId) {
+        return promotionService.getEtatCiblage(executionId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/actives")
     public ResponseEntity<List<Promotion>> getPromotionsActives() {
         return ResponseEntity.ok(promotionService.getPromotionsActives());
@@ -179,14 +223,23 @@ public class PromotionController {
     }
 
     @GetMapping("/analytics")
-    public ResponseEntity<Map<String, Object>> getPromotionAnalytics() {
-        Map<String, Object> analytics = promotionService.getPromotionAnalytics();
+    public ResponseEntity<Map<String, Object>> getPromotionAnalytics(@RequestParam(required = false) Integer jours) {
+        if (jours != null && (jours <= 0 || jours > 366)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<String, Object> analytics = promotionService.getPromotionAnalytics(jours);
         if (analytics.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.ok(analytics);
     }
 
+    @PostMapping("/analytics/reconstruire")
+    public ResponseEntity<Map<String, Object>> reconstruireAnalytics() {
+        promotionService.reconstruireAnalytics();
+        return ResponseEntity.ok(promotionService.getPromotionAnalytics());
+    }
+
     @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
     public ResponseEntity<String> handleMediaTypeNotSupported(HttpMediaTypeNotSupportedException ex) {
         System.out.println("Media type not supported: " + ex.getContentType());
@@ -0,0 +1,28 @@
+package com.example.usermanagementbackend.controller;
+
+import com.example.usermanagementbackend.dto.FixGps;
+import com.example.usermanagementbackend.service.SuiviGps;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+
+// Positions GPS en flux (STOMP sur /ws): un message par position, sans réponse
+@Controller
+public class SuiviGpsController {
+
+    private final SuiviGps suiviGps;
+
+    public SuiviGpsController(SuiviGps suiviGps) {
+        this.suiviGps = suiviGps;
+    }
+
+    // /app/livreurs/{livreurId}/gps; une position invalide ou plus ancienne que la dernière est ignorée
+    @MessageMapping("/livreurs/{livreurId}/gps")
+    public void recevoir(@DestinationVariable Long livreurId, @Payload FixGps fix) {
+        if (fix == null || fix.getLatitude() == null || fix.getLongitude() == null) {
+            return;
+        }
+        suiviGps.recevoir(livreurId, fix.getLatitude(), fix.getLongitude(), fix.getHorodatage(), fix.getLivraisonId());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.usermanagementbackend.controller;
+
+import com.example.usermanagementbackend.entity.ExecutionTache;
+import com.example.usermanagementbackend.scheduler.OrchestrateurNocturne;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/taches-nocturnes")
+@CrossOrigin(origins = "http://localhost:4200")
+@RequiredArgsConstructor
+public class TacheNocturneController {
+
+    private final OrchestrateurNocturne orchestrateur;
+
+    // tâches déclarées, dépendances, délais et dernière exécution
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getTaches() {
+        Map<String, ExecutionTache> dernieres = orchestrateur.getDernieresExecutions();
+        List<Map<String, Object>> taches = orchestrateur.getTaches().stream().map(tache -> {
+            Map<String, Object> vue = new LinkedHashMap<>();
+            vue.put("nom", tache.nom());
+            vue.put("dependances", tache.dependances());
+            vue.put("delai", tache.delai().toString());
+            vue.put("enCours", orchestrateur.estEnCours(tache.nom()));
+            if (dernieres.containsKey(tache.nom())) {
+                vue.put("derniereExecution", dernieres.get(tache.nom()));
+            }
+            return vue;
+        }).toList();
+        return ResponseEntity.ok(taches);
+    }
+
+    @GetMapping("/historique")
+    public ResponseEntity<List<ExecutionTache>> getHistorique(@RequestParam(required = false) String nom) {
+        return ResponseEntity.ok(orchestrateur.getHistorique(nom));
+    }
+
+    // 202: l'exécution se suit dans /historique?nom=
+    @PostMapping("/{nom}/lancer")
+    public ResponseEntity<?> lancer(@PathVariable String nom) {
+        try {
+            orchestrateur.demarrer(nom);
+            return ResponseEntity.accepted().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/lancer")
+    public ResponseEntity<Void> lancerNuit() {
+        return ResponseEntity.status(orchestrateur.demarrerNuit() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.usermanagementbackend.dto;
+
+import com.example.usermanagementbackend.entity.Commande;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Corps de POST /api/commandes/status/bulk : un statut cible pour une liste de commandes.
+ */
+@Data
+@NoArgsConstructor
+public class BulkStatusRequest {
+    private Commande.OrderStatus status;
+    private List<Long> ids = new ArrayList<>();
+}
@@ -0,0 +1,31 @@
+package com.example.usermanagementbackend.dto;
+
+import com.example.usermanagementbackend.entity.Commande;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Résultat d'une transition groupée : un résultat par id demandé, dans l'ordre de la requête.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusResult {
+    private Commande.OrderStatus status;
+    private int appliquees;
+    private List<Resultat> resultats = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Resultat {
+        private Long id;
+        private boolean succes;
+        private Commande.OrderStatus ancienStatus;
+        private String message;
+    }
+}
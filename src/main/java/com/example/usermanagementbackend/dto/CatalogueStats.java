@@ -0,0 +1,22 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Compteurs du catalogue produits en mémoire (GET /api/produits/catalogue/stats).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogueStats {
+    private int taille;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long reconstructions;
+    private long patchs;
+    /** Durée de la dernière reconstruction complète, -1 tant qu'aucune n'a eu lieu. */
+    private long derniereReconstructionMs;
+}
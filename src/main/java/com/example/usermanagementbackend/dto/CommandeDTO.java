@@ -1,5 +1,6 @@
 package com.example.usermanagementbackend.dto;
 
+import com.example.usermanagementbackend.entity.Commande;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -24,4 +25,10 @@ public class CommandeDTO {
         this.adresse = address;
         this.telephone = telephone;
     }
+
+    // Utilisé par les projections JPQL (SELECT new ...) de CommandeRepository
+    public CommandeDTO(Long id, String clientNom, Commande.OrderStatus status, String adresse, String telephone, Long livreurId) {
+        this(id, clientNom, status != null ? status.toString() : "PENDING", adresse, telephone);
+        this.livreurId = livreurId;
+    }
 }
\ No newline at end of file
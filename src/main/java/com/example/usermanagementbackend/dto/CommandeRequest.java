@@ -0,0 +1,39 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Corps de POST /api/commandes. Lié directement par Jackson (pas de Map intermédiaire);
+ * les prix envoyés par le client sont ignorés, ils sont recalculés côté serveur.
+ */
+@Data
+@NoArgsConstructor
+public class CommandeRequest {
+    private String clientNom;
+    private String status;
+    private String adresse;
+    private String telephone;
+    private String gouvernement;
+    private Double latitude;
+    private Double longitude;
+    private Long livreurId;
+    private Reference user;
+    private List<Ligne> lignesCommande = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class Reference {
+        private Long id;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Ligne {
+        private Reference produit;
+        private Integer qte;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page obtenue par pagination keyset : le client renvoie {@code nextCursor} pour lire la page suivante.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private Long nextCursor;
+    private boolean hasNext;
+}
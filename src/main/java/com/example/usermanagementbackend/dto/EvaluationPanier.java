@@ -0,0 +1,31 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Résultat de l'évaluation des promotions panier : montants et remises dans l'ordre d'application.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EvaluationPanier {
+    private double montantInitial;
+    private double montantFinal;
+    private List<RemiseAppliquee> remises = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RemiseAppliquee {
+        private Integer promotionId;
+        private String nom;
+        private String condition;
+        private double pourcentage;
+        private double montantRemise;
+    }
+}
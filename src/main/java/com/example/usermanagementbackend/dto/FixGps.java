@@ -0,0 +1,20 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Message STOMP envoyé par un livreur sur /app/livreurs/{id}/gps.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FixGps {
+    private Double latitude;
+    private Double longitude;
+    /** Instant de la mesure (epoch ms) côté livreur; l'heure de réception si absent. */
+    private Long horodatage;
+    /** Livraison en cours, null hors livraison. */
+    private Long livraisonId;
+}
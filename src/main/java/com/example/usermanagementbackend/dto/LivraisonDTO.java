@@ -15,7 +15,9 @@ public class LivraisonDTO {
     private TypeLivraison typeLivraison;
     private LivreurDTO livreur;
     private Long commandeId;
+    // URL de la photo (/api/livraisons/photos/{cle}); une data URL base64 est encore acceptée en entrée
     private String photo;
+    private String photoMiniature;
     private String reason;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -0,0 +1,26 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Corps de POST /promotions/panier/evaluer et /promotions/panier/appliquer : les lignes du panier.
+ * Le prix unitaire est celui du catalogue (prix effectif), il n'est pas fourni par le client.
+ */
+@Data
+@NoArgsConstructor
+public class PanierRequest {
+    private List<Ligne> lignes = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Ligne {
+        private Long produitId;
+        private int quantite;
+    }
+}
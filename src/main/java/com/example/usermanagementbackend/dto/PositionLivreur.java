@@ -0,0 +1,18 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Corps de PUT /api/livreurs/{id}/position.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionLivreur {
+    private Double latitude;
+    private Double longitude;
+    /** Instant de la mesure (epoch ms) côté livreur; l'heure de réception si absent. */
+    private Long horodatage;
+}
@@ -0,0 +1,62 @@
+package com.example.usermanagementbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Vue de GET /promotions/dynamic : Black Friday, expiration et faibles ventes, produits aplatis
+ * (sans leurs listes de promotions). Les noms JSON sont ceux de l'ancienne réponse.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionsDynamiques {
+    private List<PromotionVue> blackFriday = new ArrayList<>();
+    private List<PromotionVue> expiration = new ArrayList<>();
+    private List<PromotionVue> lowSales = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PromotionVue {
+        private Integer id;
+        private String nom;
+        @JsonProperty("pourcentage_reduction")
+        private double pourcentageReduction;
+        @JsonProperty("date_debut")
+        private Date dateDebut;
+        @JsonProperty("date_fin")
+        private Date dateFin;
+        @JsonProperty("condition_promotion")
+        private String conditionPromotion;
+        private boolean active;
+        /** Date prévue d'activation de Black Friday tant qu'il est inactif. */
+        @JsonProperty("date_activation_prevue")
+        private String dateActivationPrevue;
+        private List<ProduitVue> produits = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProduitVue {
+        private Long id;
+        private String nom;
+        private double prix;
+        /** Prix avec la remise de cette promotion seule. */
+        @JsonProperty("prix_reduit")
+        private double prixReduit;
+        /** Prix avec la meilleure remise en cours, toutes promotions confondues. */
+        @JsonProperty("prix_effectif")
+        private double prixEffectif;
+        private String devise;
+        @JsonProperty("date_expiration")
+        private Date dateExpiration;
+    }
+}
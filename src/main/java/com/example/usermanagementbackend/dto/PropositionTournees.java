@@ -0,0 +1,37 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tournées proposées pour les commandes en attente (GET /api/livraisons/tournees). Rien n'est enregistré:
+ * chaque livraison proposée peut être envoyée telle quelle à POST /api/livraisons/create, avec l'arrêt
+ * précédent (ou le dépôt) comme position de départ.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropositionTournees {
+    private List<Tournee> tournees = new ArrayList<>();
+    /** Commandes sans position connue, au-delà de la capacité des livreurs ou du nombre d'arrêts traités. */
+    private List<Long> commandesNonAffectees = new ArrayList<>();
+    private double distanceTotaleKm;
+    private double carbonFootprintTotal;
+    private long dureeMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Tournee {
+        private LivreurDTO livreur;
+        /** Dans l'ordre de passage. */
+        private List<LivraisonDTO> livraisons = new ArrayList<>();
+        /** Du dépôt au dépôt. */
+        private double distanceKm;
+        private double carbonFootprint;
+    }
+}
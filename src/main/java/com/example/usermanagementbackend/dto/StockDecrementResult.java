@@ -0,0 +1,39 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Résultat d'un décrément de stock groupé: une ligne par produit, dans l'ordre des ids
+ * (l'ordre dans lequel les lignes ont été verrouillées).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockDecrementResult {
+    private List<Ligne> lignes = new ArrayList<>();
+
+    public boolean isComplet() {
+        return lignes.stream().allMatch(Ligne::isAppliquee);
+    }
+
+    public List<Ligne> echecs() {
+        return lignes.stream().filter(l -> !l.isAppliquee()).toList();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Ligne {
+        private Long produitId;
+        private int quantite;
+        private boolean appliquee;
+        /** Stock relu après le décrément, null si le produit n'existe pas. */
+        private Integer stockRestant;
+        private Integer salesCount;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.usermanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Réponse de GET /api/livraisons/{id}/trace: trace GPS écrite de la livraison.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TraceLivraison {
+    private Long livraisonId;
+    /** null si aucune trace n'a été reçue. */
+    private Double distanceKm;
+    /** Points {latitude, longitude} simplifiés, dans l'ordre de passage. */
+    private List<double[]> points;
+}
@@ -18,6 +18,10 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString(exclude = {"lignesCommande", "transactions", "factures"})
+@Table(indexes = {
+        @Index(name = "idx_commande_status", columnList = "status"),
+        @Index(name = "idx_commande_date_creation", columnList = "dateCreation")
+})
 public class Commande {
 
     @Id
@@ -41,6 +45,11 @@ public class Commande {
     @Column(name = "adresse")
     private String adresse;
 
+    // Position de livraison, si le client l'a fournie; sinon le centre du gouvernorat (PlanificationTournees)
+    private Double latitude;
+
+    private Double longitude;
+
     private OrderStatus status; // Changed to OrderStatus enum
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
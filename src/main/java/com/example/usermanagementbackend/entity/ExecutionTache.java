@@ -0,0 +1,27 @@
+package com.example.usermanagementbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+// Historique des tâches nocturnes (OrchestrateurNocturne)
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "execution_tache", indexes = @Index(name = "idx_execution_tache_nom_debut", columnList = "nom, debut"))
+public class ExecutionTache {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String nom;
+    // SUCCES, ECHEC, DELAI_DEPASSE, DEJA_EN_COURS, DEPENDANCE_EN_ECHEC
+    private String statut;
+    private Date debut;
+    private Date fin;
+    private long dureeMs;
+    private long lignesTraitees;
+    private String message;
+}
@@ -30,8 +30,9 @@ public class Livraison {
 
     private String address;
 
-    @Column(length = 1048576)
-    private String photo;
+    // photo de preuve de livraison, fichier géré par PhotosLivraisons
+    @Column(length = 80)
+    private String photoCle;
 
     @Column(length = 500)
     private String reason;
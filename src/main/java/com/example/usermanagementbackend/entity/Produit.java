@@ -45,6 +45,10 @@ public class Produit {
     @Column(name = "sales_count", nullable = false, columnDefinition = "integer default 0")
     private Integer salesCount = 0;  // Initialize with default value
 
+    // prix après la meilleure remise en cours, calculé à la lecture (voir PrixEffectif)
+    @Transient
+    private Double prixEffectif;
+
     @ManyToMany(mappedBy = "produits")
     @JsonBackReference
     private List<Promotion> promotions = new ArrayList<>();
@@ -0,0 +1,35 @@
+package com.example.usermanagementbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+// Morceau de trace GPS d'un livreur, écrit par lots (SuiviGps)
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "segment_trace", indexes = {
+        @Index(name = "idx_segment_trace_livraison", columnList = "livraison_id, debut"),
+        @Index(name = "idx_segment_trace_livreur", columnList = "livreur_id, debut")
+})
+public class SegmentTrace {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "livreur_id", nullable = false)
+    private Long livreurId;
+    // null: fixes reçus hors livraison
+    @Column(name = "livraison_id")
+    private Long livraisonId;
+    private Date debut;
+    private Date fin;
+    // points gardés après simplification (Douglas-Peucker)
+    private int nombrePoints;
+    private double distanceMetres;
+    // polyligne encodée (format Google, 1e-5 degré)
+    @Column(columnDefinition = "TEXT")
+    private String polyligne;
+}
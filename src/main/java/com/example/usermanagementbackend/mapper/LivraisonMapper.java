@@ -8,13 +8,14 @@ import com.example.usermanagementbackend.entity.User;
 
 public class LivraisonMapper {
 
+    public static final String PHOTOS_URL = "/api/livraisons/photos/";
+
     public static Livraison toEntity(LivraisonDTO dto) {
         Livraison livraison = new Livraison();
         livraison.setId(dto.getId());
         livraison.setDateLivraison(dto.getDateLivraison());
         livraison.setStatusLivraison(dto.getStatusLivraison());
         livraison.setTypeLivraison(dto.getTypeLivraison());
-        livraison.setPhoto(dto.getPhoto());
         livraison.setReason(dto.getReason());
         livraison.setCommandeId(dto.getCommandeId());
         livraison.setAddress(dto.getAddress()); // Map address
@@ -44,7 +45,10 @@ public class LivraisonMapper {
         dto.setDateLivraison(livraison.getDateLivraison());
         dto.setStatusLivraison(livraison.getStatusLivraison());
         dto.setTypeLivraison(livraison.getTypeLivraison());
-        dto.setPhoto(livraison.getPhoto());
+        if (livraison.getPhotoCle() != null) {
+            dto.setPhoto(PHOTOS_URL + livraison.getPhotoCle());
+            dto.setPhotoMiniature(PHOTOS_URL + livraison.getPhotoCle() + "/miniature");
+        }
         dto.setReason(livraison.getReason());
         dto.setCommandeId(livraison.getCommandeId());
         dto.setCreatedAt(livraison.getCreatedAt());
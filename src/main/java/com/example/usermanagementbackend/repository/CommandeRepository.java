@@ -1,21 +1,37 @@
 package com.example.usermanagementbackend.repository;
 
+import com.example.usermanagementbackend.dto.CommandeDTO;
 import com.example.usermanagementbackend.entity.Commande;
 import com.example.usermanagementbackend.entity.Commande.OrderStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CommandeRepository extends JpaRepository<Commande, Long> {
 
-    @Query("SELECT DISTINCT c FROM Commande c LEFT JOIN FETCH c.lignesCommande l LEFT JOIN FETCH l.produit LEFT JOIN FETCH c.user")
-    List<Commande> findAllWithLignesAndProduits();
+    // Projection sans lignes ni produits ; pagination keyset sur l'id (croissant avec la création)
+    @Query("SELECT new com.example.usermanagementbackend.dto.CommandeDTO(c.id, c.clientNom, c.status, c.adresse, c.telephone, c.livreurId) " +
+            "FROM Commande c WHERE " +
+            "(:afterId IS NULL OR c.id < :afterId) AND " +
+            "(:status IS NULL OR c.status = :status) AND " +
+            "(:userId IS NULL OR c.user.id = :userId) AND " +
+            "(:startDate IS NULL OR c.dateCreation >= :startDate) AND " +
+            "(:endDate IS NULL OR c.dateCreation <= :endDate) " +
+            "ORDER BY c.id DESC")
+    List<CommandeDTO> findSummaries(@Param("afterId") Long afterId,
+                                    @Param("status") OrderStatus status,
+                                    @Param("userId") Long userId,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate,
+                                    Pageable pageable);
 
     @Query("SELECT c FROM Commande c LEFT JOIN FETCH c.lignesCommande l LEFT JOIN FETCH l.produit LEFT JOIN FETCH c.user WHERE c.id = :id")
     Optional<Commande> findByIdWithLignesAndProduits(@Param("id") Long id);
@@ -34,4 +50,9 @@ public interface CommandeRepository extends JpaRepository<Commande, Long> {
     List<Commande> findByUserIdAndStatusInWithLignesAndProduits(@Param("userId") Long userId,
                                                                 @Param("status1") OrderStatus status1,
                                                                 @Param("status2") OrderStatus status2);
-}
\ No newline at end of file
+
+    // Commandes à livrer, sans livreur ni livraison, sans charger lignes ni client (PlanificationTournees)
+    @Query("SELECT c FROM Commande c WHERE c.status IN :statuts AND c.livreurId IS NULL " +
+            "AND NOT EXISTS (SELECT l.id FROM Livraison l WHERE l.commandeId = c.id) ORDER BY c.id")
+    List<Commande> findALivrerSansLivraison(@Param("statuts") Collection<OrderStatus> statuts);
+}
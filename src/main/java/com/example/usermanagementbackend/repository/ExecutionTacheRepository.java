@@ -0,0 +1,16 @@
+package com.example.usermanagementbackend.repository;
+
+import com.example.usermanagementbackend.entity.ExecutionTache;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ExecutionTacheRepository extends JpaRepository<ExecutionTache, Long> {
+    List<ExecutionTache> findTop100ByOrderByDebutDesc();
+    List<ExecutionTache> findTop100ByNomOrderByDebutDesc(String nom);
+
+    // dernière exécution de chaque tâche (index nom, debut); deux lignes pour une tâche si même debut
+    @Query("SELECT e FROM ExecutionTache e WHERE e.debut = (SELECT MAX(d.debut) FROM ExecutionTache d WHERE d.nom = e.nom)")
+    List<ExecutionTache> findDernieresParNom();
+}
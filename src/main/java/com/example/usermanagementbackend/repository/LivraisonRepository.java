@@ -2,12 +2,25 @@ package com.example.usermanagementbackend.repository;
 
 import com.example.usermanagementbackend.entity.Livraison;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 
 public interface LivraisonRepository extends JpaRepository<Livraison, Long> {
 
+    // applies a refined footprint only if the row still holds the provisional one
+    @Modifying
+    @Transactional
+    @Query("UPDATE Livraison l SET l.carbonFootprint = :refined WHERE l.id = :id AND l.carbonFootprint = :provisional")
+    int updateCarbonFootprint(@Param("id") Long id, @Param("provisional") Double provisional, @Param("refined") Double refined);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Livraison l SET l.photoCle = :cle WHERE l.id = :id")
+    int updatePhotoCle(@Param("id") Long id, @Param("cle") String cle);
 
 }
\ No newline at end of file
@@ -1,12 +1,22 @@
 package com.example.usermanagementbackend.repository;
 
 import com.example.usermanagementbackend.entity.Livreur;
+import com.example.usermanagementbackend.entity.StatusLivraison;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface LivreurRepository extends JpaRepository<Livreur, Long> {
     Optional<Livreur> findByUserId(Long userId);
+
+    // Livreurs sans livraison dans l'un des statuts donnés, c.-à-d. pas déjà en tournée (PlanificationTournees)
+    @Query("SELECT lv FROM Livreur lv WHERE NOT EXISTS " +
+            "(SELECT l.id FROM Livraison l WHERE l.livreur = lv AND l.statusLivraison IN :statuts) ORDER BY lv.id")
+    List<Livreur> findDisponibles(@Param("statuts") Collection<StatusLivraison> statuts);
 }
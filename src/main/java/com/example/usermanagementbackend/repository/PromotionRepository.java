@@ -6,15 +6,39 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface PromotionRepository extends JpaRepository<Promotion, Integer> {
     List<Promotion> findByActiveTrue();
+    // promotions de GET /promotions/dynamic, produits compris, en une requête
+    @Query("SELECT DISTINCT p FROM Promotion p LEFT JOIN FETCH p.produits "
+            + "WHERE p.nom = :nom OR (p.active = true AND p.conditionPromotion IN :conditions) ORDER BY p.id")
+    List<Promotion> findDynamiquesAvecProduits(@Param("nom") String nom, @Param("conditions") Collection<String> conditions);
+    // les promotions globales (PrixEffectif.estGlobale) n'ont pas de produits: elles ne sont pas renvoyées
+    @Query("SELECT p.id FROM Promotion p WHERE p.active = true AND p.produits IS EMPTY "
+            + "AND (p.nom IS NULL OR p.nom <> :nomGlobal) "
+            + "AND (p.conditionPromotion IS NULL OR p.conditionPromotion <> :conditionGlobale)")
+    List<Integer> findIdsActivesSansProduits(@Param("nomGlobal") String nomGlobal,
+                                             @Param("conditionGlobale") String conditionGlobale);
+    // lignes {id, nom, active}, sans charger les produits
+    @Query("SELECT p.id, p.nom, p.active FROM Promotion p")
+    List<Object[]> findResumes();
+    @Query("SELECT DISTINCT p FROM Promotion p LEFT JOIN FETCH p.produits WHERE p.active = true")
+    List<Promotion> findActivesAvecProduits();
     Optional<Promotion> findByNom(String nom);
     Optional<Promotion> findByConditionPromotionAndActiveTrue(String condition);
     List<Promotion> findByConditionPromotionInAndActiveTrue(List<String> conditionPromotions);
     List<Promotion> findAllByConditionPromotionAndActiveTrue(String condition);
     @Query("SELECT p FROM Promotion p JOIN p.produits pr WHERE pr = :produit")
     List<Promotion> findByProduitsContaining(@Param("produit") Produit produit);
+
+    // lignes {produitId, promotionId, condition, dateDebut, dateFin} pour PromotionIntervalles
+    @Query("SELECT pr.id, p.id, p.conditionPromotion, p.dateDebut, p.dateFin FROM Promotion p JOIN p.produits pr WHERE p.active = true")
+    List<Object[]> findIntervallesActifs();
+
+    @Query("SELECT pr.id, p.id, p.conditionPromotion, p.dateDebut, p.dateFin FROM Promotion p JOIN p.produits pr "
+            + "WHERE p.active = true AND pr.id IN :produitIds")
+    List<Object[]> findIntervallesActifs(@Param("produitIds") Collection<Long> produitIds);
 }
\ No newline at end of file
@@ -3,7 +3,6 @@ package com.example.usermanagementbackend.scheduler;
 import com.example.usermanagementbackend.entity.User;
 import com.example.usermanagementbackend.service.UserService;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -20,11 +19,15 @@ public class IARiskScheduler {
         this.userService = userService;
     }
 
-    @Scheduled(cron = "0 0 0 * * *")
-    public void evaluerRisqueDesactivation() {
+    // planifiée par OrchestrateurNocturne; renvoie le nombre d'utilisateurs lus
+    public int evaluerRisqueDesactivation() {
         List<User> users = userService.getAllUsers();
 
         for (User user : users) {
+            // délai dépassé: l'orchestrateur interrompt le thread
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
             try {
                 Map<String, Object> data = new HashMap<>();
                 data.put("last_login", user.getDerniereConnexion().toString());
@@ -42,5 +45,6 @@ public class IARiskScheduler {
                 System.err.println("❌ Erreur IA pour " + user.getEmail() + " : " + e.getMessage());
             }
         }
+        return users.size();
     }
 }
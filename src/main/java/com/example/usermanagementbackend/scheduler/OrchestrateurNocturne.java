@@ -0,0 +1,355 @@
+package com.example.usermanagementbackend.scheduler;
+
+import com.example.usermanagementbackend.entity.ExecutionTache;
+import com.example.usermanagementbackend.repository.ExecutionTacheRepository;
+import com.example.usermanagementbackend.service.PhotosLivraisons;
+import com.example.usermanagementbackend.service.PromotionService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fenêtre de nuit: enchaîne les traitements lourds de minuit au lieu de les lancer tous en même temps
+ * sur le thread unique de {@code @Scheduled}.
+ * <p>
+ * Chaque tâche déclare les tâches dont elle dépend et démarre dès qu'elles ont toutes réussi; si l'une
+ * échoue, la tâche n'est pas lancée (DEPENDANCE_EN_ECHEC). Les tâches prêtes tournent en parallèle sur
+ * un pool borné ({@code nocturne.threads}). Une tâche qui dépasse son délai ({@code nocturne.timeout.<nom>},
+ * compté depuis son démarrage) est interrompue, et une tâche n'est jamais relancée tant que son
+ * exécution précédente tourne encore. Chaque exécution est enregistrée dans execution_tache.
+ * <p>
+ * Le déclenchement planifié et les lancements manuels rendent la main tout de suite: l'attente des tâches
+ * se fait sur un thread de coordination, pas sur le thread {@code @Scheduled} ni sur celui de la requête.
+ */
+@Component
+public class OrchestrateurNocturne {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrchestrateurNocturne.class);
+
+    /** Traitement nocturne; le traitement renvoie le nombre de lignes lues. */
+    public record Tache(String nom, List<String> dependances, Duration delai, Callable<Integer> traitement) {
+    }
+
+    private final Map<String, Tache> taches = new LinkedHashMap<>();
+    private final ExecutionTacheRepository historique;
+    private final ThreadPoolExecutor executeur;
+    private final ScheduledExecutorService chienDeGarde;
+    // attend la fin des tâches d'une orchestration; un lancement manuel n'attend pas derrière la nuit
+    private final ExecutorService coordination;
+    // tâches dont le traitement tourne encore (y compris interrompues mais pas encore sorties)
+    private final Map<String, Execution> actives = new ConcurrentHashMap<>();
+    private final AtomicBoolean nuitEnCours = new AtomicBoolean();
+
+    @Autowired
+    public OrchestrateurNocturne(PromotionService promotionService,
+                                 IARiskScheduler iaRiskScheduler,
+                                 PhotosLivraisons photosLivraisons,
+                                 ExecutionTacheRepository historique,
+                                 Environment environment,
+                                 @Value("${nocturne.threads:2}") int threads) {
+        this(List.of(
+                tache(environment, "verificationPromotions", List.of(), Duration.ofMinutes(10),
+                        promotionService::verifierPromotionsActives),
+                // la promotion expiration active doit être à jour avant d'y rattacher les produits
+                tache(environment, "expirationProduits", List.of("verificationPromotions"), Duration.ofMinutes(20),
+                        promotionService::appliquerPromotionExpirationProduit),
+                // exclut les produits déjà pris par la promotion expiration du jour
+                tache(environment, "suggestionPromotions", List.of("expirationProduits"), Duration.ofMinutes(20),
+                        promotionService::suggestPromotions),
+                // table user et service IA externe: indépendante des promotions
+                tache(environment, "risqueUtilisateurs", List.of(), Duration.ofMinutes(60),
+                        iaRiskScheduler::evaluerRisqueDesactivation),
+                // photos base64 restées dans la table livraison (normalement déjà migrées au démarrage)
+                tache(environment, "migrationPhotosLivraisons", List.of(), Duration.ofMinutes(60),
+                        photosLivraisons::migrer)
+        ), historique, threads);
+    }
+
+    OrchestrateurNocturne(List<Tache> declarees, ExecutionTacheRepository historique, int threads) {
+        for (Tache tache : declarees) {
+            // dépendances déclarées avant: pas de cycle possible
+            for (String dependance : tache.dependances()) {
+                if (!taches.containsKey(dependance)) {
+                    throw new IllegalArgumentException("Tâche " + tache.nom() + ": dépendance inconnue " + dependance);
+                }
+            }
+            taches.put(tache.nom(), tache);
+        }
+        this.historique = historique;
+        AtomicInteger numero = new AtomicInteger();
+        this.executeur = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                r -> demon(r, "nocturne-" + numero.incrementAndGet()));
+        this.chienDeGarde = new ScheduledThreadPoolExecutor(1, r -> demon(r, "nocturne-delais"));
+        AtomicInteger coordinateur = new AtomicInteger();
+        this.coordination = Executors.newCachedThreadPool(r -> demon(r, "nocturne-coordination-" + coordinateur.incrementAndGet()));
+    }
+
+    private static Thread demon(Runnable r, String nom) {
+        Thread thread = new Thread(r, nom);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static Tache tache(Environment environment, String nom, List<String> dependances, Duration delai,
+                               Callable<Integer> traitement) {
+        return new Tache(nom, dependances, environment.getProperty("nocturne.timeout." + nom, Duration.class, delai), traitement);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        chienDeGarde.shutdownNow();
+        // les tâches jamais démarrées sont annulées pour débloquer l'attente de lancerNuit
+        executeur.shutdownNow().forEach(r -> ((Execution) r).cancel(false));
+        coordination.shutdownNow();
+    }
+
+    @Scheduled(cron = "${nocturne.cron:0 0 0 * * ?}")
+    public void planifier() {
+        demarrerNuit();
+    }
+
+    /**
+     * Démarre la fenêtre de nuit sans attendre la fin des tâches; false si une nuit est déjà en cours.
+     * Le résultat se lit dans l'historique.
+     */
+    public boolean demarrerNuit() {
+        if (!nuitEnCours.compareAndSet(false, true)) {
+            logger.warn("Fenêtre de nuit déjà en cours, lancement ignoré");
+            return false;
+        }
+        try {
+            coordination.execute(() -> journaliserEchec("Fenêtre de nuit", this::nuit));
+        } catch (RejectedExecutionException e) {
+            nuitEnCours.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /** Exécute toutes les tâches dans l'ordre des dépendances; vide si une nuit est déjà en cours. */
+    public List<ExecutionTache> lancerNuit() {
+        if (!nuitEnCours.compareAndSet(false, true)) {
+            logger.warn("Fenêtre de nuit déjà en cours, lancement ignoré");
+            return List.of();
+        }
+        return nuit();
+    }
+
+    private List<ExecutionTache> nuit() {
+        try {
+            long debut = System.currentTimeMillis();
+            List<ExecutionTache> resultats = executer(taches.values());
+            logger.info("Fenêtre de nuit terminée en {} ms: {}", System.currentTimeMillis() - debut,
+                    resultats.stream().map(e -> e.getNom() + "=" + e.getStatut()).toList());
+            return resultats;
+        } finally {
+            nuitEnCours.set(false);
+        }
+    }
+
+    /** Exécute une seule tâche, sans ses dépendances (relance manuelle). */
+    public ExecutionTache lancer(String nom) {
+        return executer(List.of(tache(nom))).get(0);
+    }
+
+    /** Comme {@link #lancer(String)} sans attendre la fin; le résultat se lit dans l'historique. */
+    public void demarrer(String nom) {
+        Tache tache = tache(nom);
+        coordination.execute(() -> journaliserEchec("Tâche " + nom, () -> executer(List.of(tache))));
+    }
+
+    public List<Tache> getTaches() {
+        return List.copyOf(taches.values());
+    }
+
+    public boolean estEnCours(String nom) {
+        return actives.containsKey(nom);
+    }
+
+    public List<ExecutionTache> getHistorique(String nom) {
+        return nom == null ? historique.findTop100ByOrderByDebutDesc() : historique.findTop100ByNomOrderByDebutDesc(nom);
+    }
+
+    /** Dernière exécution de chaque tâche déjà exécutée, par nom, en une requête. */
+    public Map<String, ExecutionTache> getDernieresExecutions() {
+        // deux exécutions d'une tâche au même instant: la plus récemment enregistrée
+        return historique.findDernieresParNom().stream().collect(Collectors.toMap(ExecutionTache::getNom,
+                Function.identity(), (a, b) -> a.getId() > b.getId() ? a : b));
+    }
+
+    private Tache tache(String nom) {
+        Tache tache = taches.get(nom);
+        if (tache == null) {
+            throw new IllegalArgumentException("Tâche inconnue: " + nom);
+        }
+        return tache;
+    }
+
+    private static void journaliserEchec(String quoi, Runnable orchestration) {
+        try {
+            orchestration.run();
+        } catch (RuntimeException e) {
+            logger.error("{}: orchestration en échec", quoi, e);
+        }
+    }
+
+    private List<ExecutionTache> executer(Collection<Tache> aLancer) {
+        BlockingQueue<Execution> terminees = new LinkedBlockingQueue<>();
+        Map<String, ExecutionTache> resultats = new LinkedHashMap<>();
+        List<Tache> enAttente = new ArrayList<>(aLancer);
+        List<String> lancees = aLancer.stream().map(Tache::nom).toList();
+        int enVol = 0;
+        while (true) {
+            // lance les tâches dont les dépendances (parmi celles à lancer) sont terminées
+            boolean progres = true;
+            while (progres) {
+                progres = false;
+                for (Iterator<Tache> it = enAttente.iterator(); it.hasNext(); ) {
+                    Tache tache = it.next();
+                    List<String> dependances = tache.dependances().stream().filter(lancees::contains).toList();
+                    if (!resultats.keySet().containsAll(dependances)) {
+                        continue;
+                    }
+                    it.remove();
+                    progres = true;
+                    if (!dependances.stream().allMatch(d -> "SUCCES".equals(resultats.get(d).getStatut()))) {
+                        resultats.put(tache.nom(), enregistrer(tache.nom(), "DEPENDANCE_EN_ECHEC", new Date(), 0, 0, null));
+                    } else if (!soumettre(tache, terminees)) {
+                        logger.warn("Tâche {} encore en cours, exécution ignorée", tache.nom());
+                        resultats.put(tache.nom(), enregistrer(tache.nom(), "DEJA_EN_COURS", new Date(), 0, 0, null));
+                    } else {
+                        enVol++;
+                    }
+                }
+            }
+            if (enVol == 0) {
+                return new ArrayList<>(resultats.values());
+            }
+            try {
+                Execution terminee = terminees.take();
+                enVol--;
+                resultats.put(terminee.tache.nom(), bilan(terminee));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Orchestration interrompue, {} tâches encore en cours", enVol);
+                return new ArrayList<>(resultats.values());
+            }
+        }
+    }
+
+    private boolean soumettre(Tache tache, BlockingQueue<Execution> terminees) {
+        Execution execution = new Execution(tache, terminees);
+        if (actives.putIfAbsent(tache.nom(), execution) != null) {
+            return false;
+        }
+        executeur.execute(execution);
+        return true;
+    }
+
+    private ExecutionTache bilan(Execution execution) {
+        String statut;
+        long lignes = 0;
+        String message = null;
+        if (execution.isCancelled()) {
+            statut = execution.expiree ? "DELAI_DEPASSE" : "ECHEC";
+            message = execution.expiree ? "Interrompue après " + execution.tache.delai() : "Annulée";
+        } else {
+            try {
+                Integer lues = execution.get();
+                lignes = lues == null ? 0 : lues;
+                statut = "SUCCES";
+            } catch (ExecutionException e) {
+                statut = "ECHEC";
+                message = String.valueOf(e.getCause());
+                logger.error("Tâche {} en échec", execution.tache.nom(), e.getCause());
+            } catch (InterruptedException e) {
+                // get() d'une exécution terminée ne bloque pas
+                Thread.currentThread().interrupt();
+                statut = "ECHEC";
+            }
+        }
+        long dureeMs = execution.demarrage == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - execution.demarrage);
+        logger.info("Tâche {}: {} en {} ms, {} lignes", execution.tache.nom(), statut, dureeMs, lignes);
+        return enregistrer(execution.tache.nom(), statut, execution.debut, dureeMs, lignes, message);
+    }
+
+    private ExecutionTache enregistrer(String nom, String statut, Date debut, long dureeMs, long lignes, String message) {
+        ExecutionTache execution = new ExecutionTache();
+        execution.setNom(nom);
+        execution.setStatut(statut);
+        execution.setDebut(debut);
+        execution.setFin(new Date());
+        execution.setDureeMs(dureeMs);
+        execution.setLignesTraitees(lignes);
+        execution.setMessage(message == null || message.length() <= 255 ? message : message.substring(0, 255));
+        return historique.save(execution);
+    }
+
+    /** Une exécution de tâche; signale sa fin (succès, échec ou annulation) dans la file de l'orchestration. */
+    private final class Execution extends FutureTask<Integer> {
+        private final Tache tache;
+        private final BlockingQueue<Execution> terminees;
+        private volatile Date debut = new Date();
+        private volatile long demarrage;
+        private volatile boolean expiree;
+
+        Execution(Tache tache, BlockingQueue<Execution> terminees) {
+            super(tache.traitement());
+            this.tache = tache;
+            this.terminees = terminees;
+        }
+
+        @Override
+        public void run() {
+            debut = new Date();
+            demarrage = System.nanoTime();
+            ScheduledFuture<?> delai = chienDeGarde.schedule(() -> {
+                expiree = true;
+                cancel(true);
+            }, tache.delai().toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                super.run();
+            } finally {
+                delai.cancel(false);
+                actives.remove(tache.nom(), this);
+            }
+        }
+
+        @Override
+        protected void done() {
+            terminees.add(this);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Produits par jour d'expiration (jour epoch), pour ne lire que les quelques jours d'une fenêtre.
+ * <p>
+ * Chargé au démarrage par une seule requête puis tenu à jour par {@link ProduitCatalogue} à chaque
+ * produit rechargé après un commit (création, changement de date, suppression), comme
+ * {@link TopVentes}. Une fenêtre de N jours parcourt au plus N cases, quelle que soit la taille du
+ * catalogue.
+ */
+@Component
+public class CalendrierExpiration {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalendrierExpiration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // jour epoch -> ids triés
+    private final NavigableMap<Long, Set<Long>> parJour = new ConcurrentSkipListMap<>();
+    private final Map<Long, Long> jourParProduit = new ConcurrentHashMap<>();
+    private volatile boolean initialise;
+
+    public CalendrierExpiration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        charger();
+    }
+
+    /** Ids des produits qui expirent entre debut et fin (inclus), par date puis par id. */
+    public List<Long> entre(LocalDate debut, LocalDate fin) {
+        if (!initialise) {
+            charger();
+        }
+        List<Long> ids = new ArrayList<>();
+        if (fin.isBefore(debut)) {
+            return ids;
+        }
+        parJour.subMap(debut.toEpochDay(), true, fin.toEpochDay(), true).values().forEach(ids::addAll);
+        return ids;
+    }
+
+    public void mettreAJour(Collection<Produit> produits) {
+        for (Produit produit : produits) {
+            mettreAJour(produit.getId(), produit.getDateExpiration());
+        }
+    }
+
+    public synchronized void mettreAJour(Long id, Date dateExpiration) {
+        Long jour = dateExpiration == null ? null : jour(dateExpiration);
+        Long ancien = jour == null ? jourParProduit.remove(id) : jourParProduit.put(id, jour);
+        if (jour != null && !jour.equals(ancien)) {
+            parJour.computeIfAbsent(jour, j -> new ConcurrentSkipListSet<>()).add(id);
+        }
+        if (ancien != null && !ancien.equals(jour)) {
+            enlever(ancien, id);
+        }
+    }
+
+    public synchronized void retirer(Long id) {
+        Long ancien = jourParProduit.remove(id);
+        if (ancien != null) {
+            enlever(ancien, id);
+        }
+    }
+
+    private void enlever(long jour, Long id) {
+        parJour.computeIfPresent(jour, (j, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    // date_expiration est une colonne DATE: jour civil local, sans décalage de fuseau pour java.sql.Date
+    static long jour(Date date) {
+        if (date instanceof java.sql.Date sql) {
+            return sql.toLocalDate().toEpochDay();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    private synchronized void charger() {
+        if (initialise) {
+            return;
+        }
+        long debut = System.currentTimeMillis();
+        jdbcTemplate.query("SELECT id, date_expiration FROM produit WHERE date_expiration IS NOT NULL",
+                rs -> {
+                    mettreAJour(rs.getLong(1), rs.getDate(2));
+                });
+        initialise = true;
+        logger.info("Calendrier des expirations chargé: {} produits sur {} jours en {} ms",
+                jourParProduit.size(), parJour.size(), System.currentTimeMillis() - debut);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.usermanagementbackend.service;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal circuit breaker for an external call. After {@code failureThreshold} consecutive failures
+ * (errors or answers over the latency budget) the circuit opens and calls are refused for
+ * {@code openFor}. Then a single trial call is let through: its success closes the circuit, its
+ * failure opens it again.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openForMs;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+
+    CircuitBreaker(int failureThreshold, Duration openFor, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openForMs = openFor.toMillis();
+        this.clock = clock;
+    }
+
+    /** True if the call may go out; in HALF_OPEN only the first caller gets the trial. */
+    synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() < openUntil) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                // trial call still running
+                return false;
+        }
+    }
+
+    synchronized void success() {
+        failures = 0;
+        state = State.CLOSED;
+    }
+
+    synchronized void failure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = clock.getAsLong() + openForMs;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
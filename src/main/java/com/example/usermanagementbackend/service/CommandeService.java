@@ -1,5 +1,10 @@
 package com.example.usermanagementbackend.service;
 
+import com.example.usermanagementbackend.dto.BulkStatusResult;
+import com.example.usermanagementbackend.dto.CommandeDTO;
+import com.example.usermanagementbackend.dto.CommandeRequest;
+import com.example.usermanagementbackend.dto.CursorPage;
+import com.example.usermanagementbackend.dto.StockDecrementResult;
 import com.example.usermanagementbackend.entity.Commande;
 import com.example.usermanagementbackend.entity.LigneCommande;
 import com.example.usermanagementbackend.entity.Commande.OrderStatus;
@@ -10,13 +15,32 @@ import com.example.usermanagementbackend.repository.ProduitRepository;
 import com.example.usermanagementbackend.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -27,6 +51,37 @@ public class CommandeService {
     private final CommandeRepository commandeRepository;
     private final ProduitRepository produitRepository;
     private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StockService stockService;
+    private final PrixEffectif prixEffectif;
+
+    // Utilisateur par défaut quand le frontend n'envoie pas de user (comportement historique de POST /api/commandes)
+    private static final Long DEFAULT_USER_ID = 1L;
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final double TVA = 1.19;
+
+    private static final String INSERT_LIGNE_SQL =
+            "INSERT INTO ligne_commande (commande_id, produit_id, qte, prix_unitaire, total, ttc) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_BULK_SIZE = 1000;
+
+    private static final OrderStatus[] STATUTS = OrderStatus.values();
+
+    // Statut cible -> statuts d'origine autorisés. PENDING n'est atteignable que depuis une commande sans statut;
+    // les statuts absents de la table (EN_COURS, NON_LIVRE, LIVRE) ne sont pas des cibles valides.
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(OrderStatus.PENDING, EnumSet.noneOf(OrderStatus.class));
+        TRANSITIONS.put(OrderStatus.PENDING_PAYMENT, EnumSet.of(OrderStatus.PENDING));
+        TRANSITIONS.put(OrderStatus.CONFIRMED, EnumSet.of(OrderStatus.PENDING, OrderStatus.PENDING_PAYMENT));
+        TRANSITIONS.put(OrderStatus.SHIPPED, EnumSet.of(OrderStatus.CONFIRMED));
+        TRANSITIONS.put(OrderStatus.DELIVERED, EnumSet.of(OrderStatus.SHIPPED));
+        TRANSITIONS.put(OrderStatus.CANCELLED, EnumSet.of(OrderStatus.PENDING, OrderStatus.PENDING_PAYMENT, OrderStatus.CONFIRMED));
+        TRANSITIONS.put(OrderStatus.PAID, EnumSet.of(OrderStatus.PENDING, OrderStatus.PENDING_PAYMENT, OrderStatus.CONFIRMED));
+    }
 
     private static final List<String> TUNISIAN_GOVERNORATES = Arrays.asList(
             "Ariana", "Beja", "Ben Arous", "Bizerte", "Gabes", "Gafsa", "Jendouba",
@@ -37,18 +92,29 @@ public class CommandeService {
 
     public CommandeService(CommandeRepository commandeRepository,
                            ProduitRepository produitRepository,
-                           UserRepository userRepository) {
+                           UserRepository userRepository,
+                           JdbcTemplate jdbcTemplate,
+                           StockService stockService,
+                           PrixEffectif prixEffectif) {
         this.commandeRepository = commandeRepository;
         this.produitRepository = produitRepository;
         this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockService = stockService;
+        this.prixEffectif = prixEffectif;
     }
 
     @Transactional(readOnly = true)
-    public List<Commande> getAllCommandes() {
-        logger.info("Fetching all commandes");
-        List<Commande> commandes = commandeRepository.findAllWithLignesAndProduits();
-        logger.info("Found {} commandes", commandes.size());
-        return commandes;
+    public CursorPage<CommandeDTO> getCommandesPage(Long afterId, int size, OrderStatus status, Long userId,
+                                                    LocalDate startDate, LocalDate endDate) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Une ligne de plus que demandé pour savoir s'il reste une page, sans COUNT(*)
+        List<CommandeDTO> rows = commandeRepository.findSummaries(afterId, status, userId, startDate, endDate,
+                PageRequest.of(0, pageSize + 1));
+        boolean hasNext = rows.size() > pageSize;
+        List<CommandeDTO> content = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        Long nextCursor = hasNext ? content.get(content.size() - 1).getId() : null;
+        return new CursorPage<>(content, nextCursor, hasNext);
     }
 
     @Transactional(readOnly = true)
@@ -98,17 +164,13 @@ public class CommandeService {
             logger.info("Starting saveCommande for client: {}", commande.getClientNom());
 
             // Validate user (already enforced by @NotNull, but adding logging for clarity)
-            User user = commande.getUser();
-            Long userId = user.getId();
-            logger.info("Fetching user with id: {}", userId);
-            user = userRepository.findById(userId)
+            Long userId = commande.getUser().getId();
+            User user = userRepository.findById(userId)
                     .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
             commande.setUser(user);
-            logger.info("User found: id={}", user.getId());
 
             // Set date if null
             if (commande.getDateCreation() == null) {
-                logger.info("Setting dateCreation to current date");
                 commande.setDateCreation(LocalDate.now());
             }
 
@@ -118,37 +180,16 @@ public class CommandeService {
                 logger.warn("LignesCommande is null or empty");
                 throw new IllegalArgumentException("LignesCommande cannot be null or empty");
             }
-            logger.info("Processing {} lignesCommande", lignes.size());
+            CommandeContext context = resolveContext(lignes, user);
             for (LigneCommande ligne : lignes) {
-                logger.info("Processing ligne with qte: {}", ligne.getQte());
                 ligne.setCommande(commande);
-                Long produitId = ligne.getProduit().getId();
-                logger.info("Fetching produit with id: {}", produitId);
-                Produit produit = produitRepository.findById(produitId)
-                        .orElseThrow(() -> new IllegalArgumentException("Produit not found with id: " + produitId));
-                logger.info("Produit found: id={}, nom={}", produit.getId(), produit.getNom());
-                ligne.setProduit(produit);
-                int qte = ligne.getQte();
-                double prix = produit.getPrix();
-                ligne.setPrixUnitaire(prix);
-                double total = qte * prix;
-                double ttc = total * 1.19;
-                ligne.setTotal(total);
-                ligne.setTtc(ttc);
-                logger.info("Ligne updated: qte={}, prixUnitaire={}, total={}, ttc={}", qte, prix, total, ttc);
+                appliquerPrix(ligne, context.produit(ligne.getProduit().getId()));
             }
+            commande.setTotal(lignes.stream().mapToDouble(LigneCommande::getTotal).sum());
+            logger.info("Processed {} lignesCommande, total: {}", lignes.size(), commande.getTotal());
 
-            // Calculate total
-            double totalCommande = lignes.stream().mapToDouble(LigneCommande::getTotal).sum();
-            commande.setTotal(totalCommande);
-            logger.info("Calculated commande total: {}", totalCommande);
+            validateOrder(commande, context);
 
-            // Validate commande
-            logger.info("Validating commande");
-            validateOrder(commande);
-
-            // Save to database
-            logger.info("Saving commande to database");
             Commande saved = commandeRepository.save(commande);
             logger.info("Commande saved with id: {}", saved.getId());
             return saved;
@@ -158,6 +199,107 @@ public class CommandeService {
         }
     }
 
+    /**
+     * Chemin d'ingestion de POST /api/commandes : un seul findAllById pour tous les produits
+     * référencés, l'en-tête inséré via JPA puis toutes les lignes en un seul batch JDBC,
+     * le tout dans la même transaction.
+     */
+    @Transactional
+    public CommandeDTO createCommande(CommandeRequest request) {
+        List<CommandeRequest.Ligne> lignesRequest = request.getLignesCommande();
+        if (lignesRequest == null || lignesRequest.isEmpty()) {
+            throw new IllegalArgumentException("La commande doit contenir au moins une ligne");
+        }
+
+        Long userId = request.getUser() != null && request.getUser().getId() != null
+                ? request.getUser().getId() : DEFAULT_USER_ID;
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
+
+        List<Long> produitIds = new ArrayList<>(lignesRequest.size());
+        for (CommandeRequest.Ligne ligneRequest : lignesRequest) {
+            if (ligneRequest.getProduit() == null || ligneRequest.getProduit().getId() == null) {
+                throw new IllegalArgumentException("Produit invalide pour la ligne");
+            }
+            if (ligneRequest.getQte() != null && ligneRequest.getQte() <= 0) {
+                throw new IllegalArgumentException("La quantité doit être supérieure à 0");
+            }
+            produitIds.add(ligneRequest.getProduit().getId());
+        }
+        CommandeContext context = resolveContext(produitIds, user);
+
+        Commande commande = new Commande();
+        commande.setClientNom(request.getClientNom() != null ? request.getClientNom() : "");
+        commande.setStatus(parseStatus(request.getStatus()));
+        commande.setAdresse(request.getAdresse());
+        commande.setTelephone(blankToNull(request.getTelephone()));
+        commande.setGouvernement(blankToNull(request.getGouvernement()));
+        commande.setLatitude(request.getLatitude());
+        commande.setLongitude(request.getLongitude());
+        commande.setLivreurId(request.getLivreurId());
+        commande.setDateCreation(LocalDate.now());
+        commande.setUser(user);
+
+        List<LigneCommande> lignes = new ArrayList<>(lignesRequest.size());
+        for (CommandeRequest.Ligne ligneRequest : lignesRequest) {
+            LigneCommande ligne = new LigneCommande();
+            ligne.setCommande(commande);
+            ligne.setQte(ligneRequest.getQte() != null ? ligneRequest.getQte() : 1);
+            appliquerPrix(ligne, context.produit(ligneRequest.getProduit().getId()));
+            lignes.add(ligne);
+        }
+        commande.setLignesCommande(lignes);
+        commande.setTotal(lignes.stream().mapToDouble(LigneCommande::getTotal).sum());
+
+        validateOrder(commande, context);
+
+        // Les lignes ne passent pas par la cascade JPA (un INSERT par ligne avec IDENTITY)
+        commande.setLignesCommande(new ArrayList<>());
+        Commande saved = commandeRepository.save(commande);
+        insertLignes(saved.getId(), lignes);
+        logger.info("Commande {} créée avec {} lignes", saved.getId(), lignes.size());
+
+        CommandeDTO dto = new CommandeDTO(saved.getId(), saved.getClientNom(), saved.getStatus().name(),
+                saved.getAdresse(), saved.getTelephone());
+        dto.setLivreurId(saved.getLivreurId());
+        return dto;
+    }
+
+    private void insertLignes(Long commandeId, List<LigneCommande> lignes) {
+        jdbcTemplate.batchUpdate(INSERT_LIGNE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                LigneCommande ligne = lignes.get(i);
+                ps.setLong(1, commandeId);
+                ps.setLong(2, ligne.getProduit().getId());
+                ps.setInt(3, ligne.getQte());
+                ps.setDouble(4, ligne.getPrixUnitaire());
+                ps.setDouble(5, ligne.getTotal());
+                ps.setDouble(6, ligne.getTtc());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lignes.size();
+            }
+        });
+    }
+
+    private static OrderStatus parseStatus(String status) {
+        if (status == null || status.isBlank()) {
+            return OrderStatus.PENDING;
+        }
+        try {
+            return OrderStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return OrderStatus.PENDING;
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
     @Transactional
     public Commande updateCommande(Long id, Commande updatedCommande) {
         logger.info("Updating commande with id: {}", id);
@@ -166,29 +308,32 @@ public class CommandeService {
 
         existing.setClientNom(updatedCommande.getClientNom());
         existing.setTotal(updatedCommande.getTotal());
-        existing.setUser(updatedCommande.getUser());
         existing.setTelephone(updatedCommande.getTelephone());
         existing.setGouvernement(updatedCommande.getGouvernement());
         existing.setAdresse(updatedCommande.getAdresse());
+        if (updatedCommande.getLatitude() != null && updatedCommande.getLongitude() != null) {
+            existing.setLatitude(updatedCommande.getLatitude());
+            existing.setLongitude(updatedCommande.getLongitude());
+        }
         existing.setLignesCommande(updatedCommande.getLignesCommande());
 
+        User user = resolveUser(updatedCommande.getUser());
+        existing.setUser(user != null ? user : updatedCommande.getUser());
+
         List<LigneCommande> lignes = existing.getLignesCommande();
+        CommandeContext context = resolveContext(lignes, user);
         if (lignes != null) {
             for (LigneCommande ligne : lignes) {
-                Produit produit = produitRepository.findById(ligne.getProduit().getId())
-                        .orElseThrow(() -> new IllegalArgumentException("Produit not found with id: " + ligne.getProduit().getId()));
-                ligne.setProduit(produit);
-                ligne.setPrixUnitaire(produit.getPrix());
-                ligne.setTotal(ligne.getQte() * ligne.getPrixUnitaire());
-                ligne.setTtc(ligne.getTotal() * 1.19);
+                ligne.setCommande(existing);
+                appliquerPrix(ligne, context.produit(ligne.getProduit().getId()));
             }
             existing.setTotal(lignes.stream().mapToDouble(LigneCommande::getTotal).sum());
         }
 
-        validateOrder(existing);
+        validateOrder(existing, context);
 
         if (updatedCommande.getStatus() != null) {
-            transitionOrderStatus(existing, updatedCommande.getStatus());
+            transitionOrderStatus(existing, updatedCommande.getStatus(), context);
         }
 
         Commande updated = commandeRepository.save(existing);
@@ -208,33 +353,24 @@ public class CommandeService {
         logger.info("Commande deleted with id: {}", id);
     }
 
-    private void validateOrder(Commande commande) {
-        logger.info("Validating commande");
+    private void validateOrder(Commande commande, CommandeContext context) {
         if (commande.getLignesCommande() == null || commande.getLignesCommande().isEmpty()) {
             logger.error("Validation failed: LignesCommande is null or empty");
             throw new IllegalArgumentException("La commande doit contenir au moins une ligne");
         }
 
         for (LigneCommande ligne : commande.getLignesCommande()) {
-            if (ligne.getProduit() == null || ligne.getProduit().getId() == null) {
-                logger.error("Validation failed: Produit is invalid for ligne");
-                throw new IllegalArgumentException("Produit invalide pour la ligne");
-            }
-            Produit produit = produitRepository.findById(ligne.getProduit().getId())
-                    .orElseThrow(() -> new IllegalArgumentException("Produit non trouvé"));
+            Produit produit = context.produit(ligne.getProduit().getId());
             if (produit.getStock() < ligne.getQte()) {
                 logger.error("Validation failed: Insufficient stock for produit: {}", produit.getNom());
                 throw new IllegalArgumentException("Stock insuffisant pour le produit: " + produit.getNom());
             }
         }
 
-        if (commande.getUser() != null && commande.getUser().getId() != null) {
-            User user = userRepository.findById(commande.getUser().getId())
-                    .orElseThrow(() -> new IllegalArgumentException("User non trouvé"));
-            if (user.getCreditLimit() != null && commande.getTotal() > user.getCreditLimit()) {
-                logger.error("Validation failed: Total exceeds credit limit: {}", user.getCreditLimit());
-                throw new IllegalArgumentException("Le total dépasse la limite de crédit: " + user.getCreditLimit());
-            }
+        User user = context.user();
+        if (user != null && user.getCreditLimit() != null && commande.getTotal() > user.getCreditLimit()) {
+            logger.error("Validation failed: Total exceeds credit limit: {}", user.getCreditLimit());
+            throw new IllegalArgumentException("Le total dépasse la limite de crédit: " + user.getCreditLimit());
         }
 
         if (commande.getTelephone() != null && !commande.getTelephone().matches("^[0-9]{8}$")) {
@@ -256,18 +392,13 @@ public class CommandeService {
 
     @Transactional
     public void transitionOrderStatus(Commande commande, OrderStatus newStatus) {
+        transitionOrderStatus(commande, newStatus, null);
+    }
+
+    private void transitionOrderStatus(Commande commande, OrderStatus newStatus, CommandeContext context) {
         logger.info("Transitioning commande status to: {}", newStatus);
         OrderStatus currentStatus = commande.getStatus();
-        boolean validTransition = switch (newStatus) {
-            case PENDING -> currentStatus == null;
-            case PENDING_PAYMENT -> currentStatus == OrderStatus.PENDING;
-            case CONFIRMED -> currentStatus == OrderStatus.PENDING || currentStatus == OrderStatus.PENDING_PAYMENT;
-            case SHIPPED -> currentStatus == OrderStatus.CONFIRMED;
-            case DELIVERED -> currentStatus == OrderStatus.SHIPPED;
-            case CANCELLED -> currentStatus == OrderStatus.PENDING || currentStatus == OrderStatus.PENDING_PAYMENT || currentStatus == OrderStatus.CONFIRMED;
-            case PAID -> currentStatus == OrderStatus.PENDING || currentStatus == OrderStatus.PENDING_PAYMENT || currentStatus == OrderStatus.CONFIRMED;
-            default -> throw new IllegalArgumentException("Statut inconnu: " + newStatus);
-        };
+        boolean validTransition = transitionAutorisee(currentStatus, newStatus);
 
         if (!validTransition) {
             logger.error("Invalid status transition from {} to {}", currentStatus, newStatus);
@@ -275,15 +406,230 @@ public class CommandeService {
         }
 
         commande.setStatus(newStatus);
-        if (newStatus == OrderStatus.SHIPPED && commande.getLignesCommande() != null) {
-            for (LigneCommande ligne : commande.getLignesCommande()) {
-                Produit produit = produitRepository.findById(ligne.getProduit().getId())
-                        .orElseThrow(() -> new IllegalArgumentException("Produit non trouvé"));
-                produit.setStock(produit.getStock() - ligne.getQte());
-                produitRepository.save(produit);
+        List<LigneCommande> lignes = commande.getLignesCommande();
+        if (newStatus == OrderStatus.SHIPPED && lignes != null && !lignes.isEmpty()) {
+            Map<Long, Integer> quantites = new LinkedHashMap<>();
+            for (LigneCommande ligne : lignes) {
+                if (ligne.getProduit() == null || ligne.getProduit().getId() == null) {
+                    throw new IllegalArgumentException("Produit invalide pour la ligne");
+                }
+                quantites.merge(ligne.getProduit().getId(), ligne.getQte(), Integer::sum);
+            }
+            StockDecrementResult resultat = stockService.decrementerStock(quantites, true);
+            if (!resultat.isComplet()) {
+                StockDecrementResult.Ligne echec = resultat.echecs().get(0);
+                logger.error("Stock decrement refused for commande {}: {}", commande.getId(), resultat.echecs());
+                throw new IllegalArgumentException(echec.getStockRestant() == null
+                        ? "Produit not found with id: " + echec.getProduitId()
+                        : "Stock insuffisant pour le produit: " + echec.getProduitId());
+            }
+            if (context != null) {
+                stockService.synchroniser(context.produits.values(), resultat);
             }
         }
         commandeRepository.save(commande);
         logger.info("Commande status transitioned to: {}", newStatus);
     }
-}
\ No newline at end of file
+
+    /**
+     * Transition groupée : statuts lus et verrouillés en une requête, validés contre la table
+     * {@link #TRANSITIONS}, stock réservé pour l'ensemble des commandes expédiées puis statut écrit
+     * en un seul UPDATE. Une commande refusée n'empêche pas les autres de passer.
+     */
+    @Transactional
+    public BulkStatusResult transitionOrderStatusBulk(List<Long> ids, OrderStatus newStatus) {
+        if (newStatus == null) {
+            throw new IllegalArgumentException("Le statut cible est obligatoire");
+        }
+        if (!TRANSITIONS.containsKey(newStatus)) {
+            throw new IllegalArgumentException("Statut inconnu: " + newStatus);
+        }
+        Set<Long> demandes = new LinkedHashSet<>();
+        if (ids != null) {
+            ids.stream().filter(Objects::nonNull).forEach(demandes::add);
+        }
+        if (demandes.isEmpty()) {
+            throw new IllegalArgumentException("Aucune commande à mettre à jour");
+        }
+        if (demandes.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("Au plus " + MAX_BULK_SIZE + " commandes par requête");
+        }
+
+        // status est stocké en ordinal (pas d'@Enumerated sur Commande.status)
+        Map<Long, OrderStatus> actuels = new HashMap<>();
+        jdbcTemplate.query("SELECT id, status FROM commande WHERE id IN (" + placeholders(demandes.size()) + ") ORDER BY id FOR UPDATE",
+                rs -> {
+                    long id = rs.getLong(1);
+                    int ordinal = rs.getInt(2);
+                    OrderStatus statut = rs.wasNull() ? null : STATUTS[ordinal];
+                    actuels.put(id, statut);
+                },
+                demandes.toArray());
+
+        Map<Long, String> refus = new HashMap<>();
+        List<Long> eligibles = new ArrayList<>();
+        for (Long id : new TreeSet<>(demandes)) {
+            if (!actuels.containsKey(id)) {
+                refus.put(id, "Commande not found with id: " + id);
+            } else if (!transitionAutorisee(actuels.get(id), newStatus)) {
+                refus.put(id, "Transition de statut invalide de " + actuels.get(id) + " à " + newStatus);
+            } else {
+                eligibles.add(id);
+            }
+        }
+
+        if (newStatus == OrderStatus.SHIPPED && !eligibles.isEmpty()) {
+            eligibles = reserverStock(eligibles, refus);
+        }
+        if (!eligibles.isEmpty()) {
+            List<Object> params = new ArrayList<>(eligibles.size() + 1);
+            params.add(newStatus.ordinal());
+            params.addAll(eligibles);
+            jdbcTemplate.update("UPDATE commande SET status = ? WHERE id IN (" + placeholders(eligibles.size()) + ")",
+                    params.toArray());
+        }
+        logger.info("Bulk transition to {}: {} applied, {} refused", newStatus, eligibles.size(), refus.size());
+
+        List<BulkStatusResult.Resultat> resultats = new ArrayList<>(demandes.size());
+        for (Long id : demandes) {
+            String message = refus.get(id);
+            resultats.add(new BulkStatusResult.Resultat(id, message == null, actuels.get(id), message));
+        }
+        return new BulkStatusResult(newStatus, eligibles.size(), resultats);
+    }
+
+    /**
+     * Réserve le stock des commandes à expédier, par id croissant : une commande dont une ligne
+     * ne tient plus dans le stock restant est refusée, les autres sont décrémentées en un seul batch.
+     */
+    private List<Long> reserverStock(List<Long> commandeIds, Map<Long, String> refus) {
+        Map<Long, Map<Long, Integer>> lignesParCommande = new HashMap<>();
+        Set<Long> produitIds = new TreeSet<>();
+        jdbcTemplate.query("SELECT commande_id, produit_id, qte FROM ligne_commande WHERE commande_id IN ("
+                        + placeholders(commandeIds.size()) + ")",
+                rs -> {
+                    long produitId = rs.getLong(2);
+                    lignesParCommande.computeIfAbsent(rs.getLong(1), k -> new HashMap<>())
+                            .merge(produitId, rs.getInt(3), Integer::sum);
+                    produitIds.add(produitId);
+                },
+                commandeIds.toArray());
+
+        Map<Long, Integer> stocks = new HashMap<>();
+        if (!produitIds.isEmpty()) {
+            jdbcTemplate.query("SELECT id, stock FROM produit WHERE id IN (" + placeholders(produitIds.size()) + ") ORDER BY id FOR UPDATE",
+                    rs -> {
+                        stocks.put(rs.getLong(1), rs.getInt(2));
+                    },
+                    produitIds.toArray());
+        }
+
+        List<Long> acceptees = new ArrayList<>(commandeIds.size());
+        Map<Long, Integer> quantites = new HashMap<>();
+        for (Long commandeId : commandeIds) {
+            Map<Long, Integer> lignes = lignesParCommande.getOrDefault(commandeId, Map.of());
+            Long manquant = lignes.entrySet().stream()
+                    .filter(e -> stocks.getOrDefault(e.getKey(), 0) < e.getValue())
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElse(null);
+            if (manquant != null) {
+                refus.put(commandeId, stocks.containsKey(manquant)
+                        ? "Stock insuffisant pour le produit: " + manquant
+                        : "Produit not found with id: " + manquant);
+                continue;
+            }
+            lignes.forEach((produitId, qte) -> {
+                stocks.merge(produitId, -qte, Integer::sum);
+                quantites.merge(produitId, qte, Integer::sum);
+            });
+            acceptees.add(commandeId);
+        }
+
+        if (!quantites.isEmpty()) {
+            StockDecrementResult resultat = stockService.decrementerStock(quantites, true);
+            if (!resultat.isComplet()) {
+                // les lignes produit sont verrouillées depuis la lecture : ne devrait pas arriver
+                throw new IllegalStateException("Stock modifié pendant la transition groupée: " + resultat.echecs());
+            }
+        }
+        return acceptees;
+    }
+
+    static boolean transitionAutorisee(OrderStatus currentStatus, OrderStatus newStatus) {
+        Set<OrderStatus> origines = TRANSITIONS.get(newStatus);
+        if (origines == null) {
+            throw new IllegalArgumentException("Statut inconnu: " + newStatus);
+        }
+        return currentStatus == null ? newStatus == OrderStatus.PENDING : origines.contains(currentStatus);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private void appliquerPrix(LigneCommande ligne, Produit produit) {
+        double prix = prixEffectif.prix(produit);
+        double total = ligne.getQte() * prix;
+        ligne.setProduit(produit);
+        ligne.setPrixUnitaire(prix);
+        ligne.setTotal(total);
+        ligne.setTtc(total * TVA);
+    }
+
+    private User resolveUser(User user) {
+        if (user == null || user.getId() == null) {
+            return null;
+        }
+        return userRepository.findById(user.getId())
+                .orElseThrow(() -> new IllegalArgumentException("User non trouvé"));
+    }
+
+    private CommandeContext resolveContext(List<LigneCommande> lignes, User user) {
+        List<Long> produitIds = new ArrayList<>();
+        if (lignes != null) {
+            for (LigneCommande ligne : lignes) {
+                if (ligne.getProduit() == null || ligne.getProduit().getId() == null) {
+                    logger.error("Validation failed: Produit is invalid for ligne");
+                    throw new IllegalArgumentException("Produit invalide pour la ligne");
+                }
+                produitIds.add(ligne.getProduit().getId());
+            }
+        }
+        return resolveContext(produitIds, user);
+    }
+
+    private CommandeContext resolveContext(Collection<Long> produitIds, User user) {
+        Set<Long> ids = new LinkedHashSet<>(produitIds);
+        Map<Long, Produit> produits = ids.isEmpty() ? Map.of()
+                : produitRepository.findAllById(ids).stream()
+                        .collect(Collectors.toMap(Produit::getId, Function.identity()));
+        return new CommandeContext(produits, user);
+    }
+
+    /**
+     * Produits et utilisateur d'une commande, chargés une seule fois (un IN pour tous les produits)
+     * puis partagés par le calcul des prix, la validation et le décrément de stock.
+     */
+    private static final class CommandeContext {
+        private final Map<Long, Produit> produits;
+        private final User user;
+
+        private CommandeContext(Map<Long, Produit> produits, User user) {
+            this.produits = produits;
+            this.user = user;
+        }
+
+        Produit produit(Long produitId) {
+            Produit produit = produits.get(produitId);
+            if (produit == null) {
+                throw new IllegalArgumentException("Produit not found with id: " + produitId);
+            }
+            return produit;
+        }
+
+        User user() {
+            return user;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Promotion;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Début et fin des promotions à la minute près, au lieu d'un balayage de toutes les promotions à minuit.
+ * <p>
+ * Les dates de chaque promotion active sont rangées dans une {@link RoueTemporelle}, chargée au démarrage
+ * par une seule requête puis tenue à jour à chaque création, modification ou suppression (après le
+ * commit). À la fin d'une promotion (lendemain de date_fin, la date de fin étant incluse comme dans
+ * {@link PrixEffectif}), un seul UPDATE ciblé la désactive. À son début, les prix et règles panier
+ * sont déjà bornés par les dates: les vues calculées sont seulement invalidées.
+ */
+@Component
+public class CyclePromotions {
+
+    private static final Logger logger = LoggerFactory.getLogger(CyclePromotions.class);
+
+    private static final long JOUR_MS = TimeUnit.DAYS.toMillis(1);
+
+    private enum Evenement { DEBUT, FIN }
+
+    private record Echeance(Integer promotionId, Evenement evenement) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PrixEffectif prixEffectif;
+    private final MoteurPromotions moteur;
+    private final VuePromotionsDynamiques vuePromotionsDynamiques;
+    private final long tickMs;
+
+    private final RoueTemporelle<Echeance> roue;
+    // échéances en attente par promotion, annulées quand la promotion change
+    private final Map<Integer, List<RoueTemporelle.Entree<Echeance>>> parPromotion = new HashMap<>();
+    private final ScheduledExecutorService horloge;
+    private boolean initialise;
+
+    public CyclePromotions(JdbcTemplate jdbcTemplate, PrixEffectif prixEffectif, MoteurPromotions moteur,
+                           VuePromotionsDynamiques vuePromotionsDynamiques,
+                           @Value("${promotion.cycle.tick-ms:60000}") long tickMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.prixEffectif = prixEffectif;
+        this.moteur = moteur;
+        this.vuePromotionsDynamiques = vuePromotionsDynamiques;
+        this.tickMs = tickMs;
+        this.roue = new RoueTemporelle<>(tickMs, System.currentTimeMillis());
+        this.horloge = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "promotions-cycle");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        charger();
+        // calé sur le début du tick suivant
+        long maintenant = System.currentTimeMillis();
+        horloge.scheduleAtFixedRate(this::avancer, tickMs - maintenant % tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        horloge.shutdownNow();
+    }
+
+    /** Réenregistre les dates de la promotion après le commit; les valeurs sont lues maintenant. */
+    public void enregistrer(Promotion promotion) {
+        if (promotion == null || promotion.getId() == null) {
+            return;
+        }
+        Integer id = promotion.getId();
+        boolean active = promotion.isActive();
+        Date debut = promotion.getDateDebut();
+        Date fin = promotion.getDateFin();
+        ProduitCatalogue.apresCommit(() -> planifier(id, active, debut, fin));
+    }
+
+    public void retirer(Integer promotionId) {
+        if (promotionId != null) {
+            ProduitCatalogue.apresCommit(() -> planifier(promotionId, false, null, null));
+        }
+    }
+
+    /**
+     * Désactive les promotions actives déjà terminées que la roue n'aurait pas vues (écriture SQL
+     * directe, horloge arrêtée); renvoie le nombre de promotions désactivées.
+     */
+    public int expirerEchues() {
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM promotion WHERE active = TRUE AND date_fin <= ?", Integer.class, limiteFin());
+        int desactivees = 0;
+        for (Integer id : ids) {
+            if (expirer(id)) {
+                desactivees++;
+            }
+        }
+        return desactivees;
+    }
+
+    /** Désactive une promotion par un UPDATE ciblé; false si elle n'était plus active. */
+    public boolean desactiver(Integer promotionId) {
+        return desactivee(promotionId, jdbcTemplate.update(
+                "UPDATE promotion SET active = FALSE WHERE id = ? AND active = TRUE", promotionId));
+    }
+
+    void avancer() {
+        List<Echeance> echues;
+        synchronized (this) {
+            echues = roue.avancer(System.currentTimeMillis());
+            for (Echeance echeance : echues) {
+                List<RoueTemporelle.Entree<Echeance>> entrees = parPromotion.get(echeance.promotionId());
+                if (entrees != null) {
+                    entrees.removeIf(e -> e.valeur() == echeance);
+                    if (entrees.isEmpty()) {
+                        parPromotion.remove(echeance.promotionId());
+                    }
+                }
+            }
+        }
+        for (Echeance echeance : echues) {
+            try {
+                if (echeance.evenement() == Evenement.FIN) {
+                    expirer(echeance.promotionId());
+                } else {
+                    logger.info("Début de la promotion {}", echeance.promotionId());
+                    moteur.invalider();
+                    vuePromotionsDynamiques.invalider();
+                }
+            } catch (RuntimeException e) {
+                // l'horloge ne doit pas s'arrêter: expirerEchues rattrapera une fin manquée
+                logger.error("Échéance {} de la promotion {} en échec", echeance.evenement(), echeance.promotionId(), e);
+            }
+        }
+    }
+
+    // la date de fin peut avoir changé depuis l'enregistrement: l'UPDATE revérifie qu'elle est passée
+    private boolean expirer(Integer promotionId) {
+        return desactivee(promotionId, jdbcTemplate.update(
+                "UPDATE promotion SET active = FALSE WHERE id = ? AND active = TRUE AND date_fin <= ?",
+                promotionId, limiteFin()));
+    }
+
+    private boolean desactivee(Integer promotionId, int lignes) {
+        if (lignes == 0) {
+            return false;
+        }
+        logger.info("Promotion {} désactivée", promotionId);
+        planifier(promotionId, false, null, null);
+        prixEffectif.retirer(promotionId);
+        moteur.invalider();
+        vuePromotionsDynamiques.invalider();
+        return true;
+    }
+
+    // une promotion se termine à la fin de son jour de fin
+    private static Timestamp limiteFin() {
+        return new Timestamp(System.currentTimeMillis() - JOUR_MS);
+    }
+
+    private synchronized void planifier(Integer id, boolean active, Date debut, Date fin) {
+        List<RoueTemporelle.Entree<Echeance>> anciennes = parPromotion.remove(id);
+        if (anciennes != null) {
+            anciennes.forEach(RoueTemporelle.Entree::annuler);
+        }
+        if (!active) {
+            return;
+        }
+        List<RoueTemporelle.Entree<Echeance>> entrees = new ArrayList<>(2);
+        if (debut != null && debut.getTime() > System.currentTimeMillis()) {
+            entrees.add(roue.ajouter(debut.getTime(), new Echeance(id, Evenement.DEBUT)));
+        }
+        if (fin != null) {
+            entrees.add(roue.ajouter(fin.getTime() + JOUR_MS, new Echeance(id, Evenement.FIN)));
+        }
+        if (!entrees.isEmpty()) {
+            parPromotion.put(id, entrees);
+        }
+    }
+
+    private synchronized void charger() {
+        if (initialise) {
+            return;
+        }
+        long debut = System.currentTimeMillis();
+        jdbcTemplate.query("SELECT id, date_debut, date_fin FROM promotion WHERE active = TRUE", rs -> {
+            planifier(rs.getInt(1), true, rs.getTimestamp(2), rs.getTimestamp(3));
+        });
+        initialise = true;
+        logger.info("Cycle des promotions chargé: {} promotions, {} échéances en {} ms",
+                parPromotion.size(), roue.taille(), System.currentTimeMillis() - debut);
+    }
+}
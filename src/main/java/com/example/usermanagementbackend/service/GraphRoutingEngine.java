@@ -0,0 +1,428 @@
+package com.example.usermanagementbackend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Driving distances computed in process from a road graph extract ({@code routing.graph.file}), without
+ * any network call.
+ * <p>
+ * The graph is held in primitive arrays: node coordinates as {@code float}, adjacency in CSR form
+ * ({@code firstArc[v] .. firstArc[v + 1]} indexes {@code arcTarget}/{@code arcMeters}). Nodes are
+ * renumbered cell by cell on a coarse lat/lng grid, which both answers "nearest node" lookups and keeps
+ * neighbouring nodes close in memory. Each query snaps both ends to the nearest node (at most
+ * {@code routing.graph.max-snap-meters} away) and runs A* with a straight-line heuristic; the snapping
+ * legs are added as straight lines.
+ * <p>
+ * Extract format, one record per line ({@code #} starts a comment), ids are any longs (OSM node ids):
+ * <pre>
+ * node,&lt;id&gt;,&lt;lat&gt;,&lt;lng&gt;
+ * edge,&lt;from&gt;,&lt;to&gt;,&lt;meters&gt;[,oneway]
+ * </pre>
+ * An empty length is replaced by the straight-line distance between the two nodes.
+ */
+public class GraphRoutingEngine implements RoutingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphRoutingEngine.class);
+
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+    private static final double MIN_CELL_DEGREES = 0.005;
+
+    private final int nodeCount;
+    private final float[] lat;
+    private final float[] lng;
+    private final int[] firstArc;
+    private final int[] arcTarget;
+    private final float[] arcMeters;
+
+    // snapping grid: nodes of cell c are cellStart[c] .. cellStart[c + 1]
+    private final double minLat;
+    private final double minLng;
+    private final double cellDegrees;
+    private final int rows;
+    private final int cols;
+    private final int[] cellStart;
+
+    private final double maxSnapMeters;
+    private final ThreadLocal<Workspace> workspaces;
+
+    private GraphRoutingEngine(Builder builder, double maxSnapMeters) {
+        this.maxSnapMeters = maxSnapMeters;
+        int n = builder.nodeCount;
+        this.nodeCount = n;
+
+        double loLat = Double.MAX_VALUE, hiLat = -Double.MAX_VALUE, loLng = Double.MAX_VALUE, hiLng = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            loLat = Math.min(loLat, builder.lat[i]);
+            hiLat = Math.max(hiLat, builder.lat[i]);
+            loLng = Math.min(loLng, builder.lng[i]);
+            hiLng = Math.max(hiLng, builder.lng[i]);
+        }
+        if (n == 0) {
+            loLat = hiLat = loLng = hiLng = 0;
+        }
+        // about four nodes per cell on average, never finer than MIN_CELL_DEGREES
+        double area = Math.max(hiLat - loLat, MIN_CELL_DEGREES) * Math.max(hiLng - loLng, MIN_CELL_DEGREES);
+        this.cellDegrees = Math.max(MIN_CELL_DEGREES, Math.sqrt(area / Math.max(1, n / 4)));
+        this.minLat = loLat;
+        this.minLng = loLng;
+        this.rows = (int) ((hiLat - loLat) / cellDegrees) + 1;
+        this.cols = (int) ((hiLng - loLng) / cellDegrees) + 1;
+
+        // counting sort of the nodes by cell: newIndex[old] = position in cell order
+        int[] cellOf = new int[n];
+        this.cellStart = new int[rows * cols + 1];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = cell(row(builder.lat[i]), col(builder.lng[i]));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < rows * cols; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, rows * cols);
+        int[] newIndex = new int[n];
+        this.lat = new float[n];
+        this.lng = new float[n];
+        for (int i = 0; i < n; i++) {
+            int v = next[cellOf[i]]++;
+            newIndex[i] = v;
+            lat[v] = builder.lat[i];
+            lng[v] = builder.lng[i];
+        }
+
+        // CSR adjacency
+        int m = builder.arcCount;
+        this.firstArc = new int[n + 1];
+        for (int a = 0; a < m; a++) {
+            firstArc[newIndex[builder.arcFrom[a]] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            firstArc[v + 1] += firstArc[v];
+        }
+        int[] fill = Arrays.copyOf(firstArc, n);
+        this.arcTarget = new int[m];
+        this.arcMeters = new float[m];
+        for (int a = 0; a < m; a++) {
+            int slot = fill[newIndex[builder.arcFrom[a]]]++;
+            arcTarget[slot] = newIndex[builder.arcTo[a]];
+            arcMeters[slot] = builder.arcMeters[a];
+        }
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(nodeCount));
+    }
+
+    /** Reads an extract in the format described above. */
+    public static GraphRoutingEngine load(Path file, double maxSnapMeters) throws IOException {
+        long start = System.nanoTime();
+        Builder builder = new Builder();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                try {
+                    switch (fields[0]) {
+                        case "node" -> builder.node(Long.parseLong(fields[1].strip()),
+                                Double.parseDouble(fields[2].strip()), Double.parseDouble(fields[3].strip()));
+                        case "edge" -> builder.edge(Long.parseLong(fields[1].strip()), Long.parseLong(fields[2].strip()),
+                                fields.length > 3 && !fields[3].isBlank() ? Double.parseDouble(fields[3].strip()) : Double.NaN,
+                                fields.length > 4 && "oneway".equalsIgnoreCase(fields[4].strip()));
+                        default -> throw new IllegalArgumentException("unknown record " + fields[0]);
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException(file + ":" + number + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        GraphRoutingEngine engine = builder.build(maxSnapMeters);
+        logger.info("Road graph loaded from {}: {} nodes, {} arcs in {} ms", file, engine.nodeCount(),
+                engine.arcCount(), (System.nanoTime() - start) / 1_000_000);
+        return engine;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int arcCount() {
+        return arcTarget.length;
+    }
+
+    @Override
+    public Double drivingDistanceKm(double startLat, double startLng, double endLat, double endLng) {
+        int source = nearestNode(startLat, startLng);
+        int target = nearestNode(endLat, endLng);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        double meters = shortestPathMeters(source, target);
+        if (Double.isNaN(meters)) {
+            return null;
+        }
+        return (metersBetween(startLat, startLng, lat[source], lng[source]) + meters
+                + metersBetween(lat[target], lng[target], endLat, endLng)) / 1000.0;
+    }
+
+    /** Closest node within {@code maxSnapMeters}, or -1. */
+    int nearestNode(double pointLat, double pointLng) {
+        int r0 = (int) Math.floor((pointLat - minLat) / cellDegrees);
+        int c0 = (int) Math.floor((pointLng - minLng) / cellDegrees);
+        // a ring of cells around (r0, c0) covers at least this many meters per step in every direction
+        double ringMeters = cellDegrees * Math.toRadians(1) * EARTH_RADIUS_M
+                * Math.cos(Math.toRadians(Math.min(89, Math.abs(pointLat) + cellDegrees)));
+        int best = -1;
+        double bestMeters = maxSnapMeters;
+        int maxRing = Math.max(rows, cols) + Math.max(Math.abs(r0), Math.abs(c0));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if ((ring - 1) * ringMeters > bestMeters) {
+                break;
+            }
+            for (int r = r0 - ring; r <= r0 + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                // whole rows at the top and bottom of the ring, only both ends in between
+                int step = r == r0 - ring || r == r0 + ring ? 1 : Math.max(1, 2 * ring);
+                for (int c = c0 - ring; c <= c0 + ring; c += step) {
+                    if (c < 0 || c >= cols) {
+                        continue;
+                    }
+                    int cell = cell(r, c);
+                    for (int v = cellStart[cell]; v < cellStart[cell + 1]; v++) {
+                        double meters = metersBetween(pointLat, pointLng, lat[v], lng[v]);
+                        if (meters <= bestMeters) {
+                            bestMeters = meters;
+                            best = v;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /** A* between two nodes; NaN when the target cannot be reached. */
+    double shortestPathMeters(int source, int target) {
+        if (source == target) {
+            return 0;
+        }
+        Workspace ws = workspaces.get();
+        ws.reset();
+        double targetLat = lat[target];
+        double targetLng = lng[target];
+        ws.relax(source, 0f, (float) lowerBoundMeters(lat[source], lng[source], targetLat, targetLng));
+        while (ws.heapSize > 0) {
+            int v = ws.heapNode[0];
+            float f = ws.heapKey[0];
+            ws.pop();
+            float g = ws.distance[v];
+            if (v == target) {
+                return g;
+            }
+            // stale heap entry: v was reached again by a shorter path since it was pushed
+            if (f > g + ws.heuristic[v]) {
+                continue;
+            }
+            for (int a = firstArc[v]; a < firstArc[v + 1]; a++) {
+                int w = arcTarget[a];
+                float candidate = g + arcMeters[a];
+                if (ws.known(w) && candidate >= ws.distance[w]) {
+                    continue;
+                }
+                float h = ws.known(w) ? ws.heuristic[w] : (float) lowerBoundMeters(lat[w], lng[w], targetLat, targetLng);
+                ws.relax(w, candidate, h);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private int row(double latitude) {
+        return Math.min(rows - 1, Math.max(0, (int) ((latitude - minLat) / cellDegrees)));
+    }
+
+    private int col(double longitude) {
+        return Math.min(cols - 1, Math.max(0, (int) ((longitude - minLng) / cellDegrees)));
+    }
+
+    private int cell(int row, int col) {
+        return row * cols + col;
+    }
+
+    /** Equirectangular distance, close to the great circle over the few km used for snapping. */
+    private static double metersBetween(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_M;
+    }
+
+    /**
+     * Straight-line distance that never exceeds the great circle: longitudes are scaled by the cosine of
+     * the latitude furthest from the equator, so the A* heuristic stays admissible.
+     */
+    private static double lowerBoundMeters(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians(Math.max(Math.abs(lat1), Math.abs(lat2))));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_M * 0.999;
+    }
+
+    /**
+     * Per-thread search state, reused between queries: distances are valid only for nodes stamped with
+     * the current generation, so nothing is cleared between queries.
+     */
+    private static final class Workspace {
+
+        final float[] distance;
+        final float[] heuristic;
+        final int[] stamp;
+        int generation;
+
+        // binary min-heap on f = g + h, with duplicates instead of decrease-key
+        int[] heapNode = new int[64];
+        float[] heapKey = new float[64];
+        int heapSize;
+
+        Workspace(int nodes) {
+            distance = new float[nodes];
+            heuristic = new float[nodes];
+            stamp = new int[nodes];
+        }
+
+        void reset() {
+            heapSize = 0;
+            if (++generation == 0) {
+                Arrays.fill(stamp, 0);
+                generation = 1;
+            }
+        }
+
+        boolean known(int v) {
+            return stamp[v] == generation;
+        }
+
+        void relax(int v, float g, float h) {
+            stamp[v] = generation;
+            distance[v] = g;
+            heuristic[v] = h;
+            push(v, g + h);
+        }
+
+        private void push(int v, float key) {
+            if (heapSize == heapNode.length) {
+                heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+                heapKey = Arrays.copyOf(heapKey, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapKey[parent] <= key) {
+                    break;
+                }
+                heapNode[i] = heapNode[parent];
+                heapKey[i] = heapKey[parent];
+                i = parent;
+            }
+            heapNode[i] = v;
+            heapKey[i] = key;
+        }
+
+        private void pop() {
+            int lastNode = heapNode[--heapSize];
+            float lastKey = heapKey[heapSize];
+            int i = 0;
+            int half = heapSize >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) {
+                    child++;
+                }
+                if (lastKey <= heapKey[child]) {
+                    break;
+                }
+                heapNode[i] = heapNode[child];
+                heapKey[i] = heapKey[child];
+                i = child;
+            }
+            heapNode[i] = lastNode;
+            heapKey[i] = lastKey;
+        }
+    }
+
+    /** Collects nodes and edges in growable primitive arrays before the CSR layout is built. */
+    static final class Builder {
+
+        private final Map<Long, Integer> index = new HashMap<>();
+        private float[] lat = new float[1024];
+        private float[] lng = new float[1024];
+        private int nodeCount;
+        private int[] arcFrom = new int[2048];
+        private int[] arcTo = new int[2048];
+        private float[] arcMeters = new float[2048];
+        private int arcCount;
+
+        Builder node(long id, double latitude, double longitude) {
+            if (index.putIfAbsent(id, nodeCount) != null) {
+                throw new IllegalArgumentException("duplicate node " + id);
+            }
+            if (nodeCount == lat.length) {
+                lat = Arrays.copyOf(lat, nodeCount * 2);
+                lng = Arrays.copyOf(lng, nodeCount * 2);
+            }
+            lat[nodeCount] = (float) latitude;
+            lng[nodeCount] = (float) longitude;
+            nodeCount++;
+            return this;
+        }
+
+        /** Edge between two declared nodes; {@code meters} NaN for the straight-line distance. */
+        Builder edge(long from, long to, double meters, boolean oneway) {
+            int a = indexOf(from);
+            int b = indexOf(to);
+            float length = (float) (Double.isNaN(meters) ? metersBetween(lat[a], lng[a], lat[b], lng[b]) : meters);
+            if (length < 0) {
+                throw new IllegalArgumentException("negative length " + meters);
+            }
+            arc(a, b, length);
+            if (!oneway) {
+                arc(b, a, length);
+            }
+            return this;
+        }
+
+        GraphRoutingEngine build(double maxSnapMeters) {
+            return new GraphRoutingEngine(this, maxSnapMeters);
+        }
+
+        private int indexOf(long id) {
+            Integer i = index.get(id);
+            if (i == null) {
+                throw new IllegalArgumentException("unknown node " + id);
+            }
+            return i;
+        }
+
+        private void arc(int from, int to, float meters) {
+            if (arcCount == arcFrom.length) {
+                arcFrom = Arrays.copyOf(arcFrom, arcCount * 2);
+                arcTo = Arrays.copyOf(arcTo, arcCount * 2);
+                arcMeters = Arrays.copyOf(arcMeters, arcCount * 2);
+            }
+            arcFrom[arcCount] = from;
+            arcTo[arcCount] = to;
+            arcMeters[arcCount] = meters;
+            arcCount++;
+        }
+    }
+}
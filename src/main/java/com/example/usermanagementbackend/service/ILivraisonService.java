@@ -1,6 +1,8 @@
 package com.example.usermanagementbackend.service;
 
 import com.example.usermanagementbackend.dto.LivraisonDTO;
+import org.springframework.web.multipart.MultipartFile;
+
 import java.util.List;
 
 public interface ILivraisonService {
@@ -9,5 +11,6 @@ public interface ILivraisonService {
     List<LivraisonDTO> getAllLivraisons();
     LivraisonDTO updateLivraison(Long id, LivraisonDTO livraisonDTO);
     void deleteLivraison(Long id);
+    LivraisonDTO uploadPhoto(Long id, MultipartFile file);
 
 }
\ No newline at end of file
@@ -1,10 +1,10 @@
 package com.example.usermanagementbackend.service;
 
+import com.example.usermanagementbackend.dto.PromotionsDynamiques;
 import com.example.usermanagementbackend.entity.Produit;
 import com.example.usermanagementbackend.entity.Promotion;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 public interface IPromotionService {
@@ -13,14 +13,14 @@ public interface IPromotionService {
     Promotion createPromotion(Promotion promotion);
     Promotion updatePromotion(Integer id, Promotion promotion);
     void deletePromotion(Integer id);
-    void appliquerPromotionExpirationProduit();
+    int appliquerPromotionExpirationProduit();
     void bulkActivate(List<Integer> ids);
     void bulkDeactivate(List<Integer> ids);
     void bulkDelete(List<Integer> ids);
     List<Produit> getProduitsProchesExpiration();
     // Nouvelle méthode pour récupérer les promotions dynamiques
-    Map<String, List<Map<String, Object>>> getDynamicPromotions();
+    PromotionsDynamiques getDynamicPromotions();
     Promotion toggleActiveStatus(Integer id, boolean active);
     void appliquerPromotionSurProduit(Produit produit, Promotion promo);
-    void verifierPromotionsActives();
+    int verifierPromotionsActives();
 }
@@ -9,24 +9,52 @@ import com.example.usermanagementbackend.mapper.LivraisonMapper;
 import com.example.usermanagementbackend.repository.CommandeRepository;
 import com.example.usermanagementbackend.repository.LivraisonRepository;
 import com.example.usermanagementbackend.repository.LivreurRepository;
-import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class LivraisonService implements ILivraisonService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LivraisonService.class);
+
     private final LivraisonRepository livraisonRepository;
     private final LivreurRepository livreurRepository;
     private final CommandeRepository commandeRepository;
+    private final RoadDistanceService roadDistanceService;
+    private final SuiviGps suiviGps;
+    private final PhotosLivraisons photosLivraisons;
+    // for writes made after commit, while the finished transaction's connection is still bound to the thread
+    private final TransactionTemplate nouvelleTransaction;
 
     private static final double CAR_EMISSION_FACTOR = 0.2;
 
+    public LivraisonService(LivraisonRepository livraisonRepository, LivreurRepository livreurRepository,
+                            CommandeRepository commandeRepository, RoadDistanceService roadDistanceService,
+                            SuiviGps suiviGps, PhotosLivraisons photosLivraisons,
+                            PlatformTransactionManager transactionManager) {
+        this.livraisonRepository = livraisonRepository;
+        this.livreurRepository = livreurRepository;
+        this.commandeRepository = commandeRepository;
+        this.roadDistanceService = roadDistanceService;
+        this.suiviGps = suiviGps;
+        this.photosLivraisons = photosLivraisons;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
     @Override
     @Transactional
     public LivraisonDTO addLivraison(LivraisonDTO dto) {
@@ -45,6 +73,7 @@ public class LivraisonService implements ILivraisonService {
 
         // Set address from Commande
         livraison.setAddress(commande.getAdresse());
+        livraison.setPhotoCle(photoCle(dto.getPhoto(), null));
 
         // Calculate and set carbon footprint using GPS coordinates if available from DTO
         Double currentLat = dto.getCurrentLat();
@@ -90,6 +119,10 @@ public class LivraisonService implements ILivraisonService {
         }
 
         Livraison savedLivraison = livraisonRepository.save(livraison);
+        if (currentLat != null && currentLng != null && destinationLat != null && destinationLng != null) {
+            refineCarbonFootprintAfterCommit(savedLivraison.getId(), carbonFootprint,
+                    currentLat, currentLng, destinationLat, destinationLng);
+        }
         return LivraisonMapper.toDTO(savedLivraison);
     }
 
@@ -120,6 +153,19 @@ public class LivraisonService implements ILivraisonService {
         Livraison updated = LivraisonMapper.toEntity(dto);
         updated.setId(id);
         updated.setAddress(commande.getAdresse()); // Set address from Commande
+        updated.setPhotoCle(photoCle(dto.getPhoto(), existing.getPhotoCle()));
+
+        // Prevent changing status from LIVRE or NON_LIVRE
+        if (existing.getStatusLivraison() == StatusLivraison.LIVRE && updated.getStatusLivraison() != StatusLivraison.LIVRE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot change status from LIVRE");
+        }
+        if (existing.getStatusLivraison() == StatusLivraison.NON_LIVRE && updated.getStatusLivraison() != StatusLivraison.NON_LIVRE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot change status from NON_LIVRE");
+        }
+
+        // Validate livreur exists
+        livreurRepository.findById(updated.getLivreur().getId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Livreur not found"));
 
         // Calculate and set carbon footprint using GPS coordinates if available from DTO
         Double currentLat = dto.getCurrentLat();
@@ -131,6 +177,7 @@ public class LivraisonService implements ILivraisonService {
         Livraison existingLivraison = livraisonRepository.findById(id).orElse(null);
         Double carbonFootprint = null;
         boolean isExistingGpsBased = false;
+        boolean gpsEstimate = false;
 
         // Debug logs - print all GPS coordinates received from frontend
         System.out.println("DEBUG - Update Livraison ID: " + id);
@@ -155,6 +202,20 @@ public class LivraisonService implements ILivraisonService {
             }
         }
 
+        // Delivered with a recorded GPS track: the driven distance replaces any estimate, no routing call.
+        // The track still in memory counts too; it is written once this transaction has committed.
+        Long trackLivreurId = null;
+        if (updated.getStatusLivraison() == StatusLivraison.LIVRE && updated.getLivreur() != null
+                && updated.getLivreur().getId() != null) {
+            trackLivreurId = updated.getLivreur().getId();
+            Double trackKm = suiviGps.distanceParcourueKm(id, trackLivreurId);
+            if (trackKm != null) {
+                carbonFootprint = carbonFootprintForDistance(trackKm);
+                isExistingGpsBased = true;
+                logger.debug("Using recorded GPS track: {} km, {} kg CO2", trackKm, carbonFootprint);
+            }
+        }
+
         // Only recalculate if we don't have a valid GPS-based value already
         if (carbonFootprint == null) {
             try {
@@ -164,6 +225,7 @@ public class LivraisonService implements ILivraisonService {
                     carbonFootprint = calculateCarbonFootprintWithGPS(updated.getTypeLivraison(),
                             currentLat, currentLng,
                             destinationLat, destinationLng);
+                    gpsEstimate = true;
                 } else {
                     // If we already have a GPS-based value stored in the database, use that instead
                     if (existingLivraison != null && existingLivraison.getCarbonFootprint() != null &&
@@ -201,18 +263,6 @@ public class LivraisonService implements ILivraisonService {
         System.out.println("DEBUG - Is based on GPS coordinates: " + (isExistingGpsBased || currentLat != null));
         updated.setCarbonFootprint(carbonFootprint);
 
-        // Prevent changing status from LIVRE or NON_LIVRE
-        if (existing.getStatusLivraison() == StatusLivraison.LIVRE && updated.getStatusLivraison() != StatusLivraison.LIVRE) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot change status from LIVRE");
-        }
-        if (existing.getStatusLivraison() == StatusLivraison.NON_LIVRE && updated.getStatusLivraison() != StatusLivraison.NON_LIVRE) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot change status from NON_LIVRE");
-        }
-
-        // Validate livreur exists
-        livreurRepository.findById(updated.getLivreur().getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Livreur not found"));
-
         // Update only the livraison status, don't change commande status at all
         if (updated.getStatusLivraison() == StatusLivraison.LIVRE) {
             // Don't update the commande status when livraison status changes to LIVRE
@@ -229,6 +279,13 @@ public class LivraisonService implements ILivraisonService {
         commandeRepository.save(commande);
 
         Livraison savedLivraison = livraisonRepository.save(updated);
+        if (trackLivreurId != null) {
+            long livreurId = trackLivreurId;
+            ProduitCatalogue.apresCommit(() -> nouvelleTransaction.executeWithoutResult(status -> suiviGps.vider(livreurId)));
+        }
+        if (gpsEstimate) {
+            refineCarbonFootprintAfterCommit(id, carbonFootprint, currentLat, currentLng, destinationLat, destinationLng);
+        }
         return LivraisonMapper.toDTO(savedLivraison);
     }
 
@@ -245,98 +302,62 @@ public class LivraisonService implements ILivraisonService {
         livraisonRepository.deleteById(id);
     }
 
+    @Override
+    public LivraisonDTO uploadPhoto(Long id, MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Photo file is missing");
+        }
+        if (!livraisonRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Livraison not found");
+        }
+        // streamed from the multipart part to the photo store, never held in memory
+        String cle;
+        try (InputStream contenu = file.getInputStream()) {
+            cle = photosLivraisons.enregistrer(contenu);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not store photo", e);
+        }
+        livraisonRepository.updatePhotoCle(id, cle);
+        return getLivraisonById(id);
+    }
+
     /**
-     * Calculate driving distance using OSRM routing API for accurate road distances
+     * The photo URL this service returned keeps the stored photo; null removes it; anything else is base64
+     * from older clients, as a data URL or raw, and is moved to the photo store.
      */
-    private Double calculateDrivingDistance(Double startLat, Double startLng, Double endLat, Double endLng) {
-        try {
-            // Create the OSRM API URL for driving directions
-            // Must use Locale.US to ensure decimal points (not commas) in coordinates
-            String osrmUrl = String.format(java.util.Locale.US,
-                    "https://router.project-osrm.org/route/v1/driving/%.6f,%.6f;%.6f,%.6f?overview=false",
-                    startLng, startLat, endLng, endLat
-            );
-
-            System.out.println("DEBUG - Calling OSRM API: " + osrmUrl);
-
-            // Create HTTP connection
-            java.net.URL url = new java.net.URL(osrmUrl);
-            java.net.HttpURLConnection connection = (java.net.HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(10000); // 10 second timeout
-            connection.setReadTimeout(10000);    // 10 second timeout
-
-            // Get response
-            int responseCode = connection.getResponseCode();
-
-            if (responseCode == 200) {
-                // Read and parse the response
-                java.io.BufferedReader reader = new java.io.BufferedReader(
-                        new java.io.InputStreamReader(connection.getInputStream())
-                );
-                StringBuilder response = new StringBuilder();
-                String line;
-
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                reader.close();
-
-                String jsonResponse = response.toString();
-                System.out.println("DEBUG - OSRM response received");
-
-                // Extract the distance value more carefully from JSON
-                // Looking for pattern like "distance":12345.6 in the JSON
-                try {
-                    // Simple regex-based approach to extract the distance
-                    java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\"distance\"\s*:\s*(\\d+\\.?\\d*)");
-                    java.util.regex.Matcher matcher = pattern.matcher(jsonResponse);
-
-                    if (matcher.find()) {
-                        String distanceStr = matcher.group(1);
-                        double distanceMeters = Double.parseDouble(distanceStr);
-                        double distanceKm = distanceMeters / 1000.0;
-
-                        System.out.println("DEBUG - OSRM returned driving distance: " + distanceKm + " km");
-                        return distanceKm;
-                    } else {
-                        System.out.println("DEBUG - Could not find distance value in OSRM response");
-                        System.out.println("DEBUG - Response sample: " +
-                                (jsonResponse.length() > 200 ? jsonResponse.substring(0, 200) + "..." : jsonResponse));
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error parsing OSRM response: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            } else {
-                System.err.println("DEBUG - OSRM API error: " + responseCode);
-            }
-
-            return null; // Return null to trigger fallback to Haversine
-        } catch (Exception e) {
-            System.err.println("Error calculating driving distance: " + e.getMessage());
-            e.printStackTrace();
-            return null; // Return null to trigger fallback to Haversine
+    private String photoCle(String photo, String current) {
+        if (photo == null || photo.isBlank()) {
+            return null;
         }
+        // relative, or made absolute by the client
+        return photo.contains(LivraisonMapper.PHOTOS_URL) ? current : photosLivraisons.enregistrerBase64(photo);
     }
 
-    private Double calculateHaversineDistance(Double lat1, Double lng1, Double lat2, Double lng2) {
-        // Radius of the Earth in kilometers
-        final double EARTH_RADIUS = 6371.0;
-
-        // Convert degrees to radians
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lngDistance = Math.toRadians(lng2 - lng1);
-
-        // Apply Haversine formula
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lngDistance / 2) * Math.sin(lngDistance / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    /**
+     * Once the transaction has committed, asks for the road distance off the request thread and, if it
+     * changes the footprint saved from the provisional estimate, applies it with a single short UPDATE.
+     * A newer footprint written in the meantime is left alone. The UPDATE always runs in a new transaction.
+     */
+    private void refineCarbonFootprintAfterCommit(Long livraisonId, Double provisional,
+                                                  double startLat, double startLng, double endLat, double endLng) {
+        ProduitCatalogue.apresCommit(() -> roadDistanceService.roadDistance(startLat, startLng, endLat, endLng)
+                .thenAccept(estimate -> {
+                    double refined = carbonFootprintForDistance(estimate.distanceKm());
+                    if (estimate.road() && refined != provisional) {
+                        // on a cache hit this still runs inside afterCommit, on the caller thread
+                        nouvelleTransaction.executeWithoutResult(
+                                status -> livraisonRepository.updateCarbonFootprint(livraisonId, provisional, refined));
+                        logger.debug("Livraison {} carbon footprint refined with road distance: {} kg CO2", livraisonId, refined);
+                    }
+                })
+                .exceptionally(e -> {
+                    logger.warn("Error refining carbon footprint of livraison {}: {}", livraisonId, e.getMessage());
+                    return null;
+                }));
+    }
 
-        // Distance in kilometers
-        return EARTH_RADIUS * c;
+    private static double carbonFootprintForDistance(double distanceKm) {
+        return Math.round(distanceKm * CAR_EMISSION_FACTOR * 100) / 100.0;
     }
 
     /**
@@ -412,7 +433,7 @@ public class LivraisonService implements ILivraisonService {
     }
 
     /**
-     * Calculate carbon footprint based on GPS coordinates
+     * Calculate carbon footprint based on GPS coordinates, without waiting for the routing service
      * @param typeLivraison the type of delivery vehicle
      * @param currentLat current latitude
      * @param currentLng current longitude
@@ -429,21 +450,12 @@ public class LivraisonService implements ILivraisonService {
                     currentLat + ", " + currentLng + "] to [" +
                     destinationLat + ", " + destinationLng + "]");
 
-            // First try to get actual driving route distance using OSRM API
-            Double drivingDistanceKm = calculateDrivingDistance(currentLat, currentLng, destinationLat, destinationLng);
-
-            // If driving distance calculation fails, fall back to Haversine
-            double estimatedDistanceKm;
-            if (drivingDistanceKm != null) {
-                estimatedDistanceKm = drivingDistanceKm;
-                System.out.println("DEBUG - Using actual road distance: " + estimatedDistanceKm + " km");
-            } else {
-                // Calculate distance using Haversine formula as fallback
-                estimatedDistanceKm = calculateHaversineDistance(
-                        currentLat, currentLng, destinationLat, destinationLng
-                );
-                System.out.println("DEBUG - Using fallback Haversine distance: " + estimatedDistanceKm + " km");
-            }
+            // Road distance if already cached, otherwise Haversine; the routing engine is only called after commit
+            RoadDistanceService.Estimate estimate = roadDistanceService.cachedOrHaversine(
+                    currentLat, currentLng, destinationLat, destinationLng);
+            double estimatedDistanceKm = estimate.distanceKm();
+            logger.debug("Using {} distance: {} km", estimate.road() ? "cached road" : "provisional Haversine",
+                    estimatedDistanceKm);
 
             // Always use car emission factor (0.2 kg CO2/km)
             double emissionFactor = CAR_EMISSION_FACTOR;
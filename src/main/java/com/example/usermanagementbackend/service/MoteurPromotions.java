@@ -0,0 +1,248 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.EvaluationPanier;
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.Promotion;
+import com.example.usermanagementbackend.repository.PromotionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Évaluation des promotions panier (ACHAT_GROUPE, MONTANT_MIN).
+ * <p>
+ * Chaque promotion active est compilée une fois en {@link Regle} (seuil, taux, période, produits
+ * visés triés) et la liste compilée est réutilisée jusqu'au prochain changement de promotion
+ * ({@link #invalider()}). L'évaluation ne lit pas la base et n'écrit rien.
+ * <p>
+ * Cumul: au plus une promotion par condition, la mieux disante (taux décroissant puis id). Les
+ * remises retenues s'appliquent ensuite l'une après l'autre, dans cet ordre, sur le montant restant
+ * des lignes qu'elles visent. Les seuils sont évalués sur les montants avant remise. Les promotions
+ * produit (expiration, Black Friday...) sont déjà dans les prix unitaires ({@link PrixEffectif}).
+ */
+@Component
+public class MoteurPromotions {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoteurPromotions.class);
+
+    private static final long JOUR_MS = TimeUnit.DAYS.toMillis(1);
+    private static final Comparator<Regle> ORDRE = Comparator.comparingDouble((Regle r) -> r.pourcentage).reversed()
+            .thenComparing(r -> r.promotionId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final PromotionRepository promotionRepository;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Compilation compilation;
+
+    /** Seuil compilé d'une condition; une quantité négative signifie « inconnue » (montant seul). */
+    @FunctionalInterface
+    interface Seuil {
+        boolean atteint(double montant, int quantite);
+    }
+
+    static final class Regle {
+        final Integer promotionId;
+        final String nom;
+        final String condition;
+        final double pourcentage;
+        final double facteur;
+        final long debut;
+        final long fin;
+        // ids triés; vide: tout le panier
+        final long[] produits;
+        final Seuil seuil;
+
+        private Regle(Promotion promotion, Seuil seuil) {
+            this.promotionId = promotion.getId();
+            this.nom = promotion.getNom();
+            this.condition = promotion.getConditionPromotion();
+            this.pourcentage = Math.max(0, Math.min(100, promotion.getPourcentageReduction()));
+            this.facteur = 1 - pourcentage / 100;
+            Date dateDebut = promotion.getDateDebut();
+            Date dateFin = promotion.getDateFin();
+            this.debut = dateDebut == null ? Long.MIN_VALUE : dateDebut.getTime();
+            this.fin = dateFin == null ? Long.MAX_VALUE : dateFin.getTime() + JOUR_MS;
+            this.produits = promotion.getProduits() == null ? new long[0] : promotion.getProduits().stream()
+                    .map(Produit::getId).filter(Objects::nonNull).mapToLong(Long::longValue).sorted().distinct().toArray();
+            this.seuil = seuil;
+        }
+
+        boolean enCours(long maintenant) {
+            return maintenant >= debut && maintenant < fin;
+        }
+
+        boolean vise(long produitId) {
+            return produits.length == 0 || Arrays.binarySearch(produits, produitId) >= 0;
+        }
+    }
+
+    private record Compilation(long version, Regle[] regles) {
+    }
+
+    /** Panier à évaluer: lignes produit, quantité et prix unitaire (déjà remisé par produit). */
+    public static final class Panier {
+        private long[] produits = new long[8];
+        private int[] quantites = new int[8];
+        private double[] montants = new double[8];
+        private int taille;
+
+        public Panier ajouter(long produitId, int quantite, double prixUnitaire) {
+            if (taille == produits.length) {
+                produits = Arrays.copyOf(produits, taille * 2);
+                quantites = Arrays.copyOf(quantites, taille * 2);
+                montants = Arrays.copyOf(montants, taille * 2);
+            }
+            produits[taille] = produitId;
+            quantites[taille] = quantite;
+            montants[taille] = quantite * prixUnitaire;
+            taille++;
+            return this;
+        }
+
+        public int taille() {
+            return taille;
+        }
+    }
+
+    public MoteurPromotions(PromotionRepository promotionRepository) {
+        this.promotionRepository = promotionRepository;
+    }
+
+    /** Les promotions ont changé: la liste compilée sera reconstruite après le commit courant. */
+    public void invalider() {
+        ProduitCatalogue.apresCommit(version::incrementAndGet);
+    }
+
+    public EvaluationPanier evaluer(Panier panier) {
+        return evaluer(panier, regles(), System.currentTimeMillis());
+    }
+
+    /**
+     * Montant après application d'une seule promotion, sans tenir compte des autres ni de sa période
+     * (comportement historique de GET /promotions/appliquer/{id}/{montant}). Sans détail de panier,
+     * ACHAT_GROUPE garde l'ancienne règle sur le montant. Aucune écriture.
+     */
+    public double previsualiser(Promotion promotion, double montant) {
+        if (promotion == null || !promotion.isActive()) {
+            return montant;
+        }
+        Regle regle = compiler(promotion, true);
+        if (regle == null || !regle.seuil.atteint(montant, -1)) {
+            return montant;
+        }
+        return montant * regle.facteur;
+    }
+
+    Regle[] regles() {
+        Compilation courante = compilation;
+        long attendue = version.get();
+        if (courante != null && courante.version == attendue) {
+            return courante.regles;
+        }
+        synchronized (this) {
+            courante = compilation;
+            attendue = version.get();
+            if (courante == null || courante.version != attendue) {
+                long debut = System.nanoTime();
+                List<Regle> regles = new ArrayList<>();
+                for (Promotion promotion : promotionRepository.findActivesAvecProduits()) {
+                    Regle regle = compiler(promotion, false);
+                    if (regle != null) {
+                        regles.add(regle);
+                    }
+                }
+                regles.sort(ORDRE);
+                // version lue avant la requête: une invalidation pendant la compilation force une nouvelle passe
+                courante = new Compilation(attendue, regles.toArray(new Regle[0]));
+                compilation = courante;
+                logger.info("Promotions panier compilées: {} règles en {} µs", regles.size(),
+                        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - debut));
+            }
+            return courante.regles;
+        }
+    }
+
+    static EvaluationPanier evaluer(Panier panier, Regle[] regles, long maintenant) {
+        int n = panier.taille;
+        double montantInitial = 0;
+        for (int i = 0; i < n; i++) {
+            montantInitial += panier.montants[i];
+        }
+        EvaluationPanier evaluation = new EvaluationPanier(montantInitial, montantInitial, new ArrayList<>());
+        if (n == 0 || regles.length == 0) {
+            return evaluation;
+        }
+
+        // sélection sur les montants avant remise, une règle par condition
+        List<Regle> retenues = new ArrayList<>(2);
+        Set<String> conditions = new HashSet<>(4);
+        for (Regle regle : regles) {
+            if (conditions.contains(regle.condition) || !regle.enCours(maintenant)) {
+                continue;
+            }
+            double base = 0;
+            int quantite = 0;
+            for (int i = 0; i < n; i++) {
+                if (regle.vise(panier.produits[i])) {
+                    base += panier.montants[i];
+                    quantite += panier.quantites[i];
+                }
+            }
+            if (base > 0 && regle.seuil.atteint(base, quantite)) {
+                retenues.add(regle);
+                conditions.add(regle.condition);
+            }
+        }
+        if (retenues.isEmpty()) {
+            return evaluation;
+        }
+
+        double[] restant = Arrays.copyOf(panier.montants, n);
+        double montantFinal = montantInitial;
+        for (Regle regle : retenues) {
+            double remise = 0;
+            for (int i = 0; i < n; i++) {
+                if (regle.vise(panier.produits[i])) {
+                    double apres = restant[i] * regle.facteur;
+                    remise += restant[i] - apres;
+                    restant[i] = apres;
+                }
+            }
+            montantFinal -= remise;
+            evaluation.getRemises().add(new EvaluationPanier.RemiseAppliquee(
+                    regle.promotionId, regle.nom, regle.condition, regle.pourcentage, remise));
+        }
+        evaluation.setMontantFinal(montantFinal);
+        return evaluation;
+    }
+
+    /**
+     * Compile le seuil d'une promotion. Hors mode montant seul, seules les conditions panier donnent
+     * une règle; les autres conditions sont des remises produit.
+     */
+    static Regle compiler(Promotion promotion, boolean montantSeul) {
+        String condition = promotion.getConditionPromotion();
+        if (condition == null) {
+            return null;
+        }
+        Seuil seuil = switch (condition) {
+            // panier détaillé: au moins 3 articles visés; montant seul: ancienne règle sur le montant
+            case "ACHAT_GROUPE" -> (montant, quantite) -> quantite < 0 ? montant >= 3 : quantite >= 3;
+            case "MONTANT_MIN" -> (montant, quantite) -> montant > 100;
+            case "EXPIRATION_PRODUIT", "EXPIRATION_AND_LOW_SALES" -> montantSeul ? (montant, quantite) -> true : null;
+            default -> null;
+        };
+        return seuil == null ? null : new Regle(promotion, seuil);
+    }
+}
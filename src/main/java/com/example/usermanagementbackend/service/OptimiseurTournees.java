@@ -0,0 +1,296 @@
+package com.example.usermanagementbackend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Tournées multi-arrêts au départ d'un dépôt (VRP, capacité en nombre d'arrêts) sur une matrice de
+ * distances précalculée, point 0 = dépôt.
+ * <p>
+ * Construction par l'algorithme des économies (Clarke-Wright) restreint aux {@value #VOISINS} plus proches
+ * voisins de chaque arrêt, ce qui garde un nombre de paires linéaire pour des milliers d'arrêts; puis
+ * recherche locale 2-opt et or-opt dans chaque tournée, les tournées étant améliorées en parallèle sur le
+ * {@link ForkJoinPool}. La recherche locale s'arrête à l'échéance: la meilleure solution atteinte est rendue.
+ */
+final class OptimiseurTournees {
+
+    static final int DEPOT = 0;
+
+    private static final int VOISINS = 40;
+    private static final int OR_OPT_MAX = 3;
+    private static final float EPSILON = 1e-4f;
+
+    /** Tournées (indices des arrêts dans l'ordre de passage, sans le dépôt) et arrêts laissés de côté. */
+    record Resultat(List<int[]> tournees, int[] nonAffectes, double distance) {
+    }
+
+    private final ForkJoinPool pool;
+
+    OptimiseurTournees(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /** Matrice n x n à plat des distances à vol d'oiseau (km) multipliées par {@code detour}. */
+    float[] matrice(double[] lat, double[] lng, double detour) {
+        int n = lat.length;
+        float[] d = new float[n * n];
+        // chaque ligne i écrit (i, j) et (j, i) pour j > i: aucune case n'est écrite par deux tâches
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            for (int j = i + 1; j < n; j++) {
+                float km = (float) (RoadDistanceService.haversineKm(lat[i], lng[i], lat[j], lng[j]) * detour);
+                d[i * n + j] = km;
+                d[j * n + i] = km;
+            }
+        })).join();
+        return d;
+    }
+
+    /**
+     * @param d        matrice symétrique n x n, point {@link #DEPOT} inclus
+     * @param capacite nombre maximal d'arrêts par tournée
+     * @param vehicules nombre maximal de tournées; les plus petites au-delà sont laissées de côté
+     * @param echeance {@link System#nanoTime()} au-delà duquel on rend la solution courante
+     */
+    Resultat optimiser(float[] d, int n, int capacite, int vehicules, long echeance) {
+        List<int[]> tournees = economies(d, n, capacite, echeance);
+        tournees.sort(Comparator.comparingInt((int[] t) -> t.length).reversed());
+        List<int[]> retenues = new ArrayList<>(tournees.subList(0, Math.min(vehicules, tournees.size())));
+        int[] nonAffectes = tournees.subList(retenues.size(), tournees.size()).stream()
+                .flatMapToInt(Arrays::stream).sorted().toArray();
+
+        pool.submit(() -> retenues.parallelStream().forEach(t -> ameliorer(t, d, n, echeance))).join();
+
+        double distance = 0;
+        for (int[] t : retenues) {
+            distance += longueur(t, d, n);
+        }
+        return new Resultat(retenues, nonAffectes, distance);
+    }
+
+    static double longueur(int[] tournee, float[] d, int n) {
+        double total = 0;
+        int precedent = DEPOT;
+        for (int arret : tournee) {
+            total += d[precedent * n + arret];
+            precedent = arret;
+        }
+        return total + d[precedent * n + DEPOT];
+    }
+
+    /**
+     * Clarke-Wright: chaque arrêt part seul du dépôt, puis on relie les extrémités de deux tournées par
+     * ordre d'économie décroissante d(0,i) + d(0,j) - d(i,j), tant que la capacité le permet.
+     */
+    private List<int[]> economies(float[] d, int n, int capacite, long echeance) {
+        int arrets = n - 1;
+        int k = Math.min(VOISINS, arrets - 1);
+        int[] voisins = new int[Math.max(0, arrets * k)];
+        pool.submit(() -> IntStream.rangeClosed(1, arrets).parallel()
+                .forEach(i -> plusProches(d, n, i, k, voisins, (i - 1) * k))).join();
+
+        // économie en poids fort (bits d'un float positif: même ordre que les valeurs), paire en poids faible
+        long[] cles = new long[voisins.length];
+        int paires = 0;
+        for (int i = 1; i <= arrets; i++) {
+            for (int v = 0; v < k; v++) {
+                int j = voisins[(i - 1) * k + v];
+                float economie = d[i] + d[j] - d[i * n + j];
+                if (economie > 0) {
+                    cles[paires++] = (long) Float.floatToIntBits(economie) << 32 | (long) (i - 1) * k + v;
+                }
+            }
+        }
+        Arrays.parallelSort(cles, 0, paires);
+
+        int[] tournee = new int[n];
+        int[] tete = new int[n];
+        int[] queue = new int[n];
+        int[] taille = new int[n];
+        int[] suivant = new int[n];
+        int[] precedent = new int[n];
+        for (int i = 1; i <= arrets; i++) {
+            tournee[i] = tete[i] = queue[i] = i;
+            taille[i] = 1;
+            suivant[i] = precedent[i] = DEPOT;
+        }
+        for (int p = paires - 1; p >= 0; p--) {
+            if ((p & 1023) == 0 && System.nanoTime() > echeance) {
+                break;
+            }
+            int paire = (int) cles[p];
+            int i = paire / k + 1;
+            int j = voisins[paire];
+            int ri = tournee[i];
+            int rj = tournee[j];
+            if (ri == rj || taille[ri] + taille[rj] > capacite
+                    || (tete[ri] != i && queue[ri] != i) || (tete[rj] != j && queue[rj] != j)) {
+                continue;
+            }
+            // orienter pour relier la queue de ri à la tête de rj
+            if (queue[ri] != i) {
+                inverser(ri, tete, queue, suivant, precedent);
+            }
+            if (tete[rj] != j) {
+                inverser(rj, tete, queue, suivant, precedent);
+            }
+            suivant[i] = j;
+            precedent[j] = i;
+            // la plus petite des deux tournées est renommée
+            int garde = taille[ri] >= taille[rj] ? ri : rj;
+            int absorbee = garde == ri ? rj : ri;
+            for (int x = tete[absorbee]; x != DEPOT; x = suivant[x]) {
+                if (tournee[x] != absorbee) {
+                    break;
+                }
+                tournee[x] = garde;
+            }
+            int nouvelleTete = tete[ri];
+            int nouvelleQueue = queue[rj];
+            tete[garde] = nouvelleTete;
+            queue[garde] = nouvelleQueue;
+            taille[garde] = taille[ri] + taille[rj];
+            taille[absorbee] = 0;
+        }
+
+        List<int[]> resultat = new ArrayList<>();
+        for (int r = 1; r <= arrets; r++) {
+            if (taille[r] > 0 && tournee[tete[r]] == r) {
+                int[] t = new int[taille[r]];
+                int x = tete[r];
+                for (int pos = 0; pos < t.length; pos++, x = suivant[x]) {
+                    t[pos] = x;
+                }
+                resultat.add(t);
+            }
+        }
+        return resultat;
+    }
+
+    private static void inverser(int r, int[] tete, int[] queue, int[] suivant, int[] precedent) {
+        int x = tete[r];
+        while (x != DEPOT) {
+            int s = suivant[x];
+            suivant[x] = precedent[x];
+            precedent[x] = s;
+            x = s;
+        }
+        int t = tete[r];
+        tete[r] = queue[r];
+        queue[r] = t;
+    }
+
+    /** Les k arrêts les plus proches de i (dépôt exclu), écrits dans voisins[debut .. debut + k). */
+    private static void plusProches(float[] d, int n, int i, int k, int[] voisins, int debut) {
+        if (k <= 0) {
+            return;
+        }
+        float[] distances = new float[k];
+        Arrays.fill(distances, Float.MAX_VALUE);
+        int pire = 0;
+        for (int j = 1; j < n; j++) {
+            float dij = d[i * n + j];
+            if (j == i || dij >= distances[pire]) {
+                continue;
+            }
+            distances[pire] = dij;
+            voisins[debut + pire] = j;
+            for (int v = 0; v < k; v++) {
+                if (distances[v] > distances[pire]) {
+                    pire = v;
+                }
+            }
+        }
+    }
+
+    /** 2-opt puis or-opt jusqu'à ce qu'aucun mouvement n'améliore la tournée ou que l'échéance soit passée. */
+    static void ameliorer(int[] t, float[] d, int n, long echeance) {
+        boolean ameliore = true;
+        while (ameliore && System.nanoTime() < echeance) {
+            ameliore = deuxOpt(t, d, n) | orOpt(t, d, n);
+        }
+    }
+
+    private static boolean deuxOpt(int[] t, float[] d, int n) {
+        boolean ameliore = false;
+        int m = t.length;
+        for (int i = 0; i < m - 1; i++) {
+            int a = i == 0 ? DEPOT : t[i - 1];
+            int b = t[i];
+            for (int j = i + 1; j < m; j++) {
+                int c = t[j];
+                int e = j == m - 1 ? DEPOT : t[j + 1];
+                float gain = d[a * n + b] + d[c * n + e] - d[a * n + c] - d[b * n + e];
+                if (gain > EPSILON) {
+                    for (int x = i, y = j; x < y; x++, y--) {
+                        int s = t[x];
+                        t[x] = t[y];
+                        t[y] = s;
+                    }
+                    b = t[i];
+                    ameliore = true;
+                }
+            }
+        }
+        return ameliore;
+    }
+
+    /** Déplace un segment de 1 à {@value #OR_OPT_MAX} arrêts ailleurs dans la tournée, éventuellement retourné. */
+    private static boolean orOpt(int[] t, float[] d, int n) {
+        boolean ameliore = false;
+        int m = t.length;
+        for (int longueur = 1; longueur <= Math.min(OR_OPT_MAX, m - 1); longueur++) {
+            for (int s = 0; s + longueur <= m; s++) {
+                int premier = t[s];
+                int dernier = t[s + longueur - 1];
+                int avant = s == 0 ? DEPOT : t[s - 1];
+                int apres = s + longueur == m ? DEPOT : t[s + longueur];
+                float retrait = d[avant * n + premier] + d[dernier * n + apres] - d[avant * n + apres];
+                // insertion entre x et y, arcs hors du segment et différents de (avant, apres)
+                for (int p = -1; p < m; p++) {
+                    if (p >= s - 1 && p < s + longueur) {
+                        continue;
+                    }
+                    int x = p < 0 ? DEPOT : t[p];
+                    int y = p + 1 == m ? DEPOT : t[p + 1];
+                    float direct = d[x * n + premier] + d[dernier * n + y] - d[x * n + y];
+                    float retourne = d[x * n + dernier] + d[premier * n + y] - d[x * n + y];
+                    float insertion = Math.min(direct, retourne);
+                    if (retrait - insertion > EPSILON) {
+                        deplacer(t, s, longueur, p, retourne < direct);
+                        ameliore = true;
+                        break;
+                    }
+                }
+                if (ameliore) {
+                    return true;
+                }
+            }
+        }
+        return ameliore;
+    }
+
+    /** Retire t[s .. s + longueur) et le réinsère après la position p (indices d'avant le retrait). */
+    private static void deplacer(int[] t, int s, int longueur, int p, boolean retourner) {
+        int[] segment = Arrays.copyOfRange(t, s, s + longueur);
+        if (retourner) {
+            for (int x = 0, y = longueur - 1; x < y; x++, y--) {
+                int v = segment[x];
+                segment[x] = segment[y];
+                segment[y] = v;
+            }
+        }
+        if (p < s) {
+            // décale t[p + 1 .. s) vers la droite
+            System.arraycopy(t, p + 1, t, p + 1 + longueur, s - p - 1);
+            System.arraycopy(segment, 0, t, p + 1, longueur);
+        } else {
+            // décale t[s + longueur .. p] vers la gauche
+            System.arraycopy(t, s + longueur, t, s, p - s - longueur + 1);
+            System.arraycopy(segment, 0, t, p - longueur + 1, longueur);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.usermanagementbackend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Driving distances from an OSRM server ({@code routing.osrm.url}, the public demo server by default).
+ * One shared HTTP client keeps connections alive between calls; the JSON answer is parsed with Jackson.
+ */
+@Component
+public class OsrmClient implements RoutingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(OsrmClient.class);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    public OsrmClient(ObjectMapper objectMapper,
+                      @Value("${routing.osrm.url:https://router.project-osrm.org}") String baseUrl,
+                      @Value("${routing.osrm.timeout:10s}") Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    /** Road distance in km, or null when OSRM has no route or cannot be reached. */
+    @Override
+    public Double drivingDistanceKm(double startLat, double startLng, double endLat, double endLng) {
+        // Locale.US: decimal points, not commas, in coordinates
+        String url = String.format(Locale.US, "%s/route/v1/driving/%.6f,%.6f;%.6f,%.6f?overview=false",
+                baseUrl, startLng, startLat, endLng, endLat);
+        try {
+            HttpResponse<byte[]> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(url)).timeout(timeout).GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                logger.warn("OSRM error {} for {}", response.statusCode(), url);
+                return null;
+            }
+            return distanceKm(response.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            logger.warn("OSRM call failed for {}: {}", url, e.toString());
+            return null;
+        }
+    }
+
+    // {"code":"Ok","routes":[{"distance":12345.6,...}]}, distance in meters
+    private Double distanceKm(byte[] body) throws IOException {
+        JsonNode root = objectMapper.readTree(body);
+        JsonNode distance = root.path("routes").path(0).path("distance");
+        if (!"Ok".equals(root.path("code").asText()) || !distance.isNumber()) {
+            logger.warn("No route in OSRM response: {}", root.path("code").asText());
+            return null;
+        }
+        return distance.asDouble() / 1000.0;
+    }
+}
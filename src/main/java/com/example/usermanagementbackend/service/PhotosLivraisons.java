@@ -0,0 +1,319 @@
+package com.example.usermanagementbackend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Photos de preuve de livraison, en fichiers sous {@code livraison.photos.dir} et référencées par clé
+ * (colonne livraison.photo_cle) au lieu d'être gardées en base64 dans la ligne.
+ * <p>
+ * La clé est le SHA-256 du contenu suivi de l'extension du format détecté sur les premiers octets
+ * (JPEG, PNG ou WebP): une même photo envoyée deux fois n'est stockée qu'une fois, et le fichier d'une clé
+ * ne change jamais, ce qui permet de le servir avec un ETag et un cache long. L'envoi est copié par blocs
+ * dans un fichier temporaire en calculant l'empreinte, sans garder l'image en mémoire, et refusé au-delà de
+ * {@code livraison.photos.max-bytes}. Une miniature JPEG d'au plus {@code livraison.photos.miniature-px}
+ * pixels de côté est produite à l'enregistrement, en sous-échantillonnant à la lecture (JPEG et PNG).
+ * <p>
+ * {@link #migrer()} déplace les anciennes photos base64 de la colonne livraison.photo vers ce stockage,
+ * par lots de {@code livraison.photos.migration-batch} lignes; elle est lancée au démarrage et chaque nuit.
+ */
+@Component
+public class PhotosLivraisons {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotosLivraisons.class);
+
+    private static final Pattern CLE = Pattern.compile("[0-9a-f]{64}\\.(jpg|png|webp)");
+    private static final Map<String, MediaType> TYPES = Map.of(
+            "jpg", MediaType.IMAGE_JPEG, "png", MediaType.IMAGE_PNG, "webp", MediaType.parseMediaType("image/webp"));
+    private static final String SUFFIXE_MINIATURE = ".mini.jpg";
+    private static final int TAILLE_BLOC = 64 * 1024;
+
+    private static final String LOT_SQL = "SELECT id, photo FROM livraison "
+            + "WHERE id > ? AND photo IS NOT NULL AND photo <> '' ORDER BY id LIMIT ?";
+    // une photo envoyée depuis garde sa clé; l'ancienne valeur est effacée dans tous les cas
+    private static final String MIGRATION_SQL = "UPDATE livraison SET photo_cle = COALESCE(photo_cle, ?), photo = NULL "
+            + "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path dossier;
+    private final long maxOctets;
+    private final int miniaturePixels;
+    private final int lotMigration;
+    private final AtomicBoolean migrationEnCours = new AtomicBoolean();
+
+    private final Counter migrees;
+    private final Counter illisibles;
+
+    public PhotosLivraisons(JdbcTemplate jdbcTemplate,
+                            @Value("${livraison.photos.dir:uploads/livraisons}") String dossier,
+                            @Value("${livraison.photos.max-bytes:10MB}") DataSize maxOctets,
+                            @Value("${livraison.photos.miniature-px:320}") int miniaturePixels,
+                            @Value("${livraison.photos.migration-batch:20}") int lotMigration) throws IOException {
+        if (maxOctets.toBytes() <= 0 || miniaturePixels <= 0 || lotMigration <= 0) {
+            throw new IllegalArgumentException("Configuration livraison.photos invalide");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dossier = Files.createDirectories(Paths.get(dossier).toAbsolutePath().normalize());
+        this.maxOctets = maxOctets.toBytes();
+        this.miniaturePixels = miniaturePixels;
+        this.lotMigration = lotMigration;
+        this.migrees = Counter.builder("livraison.photos.migrees")
+                .description("Photos base64 déplacées de la table livraison vers le stockage de fichiers")
+                .register(Metrics.globalRegistry);
+        this.illisibles = Counter.builder("livraison.photos.illisibles")
+                .description("Anciennes photos laissées en base faute d'être une image reconnue")
+                .register(Metrics.globalRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrerAuDemarrage() {
+        Thread thread = new Thread(() -> {
+            try {
+                migrer();
+            } catch (RuntimeException e) {
+                logger.error("Échec de la migration des photos de livraisons", e);
+            }
+        }, "photos-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Enregistre une photo envoyée en flux et renvoie sa clé. */
+    public String enregistrer(InputStream contenu) throws IOException {
+        byte[] entete = contenu.readNBytes(12);
+        String extension = extension(entete);
+        if (extension == null) {
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Seules les photos JPEG, PNG ou WebP sont acceptées");
+        }
+        MessageDigest sha256 = sha256();
+        Path temporaire = Files.createTempFile(dossier, "envoi-", ".tmp");
+        try {
+            try (OutputStream sortie = Files.newOutputStream(temporaire)) {
+                long total = entete.length;
+                sha256.update(entete);
+                sortie.write(entete);
+                byte[] bloc = new byte[TAILLE_BLOC];
+                for (int lus; (lus = contenu.read(bloc)) != -1; ) {
+                    total += lus;
+                    if (total > maxOctets) {
+                        throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                "Photo trop volumineuse (" + DataSize.ofBytes(maxOctets).toMegabytes() + " Mo maximum)");
+                    }
+                    sha256.update(bloc, 0, lus);
+                    sortie.write(bloc, 0, lus);
+                }
+            }
+            String cle = HexFormat.of().formatHex(sha256.digest()) + "." + extension;
+            Path fichier = chemin(cle);
+            Files.createDirectories(fichier.getParent());
+            deplacer(temporaire, fichier);
+            genererMiniature(fichier, cle);
+            return cle;
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    /** Enregistre une photo en data URL ({@code data:image/...;base64,...}) ou en base64 brut. */
+    public String enregistrerBase64(String photo) {
+        int virgule = photo.startsWith("data:") ? photo.indexOf(',') : -1;
+        byte[] ascii = photo.substring(virgule + 1).getBytes(StandardCharsets.ISO_8859_1);
+        // décodage au fil de la copie: pas de second tableau de la taille de l'image
+        try (InputStream contenu = Base64.getMimeDecoder().wrap(new ByteArrayInputStream(ascii))) {
+            return enregistrer(contenu);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Photo base64 invalide", e);
+        }
+    }
+
+    /** Fichier de la photo, null si la clé est invalide ou inconnue. */
+    public Path fichier(String cle) {
+        if (cle == null || !CLE.matcher(cle).matches()) {
+            return null;
+        }
+        Path fichier = chemin(cle);
+        return Files.isRegularFile(fichier) ? fichier : null;
+    }
+
+    /** Miniature de la photo, ou la photo elle-même si aucune miniature n'a pu être produite. */
+    public Path miniature(String cle) {
+        Path photo = fichier(cle);
+        if (photo == null) {
+            return null;
+        }
+        Path miniature = photo.resolveSibling(cle + SUFFIXE_MINIATURE);
+        return Files.isRegularFile(miniature) ? miniature : photo;
+    }
+
+    public static MediaType type(Path fichier) {
+        String nom = fichier.getFileName().toString();
+        return TYPES.getOrDefault(nom.substring(nom.lastIndexOf('.') + 1), MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    /**
+     * Déplace les photos base64 de la colonne livraison.photo vers le stockage de fichiers; renvoie le nombre
+     * de lignes lues. Une valeur qui n'est pas une image reconnue reste en place. Sans colonne photo
+     * (base créée après ce changement), il n'y a rien à faire.
+     */
+    public int migrer() {
+        if (!migrationEnCours.compareAndSet(false, true)) {
+            logger.info("Migration des photos de livraisons déjà en cours");
+            return 0;
+        }
+        int lues = 0;
+        try {
+            long dernierId = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Map<String, Object>> lot = jdbcTemplate.queryForList(LOT_SQL, dernierId, lotMigration);
+                if (lot.isEmpty()) {
+                    break;
+                }
+                for (Map<String, Object> ligne : lot) {
+                    long id = ((Number) ligne.get("id")).longValue();
+                    dernierId = id;
+                    lues++;
+                    try {
+                        jdbcTemplate.update(MIGRATION_SQL, enregistrerBase64((String) ligne.get("photo")), id);
+                        migrees.increment();
+                    } catch (ResponseStatusException e) {
+                        illisibles.increment();
+                        logger.warn("Photo de la livraison {} non migrée: {}", id, e.getReason());
+                    }
+                }
+            }
+        } catch (BadSqlGrammarException e) {
+            logger.debug("Pas de colonne livraison.photo, aucune photo à migrer");
+        } finally {
+            migrationEnCours.set(false);
+        }
+        if (lues > 0) {
+            logger.info("Migration des photos de livraisons: {} lignes lues", lues);
+        }
+        return lues;
+    }
+
+    private Path chemin(String cle) {
+        // deux premiers caractères en sous-dossier: pas de répertoire à des centaines de milliers d'entrées
+        return dossier.resolve(cle.substring(0, 2)).resolve(cle);
+    }
+
+    private static void deplacer(Path temporaire, Path fichier) throws IOException {
+        if (Files.exists(fichier)) {
+            return;
+        }
+        try {
+            Files.move(temporaire, fichier, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // même contenu envoyé en même temps par une autre requête
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void genererMiniature(Path photo, String cle) {
+        Path miniature = photo.resolveSibling(cle + SUFFIXE_MINIATURE);
+        if (cle.endsWith(".webp") || Files.exists(miniature)) {
+            return;
+        }
+        try (ImageInputStream entree = ImageIO.createImageInputStream(photo.toFile())) {
+            Iterator<ImageReader> lecteurs = ImageIO.getImageReaders(entree);
+            if (!lecteurs.hasNext()) {
+                return;
+            }
+            ImageReader lecteur = lecteurs.next();
+            try {
+                lecteur.setInput(entree, true, true);
+                int largeur = lecteur.getWidth(0);
+                int hauteur = lecteur.getHeight(0);
+                // ne décode qu'un pixel sur n: une photo de 12 Mpx ne passe jamais entière en mémoire
+                int pas = Math.max(1, Math.max(largeur, hauteur) / (2 * miniaturePixels));
+                ImageReadParam parametres = lecteur.getDefaultReadParam();
+                parametres.setSourceSubsampling(pas, pas, 0, 0);
+                BufferedImage image = lecteur.read(0, parametres);
+                double echelle = Math.min(1.0, (double) miniaturePixels / Math.max(image.getWidth(), image.getHeight()));
+                int l = Math.max(1, (int) Math.round(image.getWidth() * echelle));
+                int h = Math.max(1, (int) Math.round(image.getHeight() * echelle));
+                BufferedImage reduite = new BufferedImage(l, h, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = reduite.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(image, 0, 0, l, h, Color.WHITE, null);
+                g.dispose();
+                Path temporaire = Files.createTempFile(dossier, "miniature-", ".tmp");
+                try {
+                    ImageIO.write(reduite, "jpg", temporaire.toFile());
+                    deplacer(temporaire, miniature);
+                } finally {
+                    Files.deleteIfExists(temporaire);
+                }
+            } finally {
+                lecteur.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // la photo reste servie, à la place de sa miniature
+            logger.warn("Miniature non produite pour {}: {}", cle, e.getMessage());
+        }
+    }
+
+    private static String extension(byte[] entete) {
+        if (entete.length >= 3 && (entete[0] & 0xff) == 0xFF && (entete[1] & 0xff) == 0xD8 && (entete[2] & 0xff) == 0xFF) {
+            return "jpg";
+        }
+        if (entete.length >= 8 && (entete[0] & 0xff) == 0x89 && entete[1] == 'P' && entete[2] == 'N' && entete[3] == 'G') {
+            return "png";
+        }
+        if (entete.length >= 12 && entete[0] == 'R' && entete[1] == 'I' && entete[2] == 'F' && entete[3] == 'F'
+                && entete[8] == 'W' && entete[9] == 'E' && entete[10] == 'B' && entete[11] == 'P') {
+            return "webp";
+        }
+        return null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.LivraisonDTO;
+import com.example.usermanagementbackend.dto.PropositionTournees;
+import com.example.usermanagementbackend.entity.Commande;
+import com.example.usermanagementbackend.entity.Livreur;
+import com.example.usermanagementbackend.entity.StatusLivraison;
+import com.example.usermanagementbackend.entity.TypeLivraison;
+import com.example.usermanagementbackend.mapper.LivreurMapper;
+import com.example.usermanagementbackend.repository.CommandeRepository;
+import com.example.usermanagementbackend.repository.LivreurRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Propose des tournées pour les commandes PENDING/CONFIRMED encore sans livreur: une tournée par livreur
+ * disponible (sans livraison EN_COURS), au départ et au retour du dépôt ({@code livraison.tournees.depot-lat/lng}), au plus
+ * {@code livraison.tournees.capacite} arrêts chacune, calculées en {@code livraison.tournees.budget}
+ * (voir {@link OptimiseurTournees}). Rien n'est enregistré.
+ * <p>
+ * La matrice de distances est le vol d'oiseau multiplié par {@code livraison.tournees.detour}: n² appels au
+ * moteur d'itinéraire seraient trop lents pour des milliers d'arrêts. Les distances et l'empreinte carbone
+ * rendues pour chaque étape viennent ensuite de {@link RoadDistanceService#cachedOrHaversine}, comme pour
+ * une livraison saisie à la main.
+ * <p>
+ * La matrice occupe 4·n² octets (100 Mo pour 5 000 arrêts): au plus {@code livraison.tournees.calculs-simultanes}
+ * calculs à la fois, les demandes suivantes sont refusées (429) au lieu de s'empiler en mémoire. Commandes et
+ * livreurs sont lus dans une transaction courte: le calcul ne garde pas de connexion.
+ */
+@Service
+public class PlanificationTournees {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanificationTournees.class);
+
+    private static final double CAR_EMISSION_FACTOR = 0.2;
+
+    // Centre des gouvernorats (chefs-lieux), pour les commandes sans position
+    private static final Map<String, double[]> CENTRES_GOUVERNORATS = Map.ofEntries(
+            Map.entry("Ariana", new double[]{36.8625, 10.1956}), Map.entry("Beja", new double[]{36.7256, 9.1817}),
+            Map.entry("Ben Arous", new double[]{36.7531, 10.2189}), Map.entry("Bizerte", new double[]{37.2744, 9.8739}),
+            Map.entry("Gabes", new double[]{33.8815, 10.0982}), Map.entry("Gafsa", new double[]{34.4250, 8.7842}),
+            Map.entry("Jendouba", new double[]{36.5011, 8.7802}), Map.entry("Kairouan", new double[]{35.6781, 10.0963}),
+            Map.entry("Kasserine", new double[]{35.1676, 8.8365}), Map.entry("Kebili", new double[]{33.7044, 8.9690}),
+            Map.entry("Kef", new double[]{36.1826, 8.7148}), Map.entry("Mahdia", new double[]{35.5047, 11.0622}),
+            Map.entry("Manouba", new double[]{36.8101, 10.0863}), Map.entry("Medenine", new double[]{33.3549, 10.5055}),
+            Map.entry("Monastir", new double[]{35.7643, 10.8113}), Map.entry("Nabeul", new double[]{36.4561, 10.7376}),
+            Map.entry("Sfax", new double[]{34.7406, 10.7603}), Map.entry("Sidi Bouzid", new double[]{35.0382, 9.4849}),
+            Map.entry("Siliana", new double[]{36.0849, 9.3708}), Map.entry("Sousse", new double[]{35.8256, 10.6084}),
+            Map.entry("Tataouine", new double[]{32.9297, 10.4518}), Map.entry("Tozeur", new double[]{33.9197, 8.1335}),
+            Map.entry("Tunis", new double[]{36.8065, 10.1815}), Map.entry("Zaghouan", new double[]{36.4029, 10.1429}));
+
+    private final CommandeRepository commandeRepository;
+    private final LivreurRepository livreurRepository;
+    private final RoadDistanceService roadDistanceService;
+    private final double depotLat;
+    private final double depotLng;
+    private final int capacite;
+    private final double detour;
+    private final Duration budget;
+    private final int maxArrets;
+    private final ForkJoinPool pool;
+    private final OptimiseurTournees optimiseur;
+    private final Semaphore calculs;
+    private final TransactionTemplate lecture;
+
+    /** Commandes à placer et livreurs disponibles, lus ensemble. */
+    private record Donnees(List<Commande> commandes, List<Livreur> livreurs) {
+    }
+
+    public PlanificationTournees(CommandeRepository commandeRepository, LivreurRepository livreurRepository,
+                                 RoadDistanceService roadDistanceService, PlatformTransactionManager transactionManager,
+                                 @Value("${livraison.tournees.depot-lat:36.8065}") double depotLat,
+                                 @Value("${livraison.tournees.depot-lng:10.1815}") double depotLng,
+                                 @Value("${livraison.tournees.capacite:25}") int capacite,
+                                 @Value("${livraison.tournees.detour:1.3}") double detour,
+                                 @Value("${livraison.tournees.budget:5s}") Duration budget,
+                                 @Value("${livraison.tournees.max-arrets:5000}") int maxArrets,
+                                 @Value("${livraison.tournees.parallelism:0}") int parallelism,
+                                 @Value("${livraison.tournees.calculs-simultanes:1}") int calculsSimultanes) {
+        this.commandeRepository = commandeRepository;
+        this.livreurRepository = livreurRepository;
+        this.roadDistanceService = roadDistanceService;
+        this.depotLat = depotLat;
+        this.depotLng = depotLng;
+        this.capacite = capacite;
+        this.detour = detour;
+        this.budget = budget;
+        this.maxArrets = maxArrets;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                p -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                    thread.setName("tournees-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                }, null, false);
+        this.optimiseur = new OptimiseurTournees(pool);
+        this.calculs = new Semaphore(Math.max(1, calculsSimultanes));
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @param budgetDemande durée maximale du calcul, {@code livraison.tournees.budget} si null
+     * @throws ResponseStatusException 429 si trop de calculs sont déjà en cours
+     */
+    public PropositionTournees proposer(Duration budgetDemande) {
+        if (!calculs.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Calcul de tournées déjà en cours");
+        }
+        try {
+            return calculer(budgetDemande);
+        } finally {
+            calculs.release();
+        }
+    }
+
+    private PropositionTournees calculer(Duration budgetDemande) {
+        long debut = System.nanoTime();
+        long echeance = debut + (budgetDemande != null ? budgetDemande : budget).toNanos();
+
+        Donnees donnees = lecture.execute(status -> new Donnees(
+                commandeRepository.findALivrerSansLivraison(List.of(Commande.OrderStatus.PENDING, Commande.OrderStatus.CONFIRMED)),
+                livreurRepository.findDisponibles(List.of(StatusLivraison.EN_COURS))));
+        List<Commande> commandes = donnees.commandes();
+        List<Livreur> livreurs = donnees.livreurs();
+
+        PropositionTournees proposition = new PropositionTournees();
+        // point 0: le dépôt; les plus anciennes commandes d'abord au-delà de max-arrets
+        List<Commande> arrets = new ArrayList<>();
+        List<double[]> positions = new ArrayList<>();
+        positions.add(new double[]{depotLat, depotLng});
+        for (Commande commande : commandes) {
+            double[] position = position(commande);
+            if (position == null || arrets.size() >= maxArrets) {
+                proposition.getCommandesNonAffectees().add(commande.getId());
+            } else {
+                arrets.add(commande);
+                positions.add(position);
+            }
+        }
+
+        if (!arrets.isEmpty() && !livreurs.isEmpty()) {
+            double[] lat = positions.stream().mapToDouble(p -> p[0]).toArray();
+            double[] lng = positions.stream().mapToDouble(p -> p[1]).toArray();
+            float[] distances = optimiseur.matrice(lat, lng, detour);
+            OptimiseurTournees.Resultat resultat = optimiseur.optimiser(distances, lat.length, capacite,
+                    livreurs.size(), echeance);
+
+            for (int t = 0; t < resultat.tournees().size(); t++) {
+                PropositionTournees.Tournee tournee = tournee(livreurs.get(t), resultat.tournees().get(t), arrets, lat, lng);
+                proposition.getTournees().add(tournee);
+                proposition.setDistanceTotaleKm(proposition.getDistanceTotaleKm() + tournee.getDistanceKm());
+                proposition.setCarbonFootprintTotal(proposition.getCarbonFootprintTotal() + tournee.getCarbonFootprint());
+            }
+            for (int arret : resultat.nonAffectes()) {
+                proposition.getCommandesNonAffectees().add(arrets.get(arret - 1).getId());
+            }
+        } else {
+            arrets.forEach(c -> proposition.getCommandesNonAffectees().add(c.getId()));
+        }
+        proposition.setDistanceTotaleKm(arrondi(proposition.getDistanceTotaleKm()));
+        proposition.setCarbonFootprintTotal(arrondi(proposition.getCarbonFootprintTotal()));
+        proposition.setDureeMs((System.nanoTime() - debut) / 1_000_000);
+        logger.info("Tournées proposées: {} tournées, {} commandes placées, {} non affectées, {} km, {} ms",
+                proposition.getTournees().size(),
+                proposition.getTournees().stream().mapToInt(t -> t.getLivraisons().size()).sum(),
+                proposition.getCommandesNonAffectees().size(), proposition.getDistanceTotaleKm(), proposition.getDureeMs());
+        return proposition;
+    }
+
+    private PropositionTournees.Tournee tournee(Livreur livreur, int[] ordre, List<Commande> arrets,
+                                                double[] lat, double[] lng) {
+        PropositionTournees.Tournee tournee = new PropositionTournees.Tournee();
+        tournee.setLivreur(LivreurMapper.toDTO(livreur));
+        int precedent = OptimiseurTournees.DEPOT;
+        double distance = 0;
+        for (int arret : ordre) {
+            Commande commande = arrets.get(arret - 1);
+            double km = roadDistanceService.cachedOrHaversine(lat[precedent], lng[precedent], lat[arret], lng[arret])
+                    .distanceKm();
+            LivraisonDTO livraison = new LivraisonDTO();
+            livraison.setLivreur(tournee.getLivreur());
+            livraison.setCommandeId(commande.getId());
+            livraison.setAddress(commande.getAdresse());
+            livraison.setTypeLivraison(TypeLivraison.VOITURE);
+            livraison.setStatusLivraison(StatusLivraison.TAKE_IT);
+            livraison.setCurrentLat(lat[precedent]);
+            livraison.setCurrentLng(lng[precedent]);
+            livraison.setDestinationLat(lat[arret]);
+            livraison.setDestinationLng(lng[arret]);
+            livraison.setCarbonFootprint(arrondi(km * CAR_EMISSION_FACTOR));
+            tournee.getLivraisons().add(livraison);
+            distance += km;
+            precedent = arret;
+        }
+        distance += roadDistanceService.cachedOrHaversine(lat[precedent], lng[precedent],
+                lat[OptimiseurTournees.DEPOT], lng[OptimiseurTournees.DEPOT]).distanceKm();
+        tournee.setDistanceKm(arrondi(distance));
+        tournee.setCarbonFootprint(arrondi(distance * CAR_EMISSION_FACTOR));
+        return tournee;
+    }
+
+    /** Position saisie par le client, sinon le centre de son gouvernorat, sinon null. */
+    static double[] position(Commande commande) {
+        if (commande.getLatitude() != null && commande.getLongitude() != null) {
+            return new double[]{commande.getLatitude(), commande.getLongitude()};
+        }
+        return commande.getGouvernement() == null ? null : CENTRES_GOUVERNORATS.get(commande.getGouvernement());
+    }
+
+    private static double arrondi(double valeur) {
+        return Math.round(valeur * 100) / 100.0;
+    }
+}
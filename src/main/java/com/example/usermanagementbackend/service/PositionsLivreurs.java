@@ -0,0 +1,291 @@
+package com.example.usermanagementbackend.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Dernière position connue de chaque livreur, en mémoire, pour trouver les livreurs les plus proches
+ * d'un point sans parcourir la table des livreurs.
+ * <p>
+ * Les positions sont rangées dans des cellules d'une grille lat/lng d'environ
+ * {@code livreurs.positions.cell-meters} de côté. Les cellules sont réparties sur {@value #BANDES} bandes,
+ * chacune protégée par son propre verrou: deux mises à jour ne se bloquent que si leurs cellules tombent
+ * dans la même bande. Une recherche ne parcourt que les cellules autour du point (anneaux successifs pour
+ * les k plus proches), ou toutes les positions quand elles sont moins nombreuses que ces cellules.
+ * <p>
+ * Une position non rafraîchie depuis {@code livreurs.positions.ttl} n'est plus rendue et est retirée au
+ * passage suivant de l'éviction ({@code livreurs.positions.eviction-period}).
+ */
+@Component
+public class PositionsLivreurs {
+
+    private static final double METRES_PAR_DEGRE = 111_320.0;
+    private static final int BANDES = 64;
+
+    /** Livreur trouvé par une recherche, à {@code distanceMetres} du point demandé. */
+    public record Proche(Long livreurId, double latitude, double longitude, double distanceMetres, long horodatage) {
+    }
+
+    // horodatage: donné par le livreur (ordre des positions); recueA: horloge du serveur (fraîcheur)
+    private record Position(long livreurId, double lat, double lng, long horodatage, long recueA, long cellule) {
+    }
+
+    private static final class Bande {
+        final Map<Long, Map<Long, Position>> cellules = new HashMap<>();
+    }
+
+    private final double celluleDegres;
+    private final long ttlMs;
+    private final double rechercheMaxMetres;
+    private final long evictionMs;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<Long, Position> dernieres = new ConcurrentHashMap<>();
+    private final Bande[] bandes = new Bande[BANDES];
+    private final ScheduledExecutorService eviction;
+
+    @Autowired
+    public PositionsLivreurs(@Value("${livreurs.positions.cell-meters:500}") double celluleMetres,
+                             @Value("${livreurs.positions.ttl:5m}") Duration ttl,
+                             @Value("${livreurs.positions.recherche-max-metres:50000}") double rechercheMaxMetres,
+                             @Value("${livreurs.positions.eviction-period:30s}") Duration evictionPeriod) {
+        this(celluleMetres, ttl, rechercheMaxMetres, evictionPeriod, System::currentTimeMillis);
+    }
+
+    PositionsLivreurs(double celluleMetres, Duration ttl, double rechercheMaxMetres, Duration evictionPeriod,
+                      LongSupplier clock) {
+        this.celluleDegres = celluleMetres / METRES_PAR_DEGRE;
+        this.ttlMs = ttl.toMillis();
+        this.rechercheMaxMetres = rechercheMaxMetres;
+        this.evictionMs = evictionPeriod.toMillis();
+        this.clock = clock;
+        for (int b = 0; b < BANDES; b++) {
+            bandes[b] = new Bande();
+        }
+        this.eviction = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "positions-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("livreurs.positions.size", dernieres, Map::size)
+                .description("Livreurs dont la position est connue")
+                .register(Metrics.globalRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        eviction.scheduleWithFixedDelay(this::evincer, evictionMs, evictionMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        eviction.shutdownNow();
+    }
+
+    /**
+     * Enregistre la position d'un livreur. Une position plus ancienne ({@code horodatage}, null = maintenant)
+     * que celle déjà connue est ignorée: renvoie false.
+     */
+    public boolean mettreAJour(long livreurId, double lat, double lng, Long horodatage) {
+        long maintenant = clock.getAsLong();
+        long quand = horodatage != null ? horodatage : maintenant;
+        boolean[] acceptee = {false};
+        // compute: les mises à jour d'un même livreur passent une à une
+        dernieres.compute(livreurId, (id, ancienne) -> {
+            if (ancienne != null && ancienne.horodatage() > quand) {
+                return ancienne;
+            }
+            Position nouvelle = new Position(livreurId, lat, lng, quand, maintenant, cellule(lat, lng));
+            if (ancienne != null && ancienne.cellule() != nouvelle.cellule()) {
+                retirerDeLaGrille(ancienne);
+            }
+            Bande bande = bande(nouvelle.cellule());
+            synchronized (bande) {
+                bande.cellules.computeIfAbsent(nouvelle.cellule(), c -> new HashMap<>()).put(livreurId, nouvelle);
+            }
+            acceptee[0] = true;
+            return nouvelle;
+        });
+        return acceptee[0];
+    }
+
+    /** Oublie la position d'un livreur (fin de service). */
+    public void retirer(long livreurId) {
+        dernieres.computeIfPresent(livreurId, (id, position) -> {
+            retirerDeLaGrille(position);
+            return null;
+        });
+    }
+
+    public int taille() {
+        return dernieres.size();
+    }
+
+    /** Livreurs à au plus {@code rayonMetres} du point, du plus proche au plus lointain. */
+    public List<Proche> dansLeRayon(double lat, double lng, double rayonMetres) {
+        double rayon = Math.min(rayonMetres, rechercheMaxMetres);
+        long limite = clock.getAsLong() - ttlMs;
+        List<Proche> trouves = new ArrayList<>();
+        double dLat = rayon / METRES_PAR_DEGRE;
+        double dLng = rayon / (METRES_PAR_DEGRE * Math.max(0.01, Math.cos(Math.toRadians(lat))));
+        int ligneMin = ligne(lat - dLat);
+        int ligneMax = ligne(lat + dLat);
+        int colonneMin = colonne(lng - dLng);
+        int colonneMax = colonne(lng + dLng);
+        long cellules = (long) (ligneMax - ligneMin + 1) * (colonneMax - colonneMin + 1);
+        if (cellules > dernieres.size()) {
+            for (Position p : dernieres.values()) {
+                ajouterSiProche(p, lat, lng, rayon, limite, trouves);
+            }
+        } else {
+            for (int ligne = ligneMin; ligne <= ligneMax; ligne++) {
+                for (int colonne = colonneMin; colonne <= colonneMax; colonne++) {
+                    parcourirCellule(cle(ligne, colonne), lat, lng, rayon, limite, trouves);
+                }
+            }
+        }
+        trouves.sort(Comparator.comparingDouble(Proche::distanceMetres));
+        return trouves;
+    }
+
+    /** Les {@code k} livreurs les plus proches, à au plus {@code livreurs.positions.recherche-max-metres}. */
+    public List<Proche> plusProches(double lat, double lng, int k) {
+        long limite = clock.getAsLong() - ttlMs;
+        List<Proche> trouves = new ArrayList<>();
+        int ligne0 = ligne(lat);
+        int colonne0 = colonne(lng);
+        // largeur minimale d'un anneau de cellules, la plus étroite étant dans le sens est-ouest
+        double anneauMetres = celluleDegres * METRES_PAR_DEGRE
+                * Math.cos(Math.toRadians(Math.min(89, Math.abs(lat) + celluleDegres)));
+        long parcourues = 0;
+        for (int anneau = 0; ; anneau++) {
+            // positions pas encore vues: dans l'anneau a ou au-delà, donc à plus de (a - 1) * anneauMetres
+            double couvert = (anneau - 1) * anneauMetres;
+            if (trouves.size() >= k && kieme(trouves, k) <= couvert || couvert > rechercheMaxMetres) {
+                break;
+            }
+            long cellulesAnneau = anneau == 0 ? 1 : 8L * anneau;
+            if (parcourues + cellulesAnneau > dernieres.size()) {
+                // moins de positions que de cellules restantes: on les passe toutes en revue
+                trouves.clear();
+                for (Position p : dernieres.values()) {
+                    ajouterSiProche(p, lat, lng, rechercheMaxMetres, limite, trouves);
+                }
+                break;
+            }
+            parcourues += cellulesAnneau;
+            for (int ligne = ligne0 - anneau; ligne <= ligne0 + anneau; ligne++) {
+                boolean bord = ligne == ligne0 - anneau || ligne == ligne0 + anneau;
+                for (int colonne = colonne0 - anneau; colonne <= colonne0 + anneau;
+                     colonne += bord ? 1 : Math.max(1, 2 * anneau)) {
+                    parcourirCellule(cle(ligne, colonne), lat, lng, rechercheMaxMetres, limite, trouves);
+                }
+            }
+        }
+        trouves.sort(Comparator.comparingDouble(Proche::distanceMetres));
+        return trouves.size() > k ? new ArrayList<>(trouves.subList(0, k)) : trouves;
+    }
+
+    /** Retire les positions non rafraîchies depuis {@code livreurs.positions.ttl}; renvoie leur nombre. */
+    int evincer() {
+        long limite = clock.getAsLong() - ttlMs;
+        int[] retirees = {0};
+        for (Position p : dernieres.values()) {
+            if (p.recueA() < limite) {
+                dernieres.computeIfPresent(p.livreurId(), (id, courante) -> {
+                    if (courante.recueA() >= limite) {
+                        return courante;
+                    }
+                    retirerDeLaGrille(courante);
+                    retirees[0]++;
+                    return null;
+                });
+            }
+        }
+        return retirees[0];
+    }
+
+    private void parcourirCellule(long cellule, double lat, double lng, double rayon, long limite, List<Proche> trouves) {
+        Bande bande = bande(cellule);
+        synchronized (bande) {
+            Map<Long, Position> positions = bande.cellules.get(cellule);
+            if (positions != null) {
+                for (Position p : positions.values()) {
+                    ajouterSiProche(p, lat, lng, rayon, limite, trouves);
+                }
+            }
+        }
+    }
+
+    private static void ajouterSiProche(Position p, double lat, double lng, double rayon, long limite, List<Proche> trouves) {
+        if (p.recueA() < limite) {
+            return;
+        }
+        double metres = metres(lat, lng, p.lat(), p.lng());
+        if (metres <= rayon) {
+            trouves.add(new Proche(p.livreurId(), p.lat(), p.lng(), metres, p.horodatage()));
+        }
+    }
+
+    private static double kieme(List<Proche> trouves, int k) {
+        return trouves.stream().mapToDouble(Proche::distanceMetres).sorted().skip(k - 1).findFirst().orElse(Double.MAX_VALUE);
+    }
+
+    private void retirerDeLaGrille(Position position) {
+        Bande bande = bande(position.cellule());
+        synchronized (bande) {
+            Map<Long, Position> positions = bande.cellules.get(position.cellule());
+            if (positions != null) {
+                positions.remove(position.livreurId());
+                if (positions.isEmpty()) {
+                    bande.cellules.remove(position.cellule());
+                }
+            }
+        }
+    }
+
+    private long cellule(double lat, double lng) {
+        return cle(ligne(lat), colonne(lng));
+    }
+
+    private int ligne(double lat) {
+        return (int) Math.floor(lat / celluleDegres);
+    }
+
+    private int colonne(double lng) {
+        return (int) Math.floor(lng / celluleDegres);
+    }
+
+    private static long cle(int ligne, int colonne) {
+        return (long) ligne << 32 | (colonne & 0xffffffffL);
+    }
+
+    private Bande bande(long cellule) {
+        return bandes[Long.hashCode(cellule * 0x9E3779B97F4A7C15L) & (BANDES - 1)];
+    }
+
+    /** Distance équirectangulaire, assez précise à l'échelle d'une ville. */
+    private static double metres(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * 6_371_000.0;
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.Promotion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prix effectif des produits: prix de base moins la meilleure remise en cours.
+ * <p>
+ * Les promotions ne modifient plus {@code produit.prix}: chaque produit a ici la liste (courte) des
+ * remises qui le visent, et Black Friday s'applique à tous les produits sans remise propre en cours.
+ * Activer, désactiver ou supprimer une promotion ne touche que les produits concernés, en mémoire,
+ * après le commit. Les remises des conditions panier (ACHAT_GROUPE, MONTANT_MIN) ne changent pas le
+ * prix unitaire: elles restent appliquées au montant par {@link PromotionService#appliquerPromotion}.
+ */
+@Component
+public class PrixEffectif {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrixEffectif.class);
+
+    private static final Set<String> CONDITIONS_PANIER = Set.of("ACHAT_GROUPE", "MONTANT_MIN");
+    static final String NOM_GLOBAL = "Black Friday";
+    static final String CONDITION_GLOBALE = "BLACK_FRIDAY";
+    private static final Remise[] AUCUNE = new Remise[0];
+    private static final long JOUR_MS = TimeUnit.DAYS.toMillis(1);
+    private static final String REMISES_SQL = "SELECT p.id, p.nom, p.condition_promotion, p.pourcentage_reduction, "
+            + "p.date_debut, p.date_fin, pp.produit_id FROM promotion p "
+            + "LEFT JOIN promotion_produit pp ON pp.promotion_id = p.id WHERE p.active = TRUE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, Remise[]> parProduit = new ConcurrentHashMap<>();
+    private final Map<Integer, long[]> produitsParPromotion = new HashMap<>();
+    private volatile Remise[] globales = AUCUNE;
+    private volatile boolean initialise;
+
+    /** Remise d'une promotion; la date de fin est incluse (colonnes au jour près). */
+    private record Remise(Integer promotionId, double pourcentage, long debut, long fin) {
+        boolean enCours(long maintenant) {
+            return maintenant >= debut && maintenant < fin;
+        }
+    }
+
+    public PrixEffectif(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        charger();
+    }
+
+    public double prix(Produit produit) {
+        return prix(produit.getId(), produit.getPrix());
+    }
+
+    public double prix(Long produitId, double prixBase) {
+        double reduction = reduction(produitId);
+        return reduction == 0 ? prixBase : prixBase * (1 - reduction / 100);
+    }
+
+    /** Pourcentage de remise en cours pour le produit (0 sans promotion). */
+    public double reduction(Long produitId) {
+        if (!initialise) {
+            charger();
+        }
+        long maintenant = System.currentTimeMillis();
+        double meilleure = meilleure(produitId == null ? AUCUNE : parProduit.getOrDefault(produitId, AUCUNE), maintenant);
+        // une remise propre au produit prime sur les promotions globales
+        return meilleure > 0 ? meilleure : meilleure(globales, maintenant);
+    }
+
+    /** Vrai si une remise propre au produit est en cours: les promotions globales ne s'y appliquent pas. */
+    public boolean remisePropreEnCours(Long produitId) {
+        if (!initialise) {
+            charger();
+        }
+        return produitId != null && meilleure(parProduit.getOrDefault(produitId, AUCUNE), System.currentTimeMillis()) > 0;
+    }
+
+    /**
+     * Produit avec {@code prixEffectif} renseigné. Le produit reçu n'est pas modifié (il peut venir du
+     * catalogue partagé): une copie n'est faite que si le prix effectif diffère.
+     */
+    public Produit tarifer(Produit produit) {
+        if (produit == null) {
+            return null;
+        }
+        double prix = prix(produit);
+        if (produit.getPrixEffectif() != null && produit.getPrixEffectif() == prix) {
+            return produit;
+        }
+        Produit tarife = ProduitCatalogue.copier(produit);
+        tarife.setPrixEffectif(prix);
+        return tarife;
+    }
+
+    public List<Produit> tarifer(List<Produit> produits) {
+        List<Produit> tarifes = new ArrayList<>(produits.size());
+        for (Produit produit : produits) {
+            tarifes.add(tarifer(produit));
+        }
+        return tarifes;
+    }
+
+    /**
+     * Prend en compte l'état de la promotion (active ou non, taux, dates, produits) après le commit de
+     * la transaction courante. Les valeurs sont lues maintenant.
+     */
+    public void indexer(Promotion promotion) {
+        if (promotion == null || promotion.getId() == null) {
+            return;
+        }
+        Integer id = promotion.getId();
+        if (!promotion.isActive() || CONDITIONS_PANIER.contains(promotion.getConditionPromotion())) {
+            retirer(id);
+            return;
+        }
+        Remise remise = remise(id, promotion.getPourcentageReduction(), promotion.getDateDebut(), promotion.getDateFin());
+        boolean globale = estGlobale(promotion.getNom(), promotion.getConditionPromotion());
+        Set<Long> produits = new LinkedHashSet<>();
+        if (!globale && promotion.getProduits() != null) {
+            promotion.getProduits().forEach(p -> produits.add(p.getId()));
+            produits.remove(null);
+        }
+        ProduitCatalogue.apresCommit(() -> appliquer(id, remise, globale, produits));
+    }
+
+    public void retirer(Integer promotionId) {
+        if (promotionId != null) {
+            ProduitCatalogue.apresCommit(() -> appliquer(promotionId, null, false, Set.of()));
+        }
+    }
+
+    /**
+     * Relit la promotion en base puis la réindexe comme {@link #indexer}, sans charger ses produits en
+     * entités (après une écriture de masse dans promotion_produit).
+     */
+    public void recharger(Integer promotionId) {
+        if (promotionId == null) {
+            return;
+        }
+        Remise[] remise = new Remise[1];
+        boolean[] globale = new boolean[1];
+        Set<Long> produits = new LinkedHashSet<>();
+        jdbcTemplate.query(REMISES_SQL + " AND p.id = ?", rs -> {
+            if (CONDITIONS_PANIER.contains(rs.getString(3))) {
+                return;
+            }
+            remise[0] = remise(promotionId, rs.getDouble(4), rs.getTimestamp(5), rs.getTimestamp(6));
+            globale[0] = estGlobale(rs.getString(2), rs.getString(3));
+            long produitId = rs.getLong(7);
+            if (!rs.wasNull()) {
+                produits.add(produitId);
+            }
+        }, promotionId);
+        ProduitCatalogue.apresCommit(() -> appliquer(promotionId, remise[0], globale[0], globale[0] ? Set.of() : produits));
+    }
+
+    private synchronized void appliquer(Integer promotionId, Remise remise, boolean globale, Set<Long> produits) {
+        if (!initialise) {
+            charger();
+        }
+        // remplace l'état chargé ou indexé précédemment pour cette promotion
+        enlever(promotionId);
+        if (remise == null) {
+            return;
+        }
+        if (globale) {
+            Remise[] nouvelles = Arrays.copyOf(globales, globales.length + 1);
+            nouvelles[globales.length] = remise;
+            globales = nouvelles;
+            return;
+        }
+        for (Long produitId : produits) {
+            ajouter(produitId, remise);
+        }
+        produitsParPromotion.put(promotionId, produits.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private void enlever(Integer promotionId) {
+        if (Arrays.stream(globales).anyMatch(r -> r.promotionId().equals(promotionId))) {
+            globales = Arrays.stream(globales).filter(r -> !r.promotionId().equals(promotionId)).toArray(Remise[]::new);
+        }
+        long[] produits = produitsParPromotion.remove(promotionId);
+        if (produits == null) {
+            return;
+        }
+        for (long produitId : produits) {
+            parProduit.computeIfPresent(produitId, (id, remises) -> {
+                Remise[] restantes = Arrays.stream(remises)
+                        .filter(r -> !r.promotionId().equals(promotionId))
+                        .toArray(Remise[]::new);
+                return restantes.length == 0 ? null : restantes;
+            });
+        }
+    }
+
+    private void ajouter(Long produitId, Remise remise) {
+        parProduit.merge(produitId, new Remise[]{remise}, (remises, nouvelle) -> {
+            Remise[] toutes = Arrays.copyOf(remises, remises.length + 1);
+            toutes[remises.length] = remise;
+            return toutes;
+        });
+    }
+
+    private synchronized void charger() {
+        if (initialise) {
+            return;
+        }
+        long debut = System.currentTimeMillis();
+        Map<Integer, Set<Long>> produits = new HashMap<>();
+        List<Remise> globalesChargees = new ArrayList<>();
+        jdbcTemplate.query(REMISES_SQL, rs -> {
+            Integer id = rs.getInt(1);
+            String condition = rs.getString(3);
+            if (CONDITIONS_PANIER.contains(condition)) {
+                return;
+            }
+            Remise remise = remise(id, rs.getDouble(4), rs.getTimestamp(5), rs.getTimestamp(6));
+            if (estGlobale(rs.getString(2), condition)) {
+                if (globalesChargees.stream().noneMatch(r -> r.promotionId().equals(id))) {
+                    globalesChargees.add(remise);
+                }
+                return;
+            }
+            long produitId = rs.getLong(7);
+            if (!rs.wasNull() && produits.computeIfAbsent(id, k -> new LinkedHashSet<>()).add(produitId)) {
+                ajouter(produitId, remise);
+            }
+        });
+        produits.forEach((id, ids) -> produitsParPromotion.put(id, ids.stream().mapToLong(Long::longValue).toArray()));
+        globales = globalesChargees.toArray(AUCUNE);
+        initialise = true;
+        logger.info("Remises chargées: {} produits, {} promotions globales en {} ms",
+                parProduit.size(), globales.length, System.currentTimeMillis() - debut);
+    }
+
+    private static double meilleure(Remise[] remises, long maintenant) {
+        double meilleure = 0;
+        for (Remise remise : remises) {
+            if (remise.enCours(maintenant) && remise.pourcentage() > meilleure) {
+                meilleure = remise.pourcentage();
+            }
+        }
+        return Math.min(meilleure, 100);
+    }
+
+    private static Remise remise(Integer promotionId, double pourcentage, Date debut, Date fin) {
+        return new Remise(promotionId, pourcentage,
+                debut == null ? Long.MIN_VALUE : debut.getTime(),
+                fin == null ? Long.MAX_VALUE : fin.getTime() + JOUR_MS);
+    }
+
+    static boolean estGlobale(String nom, String condition) {
+        return NOM_GLOBAL.equals(nom) || CONDITION_GLOBALE.equals(condition);
+    }
+}
@@ -0,0 +1,435 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.CatalogueStats;
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.enums.Category;
+import com.example.usermanagementbackend.repository.ProduitRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Catalogue produits en mémoire pour les lectures de /api/produits.
+ * <p>
+ * Les lecteurs travaillent sur un instantané immuable (par id, par catégorie)
+ * publié par une simple écriture volatile; les écritures (création, modification, suppression,
+ * stock, promotions) appellent {@link #invalider(Collection)} qui recharge les produits concernés
+ * après le commit et les met en attente; le lecteur suivant applique en une passe tous les produits en
+ * attente et publie un nouvel instantané. Les produits rechargés alimentent aussi
+ * {@link TopVentes} et {@link CalendrierExpiration}. Les produits servis sont des copies détachées (sans promotions) partagées
+ * entre requêtes: ils ne doivent pas être modifiés.
+ */
+@Component
+public class ProduitCatalogue {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProduitCatalogue.class);
+
+    private static final Comparator<Produit> PAR_ID = Comparator.comparing(Produit::getId);
+
+    private final ProduitRepository produitRepository;
+    private final TransactionTemplate nouvelleTransaction;
+    private final TopVentes topVentes;
+    private final CalendrierExpiration calendrier;
+
+    private volatile Snapshot snapshot;
+    // produits rechargés pas encore dans l'instantané (null: supprimé), le plus récent par id
+    private final Object ecritures = new Object();
+    private Map<Long, Produit> enAttente = new HashMap<>();
+    // numéro du dernier rechargement retenu par id: un rechargement plus ancien arrivé en retard est ignoré
+    private final Map<Long, Long> rechargements = new HashMap<>();
+    private volatile boolean patchsEnAttente;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ProduitSearchIndex index = new ProduitSearchIndex();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reconstructions = new LongAdder();
+    private final LongAdder patchs = new LongAdder();
+    private final AtomicLong derniereReconstructionMs = new AtomicLong(-1);
+    // incrémentée à chaque produit rechargé ou invalidation complète
+    private final AtomicLong version = new AtomicLong();
+    private final Timer rebuildTimer;
+
+    public ProduitCatalogue(ProduitRepository produitRepository, PlatformTransactionManager transactionManager,
+                            TopVentes topVentes, CalendrierExpiration calendrier) {
+        this.produitRepository = produitRepository;
+        this.topVentes = topVentes;
+        this.calendrier = calendrier;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nouvelleTransaction.setReadOnly(true);
+        this.rebuildTimer = Timer.builder("produit.catalogue.rebuild")
+                .description("Durée de reconstruction complète du catalogue produits")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("produit.catalogue.hit.ratio", this, ProduitCatalogue::hitRatio)
+                .description("Part des lectures produits servies depuis le catalogue en mémoire")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("produit.catalogue.size", this, c -> c.snapshot == null ? 0 : c.snapshot.parId.size())
+                .register(Metrics.globalRegistry);
+    }
+
+    public List<Produit> tous() {
+        hits.increment();
+        return snapshot().tous;
+    }
+
+    /** Produit par id; un id absent de l'instantané est cherché en base puis ajouté. */
+    public Produit parId(Long id) {
+        Produit produit = snapshot().parId.get(id);
+        if (produit != null) {
+            hits.increment();
+            return produit;
+        }
+        misses.increment();
+        long numero = sequence.incrementAndGet();
+        return produitRepository.findById(id)
+                .map(p -> {
+                    patcher(numero, List.of(p), Set.of());
+                    return copier(p);
+                })
+                .orElse(null);
+    }
+
+    public List<Produit> parCategorie(Category category) {
+        hits.increment();
+        return snapshot().parCategorie.getOrDefault(category, List.of());
+    }
+
+    /**
+     * Recherche plein texte sur l'index du catalogue, restreinte aux produits acceptés par le filtre
+     * (null: pas de filtre). Sans comparateur les résultats sont dans l'ordre de pertinence et seule
+     * la page demandée est triée.
+     */
+    public Page<Produit> rechercher(String requete, int champs, Predicate<Produit> filtre,
+                                    Comparator<Produit> comparateur, Pageable pageable) {
+        hits.increment();
+        Map<Long, Produit> parId = snapshot().parId;
+        ProduitSearchIndex.Correspondances correspondances = index.correspondances(requete, champs)
+                .filtrer(id -> {
+                    Produit produit = parId.get(id);
+                    return produit != null && (filtre == null || filtre.test(produit));
+                });
+        if (comparateur != null || pageable.isUnpaged()) {
+            List<Produit> resultats = new ArrayList<>(correspondances.taille());
+            for (long id : correspondances.selectionner(0, correspondances.taille())) {
+                resultats.add(parId.get(id));
+            }
+            return page(resultats, comparateur, pageable);
+        }
+        long[] ids = correspondances.selectionner((int) Math.min(pageable.getOffset(), Integer.MAX_VALUE),
+                pageable.getPageSize());
+        List<Produit> contenu = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            contenu.add(parId.get(id));
+        }
+        return new PageImpl<>(contenu, pageable, correspondances.taille());
+    }
+
+    /**
+     * Trie selon la convention des endpoints ("prix", "-salesCount"...). Renvoie null si la
+     * propriété n'est pas indexable en mémoire: l'appelant retombe alors sur la base.
+     */
+    public Comparator<Produit> comparateur(String triPar) {
+        boolean desc = triPar != null && triPar.startsWith("-");
+        String propriete = triPar == null || triPar.isEmpty() ? "id" : desc ? triPar.substring(1) : triPar;
+        Comparator<Produit> comparateur = switch (propriete) {
+            case "id" -> PAR_ID;
+            case "nom" -> Comparator.comparing(Produit::getNom, Comparator.nullsFirst(String::compareTo));
+            case "prix" -> Comparator.comparingDouble(Produit::getPrix);
+            case "stock" -> Comparator.comparingInt(Produit::getStock);
+            case "salesCount" -> Comparator.comparingInt(ProduitCatalogue::ventes);
+            case "fournisseur" -> Comparator.comparing(Produit::getFournisseur, Comparator.nullsFirst(String::compareTo));
+            case "description" -> Comparator.comparing(Produit::getDescription, Comparator.nullsFirst(String::compareTo));
+            case "devise" -> Comparator.comparing(Produit::getDevise, Comparator.nullsFirst(String::compareTo));
+            case "taxe" -> Comparator.comparing(Produit::getTaxe, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "seuilMin" -> Comparator.comparingInt(Produit::getSeuilMin);
+            case "dateExpiration" -> Comparator.comparing(Produit::getDateExpiration, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "category" -> Comparator.comparing(Produit::getCategory, Comparator.nullsFirst(Comparator.naturalOrder()));
+            default -> null;
+        };
+        if (comparateur == null) {
+            return null;
+        }
+        return desc ? comparateur.reversed().thenComparing(PAR_ID) : comparateur.thenComparing(PAR_ID);
+    }
+
+    public Page<Produit> page(List<Produit> produits, Comparator<Produit> comparateur, Pageable pageable) {
+        List<Produit> tries = produits;
+        if (comparateur != null) {
+            tries = new ArrayList<>(produits);
+            tries.sort(comparateur);
+        }
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(tries, pageable, tries.size());
+        }
+        int debut = (int) Math.min(pageable.getOffset(), tries.size());
+        int fin = Math.min(debut + pageable.getPageSize(), tries.size());
+        return new PageImpl<>(tries.subList(debut, fin), pageable, tries.size());
+    }
+
+    /** Compte une lecture qui n'a pas pu être servie par le catalogue. */
+    public void miss() {
+        misses.increment();
+    }
+
+    /**
+     * Recharge les produits donnés après le commit de la transaction courante (immédiatement
+     * hors transaction). Les ids qui n'existent plus sont retirés du catalogue.
+     */
+    public void invalider(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        Set<Long> copie = new LinkedHashSet<>(ids);
+        copie.remove(null);
+        apresCommit(() -> recharger(copie));
+    }
+
+    public void invalider(Long id) {
+        if (id != null) {
+            invalider(List.of(id));
+        }
+    }
+
+    /** Force une reconstruction complète au prochain accès (après le commit courant). */
+    public void invaliderTout() {
+        apresCommit(() -> {
+            snapshot = null;
+            version.incrementAndGet();
+        });
+    }
+
+    /** Change après chaque écriture produit visible des lecteurs; sert aux vues calculées à partir du catalogue. */
+    public long version() {
+        return version.get();
+    }
+
+    public CatalogueStats stats() {
+        Snapshot courant = snapshot;
+        return new CatalogueStats(courant == null ? 0 : courant.parId.size(), hits.sum(), misses.sum(), hitRatio(),
+                reconstructions.sum(), patchs.sum(), derniereReconstructionMs.get());
+    }
+
+    private double hitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot courant = snapshot;
+        if (courant != null && !patchsEnAttente) {
+            return courant;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                long debut = System.nanoTime();
+                Snapshot reconstruit = Snapshot.de(produitRepository.findAll().stream().map(ProduitCatalogue::copier).toList());
+                index.reconstruire(reconstruit.tous);
+                topVentes.mettreAJour(reconstruit.tous);
+                calendrier.mettreAJour(reconstruit.tous);
+                snapshot = reconstruit;
+                long duree = System.nanoTime() - debut;
+                rebuildTimer.record(duree, TimeUnit.NANOSECONDS);
+                derniereReconstructionMs.set(TimeUnit.NANOSECONDS.toMillis(duree));
+                reconstructions.increment();
+                logger.info("Catalogue produits reconstruit: {} produits en {} ms",
+                        snapshot.parId.size(), derniereReconstructionMs.get());
+            }
+            if (patchsEnAttente) {
+                appliquer();
+            }
+            return snapshot;
+        }
+    }
+
+    private void recharger(Set<Long> ids) {
+        // rechargé même sans instantané: le classement des ventes et le calendrier doivent suivre chaque écriture
+        // nouvelle transaction: la session de la transaction qui vient de commiter peut contenir
+        // des produits dont le stock a été modifié en SQL
+        long numero = sequence.incrementAndGet();
+        List<Produit> charges = nouvelleTransaction.execute(status -> produitRepository.findAllById(ids));
+        Set<Long> supprimes = new LinkedHashSet<>(ids);
+        charges.forEach(p -> supprimes.remove(p.getId()));
+        patcher(numero, charges, supprimes);
+    }
+
+    /**
+     * Met en attente les produits rechargés (numéro pris avant la lecture en base) sans toucher à
+     * l'instantané: l'écrivain ne paie que ses propres produits, la copie de l'instantané est faite une
+     * fois pour toutes les écritures en attente par {@link #appliquer()}.
+     */
+    private void patcher(long numero, Collection<Produit> modifies, Collection<Long> supprimes) {
+        synchronized (ecritures) {
+            List<Produit> retenus = new ArrayList<>(modifies.size());
+            for (Produit produit : modifies) {
+                if (retenir(produit.getId(), numero)) {
+                    retenus.add(produit);
+                    enAttente.put(produit.getId(), copier(produit));
+                }
+            }
+            List<Long> retires = new ArrayList<>(supprimes.size());
+            for (Long id : supprimes) {
+                if (retenir(id, numero)) {
+                    retires.add(id);
+                    enAttente.put(id, null);
+                }
+            }
+            version.incrementAndGet();
+            retires.forEach(topVentes::retirer);
+            topVentes.mettreAJour(retenus);
+            retires.forEach(calendrier::retirer);
+            calendrier.mettreAJour(retenus);
+            patchsEnAttente = !enAttente.isEmpty();
+        }
+        patchs.increment();
+    }
+
+    private boolean retenir(Long id, long numero) {
+        return rechargements.merge(id, numero, Math::max) == numero;
+    }
+
+    /** Applique d'un coup les produits en attente; appelé avec le verrou de la reconstruction. */
+    private void appliquer() {
+        Map<Long, Produit> lot;
+        synchronized (ecritures) {
+            lot = enAttente;
+            enAttente = new HashMap<>();
+            patchsEnAttente = false;
+        }
+        if (snapshot == null || lot.isEmpty()) {
+            return;
+        }
+        lot.forEach((id, produit) -> {
+            if (produit == null) {
+                index.retirer(id);
+            } else {
+                index.indexer(produit);
+            }
+        });
+        snapshot = snapshot.patcher(new TreeMap<>(lot));
+    }
+
+    static void apresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static int ventes(Produit produit) {
+        return produit.getSalesCount() == null ? 0 : produit.getSalesCount();
+    }
+
+    static Produit copier(Produit source) {
+        Produit copie = new Produit();
+        copie.setId(source.getId());
+        copie.setNom(source.getNom());
+        copie.setDateExpiration(source.getDateExpiration());
+        copie.setDescription(source.getDescription());
+        copie.setPrix(source.getPrix());
+        copie.setDevise(source.getDevise());
+        copie.setTaxe(source.getTaxe());
+        copie.setStock(source.getStock());
+        copie.setSeuilMin(source.getSeuilMin());
+        copie.setFournisseur(source.getFournisseur());
+        copie.setFournisseurId(source.getFournisseurId());
+        copie.setAutoReapprovisionnement(source.isAutoReapprovisionnement());
+        copie.setQuantiteReapprovisionnement(source.getQuantiteReapprovisionnement());
+        copie.setCategory(source.getCategory());
+        copie.setImage(source.getImage());
+        copie.setSalesCount(source.getSalesCount());
+        copie.setPrixEffectif(source.getPrixEffectif() != null ? source.getPrixEffectif() : source.getPrix());
+        return copie;
+    }
+
+    /** Vue immuable du catalogue; toutes les listes sont figées à la construction. */
+    private static final class Snapshot {
+        private final Map<Long, Produit> parId;
+        private final List<Produit> tous;
+        private final Map<Category, List<Produit>> parCategorie;
+
+        private Snapshot(Map<Long, Produit> parId, List<Produit> tous, Map<Category, List<Produit>> parCategorie) {
+            this.parId = parId;
+            this.tous = tous;
+            this.parCategorie = parCategorie;
+        }
+
+        static Snapshot de(Collection<Produit> produits) {
+            List<Produit> tous = new ArrayList<>(produits);
+            tous.sort(PAR_ID);
+            return trie(tous);
+        }
+
+        /** Fusionne les produits modifiés (null: supprimé), triés par id, avec la liste déjà triée: O(n), sans tri. */
+        Snapshot patcher(TreeMap<Long, Produit> modifies) {
+            List<Produit> fusion = new ArrayList<>(tous.size() + modifies.size());
+            Iterator<Produit> existants = tous.iterator();
+            Produit existant = existants.hasNext() ? existants.next() : null;
+            for (Map.Entry<Long, Produit> modifie : modifies.entrySet()) {
+                while (existant != null && existant.getId() < modifie.getKey()) {
+                    fusion.add(existant);
+                    existant = existants.hasNext() ? existants.next() : null;
+                }
+                if (existant != null && existant.getId().equals(modifie.getKey())) {
+                    existant = existants.hasNext() ? existants.next() : null;
+                }
+                if (modifie.getValue() != null) {
+                    fusion.add(modifie.getValue());
+                }
+            }
+            while (existant != null) {
+                fusion.add(existant);
+                existant = existants.hasNext() ? existants.next() : null;
+            }
+            return trie(fusion);
+        }
+
+        private static Snapshot trie(List<Produit> tous) {
+            Map<Long, Produit> parId = new HashMap<>(tous.size() * 2);
+            Map<Category, List<Produit>> parCategorie = new EnumMap<>(Category.class);
+            for (Produit produit : tous) {
+                parId.put(produit.getId(), produit);
+                if (produit.getCategory() != null) {
+                    parCategorie.computeIfAbsent(produit.getCategory(), c -> new ArrayList<>()).add(produit);
+                }
+            }
+            parCategorie.replaceAll((c, l) -> Collections.unmodifiableList(l));
+            return new Snapshot(Collections.unmodifiableMap(parId), Collections.unmodifiableList(tous), parCategorie);
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Index inversé en mémoire sur nom, description et fournisseur des produits.
+ * <p>
+ * Les textes sont découpés en termes minuscules sans accents ("Pâté de Campagne" donne
+ * "pate", "campagne"), les mots vides français sont ignorés. Un terme de la requête correspond
+ * au même terme, aux termes qui le prolongent (saisie en cours) et, via un index de trigrammes
+ * du vocabulaire, aux termes proches (fautes de frappe). Tous les termes de la requête doivent
+ * correspondre; le score additionne idf et poids du champ (nom > fournisseur > description).
+ * <p>
+ * Chaque produit reçoit un ordinal interne; les listes de postings sont des tableaux d'ordinaux
+ * et les scores sont accumulés dans des tableaux primitifs, sans objet par document. Réindexer un
+ * produit lui attribue un nouvel ordinal et marque l'ancien comme supprimé; l'index est compacté
+ * quand les ordinaux supprimés dépassent le quart des ordinaux vivants.
+ * Tenu à jour par {@link ProduitCatalogue} en même temps que l'instantané.
+ */
+public class ProduitSearchIndex {
+
+    public static final int CHAMP_NOM = 1;
+    public static final int CHAMP_FOURNISSEUR = 2;
+    public static final int CHAMP_DESCRIPTION = 4;
+    public static final int TOUS_CHAMPS = CHAMP_NOM | CHAMP_FOURNISSEUR | CHAMP_DESCRIPTION;
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATEURS = Pattern.compile("[^a-z0-9]+");
+    private static final Set<String> MOTS_VIDES = Set.of(
+            "a", "au", "aux", "avec", "d", "de", "des", "du", "en", "et", "l", "la", "le", "les",
+            "par", "pour", "sur", "un", "une");
+
+    // au-delà, un préfixe trop court ("p") ramènerait tout le vocabulaire
+    private static final int MAX_EXPANSIONS_PREFIXE = 64;
+    private static final double SIMILARITE_MIN = 0.5;
+    private static final int SEUIL_COMPACTAGE = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final Map<String, Set<String>> termesParTrigramme = new HashMap<>();
+    private final Map<Long, Integer> ordinalParId = new HashMap<>();
+    private final BitSet supprimes = new BitSet();
+    private long[] idParOrdinal = new long[1024];
+    private int prochainOrdinal;
+
+    public record Resultat(Long produitId, double score) {
+    }
+
+    /**
+     * Correspondances d'une requête, non triées: {@link #selectionner(int, int)} ne trie que
+     * ce qu'il faut pour une page.
+     */
+    public static final class Correspondances {
+        private final long[] ids;
+        private final double[] scores;
+        private int taille;
+
+        private Correspondances(long[] ids, double[] scores, int taille) {
+            this.ids = ids;
+            this.scores = scores;
+            this.taille = taille;
+        }
+
+        public int taille() {
+            return taille;
+        }
+
+        public long id(int i) {
+            return ids[i];
+        }
+
+        /** Retire les correspondances refusées par le filtre (sur l'id produit). */
+        public Correspondances filtrer(LongPredicate filtre) {
+            int garde = 0;
+            for (int i = 0; i < taille; i++) {
+                if (filtre.test(ids[i])) {
+                    ids[garde] = ids[i];
+                    scores[garde] = scores[i];
+                    garde++;
+                }
+            }
+            taille = garde;
+            return this;
+        }
+
+        /** Ids des rangs [debut, debut + nombre) par score décroissant puis id croissant. */
+        public long[] selectionner(int debut, int nombre) {
+            int fin = (int) Math.min((long) debut + nombre, taille);
+            if (debut >= fin) {
+                return new long[0];
+            }
+            // tas borné des "fin" meilleurs, le moins bon en tête: seuls ceux-là sont triés
+            int[] tas = new int[fin];
+            int n = 0;
+            for (int i = 0; i < taille; i++) {
+                if (n < fin) {
+                    tas[n] = i;
+                    remonter(tas, n++);
+                } else if (comparer(i, tas[0]) < 0) {
+                    tas[0] = i;
+                    descendre(tas, n);
+                }
+            }
+            long[] page = new long[fin - debut];
+            // vider le tas donne les rangs du dernier au premier
+            for (int rang = fin - 1; rang >= 0; rang--) {
+                int pire = tas[0];
+                tas[0] = tas[--n];
+                descendre(tas, n);
+                if (rang >= debut) {
+                    page[rang - debut] = ids[pire];
+                }
+            }
+            return page;
+        }
+
+        private int comparer(int a, int b) {
+            int parScore = Double.compare(scores[b], scores[a]);
+            return parScore != 0 ? parScore : Long.compare(ids[a], ids[b]);
+        }
+
+        private void remonter(int[] tas, int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (comparer(tas[parent], tas[i]) >= 0) {
+                    return;
+                }
+                echanger(tas, parent, i);
+                i = parent;
+            }
+        }
+
+        private void descendre(int[] tas, int n) {
+            int i = 0;
+            while (true) {
+                int gauche = 2 * i + 1;
+                if (gauche >= n) {
+                    return;
+                }
+                int pire = gauche + 1 < n && comparer(tas[gauche + 1], tas[gauche]) > 0 ? gauche + 1 : gauche;
+                if (comparer(tas[i], tas[pire]) >= 0) {
+                    return;
+                }
+                echanger(tas, i, pire);
+                i = pire;
+            }
+        }
+
+        private static void echanger(int[] tas, int a, int b) {
+            int t = tas[a];
+            tas[a] = tas[b];
+            tas[b] = t;
+        }
+    }
+
+    private static final class Postings {
+        private int[] ordinaux = new int[4];
+        private byte[] masques = new byte[4];
+        private int taille;
+
+        void ajouter(int ordinal, int masque) {
+            if (taille == ordinaux.length) {
+                ordinaux = Arrays.copyOf(ordinaux, taille * 2);
+                masques = Arrays.copyOf(masques, taille * 2);
+            }
+            ordinaux[taille] = ordinal;
+            masques[taille] = (byte) masque;
+            taille++;
+        }
+    }
+
+    /** Tableaux de travail d'une recherche, réutilisés par thread. */
+    private static final class Travail {
+        double[] total = new double[0];
+        double[] meilleur = new double[0];
+        // nombre de termes de la requête trouvés (consécutivement) par ordinal
+        int[] termesTrouves = new int[0];
+        int[] touches = new int[0];
+
+        void dimensionner(int capacite) {
+            if (total.length < capacite) {
+                int taille = Math.max(capacite, total.length * 2);
+                total = new double[taille];
+                meilleur = new double[taille];
+                termesTrouves = new int[taille];
+                touches = new int[taille];
+            }
+        }
+    }
+
+    private final ThreadLocal<Travail> travail = ThreadLocal.withInitial(Travail::new);
+
+    public void reconstruire(Collection<Produit> produits) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termesParTrigramme.clear();
+            ordinalParId.clear();
+            supprimes.clear();
+            prochainOrdinal = 0;
+            produits.forEach(this::ajouter);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexer(Produit produit) {
+        lock.writeLock().lock();
+        try {
+            retirerSansVerrou(produit.getId());
+            ajouter(produit);
+            compacterSiNecessaire();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void retirer(Long produitId) {
+        lock.writeLock().lock();
+        try {
+            retirerSansVerrou(produitId);
+            compacterSiNecessaire();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int taille() {
+        lock.readLock().lock();
+        try {
+            return ordinalParId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Résultats triés par score décroissant puis id croissant. */
+    public List<Resultat> rechercher(String requete, int champs) {
+        Correspondances correspondances = correspondances(requete, champs);
+        Integer[] ordre = new Integer[correspondances.taille()];
+        for (int i = 0; i < ordre.length; i++) {
+            ordre[i] = i;
+        }
+        Arrays.sort(ordre, correspondances::comparer);
+        List<Resultat> resultats = new ArrayList<>(ordre.length);
+        for (Integer i : ordre) {
+            resultats.add(new Resultat(correspondances.ids[i], correspondances.scores[i]));
+        }
+        return resultats;
+    }
+
+    /**
+     * Produits correspondant à tous les termes de la requête dans les champs donnés.
+     * Une requête sans terme utile ne correspond à rien.
+     */
+    public Correspondances correspondances(String requete, int champs) {
+        List<String> termes = new ArrayList<>(new LinkedHashSet<>(tokeniser(requete)));
+        if (termes.isEmpty()) {
+            return new Correspondances(new long[0], new double[0], 0);
+        }
+        lock.readLock().lock();
+        try {
+            Travail t = travail.get();
+            t.dimensionner(prochainOrdinal);
+            int nbTouches = 0;
+            double vivants = Math.max(1, ordinalParId.size());
+            boolean avecSupprimes = !supprimes.isEmpty();
+            for (int j = 0; j < termes.size(); j++) {
+                Map<String, Double> variantes = variantes(termes.get(j));
+                if (variantes.isEmpty()) {
+                    nbTouches = nettoyer(t, nbTouches);
+                    return new Correspondances(new long[0], new double[0], 0);
+                }
+                for (Map.Entry<String, Double> variante : variantes.entrySet()) {
+                    Postings liste = postings.get(variante.getKey());
+                    double base = variante.getValue() * Math.log(1 + vivants / liste.taille);
+                    for (int i = 0; i < liste.taille; i++) {
+                        int ordinal = liste.ordinaux[i];
+                        int communs = liste.masques[i] & champs;
+                        // un document ne compte que s'il a trouvé tous les termes précédents
+                        int trouves = t.termesTrouves[ordinal];
+                        if (communs == 0 || trouves < j || (avecSupprimes && supprimes.get(ordinal))) {
+                            continue;
+                        }
+                        double score = base * poids(communs);
+                        if (trouves == j) {
+                            if (j == 0) {
+                                t.touches[nbTouches++] = ordinal;
+                            }
+                            t.termesTrouves[ordinal] = j + 1;
+                            t.meilleur[ordinal] = score;
+                            t.total[ordinal] += score;
+                        } else if (score > t.meilleur[ordinal]) {
+                            t.total[ordinal] += score - t.meilleur[ordinal];
+                            t.meilleur[ordinal] = score;
+                        }
+                    }
+                }
+            }
+            long[] ids = new long[nbTouches];
+            double[] scores = new double[nbTouches];
+            int taille = 0;
+            for (int i = 0; i < nbTouches; i++) {
+                int ordinal = t.touches[i];
+                if (t.termesTrouves[ordinal] == termes.size()) {
+                    ids[taille] = idParOrdinal[ordinal];
+                    scores[taille] = t.total[ordinal];
+                    taille++;
+                }
+            }
+            nettoyer(t, nbTouches);
+            return new Correspondances(ids, scores, taille);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int nettoyer(Travail t, int nbTouches) {
+        for (int i = 0; i < nbTouches; i++) {
+            int ordinal = t.touches[i];
+            t.total[ordinal] = 0;
+            t.meilleur[ordinal] = 0;
+            t.termesTrouves[ordinal] = 0;
+        }
+        return 0;
+    }
+
+    /** Termes du vocabulaire retenus pour un terme de requête, avec leur poids (1 = exact). */
+    private Map<String, Double> variantes(String terme) {
+        Map<String, Double> variantes = new HashMap<>();
+        if (postings.containsKey(terme)) {
+            variantes.put(terme, 1.0);
+        }
+        int prefixes = 0;
+        for (String candidat : postings.subMap(terme, false, terme + Character.MAX_VALUE, false).keySet()) {
+            if (prefixes++ >= MAX_EXPANSIONS_PREFIXE) {
+                break;
+            }
+            variantes.putIfAbsent(candidat, 0.8);
+        }
+        if (terme.length() >= 4) {
+            Map<String, Integer> communs = new HashMap<>();
+            for (String trigramme : trigrammes(terme)) {
+                for (String candidat : termesParTrigramme.getOrDefault(trigramme, Set.of())) {
+                    communs.merge(candidat, 1, Integer::sum);
+                }
+            }
+            communs.forEach((candidat, nombre) -> {
+                // coefficient de Dice sur les trigrammes ("_mot_" a autant de trigrammes que de lettres)
+                double similarite = 2.0 * nombre / (terme.length() + candidat.length());
+                if (similarite >= SIMILARITE_MIN) {
+                    variantes.putIfAbsent(candidat, 0.6 * similarite);
+                }
+            });
+        }
+        return variantes;
+    }
+
+    private void ajouter(Produit produit) {
+        if (produit.getId() == null) {
+            return;
+        }
+        Map<String, Integer> termes = new HashMap<>();
+        tokeniser(produit.getNom()).forEach(t -> termes.merge(t, CHAMP_NOM, (a, b) -> a | b));
+        tokeniser(produit.getFournisseur()).forEach(t -> termes.merge(t, CHAMP_FOURNISSEUR, (a, b) -> a | b));
+        tokeniser(produit.getDescription()).forEach(t -> termes.merge(t, CHAMP_DESCRIPTION, (a, b) -> a | b));
+
+        int ordinal = prochainOrdinal++;
+        if (ordinal == idParOrdinal.length) {
+            idParOrdinal = Arrays.copyOf(idParOrdinal, ordinal * 2);
+        }
+        idParOrdinal[ordinal] = produit.getId();
+        ordinalParId.put(produit.getId(), ordinal);
+        termes.forEach((terme, masque) -> {
+            Postings liste = postings.get(terme);
+            if (liste == null) {
+                liste = new Postings();
+                postings.put(terme, liste);
+                for (String trigramme : trigrammes(terme)) {
+                    termesParTrigramme.computeIfAbsent(trigramme, k -> new HashSet<>()).add(terme);
+                }
+            }
+            liste.ajouter(ordinal, masque);
+        });
+    }
+
+    private void retirerSansVerrou(Long produitId) {
+        Integer ordinal = ordinalParId.remove(produitId);
+        if (ordinal != null) {
+            supprimes.set(ordinal);
+        }
+    }
+
+    /** Réécrit les postings sans les ordinaux supprimés et renumérote les documents vivants. */
+    private void compacterSiNecessaire() {
+        int morts = supprimes.cardinality();
+        if (morts < SEUIL_COMPACTAGE || morts * 4 < ordinalParId.size()) {
+            return;
+        }
+        int[] nouvelOrdinal = new int[prochainOrdinal];
+        long[] ids = new long[Math.max(16, ordinalParId.size() * 2)];
+        int suivant = 0;
+        for (int ordinal = 0; ordinal < prochainOrdinal; ordinal++) {
+            if (supprimes.get(ordinal)) {
+                nouvelOrdinal[ordinal] = -1;
+            } else {
+                nouvelOrdinal[ordinal] = suivant;
+                ids[suivant] = idParOrdinal[ordinal];
+                suivant++;
+            }
+        }
+        Iterator<Map.Entry<String, Postings>> it = postings.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Postings> entree = it.next();
+            Postings liste = entree.getValue();
+            int garde = 0;
+            for (int i = 0; i < liste.taille; i++) {
+                int ordinal = nouvelOrdinal[liste.ordinaux[i]];
+                if (ordinal >= 0) {
+                    liste.ordinaux[garde] = ordinal;
+                    liste.masques[garde] = liste.masques[i];
+                    garde++;
+                }
+            }
+            liste.taille = garde;
+            if (garde == 0) {
+                it.remove();
+                for (String trigramme : trigrammes(entree.getKey())) {
+                    Set<String> ensemble = termesParTrigramme.get(trigramme);
+                    if (ensemble != null) {
+                        ensemble.remove(entree.getKey());
+                        if (ensemble.isEmpty()) {
+                            termesParTrigramme.remove(trigramme);
+                        }
+                    }
+                }
+            }
+        }
+        ordinalParId.replaceAll((id, ordinal) -> nouvelOrdinal[ordinal]);
+        idParOrdinal = ids;
+        prochainOrdinal = suivant;
+        supprimes.clear();
+    }
+
+    private static double poids(int masque) {
+        if ((masque & CHAMP_NOM) != 0) {
+            return 3.0;
+        }
+        return (masque & CHAMP_FOURNISSEUR) != 0 ? 2.0 : 1.0;
+    }
+
+    /** Minuscules, accents retirés (é -> e, œ -> oe), découpage sur tout ce qui n'est ni lettre ni chiffre. */
+    static List<String> tokeniser(String texte) {
+        if (texte == null || texte.isBlank()) {
+            return List.of();
+        }
+        String normalise = Normalizer.normalize(texte.toLowerCase(Locale.ROOT)
+                .replace("œ", "oe").replace("æ", "ae").replace("ß", "ss"), Normalizer.Form.NFD);
+        normalise = ACCENTS.matcher(normalise).replaceAll("");
+        List<String> termes = new ArrayList<>();
+        for (String terme : SEPARATEURS.split(normalise)) {
+            if (!terme.isEmpty() && !MOTS_VIDES.contains(terme)) {
+                termes.add(terme);
+            }
+        }
+        return termes;
+    }
+
+    private static Set<String> trigrammes(String terme) {
+        String borne = "_" + terme + "_";
+        Set<String> trigrammes = new HashSet<>();
+        for (int i = 0; i + 3 <= borne.length(); i++) {
+            trigrammes.add(borne.substring(i, i + 3));
+        }
+        return trigrammes;
+    }
+}
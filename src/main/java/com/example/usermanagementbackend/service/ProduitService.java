@@ -20,12 +20,14 @@ public interface ProduitService {
 
     Page<Produit> lireProduitsPagine(int numeroPage, int taillePage, String triPar);
 
-    Page<Produit> recherche(String recherche, String critere);
+    Page<Produit> recherche(String recherche, String critere, int page, int size);
 
     Page<Produit> findByCategory(Category category, int page, int pageSize, String sortBy);
 
     List<Produit> getTopSellingProducts(int limit);
 
+    List<Produit> getTopSellingProducts(Category category, int limit);
+
     List<Produit> recommendProductsBasedOnHistory(Long userId, int limit);
 
     Page<Produit> searchProducts(
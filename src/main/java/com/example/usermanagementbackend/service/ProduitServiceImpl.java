@@ -16,10 +16,15 @@ import org.springframework.transaction.annotation.Transactional;
 import com.example.usermanagementbackend.enums.TypeNotification;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,6 +35,9 @@ public class ProduitServiceImpl implements ProduitService {
     private final StockService stockService;
     private final MouvementStockRepository mouvementStockRepository;
     private final NotificationService notificationService;
+    private final ProduitCatalogue catalogue;
+    private final TopVentes topVentes;
+    private final PrixEffectif prixEffectif;
     @Override
     @Transactional
     public Produit creer(Produit produit) {
@@ -40,6 +48,7 @@ public class ProduitServiceImpl implements ProduitService {
             // Sauvegarder le produit
             Produit savedProduit = produitRepository.save(produit);
             produitRepository.flush();
+            catalogue.invalider(savedProduit.getId());
 
             System.out.println("Produit créé avec succès : " + savedProduit);
 
@@ -61,9 +70,7 @@ public class ProduitServiceImpl implements ProduitService {
     @Override
     public List<Produit> lire() {
         try {
-            List<Produit> produits = produitRepository.findAll();
-            System.out.println("Produits récupérés : " + produits);
-            return produits;
+            return prixEffectif.tarifer(catalogue.tous());
         } catch (Exception e) {
             System.err.println("Erreur lors de la récupération des produits : " + e.getMessage());
             throw new RuntimeException("Échec de la récupération des produits: " + e.getMessage(), e);
@@ -91,6 +98,7 @@ public class ProduitServiceImpl implements ProduitService {
                         Produit updatedProduit = produitRepository.save(p);
                         System.out.println("Produit modifié avec succès : " + updatedProduit);
                         produitRepository.flush();
+                        catalogue.invalider(id);
                         stockService.verifierEtReapprovisionner(updatedProduit);
                         return updatedProduit;
                     }).orElseThrow(() -> new RuntimeException("❌ Produit non trouvé avec ID=" + id));
@@ -110,6 +118,7 @@ public class ProduitServiceImpl implements ProduitService {
             mouvementStockRepository.deleteByProduit(produit);
             System.out.println("Mouvements de stock supprimés avec succès");
             produitRepository.deleteById(id);
+            catalogue.invalider(id);
             System.out.println("Produit ID=" + id + " supprimé avec succès");
             return "✅ Produit supprimé";
         } catch (Exception e) {
@@ -121,8 +130,11 @@ public class ProduitServiceImpl implements ProduitService {
     @Override
     public Produit lireParId(Long id) {
         try {
-            return produitRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("❌ Produit avec ID " + id + " non trouvé"));
+            Produit produit = catalogue.parId(id);
+            if (produit == null) {
+                throw new RuntimeException("❌ Produit avec ID " + id + " non trouvé");
+            }
+            return prixEffectif.tarifer(produit);
         } catch (Exception e) {
             System.err.println("Erreur lors de la récupération du produit ID=" + id + " : " + e.getMessage());
             throw new RuntimeException("Échec de la récupération du produit: " + e.getMessage(), e);
@@ -142,7 +154,14 @@ public class ProduitServiceImpl implements ProduitService {
                     proprieteTri = triPar;
                 }
             }
-            return produitRepository.findAll(PageRequest.of(numeroPage, taillePage, directionTri, proprieteTri));
+            Comparator<Produit> comparateur = catalogue.comparateur(triPar);
+            if (comparateur != null) {
+                return catalogue.page(catalogue.tous(), comparateur, PageRequest.of(numeroPage, taillePage))
+                        .map(prixEffectif::tarifer);
+            }
+            catalogue.miss();
+            return produitRepository.findAll(PageRequest.of(numeroPage, taillePage, directionTri, proprieteTri))
+                    .map(prixEffectif::tarifer);
         } catch (Exception e) {
             System.err.println("Erreur lors de la récupération des produits paginés : " + e.getMessage());
             throw new RuntimeException("Échec de la récupération des produits paginés: " + e.getMessage(), e);
@@ -150,14 +169,16 @@ public class ProduitServiceImpl implements ProduitService {
     }
 
     @Override
-    public Page<Produit> recherche(String recherche, String critere) {
+    public Page<Produit> recherche(String recherche, String critere, int page, int size) {
         try {
-            PageRequest pageable = PageRequest.of(0, Integer.MAX_VALUE);
+            PageRequest pageable = PageRequest.of(page, size);
             switch (critere.toLowerCase()) {
                 case "nom":
-                    return produitRepository.findByNomContaining(recherche, pageable);
+                    return catalogue.rechercher(recherche, ProduitSearchIndex.CHAMP_NOM, null, null, pageable)
+                            .map(prixEffectif::tarifer);
                 case "fournisseur":
-                    return produitRepository.findByFournisseurContaining(recherche, pageable);
+                    return catalogue.rechercher(recherche, ProduitSearchIndex.CHAMP_FOURNISSEUR, null, null, pageable)
+                            .map(prixEffectif::tarifer);
                 case "prix":
                     String[] prixRange = recherche.split("-");
                     if (prixRange.length != 2) {
@@ -165,7 +186,13 @@ public class ProduitServiceImpl implements ProduitService {
                     }
                     double min = Double.parseDouble(prixRange[0]);
                     double max = Double.parseDouble(prixRange[1]);
-                    return produitRepository.findByPrixBetween(min, max, pageable);
+                    List<Produit> resultats = catalogue.tous().stream()
+                            .filter(p -> {
+                                double prix = prixEffectif.prix(p);
+                                return prix >= min && prix <= max;
+                            })
+                            .toList();
+                    return catalogue.page(resultats, null, pageable).map(prixEffectif::tarifer);
                 default:
                     throw new IllegalArgumentException("⚠️ Critère non supporté: " + critere);
             }
@@ -188,13 +215,25 @@ public class ProduitServiceImpl implements ProduitService {
                     proprieteTri = sortBy;
                 }
             }
-            return produitRepository.findByCategory(category, PageRequest.of(page, pageSize, directionTri, proprieteTri));
+            Comparator<Produit> comparateur = catalogue.comparateur(sortBy);
+            if (comparateur != null) {
+                return catalogue.page(catalogue.parCategorie(category), comparateur, PageRequest.of(page, pageSize))
+                        .map(prixEffectif::tarifer);
+            }
+            catalogue.miss();
+            return produitRepository.findByCategory(category, PageRequest.of(page, pageSize, directionTri, proprieteTri))
+                    .map(prixEffectif::tarifer);
         } catch (Exception e) {
             System.err.println("Erreur lors de la recherche des produits par catégorie : " + e.getMessage());
             throw new RuntimeException("Échec de la recherche des produits par catégorie: " + e.getMessage(), e);
         }
     }
 
+    // équivalent en mémoire du LIKE %x% (insensible à la casse comme la collation MySQL)
+    private static boolean contient(String valeur, String recherche) {
+        return valeur != null && valeur.toLowerCase(Locale.ROOT).contains(recherche.toLowerCase(Locale.ROOT));
+    }
+
     private Long getCurrentUserId() {
         return 1L;
     }
@@ -206,10 +245,10 @@ public class ProduitServiceImpl implements ProduitService {
             List<Purchase> purchases = purchaseRepository.findByUserId(userId);
             if (purchases.isEmpty()) {
                 // Fallback : retourner les produits les plus vendus
-                return produitRepository.findAll(Sort.by(Sort.Direction.DESC, "salesCount"))
-                        .stream()
+                return meilleuresVentes(topVentes.classement())
                         .filter(p -> p.getStock() > 0)
                         .limit(limit)
+                        .map(prixEffectif::tarifer)
                         .collect(Collectors.toList());
             }
 
@@ -230,11 +269,8 @@ public class ProduitServiceImpl implements ProduitService {
             // 3. Recommander des produits des catégories préférées, triés par salesCount
             List<Produit> recommendations = new ArrayList<>();
             for (Category category : preferredCategories) {
-                List<Produit> categoryProducts = produitRepository.findByCategory(
-                                category,
-                                PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "salesCount"))
-                        ).getContent()
-                        .stream()
+                List<Produit> categoryProducts = meilleuresVentes(topVentes.classement(category))
+                        .limit(limit)
                         .filter(p -> p.getStock() > 0)
                         .collect(Collectors.toList());
                 recommendations.addAll(categoryProducts);
@@ -243,8 +279,7 @@ public class ProduitServiceImpl implements ProduitService {
 
             // 4. Compléter avec les produits les plus vendus si nécessaire
             if (recommendations.size() < limit) {
-                List<Produit> topSellingProducts = produitRepository.findAll(Sort.by(Sort.Direction.DESC, "salesCount"))
-                        .stream()
+                List<Produit> topSellingProducts = meilleuresVentes(topVentes.classement())
                         .filter(p -> p.getStock() > 0 && !recommendations.contains(p))
                         .limit(limit - recommendations.size())
                         .collect(Collectors.toList());
@@ -253,6 +288,7 @@ public class ProduitServiceImpl implements ProduitService {
 
             return recommendations.stream()
                     .limit(limit)
+                    .map(prixEffectif::tarifer)
                     .collect(Collectors.toList());
         } catch (Exception e) {
             System.err.println("Erreur lors de la recommandation basée sur l'historique : " + e.getMessage());
@@ -261,11 +297,24 @@ public class ProduitServiceImpl implements ProduitService {
     }
     @Override
     public List<Produit> getTopSellingProducts(int limit) {
-        return produitRepository.findAll(Sort.by(Sort.Direction.DESC, "salesCount"))
-                .stream()
+        return getTopSellingProducts(null, limit);
+    }
+
+    @Override
+    public List<Produit> getTopSellingProducts(Category category, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("La limite doit être positive");
+        }
+        return meilleuresVentes(category == null ? topVentes.classement() : topVentes.classement(category))
                 .limit(limit)
+                .map(prixEffectif::tarifer)
                 .toList();
     }
+
+    // les produits sont lus dans le catalogue, seuls les premiers du classement sont résolus
+    private Stream<Produit> meilleuresVentes(Stream<Long> ids) {
+        return ids.map(catalogue::parId).filter(Objects::nonNull);
+    }
     @Override
     public Page<Produit> searchProducts(
             String nom,
@@ -278,28 +327,30 @@ public class ProduitServiceImpl implements ProduitService {
             String sort) {
 
         try {
-            // Gestion du tri
-            Sort.Direction direction = Sort.Direction.ASC;
-            String property = "id";
-
-            if (sort != null && !sort.isEmpty()) {
-                if (sort.startsWith("-")) {
-                    direction = Sort.Direction.DESC;
-                    property = sort.substring(1);
-                } else {
-                    property = sort;
+            boolean texte = nom != null && !nom.isBlank();
+            // sans tri explicite: pertinence pour une recherche textuelle, nom sinon
+            Comparator<Produit> comparateur = null;
+            if (sort != null && !sort.isBlank()) {
+                comparateur = catalogue.comparateur(sort);
+                if (comparateur == null) {
+                    throw new IllegalArgumentException("Tri non supporté: " + sort);
                 }
+            } else if (!texte) {
+                comparateur = catalogue.comparateur("nom");
             }
 
-            Pageable pageable = PageRequest.of(page, size, direction, property);
-
-            return produitRepository.searchProducts(
-                    nom,
-                    category,
-                    minPrice,
-                    maxPrice,
-                    fournisseur,
-                    pageable);
+            Predicate<Produit> filtre = p -> (category == null || p.getCategory() == category)
+                    && (minPrice == null || prixEffectif.prix(p) >= minPrice)
+                    && (maxPrice == null || prixEffectif.prix(p) <= maxPrice)
+                    && (fournisseur == null || contient(p.getFournisseur(), fournisseur));
+            PageRequest pageable = PageRequest.of(page, size);
+            if (texte) {
+                return catalogue.rechercher(nom, ProduitSearchIndex.TOUS_CHAMPS, filtre, comparateur, pageable)
+                        .map(prixEffectif::tarifer);
+            }
+            List<Produit> source = category != null ? catalogue.parCategorie(category) : catalogue.tous();
+            return catalogue.page(source.stream().filter(filtre).toList(), comparateur, pageable)
+                    .map(prixEffectif::tarifer);
         } catch (Exception e) {
             throw new RuntimeException("Erreur lors de la recherche des produits", e);
         }
@@ -0,0 +1,169 @@
+package com.example.usermanagementbackend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Agrégats d'utilisation par promotion (nombre, impact sur le chiffre d'affaires, dernière
+ * utilisation, détail par jour), tenus à jour par {@link PromotionUsageWriter} à chaque lot écrit.
+ * <p>
+ * Reconstruits au démarrage (ou à la demande) par deux GROUP BY sur promotion_usage. Un lot écrit
+ * pendant une reconstruction attend qu'elle se termine: ses lignes sont comptées une seule fois,
+ * soit par la requête, soit par l'incrément.
+ */
+@Component
+public class PromotionAnalytics {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromotionAnalytics.class);
+
+    private static final String TOTAUX_SQL = "SELECT promotion_id, COUNT(*), "
+            + "SUM(montant_initial - montant_apres_reduction), MAX(date_application) "
+            + "FROM promotion_usage WHERE promotion_id IS NOT NULL GROUP BY promotion_id";
+    private static final String JOURS_SQL = "SELECT promotion_id, CAST(date_application AS DATE), COUNT(*), "
+            + "SUM(montant_initial - montant_apres_reduction) "
+            + "FROM promotion_usage WHERE promotion_id IS NOT NULL AND date_application IS NOT NULL "
+            + "GROUP BY promotion_id, CAST(date_application AS DATE)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    private volatile Map<Integer, Agregat> parPromotion = new ConcurrentHashMap<>();
+    private volatile boolean initialise;
+
+    /** Totaux d'une promotion sur tout l'historique, ou sur un jour (sans dernière utilisation). */
+    public record Totaux(long utilisations, double impact, Timestamp derniereUtilisation) {
+    }
+
+    private static final class Agregat {
+        private long utilisations;
+        private double impact;
+        private long derniere = Long.MIN_VALUE;
+        private final NavigableMap<LocalDate, double[]> jours = new TreeMap<>();
+
+        synchronized void ajouter(long nombre, double montant, long date, LocalDate jour) {
+            utilisations += nombre;
+            impact += montant;
+            derniere = Math.max(derniere, date);
+            if (jour != null) {
+                ajouterJour(jour, nombre, montant);
+            }
+        }
+
+        synchronized void ajouterJour(LocalDate jour, long nombre, double montant) {
+            double[] valeurs = jours.computeIfAbsent(jour, j -> new double[2]);
+            valeurs[0] += nombre;
+            valeurs[1] += montant;
+        }
+
+        synchronized Totaux totaux() {
+            return new Totaux(utilisations, impact, derniere == Long.MIN_VALUE ? null : new Timestamp(derniere));
+        }
+
+        synchronized Map<LocalDate, Totaux> depuis(LocalDate premier) {
+            Map<LocalDate, Totaux> resultat = new TreeMap<>();
+            jours.tailMap(premier, true).forEach((jour, v) -> resultat.put(jour, new Totaux((long) v[0], v[1], null)));
+            return resultat;
+        }
+    }
+
+    public PromotionAnalytics(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        if (!initialise) {
+            reconstruire();
+        }
+    }
+
+    /** Recalcule tous les agrégats à partir de promotion_usage. */
+    public void reconstruire() {
+        verrou.writeLock().lock();
+        try {
+            long debut = System.currentTimeMillis();
+            Map<Integer, Agregat> agregats = new ConcurrentHashMap<>();
+            jdbcTemplate.query(TOTAUX_SQL, rs -> {
+                Timestamp derniere = rs.getTimestamp(4);
+                agregats.computeIfAbsent(rs.getInt(1), id -> new Agregat())
+                        .ajouter(rs.getLong(2), rs.getDouble(3), derniere == null ? Long.MIN_VALUE : derniere.getTime(), null);
+            });
+            jdbcTemplate.query(JOURS_SQL, rs -> {
+                Agregat agregat = agregats.get(rs.getInt(1));
+                if (agregat != null) {
+                    agregat.ajouterJour(rs.getDate(2).toLocalDate(), rs.getLong(3), rs.getDouble(4));
+                }
+            });
+            parPromotion = agregats;
+            initialise = true;
+            logger.info("Agrégats des promotions reconstruits: {} promotions en {} ms",
+                    agregats.size(), System.currentTimeMillis() - debut);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Exécute l'écriture d'un lot puis l'ajoute aux agrégats, sans reconstruction concurrente.
+     * Rien n'est compté si l'écriture échoue.
+     */
+    public <T> T ecrire(List<PromotionUsageWriter.Utilisation> lot, Supplier<T> ecriture) {
+        verrou.readLock().lock();
+        try {
+            T resultat = ecriture.get();
+            if (initialise) {
+                ZoneId zone = ZoneId.systemDefault();
+                for (PromotionUsageWriter.Utilisation u : lot) {
+                    if (u.promotionId() == null) {
+                        continue;
+                    }
+                    long date = u.date().getTime();
+                    parPromotion.computeIfAbsent(u.promotionId(), id -> new Agregat())
+                            .ajouter(1, u.montantInitial() - u.montantApresReduction(), date,
+                                    u.date().toInstant().atZone(zone).toLocalDate());
+                }
+            }
+            return resultat;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public Map<Integer, Totaux> totaux() {
+        if (!initialise) {
+            reconstruire();
+        }
+        Map<Integer, Totaux> totaux = new HashMap<>();
+        parPromotion.forEach((id, agregat) -> totaux.put(id, agregat.totaux()));
+        return totaux;
+    }
+
+    /** Détail par jour des {@code jours} derniers jours (aujourd'hui compris). */
+    public Map<LocalDate, Totaux> parJour(Integer promotionId, int jours) {
+        if (!initialise) {
+            reconstruire();
+        }
+        Agregat agregat = parPromotion.get(promotionId);
+        if (agregat == null || jours <= 0) {
+            return Map.of();
+        }
+        return agregat.depuis(LocalDate.now().minusDays(jours - 1L));
+    }
+}
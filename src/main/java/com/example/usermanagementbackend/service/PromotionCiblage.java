@@ -0,0 +1,126 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.config.PromotionCiblageJobConfig;
+import com.example.usermanagementbackend.enums.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Lancement et suivi du job de ciblage de masse ({@link PromotionCiblageJobConfig}).
+ * <p>
+ * Le job tourne en arrière-plan. Relancer le ciblage d'une promotion (même catégorie) dont la dernière
+ * exécution a échoué ou a été arrêtée redémarre cette exécution là où elle s'était arrêtée; sinon
+ * une nouvelle exécution démarre.
+ */
+@Component
+public class PromotionCiblage {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromotionCiblage.class);
+
+    // instances récentes examinées pour retrouver une exécution à reprendre
+    private static final int HISTORIQUE = 50;
+
+    private final Job job;
+    private final JobExplorer jobExplorer;
+    private final TaskExecutorJobLauncher lanceur;
+
+    public PromotionCiblage(Job ciblagePromotionJob, JobRepository jobRepository, JobExplorer jobExplorer) throws Exception {
+        this.job = ciblagePromotionJob;
+        this.jobExplorer = jobExplorer;
+        this.lanceur = new TaskExecutorJobLauncher();
+        lanceur.setJobRepository(jobRepository);
+        lanceur.setTaskExecutor(new SimpleAsyncTaskExecutor("ciblage-job-"));
+        lanceur.afterPropertiesSet();
+    }
+
+    /** Lance (ou reprend) le ciblage; categorie null: tout le catalogue. */
+    public Map<String, Object> lancer(Integer promotionId, Category categorie) {
+        String nomCategorie = categorie == null ? null : categorie.name();
+        for (JobExecution enCours : jobExplorer.findRunningJobExecutions(PromotionCiblageJobConfig.JOB)) {
+            if (memeCiblage(enCours.getJobParameters(), promotionId, nomCategorie)) {
+                throw new IllegalArgumentException("Ciblage déjà en cours pour la promotion " + promotionId);
+            }
+        }
+        JobExecution aReprendre = derniereExecution(promotionId, nomCategorie);
+        JobParameters parametres;
+        if (aReprendre != null && (aReprendre.getStatus() == BatchStatus.FAILED || aReprendre.getStatus() == BatchStatus.STOPPED)) {
+            parametres = aReprendre.getJobParameters();
+            logger.info("Reprise du ciblage de la promotion {} (exécution {})", promotionId, aReprendre.getId());
+        } else {
+            JobParametersBuilder builder = new JobParametersBuilder()
+                    .addLong("promotionId", promotionId.longValue())
+                    .addLong("lancement", System.currentTimeMillis());
+            if (nomCategorie != null) {
+                builder.addString("categorie", nomCategorie);
+            }
+            parametres = builder.toJobParameters();
+        }
+        try {
+            return etat(lanceur.run(job, parametres));
+        } catch (Exception e) {
+            throw new IllegalStateException("Lancement du ciblage impossible: " + e.getMessage(), e);
+        }
+    }
+
+    /** État d'une exécution, null si elle n'existe pas. */
+    public Map<String, Object> etat(Long executionId) {
+        JobExecution execution = jobExplorer.getJobExecution(executionId);
+        return execution == null ? null : etat(execution);
+    }
+
+    private Map<String, Object> etat(JobExecution execution) {
+        long lus = 0;
+        long ecrits = 0;
+        long ignores = 0;
+        for (StepExecution etape : execution.getStepExecutions()) {
+            // l'étape maître agrège les plages
+            if (PromotionCiblageJobConfig.ETAPE.equals(etape.getStepName())) {
+                lus += etape.getReadCount();
+                ecrits += etape.getWriteCount();
+                ignores += etape.getFilterCount();
+            }
+        }
+        Map<String, Object> etat = new LinkedHashMap<>();
+        etat.put("executionId", execution.getId());
+        etat.put("promotionId", execution.getJobParameters().getLong("promotionId"));
+        etat.put("categorie", execution.getJobParameters().getString("categorie"));
+        etat.put("statut", execution.getStatus().name());
+        etat.put("produitsLus", lus);
+        etat.put("produitsRattaches", ecrits);
+        etat.put("produitsIgnores", ignores);
+        etat.put("debut", execution.getStartTime());
+        etat.put("fin", execution.getEndTime());
+        return etat;
+    }
+
+    private JobExecution derniereExecution(Integer promotionId, String categorie) {
+        for (JobInstance instance : jobExplorer.getJobInstances(PromotionCiblageJobConfig.JOB, 0, HISTORIQUE)) {
+            JobExecution derniere = jobExplorer.getLastJobExecution(instance);
+            if (derniere != null && memeCiblage(derniere.getJobParameters(), promotionId, categorie)) {
+                return derniere;
+            }
+        }
+        return null;
+    }
+
+    private static boolean memeCiblage(JobParameters parametres, Integer promotionId, String categorie) {
+        Long id = parametres.getLong("promotionId");
+        return id != null && id == promotionId.longValue() && Objects.equals(categorie, parametres.getString("categorie"));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.usermanagementbackend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Périodes des promotions actives, par produit, pour détecter les chevauchements en mémoire.
+ * <p>
+ * Chaque produit a un arbre d'intervalles statique: les intervalles sont triés par début et l'arbre
+ * est implicite (nœud = milieu de la plage), chaque nœud portant la plus grande fin de son
+ * sous-arbre. Une recherche élague les sous-arbres qui finissent avant la période demandée ou qui
+ * commencent après. L'index est construit une fois par traitement à partir d'une seule requête
+ * ({@code PromotionRepository#findIntervallesActifs}) et n'est pas modifié ensuite.
+ */
+public class PromotionIntervalles {
+
+    /** Période [debut, fin] d'une promotion, bornes incluses (millisecondes). */
+    public record Intervalle(Integer promotionId, String condition, long debut, long fin) {
+    }
+
+    private final Map<Long, Arbre> parProduit;
+
+    private PromotionIntervalles(Map<Long, Arbre> parProduit) {
+        this.parProduit = parProduit;
+    }
+
+    /**
+     * Construit l'index à partir de lignes {produitId, promotionId, condition, dateDebut, dateFin}.
+     * Les promotions sans date de début ou de fin ne chevauchent rien et sont ignorées.
+     */
+    public static PromotionIntervalles de(Collection<Object[]> lignes) {
+        Map<Long, List<Intervalle>> parProduit = new HashMap<>();
+        for (Object[] ligne : lignes) {
+            Date debut = (Date) ligne[3];
+            Date fin = (Date) ligne[4];
+            if (ligne[0] == null || debut == null || fin == null) {
+                continue;
+            }
+            parProduit.computeIfAbsent((Long) ligne[0], id -> new ArrayList<>())
+                    .add(new Intervalle((Integer) ligne[1], (String) ligne[2], debut.getTime(), fin.getTime()));
+        }
+        Map<Long, Arbre> arbres = new HashMap<>(parProduit.size() * 2);
+        parProduit.forEach((id, intervalles) -> arbres.put(id, new Arbre(intervalles)));
+        return new PromotionIntervalles(arbres);
+    }
+
+    /**
+     * Vrai si le produit est dans une promotion active dont la période chevauche [debut, fin].
+     * Les promotions de condition {@code conditionExclue} et la promotion {@code promotionExclue}
+     * (celle qu'on est en train de modifier) ne comptent pas; null n'exclut rien.
+     */
+    public boolean chevauche(Long produitId, Date debut, Date fin, String conditionExclue, Integer promotionExclue) {
+        return premierChevauchement(produitId, debut, fin, conditionExclue, promotionExclue) != null;
+    }
+
+    public Intervalle premierChevauchement(Long produitId, Date debut, Date fin,
+                                           String conditionExclue, Integer promotionExclue) {
+        if (produitId == null || debut == null || fin == null) {
+            return null;
+        }
+        Arbre arbre = parProduit.get(produitId);
+        return arbre == null ? null
+                : arbre.chercher(0, arbre.intervalles.length - 1, debut.getTime(), fin.getTime(), conditionExclue, promotionExclue);
+    }
+
+    public int taille() {
+        return parProduit.values().stream().mapToInt(a -> a.intervalles.length).sum();
+    }
+
+    private static final class Arbre {
+        private final Intervalle[] intervalles;
+        private final long[] finMax;
+
+        Arbre(List<Intervalle> source) {
+            intervalles = source.toArray(new Intervalle[0]);
+            Arrays.sort(intervalles, Comparator.comparingLong(Intervalle::debut));
+            finMax = new long[intervalles.length];
+            calculerFinMax(0, intervalles.length - 1);
+        }
+
+        private long calculerFinMax(int bas, int haut) {
+            if (bas > haut) {
+                return Long.MIN_VALUE;
+            }
+            int milieu = (bas + haut) >>> 1;
+            long max = Math.max(intervalles[milieu].fin(),
+                    Math.max(calculerFinMax(bas, milieu - 1), calculerFinMax(milieu + 1, haut)));
+            finMax[milieu] = max;
+            return max;
+        }
+
+        Intervalle chercher(int bas, int haut, long debut, long fin, String conditionExclue, Integer promotionExclue) {
+            if (bas > haut) {
+                return null;
+            }
+            int milieu = (bas + haut) >>> 1;
+            // tout le sous-arbre se termine avant la période demandée
+            if (finMax[milieu] < debut) {
+                return null;
+            }
+            Intervalle trouve = chercher(bas, milieu - 1, debut, fin, conditionExclue, promotionExclue);
+            if (trouve != null) {
+                return trouve;
+            }
+            Intervalle noeud = intervalles[milieu];
+            // le nœud et tout le sous-arbre droit commencent après la période demandée
+            if (noeud.debut() > fin) {
+                return null;
+            }
+            if (noeud.fin() >= debut
+                    && (conditionExclue == null || !conditionExclue.equals(noeud.condition()))
+                    && (promotionExclue == null || !Objects.equals(promotionExclue, noeud.promotionId()))) {
+                return noeud;
+            }
+            return chercher(milieu + 1, haut, debut, fin, conditionExclue, promotionExclue);
+        }
+    }
+}
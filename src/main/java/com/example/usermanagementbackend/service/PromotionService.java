@@ -1,12 +1,15 @@
 package com.example.usermanagementbackend.service;
 
+import com.example.usermanagementbackend.dto.EvaluationPanier;
+import com.example.usermanagementbackend.dto.PanierRequest;
+import com.example.usermanagementbackend.dto.PromotionsDynamiques;
 import com.example.usermanagementbackend.entity.*;
+import com.example.usermanagementbackend.enums.Category;
 import com.example.usermanagementbackend.repository.*;
 import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,7 +17,6 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class PromotionService implements IPromotionService {
@@ -27,7 +29,31 @@ public class PromotionService implements IPromotionService {
     private ProduitRepository produitRepository;
 
     @Autowired
-    private PromotionUsageRepository promotionUsageRepository;
+    private PrixEffectif prixEffectif;
+
+    @Autowired
+    private MoteurPromotions moteur;
+
+    @Autowired
+    private PromotionUsageWriter usageWriter;
+
+    @Autowired
+    private PromotionAnalytics analytics;
+
+    @Autowired
+    private PromotionCiblage ciblage;
+
+    @Autowired
+    private CalendrierExpiration calendrier;
+
+    @Autowired
+    private ProduitCatalogue catalogue;
+
+    @Autowired
+    private VuePromotionsDynamiques vuePromotionsDynamiques;
+
+    @Autowired
+    private CyclePromotions cycle;
 
     @Override
     public List<Promotion> getAllPromotions() {
@@ -64,6 +90,7 @@ public class PromotionService implements IPromotionService {
         }
 
         System.out.println("Produits associés à la promotion avant sauvegarde : " + promotion.getProduits());
+        verifierChevauchements(promotion, null);
 
         for (Produit produit : promotion.getProduits()) {
             if (produit.getPromotions() == null) {
@@ -76,6 +103,7 @@ public class PromotionService implements IPromotionService {
 
         Promotion savedPromotion = promotionRepository.save(promotion);
         produitRepository.saveAll(promotion.getProduits());
+        promotionModifiee(savedPromotion);
 
         Hibernate.initialize(savedPromotion.getProduits());
 
@@ -100,6 +128,7 @@ public class PromotionService implements IPromotionService {
             existing.setConditionPromotion(promotion.getConditionPromotion());
             existing.setProduits(promotion.getProduits());
             existing.setActive(promotion.isActive());
+            verifierChevauchements(existing, id);
 
             if (existing.getProduits() != null) {
                 for (Produit produit : existing.getProduits()) {
@@ -114,6 +143,7 @@ public class PromotionService implements IPromotionService {
             }
 
             Promotion updatedPromotion = promotionRepository.save(existing);
+            promotionModifiee(updatedPromotion);
             Hibernate.initialize(updatedPromotion.getProduits());
             return updatedPromotion;
         }).orElseThrow(() -> new RuntimeException("Promotion not found"));
@@ -123,6 +153,7 @@ public class PromotionService implements IPromotionService {
         return promotionRepository.findById(id).map(existing -> {
             existing.setActive(active);
             Promotion updatedPromotion = promotionRepository.save(existing);
+            promotionModifiee(updatedPromotion);
             Hibernate.initialize(updatedPromotion.getProduits());
             return updatedPromotion;
         }).orElseThrow(() -> new RuntimeException("Promotion not found"));
@@ -131,35 +162,50 @@ public class PromotionService implements IPromotionService {
     @Override
     public void deletePromotion(Integer id) {
         promotionRepository.deleteById(id);
+        promotionSupprimee(id);
     }
 
+    // Aperçu: montant après cette seule promotion, sans enregistrer d'utilisation
     public double appliquerPromotion(double montantTotal, Promotion promotion) {
-        if (promotion == null || promotion.getConditionPromotion() == null || !promotion.isActive()) {
-            return montantTotal;
-        }
+        return moteur.previsualiser(promotion, montantTotal);
+    }
 
-        String condition = promotion.getConditionPromotion();
-        double reduction = promotion.getPourcentageReduction() / 100;
-        double montantApresReduction = montantTotal;
-
-        if ("ACHAT_GROUPE".equals(condition) && montantTotal >= 3) {
-            montantApresReduction = montantTotal * (1 - reduction);
-        } else if ("MONTANT_MIN".equals(condition) && montantTotal > 100) {
-            montantApresReduction = montantTotal * (1 - reduction);
-        } else if ("EXPIRATION_PRODUIT".equals(condition)) {
-            montantApresReduction = montantTotal * (1 - reduction);
-        } else if ("EXPIRATION_AND_LOW_SALES".equals(condition)) {
-            montantApresReduction = montantTotal * (1 - reduction);
-        }
+    // Aperçu des promotions panier, sans effet de bord
+    public EvaluationPanier evaluerPanier(PanierRequest request) {
+        return moteur.evaluer(panier(request));
+    }
 
-        PromotionUsage usage = new PromotionUsage();
-        usage.setPromotion(promotion);
-        usage.setMontantInitial(montantTotal);
-        usage.setMontantApresReduction(montantApresReduction);
-        usage.setDateApplication(new Date());
-        promotionUsageRepository.save(usage);
+    // Applique les promotions panier; une utilisation par remise appliquée est écrite en arrière-plan
+    public EvaluationPanier appliquerPanier(PanierRequest request) {
+        EvaluationPanier evaluation = moteur.evaluer(panier(request));
+        double montant = evaluation.getMontantInitial();
+        Date maintenant = new Date();
+        List<PromotionUsageWriter.Utilisation> utilisations = new ArrayList<>();
+        for (EvaluationPanier.RemiseAppliquee remise : evaluation.getRemises()) {
+            double apres = montant - remise.getMontantRemise();
+            utilisations.add(new PromotionUsageWriter.Utilisation(remise.getPromotionId(), montant, apres, maintenant));
+            montant = apres;
+        }
+        ProduitCatalogue.apresCommit(() -> usageWriter.enregistrer(utilisations));
+        return evaluation;
+    }
 
-        return montantApresReduction;
+    private MoteurPromotions.Panier panier(PanierRequest request) {
+        if (request == null || request.getLignes() == null || request.getLignes().isEmpty()) {
+            throw new IllegalArgumentException("Le panier est vide");
+        }
+        MoteurPromotions.Panier panier = new MoteurPromotions.Panier();
+        for (PanierRequest.Ligne ligne : request.getLignes()) {
+            if (ligne.getProduitId() == null || ligne.getQuantite() <= 0) {
+                throw new IllegalArgumentException("Quantité invalide pour le produit: " + ligne.getProduitId());
+            }
+            Produit produit = catalogue.parId(ligne.getProduitId());
+            if (produit == null) {
+                throw new IllegalArgumentException("Produit non trouvé avec l'ID: " + ligne.getProduitId());
+            }
+            panier.ajouter(produit.getId(), ligne.getQuantite(), prixEffectif.prix(produit));
+        }
+        return panier;
     }
 
     public List<Promotion> getPromotionsActives() {
@@ -168,59 +214,61 @@ public class PromotionService implements IPromotionService {
         return promotions;
     }
 
-    // Méthode pour vérifier le chevauchement des intervalles
-    private boolean intervalsOverlap(Date start1, Date end1, Date start2, Date end2) {
-        if (start1 == null || end1 == null || start2 == null || end2 == null) {
-            return false;
-        }
-        return start1.getTime() <= end2.getTime() && start2.getTime() <= end1.getTime();
+    // prix effectifs, règles panier, vue des promotions dynamiques et échéances suivent chaque changement de promotion
+    private void promotionModifiee(Promotion promotion) {
+        prixEffectif.indexer(promotion);
+        moteur.invalider();
+        vuePromotionsDynamiques.invalider();
+        cycle.enregistrer(promotion);
     }
 
-    // Méthode pour vérifier si un produit est déjà dans une autre promotion active dans le même intervalle
-    private boolean isProduitInOtherActivePromotion(Produit produit, Date newPromoStart, Date newPromoEnd, String excludeCondition) {
-        List<Promotion> activePromotions = promotionRepository.findByActiveTrue();
-        for (Promotion existingPromo : activePromotions) {
-            if (excludeCondition != null && excludeCondition.equals(existingPromo.getConditionPromotion())) {
-                continue;
-            }
-            if (intervalsOverlap(newPromoStart, newPromoEnd, existingPromo.getDateDebut(), existingPromo.getDateFin())) {
-                if (produit.getPromotions().contains(existingPromo)) {
-                    return true;
-                }
+    private void promotionSupprimee(Integer id) {
+        prixEffectif.retirer(id);
+        moteur.invalider();
+        vuePromotionsDynamiques.invalider();
+        cycle.retirer(id);
+    }
+
+    // Refuse une promotion active dont un produit est déjà dans une autre promotion active sur la même période
+    private void verifierChevauchements(Promotion promotion, Integer promotionId) {
+        if (!promotion.isActive() || promotion.getProduits() == null || promotion.getProduits().isEmpty()) {
+            return;
+        }
+        Map<Long, Produit> produits = new LinkedHashMap<>();
+        promotion.getProduits().forEach(p -> produits.putIfAbsent(p.getId(), p));
+        produits.remove(null);
+        if (produits.isEmpty()) {
+            return;
+        }
+        PromotionIntervalles intervalles = PromotionIntervalles.de(promotionRepository.findIntervallesActifs(produits.keySet()));
+        for (Produit produit : produits.values()) {
+            PromotionIntervalles.Intervalle conflit = intervalles.premierChevauchement(produit.getId(),
+                    promotion.getDateDebut(), promotion.getDateFin(), null, promotionId);
+            if (conflit != null) {
+                throw new IllegalArgumentException("Le produit " + produit.getId() + " est déjà dans la promotion active "
+                        + conflit.promotionId() + " sur la même période");
             }
         }
-        return false;
     }
 
-    @Scheduled(cron = "0 0 0 * * ?")
+    // planifiée par OrchestrateurNocturne; renvoie le nombre de produits lus
     @Transactional
     @Override
-    public void appliquerPromotionExpirationProduit() {
+    public int appliquerPromotionExpirationProduit() {
         System.out.println("Starting appliquerPromotionExpirationProduit...");
-        List<Produit> produits = produitRepository.findAll();
         Date today = new Date();
         LocalDate todayLocal = today.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        // seuls les produits qui expirent dans 5 jours ou moins sont lus
+        List<Produit> produits = produitRepository.findAllById(calendrier.entre(todayLocal, todayLocal.plusDays(5)));
 
         // Liste pour stocker les produits éligibles
         List<Produit> produitsEligibles = new ArrayList<>();
 
         for (Produit produit : produits) {
-            if (produit.getDateExpiration() != null) {
-                LocalDate expirationDate = LocalDate.of(
-                        produit.getDateExpiration().getYear() + 1900,
-                        produit.getDateExpiration().getMonth() + 1,
-                        produit.getDateExpiration().getDate()
-                );
-                long daysRemaining = java.time.temporal.ChronoUnit.DAYS.between(todayLocal, expirationDate);
-
-                // Critères : plus de 10 ventes et expiration dans 5 jours ou moins
-                Integer salesCount = produit.getSalesCount() != null ? produit.getSalesCount() : 0;
-                boolean highSales = salesCount > 10;
-                boolean nearingExpiration = daysRemaining <= 5 && daysRemaining >= 0;
-
-                if (highSales && nearingExpiration) {
-                    produitsEligibles.add(produit);
-                }
+            // Critères : plus de 10 ventes et expiration dans 5 jours ou moins
+            Integer salesCount = produit.getSalesCount() != null ? produit.getSalesCount() : 0;
+            if (salesCount > 10) {
+                produitsEligibles.add(produit);
             }
         }
 
@@ -251,8 +299,9 @@ public class PromotionService implements IPromotionService {
             // Mettre à jour la liste des produits de la promotion
             promo.setProduits(new ArrayList<>());
             List<Produit> produitsToAdd = new ArrayList<>();
+            PromotionIntervalles intervalles = PromotionIntervalles.de(promotionRepository.findIntervallesActifs());
             for (Produit produit : produitsEligibles) {
-                if (!isProduitInOtherActivePromotion(produit, startDate, endDate, "EXPIRATION_PRODUIT")) {
+                if (!intervalles.chevauche(produit.getId(), startDate, endDate, "EXPIRATION_PRODUIT", null)) {
                     produitsToAdd.add(produit);
                 } else {
                     System.out.println("Produit " + produit.getNom() + " est déjà dans une autre promotion active dans le même intervalle.");
@@ -263,63 +312,46 @@ public class PromotionService implements IPromotionService {
                 appliquerPromotionSurProduit(produit, promo);
             }
 
-            // Sauvegarder la promotion et les produits en une seule fois
+            // Seule la promotion est sauvegardée: le prix des produits n'est pas modifié
             if (!produitsToAdd.isEmpty()) {
-                promotionRepository.save(promo);
-                produitRepository.saveAll(produitsToAdd);
+                promotionModifiee(promotionRepository.save(promo));
             }
         }
 
         System.out.println("Finished appliquerPromotionExpirationProduit");
+        return produits.size();
     }
 
+    // associe le produit à la promotion; le prix réduit est calculé par PrixEffectif, prix reste le prix de base
     public void appliquerPromotionSurProduit(Produit produit, Promotion promo) {
         // Vérifier si le produit est déjà associé à cette promotion
         if (!produit.getPromotions().contains(promo)) {
-            double prixInitial = produit.getPrix();
-            double newPrice = prixInitial * (1 - promo.getPourcentageReduction() / 100);
-            produit.setPrix(newPrice);
-
             produit.getPromotions().add(promo);
             if (!promo.getProduits().contains(produit)) {
                 promo.getProduits().add(produit);
             }
 
-            System.out.println("Produit: " + produit.getNom() + ", Prix initial: " + prixInitial + ", Prix réduit: " + newPrice);
             System.out.println("Promotion " + promo.getNom() + " appliquée au produit: " + produit.getNom());
         } else {
             System.out.println("Produit: " + produit.getNom() + " a déjà la promotion: " + promo.getNom());
         }
     }
 
-    @Scheduled(cron = "0 0 0 25 11 ?")
-    public void appliquerPromoBlackFriday() {
-        Optional<Promotion> blackFridayPromoOpt = promotionRepository.findByNom("Black Friday");
-        if (blackFridayPromoOpt.isPresent()) {
-            Promotion blackFridayPromo = blackFridayPromoOpt.get();
-            if (blackFridayPromo.isActive()) {
-                List<Produit> produits = produitRepository.findAll();
-                Date startDate = blackFridayPromo.getDateDebut();
-                Date endDate = blackFridayPromo.getDateFin();
-                for (Produit produit : produits) {
-                    if (!isProduitInOtherActivePromotion(produit, startDate, endDate, "BLACK_FRIDAY")) {
-                        double prixAvecReduction = produit.getPrix() * (1 - blackFridayPromo.getPourcentageReduction() / 100);
-                        produit.setPrix(prixAvecReduction);
-                        produit.getPromotions().add(blackFridayPromo);
-                        produitRepository.save(produit);
-                    }
-                }
-            }
+    /**
+     * Rattache à la promotion tous les produits (d'une catégorie, ou de tout le catalogue si null) via
+     * le job de ciblage, en arrière-plan. Black Friday n'en a pas besoin: il vise déjà tout le catalogue.
+     */
+    public Map<String, Object> ciblerPromotion(Integer id, Category categorie) {
+        Promotion promotion = promotionRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Promotion " + id + " introuvable"));
+        if (PrixEffectif.estGlobale(promotion.getNom(), promotion.getConditionPromotion())) {
+            throw new IllegalArgumentException("La promotion " + id + " s'applique déjà à tout le catalogue");
         }
+        return ciblage.lancer(id, categorie);
     }
 
-    @Scheduled(cron = "0 0 0 28 11 ?")
-    public void desactiverPromoBlackFriday() {
-        Optional<Promotion> blackFridayPromoOpt = promotionRepository.findByNom("Black Friday");
-        blackFridayPromoOpt.ifPresent(promo -> {
-            promo.setActive(false);
-            promotionRepository.save(promo);
-        });
+    public Optional<Map<String, Object>> getEtatCiblage(Long executionId) {
+        return Optional.ofNullable(ciblage.etat(executionId));
     }
 
     @Override
@@ -327,7 +359,7 @@ public class PromotionService implements IPromotionService {
         List<Promotion> promotions = promotionRepository.findAllById(ids);
         for (Promotion promo : promotions) {
             promo.setActive(true);
-            promotionRepository.save(promo);
+            promotionModifiee(promotionRepository.save(promo));
         }
     }
 
@@ -336,80 +368,66 @@ public class PromotionService implements IPromotionService {
         List<Promotion> promotions = promotionRepository.findAllById(ids);
         for (Promotion promo : promotions) {
             promo.setActive(false);
-            promotionRepository.save(promo);
+            promotionModifiee(promotionRepository.save(promo));
         }
     }
 
     @Override
     public void bulkDelete(List<Integer> ids) {
         promotionRepository.deleteAllById(ids);
+        ids.forEach(this::promotionSupprimee);
     }
 
     public Map<String, Object> getPromotionAnalytics() {
-        List<PromotionUsage> usageList = promotionUsageRepository.findAll();
-        logger.info("Nombre d'entrées dans promotion_usage: {}", usageList.size());
-        Map<Integer, List<PromotionUsage>> usageByPromotion = usageList.stream()
-                .collect(Collectors.groupingBy(usage -> usage.getPromotion().getId()));
-        logger.info("Promotions avec utilisations (usage Furniture): {}", usageByPromotion.keySet());
-
-        List<Promotion> activePromotions = promotionRepository.findByActiveTrue();
-        logger.info("Nombre de promotions actives: {}", activePromotions.size());
-        activePromotions.forEach(promo ->
-                logger.info("Promotion active - ALERT: {}, Nom: {}, Active: {}", promo.getId(), promo.getNom(), promo.isActive())
-        );
-
-        Map<String, Object> analytics = new HashMap<>();
-        List<Map<String, Object>> promotionStats = new ArrayList<>();
+        return getPromotionAnalytics(null);
+    }
 
-        for (Map.Entry<Integer, List<PromotionUsage>> entry : usageByPromotion.entrySet()) {
-            Integer promoId = entry.getKey();
-            List<PromotionUsage> usages = entry.getValue();
-            Promotion promo = promotionRepository.findById(promoId).orElse(null);
-            if (promo == null) {
-                logger.warn("Promotion avec ID {} introuvable", promoId);
+    // Agrégats en mémoire + une lecture des noms de promotions; jours: détail des N derniers jours (null: aucun)
+    public Map<String, Object> getPromotionAnalytics(Integer jours) {
+        Map<Integer, PromotionAnalytics.Totaux> totaux = analytics.totaux();
+        List<Map<String, Object>> promotionStats = new ArrayList<>();
+        for (Object[] resume : promotionRepository.findResumes()) {
+            Integer promoId = (Integer) resume[0];
+            PromotionAnalytics.Totaux total = totaux.get(promoId);
+            // comme avant: les promotions utilisées, plus les actives jamais appliquées
+            if (total == null && !Boolean.TRUE.equals(resume[2])) {
                 continue;
             }
-
-            double totalRevenueImpact = usages.stream()
-                    .mapToDouble(usage -> usage.getMontantInitial() - usage.getMontantApresReduction())
-                    .sum();
-            long usageCount = usages.size();
-
             Map<String, Object> stat = new HashMap<>();
             stat.put("promotionId", promoId);
-            stat.put("promotionName", promo.getNom());
-            stat.put("usageCount", usageCount);
-            stat.put("totalRevenueImpact", totalRevenueImpact);
+            stat.put("promotionName", resume[1]);
+            stat.put("usageCount", total == null ? 0L : total.utilisations());
+            stat.put("totalRevenueImpact", total == null ? 0.0 : total.impact());
+            if (total != null && total.derniereUtilisation() != null) {
+                stat.put("lastUsed", total.derniereUtilisation());
+            }
+            if (jours != null) {
+                List<Map<String, Object>> parJour = new ArrayList<>();
+                analytics.parJour(promoId, jours).forEach((jour, t) -> {
+                    Map<String, Object> ligne = new HashMap<>();
+                    ligne.put("jour", jour.toString());
+                    ligne.put("usageCount", t.utilisations());
+                    ligne.put("totalRevenueImpact", t.impact());
+                    parJour.add(ligne);
+                });
+                stat.put("parJour", parJour);
+            }
             promotionStats.add(stat);
-            logger.info("Stat ajoutée pour la promotion {}: usageCount={}, totalRevenueImpact={}",
-                    promo.getNom(), usageCount, totalRevenueImpact);
         }
 
-        for (Promotion promo : activePromotions) {
-            boolean alreadyIncluded = promotionStats.stream()
-                    .anyMatch(stat -> stat.get("promotionId").equals(promo.getId()));
-
-            if (!alreadyIncluded) {
-                Map<String, Object> stat = new HashMap<>();
-                stat.put("promotionId", promo.getId());
-                stat.put("promotionName", promo.getNom());
-                stat.put("usageCount", 0L);
-                stat.put("totalRevenueImpact", 0.0);
-                promotionStats.add(stat);
-                logger.info("Promotion active mais non appliquée ajoutée - Nom: {}, ID: {}",
-                        promo.getNom(), promo.getId());
-            }
-        }
+        Map<String, Object> resultat = new HashMap<>();
+        resultat.put("promotionStats", promotionStats);
+        resultat.put("totalPromotionsApplied", totaux.values().stream().mapToLong(PromotionAnalytics.Totaux::utilisations).sum());
+        return resultat;
+    }
 
-        analytics.put("promotionStats", promotionStats);
-        analytics.put("totalPromotionsApplied", usageList.size());
-        logger.info("Réponse finale: {}", analytics);
-        return analytics;
+    public void reconstruireAnalytics() {
+        analytics.reconstruire();
     }
 
-    @Scheduled(cron = "0 0 0 * * ?")
+    // planifiée par OrchestrateurNocturne; renvoie le nombre de produits lus
     @Transactional
-    public void suggestPromotions() {
+    public int suggestPromotions() {
         System.out.println("Starting suggestPromotions...");
         if (produitRepository == null) {
             throw new IllegalStateException("produitRepository is not initialized");
@@ -418,13 +436,14 @@ public class PromotionService implements IPromotionService {
             throw new IllegalStateException("promotionRepository is not initialized");
         }
 
-        List<Produit> produits = produitRepository.findAll();
-        System.out.println("Found " + produits.size() + " products");
-
         ZonedDateTime todayZoned = ZonedDateTime.now(ZoneId.systemDefault());
         LocalDate today = todayZoned.toLocalDate();
         System.out.println("Today's date: " + today);
 
+        // seuls les produits qui expirent dans 10 jours ou moins sont lus
+        List<Produit> produits = produitRepository.findAllById(calendrier.entre(today, today.plusDays(10)));
+        logger.debug("Found {} products expiring within 10 days", produits.size());
+
         // Utiliser un Set pour éviter les doublons
         Set<Produit> produitsEligiblesSet = new HashSet<>();
 
@@ -436,25 +455,8 @@ public class PromotionService implements IPromotionService {
                 boolean lowSales = salesCount < 10;
                 System.out.println("Product: " + produit.getNom() + ", salesCount: " + salesCount + ", lowSales: " + lowSales);
 
-                boolean nearingExpiration = false;
-                if (produit.getDateExpiration() != null) {
-                    LocalDate expirationDate;
-                    if (produit.getDateExpiration() instanceof java.sql.Date) {
-                        expirationDate = ((java.sql.Date) produit.getDateExpiration()).toLocalDate();
-                    } else {
-                        expirationDate = produit.getDateExpiration().toInstant()
-                                .atZone(ZoneId.systemDefault())
-                                .toLocalDate();
-                    }
-                    long daysRemaining = java.time.temporal.ChronoUnit.DAYS.between(today, expirationDate);
-                    nearingExpiration = daysRemaining <= 10 && daysRemaining >= 0;
-                    System.out.println("Product: " + produit.getNom() + ", daysRemaining: " + daysRemaining + ", nearingExpiration: " + nearingExpiration);
-                } else {
-                    System.out.println("Product: " + produit.getNom() + ", dateExpiration is null");
-                }
-
-                // Critères : moins de 10 ventes et expiration dans 10 jours ou moins
-                if (lowSales && nearingExpiration) {
+                // Critères : moins de 10 ventes et expiration dans 10 jours ou moins (fenêtre du calendrier)
+                if (lowSales) {
                     produitsEligiblesSet.add(produit);
                 }
             } catch (Exception e) {
@@ -476,8 +478,7 @@ public class PromotionService implements IPromotionService {
                     produit.getPromotions().remove(oldPromo);
                 }
                 oldPromo.setProduits(new ArrayList<>());
-                promotionRepository.save(oldPromo);
-                produitRepository.saveAll(oldPromo.getProduits());
+                promotionModifiee(promotionRepository.save(oldPromo));
             }
         }
 
@@ -497,8 +498,10 @@ public class PromotionService implements IPromotionService {
             // Mettre à jour les relations
             promo.setProduits(new ArrayList<>());
             List<Produit> produitsToAdd = new ArrayList<>();
+            // construit après la désactivation des anciennes promotions de faibles ventes
+            PromotionIntervalles intervalles = PromotionIntervalles.de(promotionRepository.findIntervallesActifs());
             for (Produit produit : produitsEligibles) {
-                if (!isProduitInOtherActivePromotion(produit, startDate, endDate, "EXPIRATION_AND_LOW_SALES")) {
+                if (!intervalles.chevauche(produit.getId(), startDate, endDate, "EXPIRATION_AND_LOW_SALES", null)) {
                     produitsToAdd.add(produit);
                 } else {
                     System.out.println("Produit " + produit.getNom() + " est déjà dans une autre promotion active dans le même intervalle.");
@@ -509,189 +512,53 @@ public class PromotionService implements IPromotionService {
                 appliquerPromotionSurProduit(produit, promo);
             }
 
-            // Sauvegarder la promotion et les produits en une seule fois
+            // Seule la promotion est sauvegardée: le prix des produits n'est pas modifié
             if (!produitsToAdd.isEmpty()) {
-                promotionRepository.save(promo);
-                produitRepository.saveAll(produitsToAdd);
+                promotionModifiee(promotionRepository.save(promo));
             }
         }
 
         System.out.println("Finished suggestPromotions");
+        return produits.size();
     }
 
     @Override
     public List<Produit> getProduitsProchesExpiration() {
-        Date today = new Date();
-        LocalDate todayLocal = today.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        LocalDate endDateLocal = todayLocal.plusDays(5);
-        Date endDate = Date.from(endDateLocal.atStartOfDay(ZoneId.systemDefault()).toInstant());
-
-        List<Produit> produitsProchesExpiration = produitRepository.findProduitsProchesExpiration(today, endDate);
-        return produitsProchesExpiration;
-    }
-
-    @Override
-    public Map<String, List<Map<String, Object>>> getDynamicPromotions() {
-        Map<String, List<Map<String, Object>>> dynamicPromotions = new HashMap<>();
-
-        // Récupérer la promotion Black Friday
-        List<Map<String, Object>> blackFridayPromotions = new ArrayList<>();
-        Optional<Promotion> blackFridayPromoOpt = promotionRepository.findByNom("Black Friday");
-        blackFridayPromoOpt.ifPresent(promo -> {
-            Hibernate.initialize(promo.getProduits());
-            Map<String, Object> promoMap = new HashMap<>();
-            promoMap.put("id", promo.getId());
-            promoMap.put("nom", promo.getNom());
-            promoMap.put("pourcentage_reduction", promo.getPourcentageReduction());
-            promoMap.put("date_debut", promo.getDateDebut());
-            promoMap.put("date_fin", promo.getDateFin());
-            promoMap.put("condition_promotion", promo.getConditionPromotion());
-            promoMap.put("active", promo.isActive());
-
-            // Dédupliquer les produits par ID
-            Set<Long> produitIds = new HashSet<>();
-            List<Produit> uniqueProduits = promo.getProduits().stream()
-                    .filter(produit -> produitIds.add(produit.getId()))
-                    .collect(Collectors.toList());
-
-            List<Map<String, Object>> produitsList = new ArrayList<>();
-            for (Produit produit : uniqueProduits) {
-                Map<String, Object> produitMap = new HashMap<>();
-                produitMap.put("id", produit.getId());
-                produitMap.put("nom", produit.getNom());
-                produitMap.put("prix", produit.getPrix());
-                produitMap.put("prix_reduit", produit.getPrix() * (1 - promo.getPourcentageReduction() / 100.0));
-                produitMap.put("devise", produit.getDevise() != null ? produit.getDevise() : "TND");
-                produitMap.put("date_expiration", produit.getDateExpiration());
-                produitMap.put("promotions", produit.getPromotions());
-                produitsList.add(produitMap);
-            }
-            promoMap.put("produits", produitsList);
-
-            if (!promo.isActive()) {
-                LocalDate scheduledDate = LocalDate.of(LocalDate.now().getYear(), 11, 25);
-                promoMap.put("date_activation_prevue", scheduledDate.toString());
-            }
-
-            blackFridayPromotions.add(promoMap);
-        });
-
-        if (blackFridayPromotions.isEmpty()) {
-            Map<String, Object> placeholderPromo = new HashMap<>();
-            placeholderPromo.put("nom", "Black Friday");
-            placeholderPromo.put("pourcentage_reduction", 50.0);
-            placeholderPromo.put("condition_promotion", "BLACK_FRIDAY");
-            placeholderPromo.put("active", false);
-            placeholderPromo.put("produits", new ArrayList<>());
-
-            LocalDate scheduledDate = LocalDate.of(LocalDate.now().getYear(), 11, 25);
-            placeholderPromo.put("date_debut", Date.from(scheduledDate.atStartOfDay(ZoneId.systemDefault()).toInstant()));
-            placeholderPromo.put("date_fin", Date.from(scheduledDate.plusDays(3).atStartOfDay(ZoneId.systemDefault()).toInstant()));
-            placeholderPromo.put("date_activation_prevue", scheduledDate.toString());
-
-            blackFridayPromotions.add(placeholderPromo);
-        }
-
-        // Récupérer la promotion pour produits proches de l'expiration
-        List<Map<String, Object>> expirationPromotions = new ArrayList<>();
-        Optional<Promotion> expirationPromoOpt = promotionRepository.findByConditionPromotionAndActiveTrue("EXPIRATION_PRODUIT");
-        expirationPromoOpt.ifPresent(promo -> {
-            Hibernate.initialize(promo.getProduits());
-            Map<String, Object> promoMap = new HashMap<>();
-            promoMap.put("id", promo.getId());
-            promoMap.put("nom", promo.getNom());
-            promoMap.put("pourcentage_reduction", promo.getPourcentageReduction());
-            promoMap.put("date_debut", promo.getDateDebut());
-            promoMap.put("date_fin", promo.getDateFin());
-            promoMap.put("condition_promotion", promo.getConditionPromotion());
-            promoMap.put("active", promo.isActive());
-
-            // Dédupliquer les produits par ID
-            Set<Long> produitIds = new HashSet<>();
-            List<Produit> uniqueProduits = promo.getProduits().stream()
-                    .filter(produit -> produitIds.add(produit.getId()))
-                    .collect(Collectors.toList());
-
-            List<Map<String, Object>> produitsList = new ArrayList<>();
-            for (Produit produit : uniqueProduits) {
-                Map<String, Object> produitMap = new HashMap<>();
-                produitMap.put("id", produit.getId());
-                produitMap.put("nom", produit.getNom());
-                produitMap.put("prix", produit.getPrix());
-                produitMap.put("prix_reduit", produit.getPrix() * (1 - promo.getPourcentageReduction() / 100.0));
-                produitMap.put("devise", produit.getDevise() != null ? produit.getDevise() : "TND");
-                produitMap.put("date_expiration", produit.getDateExpiration());
-                produitMap.put("promotions", produit.getPromotions());
-                produitsList.add(produitMap);
-            }
-            promoMap.put("produits", produitsList);
-
-            expirationPromotions.add(promoMap);
-        });
-
-        // Récupérer les promotions pour faibles ventes ou expiration + faibles ventes
-        List<Map<String, Object>> lowSalesPromotions = new ArrayList<>();
-        List<Promotion> lowSalesPromos = promotionRepository.findByConditionPromotionInAndActiveTrue(
-                List.of("MONTANT_MIN", "EXPIRATION_AND_LOW_SALES"));
-        for (Promotion promo : lowSalesPromos) {
-            Hibernate.initialize(promo.getProduits());
-            Map<String, Object> promoMap = new HashMap<>();
-            promoMap.put("id", promo.getId());
-            promoMap.put("nom", promo.getNom());
-            promoMap.put("pourcentage_reduction", promo.getPourcentageReduction());
-            promoMap.put("date_debut", promo.getDateDebut());
-            promoMap.put("date_fin", promo.getDateFin());
-            promoMap.put("condition_promotion", promo.getConditionPromotion());
-            promoMap.put("active", promo.isActive());
-
-            // Dédupliquer les produits par ID
-            Set<Long> produitIds = new HashSet<>();
-            List<Produit> uniqueProduits = promo.getProduits().stream()
-                    .filter(produit -> produitIds.add(produit.getId()))
-                    .collect(Collectors.toList());
-
-            List<Map<String, Object>> produitsList = new ArrayList<>();
-            for (Produit produit : uniqueProduits) {
-                Map<String, Object> produitMap = new HashMap<>();
-                produitMap.put("id", produit.getId());
-                produitMap.put("nom", produit.getNom());
-                produitMap.put("prix", produit.getPrix());
-                produitMap.put("prix_reduit", produit.getPrix() * (1 - promo.getPourcentageReduction() / 100.0));
-                produitMap.put("devise", produit.getDevise() != null ? produit.getDevise() : "TND");
-                produitMap.put("date_expiration", produit.getDateExpiration());
-                produitMap.put("promotions", produit.getPromotions());
-                produitsList.add(produitMap);
+        // même fenêtre que appliquerPromotionExpirationProduit, triée par date d'expiration
+        LocalDate today = LocalDate.now();
+        List<Produit> produitsProchesExpiration = new ArrayList<>();
+        for (Long id : calendrier.entre(today, today.plusDays(5))) {
+            Produit produit = catalogue.parId(id);
+            if (produit != null) {
+                produitsProchesExpiration.add(produit);
             }
-            promoMap.put("produits", produitsList);
-
-            lowSalesPromotions.add(promoMap);
         }
+        return prixEffectif.tarifer(produitsProchesExpiration);
+    }
 
-        dynamicPromotions.put("blackFriday", blackFridayPromotions);
-        dynamicPromotions.put("expiration", expirationPromotions);
-        dynamicPromotions.put("lowSales", lowSalesPromotions);
+    @Override
+    public PromotionsDynamiques getDynamicPromotions() {
+        return vuePromotionsDynamiques.vue().promotions();
+    }
 
-        return dynamicPromotions;
+    // JSON et ETag de GET /promotions/dynamic
+    public VuePromotionsDynamiques.Vue getVuePromotionsDynamiques() {
+        return vuePromotionsDynamiques.vue();
     }
 
-    @Scheduled(cron = "0 0 0 * * ?")
+    // planifiée par OrchestrateurNocturne; renvoie le nombre de promotions lues
     @Override
-    public void verifierPromotionsActives() {
-        List<Promotion> promotions = promotionRepository.findAll();
-        Date today = new Date();
-
-        for (Promotion promo : promotions) {
-            // Désactiver les promotions expirées
-            if (promo.getDateFin() != null && promo.getDateFin().before(today)) {
-                promo.setActive(false);
-                promotionRepository.save(promo);
-            }
-            // Désactiver les promotions sans produits
-            if (promo.isActive() && (promo.getProduits() == null || promo.getProduits().isEmpty())) {
-                promo.setActive(false);
-                promotionRepository.save(promo);
-                System.out.println("Promotion " + promo.getNom() + " désactivée car elle n'a plus de produits associés.");
+    public int verifierPromotionsActives() {
+        // les fins de promotion sont appliquées à la minute par CyclePromotions; rattrape celles qu'il aurait manquées
+        int expirees = cycle.expirerEchues();
+        // Désactiver les promotions sans produits, sauf les globales (Black Friday) qui n'en ont jamais
+        List<Integer> sansProduits = promotionRepository.findIdsActivesSansProduits(
+                PrixEffectif.NOM_GLOBAL, PrixEffectif.CONDITION_GLOBALE);
+        for (Integer id : sansProduits) {
+            if (cycle.desactiver(id)) {
+                logger.info("Promotion {} désactivée car elle n'a plus de produits associés", id);
             }
         }
+        return expirees + sansProduits.size();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,217 @@
+package com.example.usermanagementbackend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enregistrement asynchrone des utilisations de promotions (table promotion_usage).
+ * <p>
+ * Les appelants déposent un événement dans une file bornée et repartent; un thread d'écriture vide
+ * la file par lots de {@code promotion.usage.batch-size} lignes, ou toutes les
+ * {@code promotion.usage.flush-ms} millisecondes si le lot n'est pas plein, en un seul batch INSERT.
+ * File pleine: l'appelant attend jusqu'à {@code promotion.usage.attente-ms}, puis écrit lui-même son
+ * événement (aucune perte, le débit des appelants se cale sur celui de la base). À l'arrêt de
+ * l'application, la file est vidée avant la fermeture du pool de connexions. Chaque lot écrit met à
+ * jour {@link PromotionAnalytics}. Un événement déposé pendant l'arrêt est écrit une fois, par la
+ * vidange de {@link #arreter()} ou par l'appelant.
+ */
+@Component
+public class PromotionUsageWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromotionUsageWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO promotion_usage "
+            + "(promotion_id, montant_initial, montant_apres_reduction, date_application) VALUES (?, ?, ?, ?)";
+
+    /** Une utilisation de promotion à écrire. */
+    public record Utilisation(Integer promotionId, double montantInitial, double montantApresReduction, Date date) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PromotionAnalytics analytics;
+    private final int tailleLot;
+    private final long delaiMs;
+    private final long attenteMs;
+    private final BlockingQueue<Utilisation> file;
+
+    private final DistributionSummary tailleLots;
+    private final Timer latenceEcriture;
+    private final Counter ecrituresDirectes;
+    private final Counter echecs;
+
+    private volatile boolean actif;
+    private Thread ecrivain;
+
+    public PromotionUsageWriter(JdbcTemplate jdbcTemplate,
+                                PromotionAnalytics analytics,
+                                @Value("${promotion.usage.capacite:10000}") int capacite,
+                                @Value("${promotion.usage.batch-size:200}") int tailleLot,
+                                @Value("${promotion.usage.flush-ms:500}") long delaiMs,
+                                @Value("${promotion.usage.attente-ms:50}") long attenteMs) {
+        if (capacite <= 0 || tailleLot <= 0 || delaiMs <= 0 || attenteMs < 0) {
+            throw new IllegalArgumentException("Configuration promotion.usage invalide");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.analytics = analytics;
+        this.tailleLot = tailleLot;
+        this.delaiMs = delaiMs;
+        this.attenteMs = attenteMs;
+        this.file = new ArrayBlockingQueue<>(capacite);
+        Gauge.builder("promotion.usage.queue.depth", file, BlockingQueue::size)
+                .description("Utilisations de promotions en attente d'écriture")
+                .register(Metrics.globalRegistry);
+        this.tailleLots = DistributionSummary.builder("promotion.usage.batch.size")
+                .description("Lignes par batch INSERT promotion_usage")
+                .register(Metrics.globalRegistry);
+        this.latenceEcriture = Timer.builder("promotion.usage.write")
+                .description("Durée d'écriture d'un batch promotion_usage")
+                .register(Metrics.globalRegistry);
+        this.ecrituresDirectes = Counter.builder("promotion.usage.backpressure")
+                .description("Utilisations écrites par l'appelant faute de place dans la file")
+                .register(Metrics.globalRegistry);
+        this.echecs = Counter.builder("promotion.usage.failures")
+                .description("Utilisations perdues après un échec d'écriture")
+                .register(Metrics.globalRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void demarrer() {
+        if (actif) {
+            return;
+        }
+        actif = true;
+        ecrivain = new Thread(this::boucle, "promotion-usage-writer");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+    }
+
+    /** Arrête le thread d'écriture puis écrit ce qui reste dans la file. */
+    @PreDestroy
+    public void arreter() {
+        Thread thread;
+        synchronized (this) {
+            actif = false;
+            thread = ecrivain;
+            ecrivain = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Utilisation> reste = new ArrayList<>();
+        file.drainTo(reste);
+        for (int debut = 0; debut < reste.size(); debut += tailleLot) {
+            ecrire(reste.subList(debut, Math.min(reste.size(), debut + tailleLot)));
+        }
+        logger.info("Écriture des utilisations de promotions arrêtée, {} en attente écrites", reste.size());
+    }
+
+    public void enregistrer(Utilisation utilisation) {
+        if (!actif) {
+            ecrire(List.of(utilisation));
+            return;
+        }
+        boolean depose;
+        try {
+            depose = file.offer(utilisation, attenteMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            depose = false;
+        }
+        if (!depose) {
+            ecrituresDirectes.increment();
+            ecrire(List.of(utilisation));
+        } else if (!actif && file.remove(utilisation)) {
+            // arreter() est passé entre le test de actif et le dépôt: si sa vidange n'a pas repris
+            // l'événement, l'appelant l'écrit lui-même (remove et drainTo s'excluent sur la file)
+            ecrire(List.of(utilisation));
+        }
+    }
+
+    public void enregistrer(List<Utilisation> utilisations) {
+        utilisations.forEach(this::enregistrer);
+    }
+
+    public int enAttente() {
+        return file.size();
+    }
+
+    private void boucle() {
+        List<Utilisation> lot = new ArrayList<>(tailleLot);
+        while (actif) {
+            try {
+                Utilisation premiere = file.poll(delaiMs, TimeUnit.MILLISECONDS);
+                if (premiere == null) {
+                    continue;
+                }
+                lot.add(premiere);
+                // compléter le lot jusqu'à sa taille ou l'échéance du délai
+                long echeance = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delaiMs);
+                while (lot.size() < tailleLot) {
+                    file.drainTo(lot, tailleLot - lot.size());
+                    long reste = echeance - System.nanoTime();
+                    if (lot.size() >= tailleLot || reste <= 0) {
+                        break;
+                    }
+                    Utilisation suivante = file.poll(reste, TimeUnit.NANOSECONDS);
+                    if (suivante == null) {
+                        break;
+                    }
+                    lot.add(suivante);
+                }
+            } catch (InterruptedException e) {
+                // arrêt demandé: le lot en cours est écrit, arreter() s'occupe du reste de la file
+                Thread.currentThread().interrupt();
+                ecrire(lot);
+                return;
+            }
+            ecrire(lot);
+            lot.clear();
+        }
+        ecrire(lot);
+    }
+
+    private void ecrire(List<Utilisation> lot) {
+        if (lot.isEmpty()) {
+            return;
+        }
+        List<Object[]> lignes = new ArrayList<>(lot.size());
+        for (Utilisation u : lot) {
+            lignes.add(new Object[]{u.promotionId(), u.montantInitial(), u.montantApresReduction(),
+                    new Timestamp(u.date().getTime())});
+        }
+        long debut = System.nanoTime();
+        try {
+            analytics.ecrire(lot, () -> jdbcTemplate.batchUpdate(INSERT_SQL, lignes));
+            tailleLots.record(lot.size());
+        } catch (RuntimeException e) {
+            // une utilisation est une statistique: on journalise sans bloquer l'écriture des lots suivants
+            echecs.increment(lot.size());
+            logger.error("Échec d'écriture de {} utilisations de promotions", lot.size(), e);
+        } finally {
+            latenceEcriture.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.usermanagementbackend.service;
 
+import com.example.usermanagementbackend.dto.StockDecrementResult;
 import com.example.usermanagementbackend.entity.Produit;
 import com.example.usermanagementbackend.entity.Purchase;
 import com.example.usermanagementbackend.enums.TypeMouvement;
+import com.example.usermanagementbackend.repository.ProduitRepository;
 import com.example.usermanagementbackend.repository.PurchaseRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,7 +13,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -19,8 +26,9 @@ import java.util.List;
 public class PurchaseService {
 
     private final PurchaseRepository purchaseRepository;
-    private final ProduitService produitService;
+    private final ProduitRepository produitRepository;
     private final StockService stockService;
+    private final PrixEffectif prixEffectif;
 
     @Transactional
     public String createPurchase(Long userId, List<Long> produitIds) {
@@ -30,35 +38,35 @@ public class PurchaseService {
 
         log.info("Création d'un achat pour l'utilisateur ID={} avec les produits IDs={}", userId, produitIds);
 
+        // Un seul IN pour tous les produits; un même id peut apparaître plusieurs fois (1 unité chacun)
+        Map<Long, Produit> parId = produitRepository.findAllById(new LinkedHashSet<>(produitIds)).stream()
+                .collect(Collectors.toMap(Produit::getId, Function.identity()));
+        Map<Long, Integer> quantites = new LinkedHashMap<>();
         List<Produit> produits = new ArrayList<>();
-        int totalQuantite = 0;
         double totalPrice = 0.0;
-
         for (Long produitId : produitIds) {
-            Produit produit = produitService.lireParId(produitId);
-
-            // Vérifier le stock
-            if (produit.getStock() <= 0) {
-                throw new IllegalArgumentException("Stock insuffisant pour le produit: " + produit.getNom());
-            }
-
-            // Initialiser salesCount si null
-            if (produit.getSalesCount() == null) {
-                produit.setSalesCount(0);
+            Produit produit = parId.get(produitId);
+            if (produit == null) {
+                throw new IllegalArgumentException("Produit non trouvé avec l'ID: " + produitId);
             }
-
-            // Mettre à jour le stock et le compteur de ventes (1 unité par produit)
-            produit.setStock(produit.getStock() - 1);
-            produit.setSalesCount(produit.getSalesCount() + 1);
-            produitService.modifier(produitId, produit);
+            quantites.merge(produitId, 1, Integer::sum);
             produits.add(produit);
+            totalPrice += prixEffectif.prix(produit);
+        }
+        int totalQuantite = produits.size();
 
-            // Mettre à jour la quantité totale et le prix total
-            totalQuantite += 1;
-            totalPrice += produit.getPrix();
+        // Décrément atomique du stock et du compteur de ventes, un batch pour tout l'achat
+        StockDecrementResult resultat = stockService.decrementerStock(quantites, true);
+        if (!resultat.isComplet()) {
+            Produit enEchec = parId.get(resultat.echecs().get(0).getProduitId());
+            throw new IllegalArgumentException("Stock insuffisant pour le produit: " + enEchec.getNom());
+        }
+        stockService.synchroniser(parId.values(), resultat);
 
+        for (StockDecrementResult.Ligne ligne : resultat.getLignes()) {
+            Produit produit = parId.get(ligne.getProduitId());
             // Enregistrer le mouvement de stock (vente)
-            stockService.enregistrerMouvement(produit, TypeMouvement.VENTE, 1);
+            stockService.enregistrerMouvement(produit, TypeMouvement.VENTE, ligne.getQuantite());
             stockService.verifierEtReapprovisionner(produit);
         }
 
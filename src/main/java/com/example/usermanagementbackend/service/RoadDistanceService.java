@@ -0,0 +1,128 @@
+package com.example.usermanagementbackend.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Road distances without blocking the caller: the {@link RoutingEngine} (OSRM or the local road graph,
+ * see {@code routing.engine}) is called on a small bounded pool ({@code routing.async.threads},
+ * {@code routing.async.queue}) with a latency budget ({@code routing.budget}). A call over budget, a
+ * failure or a full pool falls back to the Haversine distance, and repeated failures open a circuit
+ * breaker ({@code routing.circuit.*}) so that the engine is not called at all while it is down.
+ */
+@Component
+public class RoadDistanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoadDistanceService.class);
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    /** Distance in km; {@code road} false for the Haversine (straight line) fallback. */
+    public record Estimate(double distanceKm, boolean road) {
+    }
+
+    private final RoutingEngine routingEngine;
+    private final RouteDistanceCache cache;
+    private final CircuitBreaker breaker;
+    private final long budgetMs;
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public RoadDistanceService(RoutingEngine routingEngine, RouteDistanceCache cache,
+                               @Value("${routing.budget:2s}") Duration budget,
+                               @Value("${routing.async.threads:4}") int threads,
+                               @Value("${routing.async.queue:100}") int queue,
+                               @Value("${routing.circuit.failures:5}") int failures,
+                               @Value("${routing.circuit.open-for:30s}") Duration openFor) {
+        this(routingEngine, cache, budget, threads, queue, new CircuitBreaker(failures, openFor, System::currentTimeMillis));
+    }
+
+    RoadDistanceService(RoutingEngine routingEngine, RouteDistanceCache cache, Duration budget, int threads, int queue,
+                        CircuitBreaker breaker) {
+        this.routingEngine = routingEngine;
+        this.cache = cache;
+        this.budgetMs = budget.toMillis();
+        this.breaker = breaker;
+        AtomicInteger number = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue),
+                r -> {
+                    Thread thread = new Thread(r, "routing-" + number.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("routing.circuit.open", breaker, b -> b.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 while routing calls are refused or on trial after repeated failures")
+                .register(Metrics.globalRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Cached road distance if known, Haversine otherwise; never calls the routing engine. */
+    public Estimate cachedOrHaversine(double startLat, double startLng, double endLat, double endLng) {
+        Double cached = cache.peek(startLat, startLng, endLat, endLng);
+        return cached != null
+                ? new Estimate(cached, true)
+                : new Estimate(haversineKm(startLat, startLng, endLat, endLng), false);
+    }
+
+    /**
+     * Road distance, completed within the latency budget: from the cache, from the routing engine, or the
+     * Haversine fallback when the engine is slow, failing, saturated or behind an open circuit. Never completes
+     * exceptionally.
+     */
+    public CompletableFuture<Estimate> roadDistance(double startLat, double startLng, double endLat, double endLng) {
+        Double cached = cache.peek(startLat, startLng, endLat, endLng);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(new Estimate(cached, true));
+        }
+        Estimate fallback = new Estimate(haversineKm(startLat, startLng, endLat, endLng), false);
+        if (!breaker.allowRequest()) {
+            return CompletableFuture.completedFuture(fallback);
+        }
+        CompletableFuture<Double> call;
+        try {
+            call = CompletableFuture.supplyAsync(() -> cache.distanceKm(startLat, startLng, endLat, endLng,
+                    () -> routingEngine.drivingDistanceKm(startLat, startLng, endLat, endLng)), executor);
+        } catch (RejectedExecutionException e) {
+            // pool and queue full: the engine is not keeping up
+            breaker.failure();
+            return CompletableFuture.completedFuture(fallback);
+        }
+        // the call keeps running after the budget; its answer still lands in the cache
+        return call.orTimeout(budgetMs, TimeUnit.MILLISECONDS).handle((distanceKm, error) -> {
+            if (error != null || distanceKm == null) {
+                breaker.failure();
+                logger.debug("Road distance unavailable ({}), using Haversine", error == null ? "no route" : error.toString());
+                return fallback;
+            }
+            breaker.success();
+            return new Estimate(distanceKm, true);
+        });
+    }
+
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lngDistance = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lngDistance / 2) * Math.sin(lngDistance / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
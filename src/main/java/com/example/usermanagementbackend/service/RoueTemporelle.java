@@ -0,0 +1,117 @@
+package com.example.usermanagementbackend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Roue temporelle hiérarchique: échéances rangées par tick (une minute pour {@link CyclePromotions}).
+ * <p>
+ * 4 niveaux de 64 cases: le premier couvre 64 ticks, chaque niveau suivant 64 fois plus (64^4 ticks,
+ * plus de 30 ans à la minute). Une échéance lointaine attend dans un niveau haut et descend d'un niveau
+ * quand sa case est atteinte. Ajouter, annuler ou avancer d'un tick coûte O(1) quel que soit le nombre
+ * d'échéances: seules les cases atteintes sont lues. Non synchronisée.
+ */
+final class RoueTemporelle<T> {
+
+    private static final int BITS = 6;
+    private static final int CASES = 1 << BITS;
+    private static final int MASQUE = CASES - 1;
+    private static final int NIVEAUX = 4;
+
+    /** Échéance enregistrée; {@link #annuler()} la retire sans parcourir la roue. */
+    static final class Entree<T> {
+        private final long tick;
+        private final T valeur;
+        private boolean annulee;
+
+        private Entree(long tick, T valeur) {
+            this.tick = tick;
+            this.valeur = valeur;
+        }
+
+        T valeur() {
+            return valeur;
+        }
+
+        void annuler() {
+            annulee = true;
+        }
+    }
+
+    private final long tickMs;
+    private final List<List<Entree<T>>> cases = new ArrayList<>(NIVEAUX * CASES);
+    // déjà échues à l'ajout: rendues par le prochain avancer
+    private final List<Entree<T>> echues = new ArrayList<>();
+    private long courant;
+    private int taille;
+
+    RoueTemporelle(long tickMs, long maintenantMs) {
+        this.tickMs = tickMs;
+        this.courant = maintenantMs / tickMs;
+        for (int i = 0; i < NIVEAUX * CASES; i++) {
+            cases.add(new ArrayList<>());
+        }
+    }
+
+    /** Enregistre une échéance, arrondie au tick suivant; une date passée échoit au prochain tick. */
+    Entree<T> ajouter(long echeanceMs, T valeur) {
+        Entree<T> entree = new Entree<>(Math.floorDiv(echeanceMs + tickMs - 1, tickMs), valeur);
+        placer(entree);
+        taille++;
+        return entree;
+    }
+
+    /** Avance jusqu'à maintenant et renvoie les valeurs échues (non annulées), dans l'ordre des ticks. */
+    List<T> avancer(long maintenantMs) {
+        List<T> valeurs = new ArrayList<>();
+        vider(echues, valeurs);
+        long cible = maintenantMs / tickMs;
+        while (courant < cible) {
+            courant++;
+            // fait d'abord descendre les niveaux hauts dont la case commence à ce tick
+            for (int niveau = NIVEAUX - 1; niveau > 0; niveau--) {
+                if ((courant & ((1L << (BITS * niveau)) - 1)) == 0) {
+                    List<Entree<T>> descendues = new ArrayList<>(case_(niveau, courant));
+                    case_(niveau, courant).clear();
+                    descendues.forEach(this::placer);
+                }
+            }
+            vider(case_(0, courant), valeurs);
+            vider(echues, valeurs);
+        }
+        return valeurs;
+    }
+
+    /** Échéances en attente, annulées comprises tant que leur case n'est pas atteinte. */
+    int taille() {
+        return taille;
+    }
+
+    private void placer(Entree<T> entree) {
+        long delta = entree.tick - courant;
+        if (delta <= 0) {
+            echues.add(entree);
+            return;
+        }
+        int niveau = 0;
+        while (niveau < NIVEAUX - 1 && delta >= 1L << (BITS * (niveau + 1))) {
+            niveau++;
+        }
+        // au-delà du dernier niveau, l'entrée est replacée à chaque tour jusqu'à entrer dans la portée
+        case_(niveau, entree.tick).add(entree);
+    }
+
+    private List<Entree<T>> case_(int niveau, long tick) {
+        return cases.get(niveau * CASES + (int) ((tick >>> (BITS * niveau)) & MASQUE));
+    }
+
+    private void vider(List<Entree<T>> entrees, List<T> valeurs) {
+        for (Entree<T> entree : entrees) {
+            taille--;
+            if (!entree.annulee) {
+                valeurs.add(entree.valeur);
+            }
+        }
+        entrees.clear();
+    }
+}
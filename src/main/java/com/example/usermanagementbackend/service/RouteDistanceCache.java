@@ -0,0 +1,225 @@
+package com.example.usermanagementbackend.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Road distances already computed, keyed by start and end snapped to a grid
+ * ({@code routing.cache.grid-meters}): deliveries between the same depot and neighbourhood reuse the
+ * same route instead of calling the router again.
+ * <p>
+ * LRU bounded to {@code routing.cache.max-entries}, each entry expiring after {@code routing.cache.ttl}.
+ * With {@code routing.cache.file} set, entries are reloaded at startup and written back at shutdown.
+ * Failed lookups (null) are not cached. Hits and misses are exposed as {@code routing.cache.hits} and
+ * {@code routing.cache.misses}.
+ */
+@Component
+public class RouteDistanceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteDistanceCache.class);
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final int FILE_VERSION = 1;
+
+    /** Grid cells of both ends. */
+    record Key(long startLat, long startLng, long endLat, long endLng) {
+    }
+
+    private record Entry(double distanceKm, long computedAt) {
+    }
+
+    private final double cellDegrees;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final Path file;
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public RouteDistanceCache(@Value("${routing.cache.grid-meters:50}") double gridMeters,
+                              @Value("${routing.cache.max-entries:50000}") int maxEntries,
+                              @Value("${routing.cache.ttl:30d}") Duration ttl,
+                              @Value("${routing.cache.file:}") String file) {
+        this(gridMeters, maxEntries, ttl, file == null || file.isBlank() ? null : Path.of(file), System::currentTimeMillis);
+    }
+
+    RouteDistanceCache(double gridMeters, int maxEntries, Duration ttl, Path file, LongSupplier clock) {
+        this.cellDegrees = gridMeters / METERS_PER_DEGREE;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttl.toMillis();
+        this.file = file;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > RouteDistanceCache.this.maxEntries;
+            }
+        };
+        FunctionCounter.builder("routing.cache.hits", hits, LongAdder::sum).register(Metrics.globalRegistry);
+        FunctionCounter.builder("routing.cache.misses", misses, LongAdder::sum).register(Metrics.globalRegistry);
+        Gauge.builder("routing.cache.size", this, RouteDistanceCache::size).register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Cached distance between the two points, or the router's answer ({@code router}, called without
+     * holding the cache lock) which is then cached. Null if the router has no answer.
+     */
+    public Double distanceKm(double startLat, double startLng, double endLat, double endLng, Supplier<Double> router) {
+        Key key = key(startLat, startLng, endLat, endLng);
+        Double cached = get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        Double distance = router.get();
+        if (distance != null) {
+            put(key, distance);
+        }
+        return distance;
+    }
+
+    /** Cached distance without calling the router, null if absent; only hits are counted. */
+    public Double peek(double startLat, double startLng, double endLat, double endLng) {
+        Double cached = get(key(startLat, startLng, endLat, endLng));
+        if (cached != null) {
+            hits.increment();
+        }
+        return cached;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    Key key(double startLat, double startLng, double endLat, double endLng) {
+        return new Key(cell(startLat), cell(startLng * Math.cos(Math.toRadians(startLat))),
+                cell(endLat), cell(endLng * Math.cos(Math.toRadians(endLat))));
+    }
+
+    // longitude scaled by cos(latitude) above: cells are about gridMeters wide in both directions
+    private long cell(double degrees) {
+        return Math.round(degrees / cellDegrees);
+    }
+
+    private synchronized Double get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.getAsLong() - entry.computedAt() >= ttlMs) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.distanceKm();
+    }
+
+    private synchronized void put(Key key, double distanceKm) {
+        entries.put(key, new Entry(distanceKm, clock.getAsLong()));
+    }
+
+    @PostConstruct
+    public void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) {
+                logger.warn("Ignoring route cache {}: unknown format", file);
+                return;
+            }
+            long now = clock.getAsLong();
+            synchronized (this) {
+                while (true) {
+                    Key key;
+                    Entry entry;
+                    try {
+                        key = new Key(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+                        entry = new Entry(in.readDouble(), in.readLong());
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (now - entry.computedAt() < ttlMs) {
+                        entries.put(key, entry);
+                        loaded++;
+                    }
+                }
+            }
+            logger.info("Route cache loaded: {} entries from {}", loaded, file);
+        } catch (IOException e) {
+            logger.warn("Could not read route cache {}: {}", file, e.toString());
+        }
+    }
+
+    /** Writes the entries, least recently used first, so that reloading keeps the LRU order. */
+    @PreDestroy
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        List<Map.Entry<Key, Entry>> snapshot = new ArrayList<>();
+        synchronized (this) {
+            entries.forEach((key, entry) -> snapshot.add(Map.entry(key, entry)));
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FILE_VERSION);
+                for (Map.Entry<Key, Entry> e : snapshot) {
+                    Key key = e.getKey();
+                    out.writeLong(key.startLat());
+                    out.writeLong(key.startLng());
+                    out.writeLong(key.endLat());
+                    out.writeLong(key.endLng());
+                    out.writeDouble(e.getValue().distanceKm());
+                    out.writeLong(e.getValue().computedAt());
+                }
+            }
+            // a crash while writing leaves the previous file intact
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Route cache saved: {} entries to {}", snapshot.size(), file);
+        } catch (IOException e) {
+            logger.warn("Could not write route cache {}: {}", file, e.toString());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.usermanagementbackend.service;
+
+/**
+ * Source of driving distances: {@link OsrmClient} (HTTP) or {@link GraphRoutingEngine} (local road graph),
+ * chosen with {@code routing.engine}. Implementations are called from several threads at once.
+ */
+public interface RoutingEngine {
+
+    /** Road distance in km, or null when there is no route or the engine cannot answer. */
+    Double drivingDistanceKm(double startLat, double startLng, double endLat, double endLng);
+}
@@ -1,17 +1,28 @@
 package com.example.usermanagementbackend.service;
 
+import com.example.usermanagementbackend.dto.StockDecrementResult;
 import com.example.usermanagementbackend.entity.MouvementStock;
 import com.example.usermanagementbackend.entity.Produit;
 import com.example.usermanagementbackend.enums.TypeMouvement;
 import com.example.usermanagementbackend.enums.TypeNotification;
 import com.example.usermanagementbackend.repository.MouvementStockRepository;
 import com.example.usermanagementbackend.repository.ProduitRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +31,93 @@ public class StockService {
     private final ProduitRepository produitRepository;
     private final MouvementStockRepository mouvementStockRepository;
     private final NotificationService notificationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ProduitCatalogue catalogue;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final String DECREMENT_SQL =
+            "UPDATE produit SET stock = stock - ? WHERE id = ? AND stock >= ?";
+    private static final String DECREMENT_VENTE_SQL =
+            "UPDATE produit SET stock = stock - ?, sales_count = COALESCE(sales_count, 0) + ? WHERE id = ? AND stock >= ?";
+
+    /**
+     * Décrémente le stock de plusieurs produits en un seul batch d'UPDATE conditionnels.
+     * La condition {@code stock >= ?} est évaluée par la base sous verrou de ligne: deux décréments
+     * concurrents ne peuvent pas survendre. Les quantités sont regroupées par produit et les lignes
+     * sont verrouillées par id croissant pour que deux commandes partageant des produits ne
+     * s'interbloquent pas. Les lignes refusées sont signalées dans le résultat, sans exception:
+     * c'est à l'appelant d'annuler la transaction s'il exige un décrément complet.
+     */
+    @Transactional
+    public StockDecrementResult decrementerStock(Map<Long, Integer> quantites, boolean compterVentes) {
+        Map<Long, Integer> parId = new TreeMap<>();
+        quantites.forEach((id, qte) -> {
+            if (id == null || qte == null || qte <= 0) {
+                throw new IllegalArgumentException("Quantité invalide pour le produit: " + id);
+            }
+            parId.merge(id, qte, Integer::sum);
+        });
+        if (parId.isEmpty()) {
+            return new StockDecrementResult();
+        }
+
+        List<Object[]> params = new ArrayList<>(parId.size());
+        parId.forEach((id, qte) -> params.add(compterVentes
+                ? new Object[]{qte, qte, id, qte}
+                : new Object[]{qte, id, qte}));
+        int[] comptes = jdbcTemplate.batchUpdate(compterVentes ? DECREMENT_VENTE_SQL : DECREMENT_SQL, params);
+        catalogue.invalider(parId.keySet());
+
+        // Les lignes modifiées restent verrouillées par la transaction: la relecture est cohérente.
+        Map<Long, int[]> etats = lireStocks(parId.keySet());
+        List<StockDecrementResult.Ligne> lignes = new ArrayList<>(parId.size());
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : parId.entrySet()) {
+            int[] etat = etats.get(entry.getKey());
+            lignes.add(new StockDecrementResult.Ligne(entry.getKey(), entry.getValue(), comptes[i++] > 0,
+                    etat == null ? null : etat[0], etat == null ? null : etat[1]));
+        }
+        return new StockDecrementResult(lignes);
+    }
+
+    /**
+     * Recopie dans les entités déjà chargées le stock et le compteur de ventes écrits en SQL,
+     * sans les rendre sales: Hibernate ne doit pas réécrire ces colonnes au flush.
+     */
+    public void synchroniser(Collection<Produit> produits, StockDecrementResult resultat) {
+        Map<Long, StockDecrementResult.Ligne> parId = new HashMap<>();
+        resultat.getLignes().forEach(l -> parId.put(l.getProduitId(), l));
+        Session session = entityManager.unwrap(Session.class);
+        for (Produit produit : produits) {
+            StockDecrementResult.Ligne ligne = parId.get(produit.getId());
+            if (ligne == null || ligne.getStockRestant() == null) {
+                continue;
+            }
+            boolean gere = session.contains(produit);
+            if (gere) {
+                session.setReadOnly(produit, true);
+            }
+            produit.setStock(ligne.getStockRestant());
+            produit.setSalesCount(ligne.getSalesCount());
+            if (gere) {
+                // repasser en modifiable reprend un instantané de l'état courant
+                session.setReadOnly(produit, false);
+            }
+        }
+    }
+
+    private Map<Long, int[]> lireStocks(Collection<Long> ids) {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Map<Long, int[]> etats = new HashMap<>();
+        jdbcTemplate.query("SELECT id, stock, COALESCE(sales_count, 0) FROM produit WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    etats.put(rs.getLong(1), new int[]{rs.getInt(2), rs.getInt(3)});
+                },
+                ids.toArray());
+        return etats;
+    }
 
     @Transactional
     public void enregistrerEntree(Long idProduit, int quantite) {
@@ -28,6 +126,7 @@ public class StockService {
 
         produit.setStock(produit.getStock() + quantite);
         produitRepository.save(produit);
+        catalogue.invalider(idProduit);
 
         enregistrerMouvement(produit, TypeMouvement.ENTREE, quantite);
 
@@ -45,6 +144,7 @@ public class StockService {
 
         produit.setStock(produit.getStock() - quantitePerdue);
         produitRepository.save(produit);
+        catalogue.invalider(idProduit);
 
         enregistrerMouvement(produit, TypeMouvement.PERTE, quantitePerdue);
 
@@ -77,6 +177,7 @@ public class StockService {
             int quantiteAAjouter = produit.getQuantiteReapprovisionnement();
             produit.setStock(produit.getStock() + quantiteAAjouter);
             produitRepository.save(produit);
+            catalogue.invalider(produit.getId());
             enregistrerMouvement(produit, TypeMouvement.ENTREE, quantiteAAjouter);
 
             notificationService.sendNotification(produit.getFournisseurId(),
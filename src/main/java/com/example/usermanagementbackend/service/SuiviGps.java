@@ -0,0 +1,395 @@
+package com.example.usermanagementbackend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Traces GPS des livreurs (table segment_trace), reçues en flux STOMP.
+ * <p>
+ * Chaque livreur a un tampon circulaire de {@code suivi.gps.tampon} positions en tableaux primitifs; un
+ * tampon plein écrase sa plus ancienne position (compteur {@code suivi.gps.perdus}). Toutes les
+ * {@code suivi.gps.flush-period}, les tampons sont vidés: chaque tampon donne un segment, simplifié par
+ * Douglas-Peucker à {@code suivi.gps.tolerance-metres} près, et tous les segments partent en un seul batch
+ * INSERT. Le dernier point d'un segment est repris en tête du suivant, pour que la somme des segments
+ * d'une livraison soit la distance parcourue. Un changement de livraison ferme le segment en cours.
+ * <p>
+ * Chaque position acceptée met aussi à jour {@link PositionsLivreurs}. Un tampon vide sans position depuis
+ * {@code suivi.gps.inactivite} est libéré.
+ */
+@Component
+public class SuiviGps {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuiviGps.class);
+
+    private static final String INSERT_SQL = "INSERT INTO segment_trace "
+            + "(livreur_id, livraison_id, debut, fin, nombre_points, distance_metres, polyligne) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String DISTANCE_SQL = "SELECT COUNT(*), COALESCE(SUM(distance_metres), 0) "
+            + "FROM segment_trace WHERE livraison_id = ?";
+    private static final String TRACE_SQL = "SELECT polyligne FROM segment_trace WHERE livraison_id = ? "
+            + "ORDER BY debut, id";
+
+    /** Positions brutes d'un livreur entre deux vidages, dans l'ordre chronologique. */
+    record Segment(long livreurId, Long livraisonId, double[] lat, double[] lng, long[] horodatages) {
+    }
+
+    private static final class Tampon {
+        final double[] lat;
+        final double[] lng;
+        final long[] horodatages;
+        int debut;
+        int taille;
+        Long livraisonId;
+        long dernier = Long.MIN_VALUE;
+        long recuA;
+        // dernier point du segment précédent, repris en tête du suivant
+        boolean suite;
+        double suiteLat;
+        double suiteLng;
+        long suiteHorodatage;
+
+        Tampon(int capacite) {
+            lat = new double[capacite];
+            lng = new double[capacite];
+            horodatages = new long[capacite];
+        }
+
+        /** Ajoute une position; renvoie false si la plus ancienne a été écrasée. */
+        boolean ajouter(double latitude, double longitude, long horodatage) {
+            int capacite = lat.length;
+            boolean plein = taille == capacite;
+            int i = plein ? debut : (debut + taille) % capacite;
+            lat[i] = latitude;
+            lng[i] = longitude;
+            horodatages[i] = horodatage;
+            if (plein) {
+                debut = (debut + 1) % capacite;
+            } else {
+                taille++;
+            }
+            dernier = horodatage;
+            return !plein;
+        }
+
+        /** Vide le tampon; null s'il n'y a pas au moins deux points (un point seul devient la suite). */
+        Segment extraire(long livreurId) {
+            if (taille == 0) {
+                return null;
+            }
+            Segment segment = points(livreurId);
+            int n = segment.lat().length;
+            suite = true;
+            suiteLat = segment.lat()[n - 1];
+            suiteLng = segment.lng()[n - 1];
+            suiteHorodatage = segment.horodatages()[n - 1];
+            debut = 0;
+            taille = 0;
+            return n < 2 ? null : segment;
+        }
+
+        /** La suite éventuelle puis les positions en attente, sans vider le tampon. */
+        Segment points(long livreurId) {
+            int n = taille + (suite ? 1 : 0);
+            double[] sLat = new double[n];
+            double[] sLng = new double[n];
+            long[] sHorodatages = new long[n];
+            int k = 0;
+            if (suite) {
+                sLat[0] = suiteLat;
+                sLng[0] = suiteLng;
+                sHorodatages[0] = suiteHorodatage;
+                k = 1;
+            }
+            for (int j = 0; j < taille; j++, k++) {
+                int i = (debut + j) % lat.length;
+                sLat[k] = lat[i];
+                sLng[k] = lng[i];
+                sHorodatages[k] = horodatages[i];
+            }
+            return new Segment(livreurId, livraisonId, sLat, sLng, sHorodatages);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PositionsLivreurs positions;
+    private final int capacite;
+    private final double toleranceMetres;
+    private final long flushMs;
+    private final long inactiviteMs;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<Long, Tampon> tampons = new ConcurrentHashMap<>();
+    // segments fermés par un changement de livraison, écrits au prochain vidage
+    private final ConcurrentLinkedQueue<Segment> fermes = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService vidage;
+
+    private final Counter fixes;
+    private final Counter perdus;
+    private final Counter segments;
+    private final Counter echecs;
+    private final Timer latenceEcriture;
+
+    @Autowired
+    public SuiviGps(JdbcTemplate jdbcTemplate, PositionsLivreurs positions,
+                    @Value("${suivi.gps.tampon:512}") int capacite,
+                    @Value("${suivi.gps.tolerance-metres:5}") double toleranceMetres,
+                    @Value("${suivi.gps.flush-period:10s}") Duration flushPeriod,
+                    @Value("${suivi.gps.inactivite:10m}") Duration inactivite) {
+        this(jdbcTemplate, positions, capacite, toleranceMetres, flushPeriod, inactivite, System::currentTimeMillis);
+    }
+
+    SuiviGps(JdbcTemplate jdbcTemplate, PositionsLivreurs positions, int capacite, double toleranceMetres,
+             Duration flushPeriod, Duration inactivite, LongSupplier clock) {
+        if (capacite < 2 || toleranceMetres < 0 || flushPeriod.isNegative() || flushPeriod.isZero()) {
+            throw new IllegalArgumentException("Configuration suivi.gps invalide");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.positions = positions;
+        this.capacite = capacite;
+        this.toleranceMetres = toleranceMetres;
+        this.flushMs = flushPeriod.toMillis();
+        this.inactiviteMs = inactivite.toMillis();
+        this.clock = clock;
+        this.vidage = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "suivi-gps-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("suivi.gps.tampons", tampons, Map::size)
+                .description("Livreurs ayant un tampon de positions GPS")
+                .register(Metrics.globalRegistry);
+        this.fixes = Counter.builder("suivi.gps.fixes")
+                .description("Positions GPS acceptées")
+                .register(Metrics.globalRegistry);
+        this.perdus = Counter.builder("suivi.gps.perdus")
+                .description("Positions GPS écrasées dans un tampon plein avant d'être écrites")
+                .register(Metrics.globalRegistry);
+        this.segments = Counter.builder("suivi.gps.segments")
+                .description("Segments de trace écrits")
+                .register(Metrics.globalRegistry);
+        this.echecs = Counter.builder("suivi.gps.failures")
+                .description("Segments de trace perdus après un échec d'écriture")
+                .register(Metrics.globalRegistry);
+        this.latenceEcriture = Timer.builder("suivi.gps.write")
+                .description("Durée d'écriture d'un batch segment_trace")
+                .register(Metrics.globalRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        vidage.scheduleWithFixedDelay(this::viderEnTache, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Arrête le vidage périodique puis écrit ce qui reste dans les tampons. */
+    @PreDestroy
+    public void arreter() {
+        vidage.shutdownNow();
+        try {
+            vidage.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int ecrits = vider();
+        logger.info("Suivi GPS arrêté, {} segments en attente écrits", ecrits);
+    }
+
+    /**
+     * Reçoit une position. Une position plus ancienne ({@code horodatage}, null = maintenant) que la
+     * dernière reçue du livreur, ou hors des bornes lat/lng, est ignorée: renvoie false.
+     */
+    public boolean recevoir(long livreurId, double lat, double lng, Long horodatage, Long livraisonId) {
+        if (!(lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180)) {
+            return false;
+        }
+        long maintenant = clock.getAsLong();
+        long quand = horodatage != null ? horodatage : maintenant;
+        boolean[] acceptee = {false};
+        // compute: les positions d'un même livreur passent une à une, sans course avec le vidage
+        tampons.compute(livreurId, (id, tampon) -> {
+            if (tampon == null) {
+                tampon = new Tampon(capacite);
+            } else if (quand < tampon.dernier) {
+                return tampon;
+            }
+            if (!Objects.equals(livraisonId, tampon.livraisonId)) {
+                Segment segment = tampon.extraire(id);
+                if (segment != null) {
+                    fermes.add(segment);
+                }
+                // la distance entre deux livraisons n'est comptée dans aucune
+                tampon.suite = false;
+                tampon.livraisonId = livraisonId;
+            }
+            if (!tampon.ajouter(lat, lng, quand)) {
+                perdus.increment();
+            }
+            tampon.recuA = maintenant;
+            acceptee[0] = true;
+            return tampon;
+        });
+        if (acceptee[0]) {
+            fixes.increment();
+            positions.mettreAJour(livreurId, lat, lng, quand);
+        }
+        return acceptee[0];
+    }
+
+    /** Écrit les segments de tous les livreurs; renvoie le nombre de segments écrits. */
+    public int vider() {
+        List<Segment> lot = new ArrayList<>();
+        drainerFermes(lot);
+        long maintenant = clock.getAsLong();
+        for (Long livreurId : tampons.keySet()) {
+            extraire(livreurId, maintenant, lot);
+        }
+        return ecrire(lot);
+    }
+
+    /** Écrit tout de suite la trace en attente d'un livreur (fin de livraison); les autres livreurs attendent le vidage. */
+    public int vider(long livreurId) {
+        List<Segment> lot = new ArrayList<>();
+        for (Segment segment : fermes) {
+            // remove: un vidage concurrent qui a déjà pris le segment l'écrit lui-même
+            if (segment.livreurId() == livreurId && fermes.remove(segment)) {
+                lot.add(segment);
+            }
+        }
+        extraire(livreurId, clock.getAsLong(), lot);
+        return ecrire(lot);
+    }
+
+    /** Distance parcourue (km) d'après les segments écrits de la livraison, null si aucun segment. */
+    public Double distanceParcourueKm(long livraisonId) {
+        return jdbcTemplate.queryForObject(DISTANCE_SQL, (rs, i) -> rs.getLong(1) == 0 ? null : rs.getDouble(2) / 1000,
+                livraisonId);
+    }
+
+    /**
+     * Distance parcourue (km) de la livraison, segments écrits plus ceux du livreur encore en mémoire, sans
+     * rien écrire; null si aucun segment. Vaut {@link #distanceParcourueKm(long)} après {@link #vider(long)}.
+     */
+    public Double distanceParcourueKm(long livraisonId, long livreurId) {
+        List<Segment> enAttente = new ArrayList<>();
+        for (Segment segment : fermes) {
+            if (segment.livreurId() == livreurId && Objects.equals(segment.livraisonId(), livraisonId)) {
+                enAttente.add(segment);
+            }
+        }
+        tampons.computeIfPresent(livreurId, (id, tampon) -> {
+            if (tampon.taille > 0 && Objects.equals(tampon.livraisonId, livraisonId)) {
+                Segment segment = tampon.points(id);
+                if (segment.lat().length >= 2) {
+                    enAttente.add(segment);
+                }
+            }
+            return tampon;
+        });
+        double[] ecrits = jdbcTemplate.queryForObject(DISTANCE_SQL,
+                (rs, i) -> new double[]{rs.getLong(1), rs.getDouble(2)}, livraisonId);
+        if (ecrits[0] == 0 && enAttente.isEmpty()) {
+            return null;
+        }
+        double metres = ecrits[1];
+        for (Segment s : enAttente) {
+            metres += TraceGps.longueurMetres(s.lat(), s.lng(),
+                    TraceGps.simplifier(s.lat(), s.lng(), s.lat().length, toleranceMetres));
+        }
+        return metres / 1000;
+    }
+
+    /** Points {lat, lng} écrits pour la livraison, dans l'ordre. */
+    public List<double[]> trace(long livraisonId) {
+        List<double[]> points = new ArrayList<>();
+        for (String polyligne : jdbcTemplate.queryForList(TRACE_SQL, String.class, livraisonId)) {
+            List<double[]> segment = TraceGps.decoder(polyligne);
+            // premier point d'un segment = dernier point du précédent
+            int premier = !points.isEmpty() && !segment.isEmpty()
+                    && Arrays.equals(points.get(points.size() - 1), segment.get(0)) ? 1 : 0;
+            points.addAll(segment.subList(premier, segment.size()));
+        }
+        return points;
+    }
+
+    int livreursSuivis() {
+        return tampons.size();
+    }
+
+    int enAttente() {
+        return tampons.values().stream().mapToInt(t -> t.taille).sum() + fermes.size();
+    }
+
+    private void viderEnTache() {
+        try {
+            vider();
+        } catch (RuntimeException e) {
+            logger.error("Échec du vidage des traces GPS", e);
+        }
+    }
+
+    private void drainerFermes(List<Segment> lot) {
+        for (Segment segment; (segment = fermes.poll()) != null; ) {
+            lot.add(segment);
+        }
+    }
+
+    private void extraire(long livreurId, long maintenant, List<Segment> lot) {
+        tampons.computeIfPresent(livreurId, (id, tampon) -> {
+            Segment segment = tampon.extraire(id);
+            if (segment != null) {
+                lot.add(segment);
+            }
+            return tampon.taille == 0 && maintenant - tampon.recuA > inactiviteMs ? null : tampon;
+        });
+    }
+
+    private int ecrire(List<Segment> lot) {
+        if (lot.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> lignes = new ArrayList<>(lot.size());
+        for (Segment s : lot) {
+            int[] gardes = TraceGps.simplifier(s.lat(), s.lng(), s.lat().length, toleranceMetres);
+            lignes.add(new Object[]{s.livreurId(), s.livraisonId(), new Timestamp(s.horodatages()[0]),
+                    new Timestamp(s.horodatages()[s.horodatages().length - 1]), gardes.length,
+                    TraceGps.longueurMetres(s.lat(), s.lng(), gardes), TraceGps.encoder(s.lat(), s.lng(), gardes)});
+        }
+        long debut = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, lignes);
+            segments.increment(lot.size());
+            return lot.size();
+        } catch (RuntimeException e) {
+            // une trace sert à l'affichage et à l'empreinte carbone: on journalise sans bloquer les vidages suivants
+            echecs.increment(lot.size());
+            logger.error("Échec d'écriture de {} segments de trace GPS", lot.size(), e);
+            return 0;
+        } finally {
+            latenceEcriture.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.enums.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Classement des produits par ventes (salesCount décroissant, puis id), global et par catégorie.
+ * <p>
+ * Chargé au démarrage par une seule requête puis tenu à jour par {@link ProduitCatalogue} à chaque
+ * produit rechargé après un commit (ventes, création, changement de catégorie, suppression).
+ * Les lectures parcourent des skip lists concurrentes sans verrou; une mise à jour insère la
+ * nouvelle entrée avant de retirer l'ancienne, les lecteurs dédoublonnent par id.
+ */
+@Component
+public class TopVentes {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopVentes.class);
+
+    private static final Comparator<Entree> ORDRE = Comparator.comparingInt(Entree::ventes).reversed()
+            .thenComparing(Entree::id);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, Entree> parId = new ConcurrentHashMap<>();
+    private final NavigableSet<Entree> global = new ConcurrentSkipListSet<>(ORDRE);
+    private final Map<Category, NavigableSet<Entree>> parCategorie = new EnumMap<>(Category.class);
+    private volatile boolean initialise;
+
+    private record Entree(Long id, Category category, int ventes) {
+    }
+
+    public TopVentes(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        for (Category category : Category.values()) {
+            parCategorie.put(category, new ConcurrentSkipListSet<>(ORDRE));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        charger();
+    }
+
+    /** Ids des produits du plus vendu au moins vendu. */
+    public Stream<Long> classement() {
+        return ids(global);
+    }
+
+    public Stream<Long> classement(Category category) {
+        return ids(parCategorie.get(category));
+    }
+
+    public void mettreAJour(Collection<Produit> produits) {
+        for (Produit produit : produits) {
+            mettreAJour(produit.getId(), produit.getCategory(),
+                    produit.getSalesCount() == null ? 0 : produit.getSalesCount());
+        }
+    }
+
+    public synchronized void mettreAJour(Long id, Category category, int ventes) {
+        Entree ancienne = parId.get(id);
+        // valeur relue telle quelle: une baisse (commande annulée, correction) fait reculer le produit
+        Entree nouvelle = new Entree(id, category, ventes);
+        if (nouvelle.equals(ancienne)) {
+            return;
+        }
+        // même rang (seule la catégorie change): l'entrée globale reste en place
+        boolean memeRang = ancienne != null && ORDRE.compare(ancienne, nouvelle) == 0;
+        if (!memeRang) {
+            global.add(nouvelle);
+        }
+        if (category != null) {
+            parCategorie.get(category).add(nouvelle);
+        }
+        parId.put(id, nouvelle);
+        if (ancienne != null) {
+            if (!memeRang) {
+                global.remove(ancienne);
+            }
+            if (ancienne.category() != null) {
+                parCategorie.get(ancienne.category()).remove(ancienne);
+            }
+        }
+    }
+
+    public synchronized void retirer(Long id) {
+        Entree ancienne = parId.remove(id);
+        if (ancienne != null) {
+            global.remove(ancienne);
+            if (ancienne.category() != null) {
+                parCategorie.get(ancienne.category()).remove(ancienne);
+            }
+        }
+    }
+
+    private Stream<Long> ids(NavigableSet<Entree> classement) {
+        if (!initialise) {
+            charger();
+        }
+        return classement.stream().map(Entree::id).distinct();
+    }
+
+    private synchronized void charger() {
+        if (initialise) {
+            return;
+        }
+        long debut = System.currentTimeMillis();
+        jdbcTemplate.query("SELECT id, category, COALESCE(sales_count, 0) FROM produit", rs -> {
+            String category = rs.getString(2);
+            mettreAJour(rs.getLong(1), category == null ? null : Category.valueOf(category), rs.getInt(3));
+        });
+        initialise = true;
+        logger.info("Classement des ventes chargé: {} produits en {} ms", parId.size(), System.currentTimeMillis() - debut);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.usermanagementbackend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Traces GPS: simplification de Douglas-Peucker, longueur et encodage en polyligne (format Google,
+ * précision 1e-5 degré, environ 1 m), pour des points donnés en tableaux lat/lng parallèles.
+ */
+final class TraceGps {
+
+    private static final double RAYON_TERRE_METRES = 6_371_000.0;
+    private static final double PRECISION = 1e5;
+
+    private TraceGps() {
+    }
+
+    /**
+     * Indices des points gardés par Douglas-Peucker: aucun point retiré n'est à plus de
+     * {@code toleranceMetres} du tracé simplifié. Le premier et le dernier point sont toujours gardés.
+     */
+    static int[] simplifier(double[] lat, double[] lng, int n, double toleranceMetres) {
+        if (n <= 2) {
+            int[] tous = new int[n];
+            for (int i = 0; i < n; i++) {
+                tous[i] = i;
+            }
+            return tous;
+        }
+        // projection plane locale en mètres: quelques kilomètres entre deux vidages, l'erreur est négligeable
+        double cos = Math.cos(Math.toRadians(lat[0]));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.toRadians(lng[i] - lng[0]) * cos * RAYON_TERRE_METRES;
+            y[i] = Math.toRadians(lat[i] - lat[0]) * RAYON_TERRE_METRES;
+        }
+
+        boolean[] garde = new boolean[n];
+        garde[0] = true;
+        garde[n - 1] = true;
+        int gardes = 2;
+        // pile de sous-tracés (debut, fin) plutôt que la récursion: un long tracé rectiligne ne creuse pas la pile
+        int[] pile = new int[2 * n];
+        int sommet = 0;
+        pile[sommet++] = 0;
+        pile[sommet++] = n - 1;
+        double tolerance2 = toleranceMetres * toleranceMetres;
+        while (sommet > 0) {
+            int fin = pile[--sommet];
+            int debut = pile[--sommet];
+            double pire = tolerance2;
+            int indice = -1;
+            for (int i = debut + 1; i < fin; i++) {
+                double d2 = distance2AuSegment(x[i], y[i], x[debut], y[debut], x[fin], y[fin]);
+                if (d2 > pire) {
+                    pire = d2;
+                    indice = i;
+                }
+            }
+            if (indice >= 0) {
+                garde[indice] = true;
+                gardes++;
+                pile[sommet++] = debut;
+                pile[sommet++] = indice;
+                pile[sommet++] = indice;
+                pile[sommet++] = fin;
+            }
+        }
+
+        int[] indices = new int[gardes];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (garde[i]) {
+                indices[k++] = i;
+            }
+        }
+        return indices;
+    }
+
+    private static double distance2AuSegment(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double longueur2 = dx * dx + dy * dy;
+        double t = longueur2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / longueur2));
+        double ex = ax + t * dx - px;
+        double ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    /** Longueur en mètres du tracé passant par les points {@code indices}, dans l'ordre. */
+    static double longueurMetres(double[] lat, double[] lng, int[] indices) {
+        double total = 0;
+        for (int k = 1; k < indices.length; k++) {
+            int a = indices[k - 1];
+            int b = indices[k];
+            total += RoadDistanceService.haversineKm(lat[a], lng[a], lat[b], lng[b]) * 1000;
+        }
+        return total;
+    }
+
+    static String encoder(double[] lat, double[] lng, int[] indices) {
+        StringBuilder polyligne = new StringBuilder(indices.length * 8);
+        long precedentLat = 0;
+        long precedentLng = 0;
+        for (int i : indices) {
+            long eLat = Math.round(lat[i] * PRECISION);
+            long eLng = Math.round(lng[i] * PRECISION);
+            encoderValeur(eLat - precedentLat, polyligne);
+            encoderValeur(eLng - precedentLng, polyligne);
+            precedentLat = eLat;
+            precedentLng = eLng;
+        }
+        return polyligne.toString();
+    }
+
+    private static void encoderValeur(long valeur, StringBuilder polyligne) {
+        long v = valeur < 0 ? ~(valeur << 1) : valeur << 1;
+        while (v >= 0x20) {
+            polyligne.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        polyligne.append((char) (v + 63));
+    }
+
+    /** Points {lat, lng} d'une polyligne produite par {@link #encoder}. */
+    static List<double[]> decoder(String polyligne) {
+        List<double[]> points = new ArrayList<>();
+        int[] position = {0};
+        long lat = 0;
+        long lng = 0;
+        while (position[0] < polyligne.length()) {
+            lat += decoderValeur(polyligne, position);
+            lng += decoderValeur(polyligne, position);
+            points.add(new double[]{lat / PRECISION, lng / PRECISION});
+        }
+        return points;
+    }
+
+    private static long decoderValeur(String polyligne, int[] position) {
+        long resultat = 0;
+        int decalage = 0;
+        int c;
+        do {
+            c = polyligne.charAt(position[0]++) - 63;
+            resultat |= (long) (c & 0x1f) << decalage;
+            decalage += 5;
+        } while (c >= 0x20);
+        return (resultat & 1) != 0 ? ~(resultat >> 1) : resultat >> 1;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.PromotionsDynamiques;
+import com.example.usermanagementbackend.dto.PromotionsDynamiques.ProduitVue;
+import com.example.usermanagementbackend.dto.PromotionsDynamiques.PromotionVue;
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.Promotion;
+import com.example.usermanagementbackend.repository.PromotionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Réponse de GET /promotions/dynamic calculée une fois puis servie depuis la mémoire, déjà sérialisée,
+ * avec son ETag: un client qui renvoie le même ETag reçoit un 304 sans corps.
+ * <p>
+ * La vue est recalculée au premier appel qui suit un changement de promotion ou de ses produits
+ * ({@link #invalider()}, après le commit), un changement du catalogue produits, ou au plus tard après
+ * {@code promotion.dynamique.ttl-ms}: les prix effectifs dépendent aussi des dates des promotions.
+ */
+@Component
+public class VuePromotionsDynamiques {
+
+    private static final Logger logger = LoggerFactory.getLogger(VuePromotionsDynamiques.class);
+
+    static final String BLACK_FRIDAY = "Black Friday";
+    private static final List<String> CONDITIONS = List.of("EXPIRATION_PRODUIT", "MONTANT_MIN", "EXPIRATION_AND_LOW_SALES");
+
+    /** Vue calculée: l'objet, son JSON et l'ETag (entre guillemets) de ce JSON. */
+    public record Vue(PromotionsDynamiques promotions, byte[] json, String etag) {
+    }
+
+    // versions des promotions et du catalogue à partir desquelles la vue a été calculée
+    private record Cache(Vue vue, long promotions, long catalogue, long expire) {
+    }
+
+    private final PromotionRepository promotionRepository;
+    private final PrixEffectif prixEffectif;
+    private final ProduitCatalogue catalogue;
+    private final ObjectMapper objectMapper;
+    private final long ttlMs;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Cache cache;
+
+    public VuePromotionsDynamiques(PromotionRepository promotionRepository, PrixEffectif prixEffectif,
+                                   ProduitCatalogue catalogue, ObjectMapper objectMapper,
+                                   @Value("${promotion.dynamique.ttl-ms:60000}") long ttlMs) {
+        this.promotionRepository = promotionRepository;
+        this.prixEffectif = prixEffectif;
+        this.catalogue = catalogue;
+        this.objectMapper = objectMapper;
+        this.ttlMs = ttlMs;
+    }
+
+    public Vue vue() {
+        Cache courant = cache;
+        if (aJour(courant)) {
+            return courant.vue();
+        }
+        synchronized (this) {
+            courant = cache;
+            if (aJour(courant)) {
+                return courant.vue();
+            }
+            // versions lues avant le calcul: un changement pendant le calcul forcera le suivant
+            long promotions = version.get();
+            long produits = catalogue.version();
+            Vue vue = calculer();
+            cache = new Cache(vue, promotions, produits, System.currentTimeMillis() + ttlMs);
+            return vue;
+        }
+    }
+
+    /** Recalcule la vue au prochain appel, après le commit de la transaction courante. */
+    public void invalider() {
+        ProduitCatalogue.apresCommit(version::incrementAndGet);
+    }
+
+    private boolean aJour(Cache courant) {
+        return courant != null
+                && courant.promotions() == version.get()
+                && courant.catalogue() == catalogue.version()
+                && System.currentTimeMillis() < courant.expire();
+    }
+
+    private Vue calculer() {
+        long debut = System.nanoTime();
+        PromotionsDynamiques promotions = new PromotionsDynamiques();
+        for (Promotion promotion : promotionRepository.findDynamiquesAvecProduits(BLACK_FRIDAY, CONDITIONS)) {
+            if (BLACK_FRIDAY.equals(promotion.getNom())) {
+                promotions.getBlackFriday().add(vue(promotion));
+            } else if ("EXPIRATION_PRODUIT".equals(promotion.getConditionPromotion())) {
+                promotions.getExpiration().add(vue(promotion));
+            } else {
+                promotions.getLowSales().add(vue(promotion));
+            }
+        }
+        if (promotions.getBlackFriday().isEmpty()) {
+            promotions.getBlackFriday().add(blackFridayPrevu());
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(promotions);
+            String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            logger.debug("Promotions dynamiques recalculées en {} µs ({} octets)", (System.nanoTime() - debut) / 1000, json.length);
+            return new Vue(promotions, json, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation des promotions dynamiques impossible", e);
+        }
+    }
+
+    private PromotionVue vue(Promotion promotion) {
+        PromotionVue vue = new PromotionVue();
+        vue.setId(promotion.getId());
+        vue.setNom(promotion.getNom());
+        vue.setPourcentageReduction(promotion.getPourcentageReduction());
+        vue.setDateDebut(promotion.getDateDebut());
+        vue.setDateFin(promotion.getDateFin());
+        vue.setConditionPromotion(promotion.getConditionPromotion());
+        vue.setActive(promotion.isActive());
+        if (BLACK_FRIDAY.equals(promotion.getNom()) && !promotion.isActive()) {
+            vue.setDateActivationPrevue(activationBlackFriday().toString());
+        }
+        Set<Long> vus = new HashSet<>();
+        for (Produit produit : produitsRemises(promotion)) {
+            if (vus.add(produit.getId())) {
+                vue.getProduits().add(vue(produit, promotion.getPourcentageReduction()));
+            }
+        }
+        return vue;
+    }
+
+    /**
+     * Une promotion globale n'a pas de lignes promotion_produit: elle remise chaque produit du catalogue
+     * sans remise propre en cours, et aucun tant qu'elle est inactive.
+     */
+    private Collection<Produit> produitsRemises(Promotion promotion) {
+        if (!PrixEffectif.estGlobale(promotion.getNom(), promotion.getConditionPromotion())) {
+            return promotion.getProduits();
+        }
+        if (!promotion.isActive()) {
+            return List.of();
+        }
+        List<Produit> produits = new ArrayList<>();
+        for (Produit produit : catalogue.tous()) {
+            if (!prixEffectif.remisePropreEnCours(produit.getId()) && prixEffectif.reduction(produit.getId()) > 0) {
+                produits.add(produit);
+            }
+        }
+        return produits;
+    }
+
+    private ProduitVue vue(Produit produit, double pourcentage) {
+        return new ProduitVue(produit.getId(), produit.getNom(), produit.getPrix(),
+                produit.getPrix() * (1 - pourcentage / 100.0), prixEffectif.prix(produit),
+                produit.getDevise() != null ? produit.getDevise() : "TND", produit.getDateExpiration());
+    }
+
+    // Black Friday pas encore créé: annoncé pour le 25 novembre de l'année en cours
+    private static PromotionVue blackFridayPrevu() {
+        LocalDate activation = activationBlackFriday();
+        PromotionVue vue = new PromotionVue();
+        vue.setNom(BLACK_FRIDAY);
+        vue.setPourcentageReduction(50.0);
+        vue.setConditionPromotion("BLACK_FRIDAY");
+        vue.setActive(false);
+        vue.setDateDebut(Date.from(activation.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        vue.setDateFin(Date.from(activation.plusDays(3).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        vue.setDateActivationPrevue(activation.toString());
+        return vue;
+    }
+
+    private static LocalDate activationBlackFriday() {
+        return LocalDate.of(LocalDate.now().getYear(), 11, 25);
+    }
+}
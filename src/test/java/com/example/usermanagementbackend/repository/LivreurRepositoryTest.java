@@ -0,0 +1,55 @@
+package com.example.usermanagementbackend.repository;
+
+import com.example.usermanagementbackend.entity.Livraison;
+import com.example.usermanagementbackend.entity.Livreur;
+import com.example.usermanagementbackend.entity.StatusLivraison;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class LivreurRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private LivreurRepository livreurRepository;
+
+    @Test
+    void livreursOutOnADeliveryAreNotAvailable() {
+        Long libre = livreur("libre").getId();
+        Livreur enCours = livreur("en-cours");
+        livraison(enCours, StatusLivraison.EN_COURS);
+        livraison(enCours, StatusLivraison.LIVRE);
+        Livreur termine = livreur("termine");
+        livraison(termine, StatusLivraison.LIVRE);
+        livraison(termine, StatusLivraison.TAKE_IT);
+        entityManager.flush();
+
+        assertEquals(List.of(libre, termine.getId()),
+                livreurRepository.findDisponibles(List.of(StatusLivraison.EN_COURS)).stream().map(Livreur::getId).toList());
+    }
+
+    private Livreur livreur(String nom) {
+        Livreur livreur = new Livreur();
+        livreur.setNom(nom);
+        livreur.setEmail(nom + "@example.com");
+        livreur.setTelephone("20000000");
+        return entityManager.persist(livreur);
+    }
+
+    private void livraison(Livreur livreur, StatusLivraison statut) {
+        Livraison livraison = new Livraison();
+        livraison.setLivreur(livreur);
+        livraison.setStatusLivraison(statut);
+        entityManager.persist(livraison);
+    }
+}
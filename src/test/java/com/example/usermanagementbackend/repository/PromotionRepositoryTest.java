@@ -0,0 +1,56 @@
+package com.example.usermanagementbackend.repository;
+
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.Promotion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class PromotionRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Test
+    void activePromotionsWithoutProductsExcludeGlobalOnes() {
+        Produit produit = new Produit();
+        produit.setNom("Pomme");
+        produit.setPrix(10.0);
+        entityManager.persist(produit);
+
+        Integer vide = promotion("Fin de stock", "EXPIRATION_PRODUIT", true);
+        Integer sansNom = promotion(null, null, true);
+        // Black Friday est global: jamais de lignes promotion_produit, il doit rester actif
+        promotion("Black Friday", "BLACK_FRIDAY", true);
+        promotion("Soldes d'hiver", "BLACK_FRIDAY", true);
+        promotion("Black Friday", null, true);
+        promotion("Ancienne", "EXPIRATION_PRODUIT", false);
+        promotion("Avec produit", "EXPIRATION_PRODUIT", true, produit);
+        entityManager.flush();
+
+        assertEquals(List.of(vide, sansNom),
+                promotionRepository.findIdsActivesSansProduits("Black Friday", "BLACK_FRIDAY").stream().sorted().toList());
+    }
+
+    private Integer promotion(String nom, String condition, boolean active, Produit... produits) {
+        Promotion promotion = new Promotion();
+        promotion.setNom(nom);
+        promotion.setConditionPromotion(condition);
+        promotion.setPourcentageReduction(20);
+        promotion.setActive(active);
+        promotion.setProduits(new ArrayList<>(List.of(produits)));
+        return entityManager.persist(promotion).getId();
+    }
+}
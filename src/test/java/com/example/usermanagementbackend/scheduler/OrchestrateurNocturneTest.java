@@ -0,0 +1,134 @@
+package com.example.usermanagementbackend.scheduler;
+
+import com.example.usermanagementbackend.entity.ExecutionTache;
+import com.example.usermanagementbackend.repository.ExecutionTacheRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrchestrateurNocturneTest {
+
+    private final ExecutionTacheRepository historique = mock(ExecutionTacheRepository.class);
+    private final List<String> ordre = new CopyOnWriteArrayList<>();
+    private OrchestrateurNocturne orchestrateur;
+
+    OrchestrateurNocturneTest() {
+        when(historique.save(any(ExecutionTache.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (orchestrateur != null) {
+            orchestrateur.arreter();
+        }
+    }
+
+    @Test
+    void runsInDependencyOrderAndSkipsDependentsOfFailures() {
+        orchestrateur = new OrchestrateurNocturne(List.of(
+                tache("verification", List.of(), () -> 3),
+                tache("expiration", List.of("verification"), () -> 5),
+                tache("suggestion", List.of("expiration"), () -> {
+                    throw new IllegalStateException("base indisponible");
+                }),
+                tache("rapport", List.of("suggestion"), () -> 1),
+                tache("risque", List.of(), () -> 7)
+        ), historique, 2);
+
+        Map<String, ExecutionTache> resultats = orchestrateur.lancerNuit().stream()
+                .collect(Collectors.toMap(ExecutionTache::getNom, e -> e));
+
+        assertTrue(ordre.indexOf("verification") < ordre.indexOf("expiration"));
+        assertTrue(ordre.indexOf("expiration") < ordre.indexOf("suggestion"));
+        assertFalse(ordre.contains("rapport"));
+        assertEquals("SUCCES", resultats.get("expiration").getStatut());
+        assertEquals(5, resultats.get("expiration").getLignesTraitees());
+        assertEquals("ECHEC", resultats.get("suggestion").getStatut());
+        assertEquals("DEPENDANCE_EN_ECHEC", resultats.get("rapport").getStatut());
+        assertEquals("SUCCES", resultats.get("risque").getStatut());
+    }
+
+    @Test
+    void timedOutTaskIsNotStartedAgainWhileStillRunning() throws Exception {
+        CountDownLatch liberation = new CountDownLatch(1);
+        orchestrateur = new OrchestrateurNocturne(List.of(new OrchestrateurNocturne.Tache(
+                "lente", List.of(), Duration.ofMillis(50), () -> {
+                    // ignore l'interruption, comme un appel JDBC bloqué
+                    while (true) {
+                        try {
+                            if (liberation.await(1, TimeUnit.SECONDS)) {
+                                return 1;
+                            }
+                        } catch (InterruptedException e) {
+                            // on continue
+                        }
+                    }
+                })), historique, 2);
+
+        assertEquals("DELAI_DEPASSE", orchestrateur.lancer("lente").getStatut());
+        assertTrue(orchestrateur.estEnCours("lente"));
+        assertEquals("DEJA_EN_COURS", orchestrateur.lancer("lente").getStatut());
+
+        liberation.countDown();
+        for (int i = 0; i < 100 && orchestrateur.estEnCours("lente"); i++) {
+            Thread.sleep(20);
+        }
+        assertFalse(orchestrateur.estEnCours("lente"));
+    }
+
+    @Test
+    void scheduledStartReturnsWhileTheNightIsRunning() throws Exception {
+        CountDownLatch liberation = new CountDownLatch(1);
+        orchestrateur = new OrchestrateurNocturne(List.of(
+                tache("lente", List.of(), () -> liberation.await(5, TimeUnit.SECONDS) ? 1 : 0),
+                tache("suite", List.of("lente"), () -> 2)
+        ), historique, 2);
+
+        orchestrateur.planifier();
+        assertFalse(orchestrateur.demarrerNuit());
+        for (int i = 0; i < 100 && !orchestrateur.estEnCours("lente"); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(orchestrateur.estEnCours("lente"));
+        assertFalse(ordre.contains("suite"));
+
+        liberation.countDown();
+        verify(historique, timeout(5000)).save(argThat(e -> "suite".equals(e.getNom()) && "SUCCES".equals(e.getStatut())));
+        assertThrows(IllegalArgumentException.class, () -> orchestrateur.demarrer("inconnue"));
+    }
+
+    @Test
+    void rejectsUnknownDependencies() {
+        assertThrows(IllegalArgumentException.class, () -> new OrchestrateurNocturne(
+                List.of(tache("b", List.of("a"), () -> 0)), historique, 1));
+        orchestrateur = new OrchestrateurNocturne(Collections.emptyList(), historique, 1);
+        assertThrows(IllegalArgumentException.class, () -> orchestrateur.lancer("inconnue"));
+    }
+
+    private OrchestrateurNocturne.Tache tache(String nom, List<String> dependances, Callable<Integer> traitement) {
+        return new OrchestrateurNocturne.Tache(nom, dependances, Duration.ofSeconds(5), () -> {
+            ordre.add(nom);
+            return traitement.call();
+        });
+    }
+}
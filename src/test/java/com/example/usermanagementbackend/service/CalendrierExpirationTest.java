@@ -0,0 +1,62 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class CalendrierExpirationTest {
+
+    private final LocalDate aujourdhui = LocalDate.now();
+    private CalendrierExpiration calendrier;
+
+    @BeforeEach
+    void setUp() {
+        // aucun produit en base: le chargement initial ne trouve rien
+        calendrier = new CalendrierExpiration(mock(JdbcTemplate.class));
+        calendrier.mettreAJour(List.of(
+                produit(1L, date(3)),
+                produit(2L, date(0)),
+                produit(3L, date(12)),
+                produit(4L, null),
+                produit(5L, java.sql.Date.valueOf(aujourdhui.plusDays(3)))));
+    }
+
+    @Test
+    void windowReadsOnlyItsDaysInDateOrder() {
+        assertEquals(List.of(2L, 1L, 5L), calendrier.entre(aujourdhui, aujourdhui.plusDays(5)));
+        assertEquals(List.of(2L, 1L, 5L, 3L), calendrier.entre(aujourdhui, aujourdhui.plusDays(12)));
+        assertTrue(calendrier.entre(aujourdhui.plusDays(5), aujourdhui).isEmpty());
+    }
+
+    @Test
+    void dateChangesAndDeletionsMoveProducts() {
+        calendrier.mettreAJour(1L, date(11));
+        calendrier.mettreAJour(2L, null);
+        calendrier.retirer(5L);
+        calendrier.mettreAJour(4L, date(1));
+
+        assertEquals(List.of(4L), calendrier.entre(aujourdhui, aujourdhui.plusDays(5)));
+        assertEquals(List.of(4L, 1L, 3L), calendrier.entre(aujourdhui, aujourdhui.plusDays(12)));
+    }
+
+    private Date date(int jours) {
+        return Date.from(aujourdhui.plusDays(jours).atTime(15, 30).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static Produit produit(Long id, Date dateExpiration) {
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setDateExpiration(dateExpiration);
+        return produit;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.BulkStatusResult;
+import com.example.usermanagementbackend.dto.StockDecrementResult;
+import com.example.usermanagementbackend.entity.Commande.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Transition groupée de POST /api/commandes/status/bulk sur une base H2 en mémoire: table des
+ * transitions, résultat par id, réservation du stock et UPDATE unique.
+ */
+class CommandeBulkStatusTest {
+
+    private CommandeIngestionTest.JdbcTemplateCompteur jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private CommandeService commandeService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bulk-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", "sa", "");
+        jdbcTemplate = new CommandeIngestionTest.JdbcTemplateCompteur(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        commandeService = service(new StockService(null, null, null, jdbcTemplate, mock(ProduitCatalogue.class)));
+
+        jdbcTemplate.execute("CREATE TABLE commande (id BIGINT PRIMARY KEY, status INT)");
+        jdbcTemplate.execute("CREATE TABLE ligne_commande (id BIGINT AUTO_INCREMENT PRIMARY KEY, commande_id BIGINT NOT NULL, "
+                + "produit_id BIGINT NOT NULL, qte INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE produit (id BIGINT PRIMARY KEY, stock INT NOT NULL, sales_count INT DEFAULT 0)");
+        jdbcTemplate.execute("INSERT INTO produit (id, stock, sales_count) VALUES (1, 10, 0), (2, 3, 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void transitionTableMatchesTheOrderLifecycle() {
+        assertTrue(CommandeService.transitionAutorisee(null, OrderStatus.PENDING));
+        assertFalse(CommandeService.transitionAutorisee(null, OrderStatus.CONFIRMED));
+        assertFalse(CommandeService.transitionAutorisee(OrderStatus.PENDING, OrderStatus.PENDING));
+        assertTrue(CommandeService.transitionAutorisee(OrderStatus.PENDING_PAYMENT, OrderStatus.CONFIRMED));
+        assertTrue(CommandeService.transitionAutorisee(OrderStatus.CONFIRMED, OrderStatus.SHIPPED));
+        assertFalse(CommandeService.transitionAutorisee(OrderStatus.PENDING, OrderStatus.SHIPPED));
+        assertFalse(CommandeService.transitionAutorisee(OrderStatus.SHIPPED, OrderStatus.CANCELLED));
+        assertFalse(CommandeService.transitionAutorisee(OrderStatus.DELIVERED, OrderStatus.PAID));
+        for (OrderStatus cible : List.of(OrderStatus.EN_COURS, OrderStatus.NON_LIVRE, OrderStatus.LIVRE)) {
+            assertThrows(IllegalArgumentException.class, () -> CommandeService.transitionAutorisee(OrderStatus.PENDING, cible));
+        }
+    }
+
+    @Test
+    void invalidRequestsAreRejectedBeforeAnyRead() {
+        assertThrows(IllegalArgumentException.class, () -> commandeService.transitionOrderStatusBulk(List.of(1L), null));
+        assertThrows(IllegalArgumentException.class, () -> commandeService.transitionOrderStatusBulk(List.of(1L), OrderStatus.LIVRE));
+        assertThrows(IllegalArgumentException.class, () -> commandeService.transitionOrderStatusBulk(null, OrderStatus.PAID));
+        assertThrows(IllegalArgumentException.class,
+                () -> commandeService.transitionOrderStatusBulk(Arrays.asList(null, null), OrderStatus.PAID));
+        List<Long> tropDIds = new ArrayList<>();
+        for (long id = 1; id <= 1001; id++) {
+            tropDIds.add(id);
+        }
+        assertThrows(IllegalArgumentException.class, () -> commandeService.transitionOrderStatusBulk(tropDIds, OrderStatus.PAID));
+        assertTrue(jdbcTemplate.updates.isEmpty());
+    }
+
+    @Test
+    void reportsOneOutcomePerRequestedIdAndWritesOnce() {
+        commande(10, OrderStatus.PENDING);
+        commande(11, OrderStatus.CONFIRMED);
+        commande(12, OrderStatus.SHIPPED);
+        commande(13, null);
+
+        BulkStatusResult resultat = commandeService.transitionOrderStatusBulk(
+                Arrays.asList(12L, 10L, null, 99L, 11L, 10L, 13L), OrderStatus.CANCELLED);
+
+        assertEquals(2, resultat.getAppliquees());
+        List<BulkStatusResult.Resultat> parId = resultat.getResultats();
+        assertEquals(List.of(12L, 10L, 99L, 11L, 13L), parId.stream().map(BulkStatusResult.Resultat::getId).toList());
+        assertEquals(List.of(false, true, false, true, false), parId.stream().map(BulkStatusResult.Resultat::isSucces).toList());
+        assertEquals("Transition de statut invalide de SHIPPED à CANCELLED", parId.get(0).getMessage());
+        assertEquals(OrderStatus.SHIPPED, parId.get(0).getAncienStatus());
+        assertNull(parId.get(1).getMessage());
+        assertEquals(OrderStatus.PENDING, parId.get(1).getAncienStatus());
+        assertEquals("Commande not found with id: 99", parId.get(2).getMessage());
+        assertNull(parId.get(2).getAncienStatus());
+        assertEquals("Transition de statut invalide de null à CANCELLED", parId.get(4).getMessage());
+
+        assertEquals(List.of("UPDATE commande SET status = ? WHERE id IN (?,?)"), jdbcTemplate.updates);
+        assertEquals(OrderStatus.CANCELLED, status(10));
+        assertEquals(OrderStatus.CANCELLED, status(11));
+        assertEquals(OrderStatus.SHIPPED, status(12));
+        assertNull(status(13));
+    }
+
+    @Test
+    void shippingReservesStockInIdOrderAndRefusesWhatNoLongerFits() {
+        commande(20, OrderStatus.CONFIRMED, 1L, 4, 2L, 2);
+        commande(21, OrderStatus.CONFIRMED, 2L, 2);
+        commande(22, OrderStatus.CONFIRMED, 1L, 5);
+        commande(23, OrderStatus.CONFIRMED, 3L, 1);
+
+        BulkStatusResult resultat = transactionTemplate.execute(status ->
+                commandeService.transitionOrderStatusBulk(List.of(23L, 22L, 21L, 20L), OrderStatus.SHIPPED));
+
+        assertEquals(2, resultat.getAppliquees());
+        Map<Long, String> messages = new HashMap<>();
+        resultat.getResultats().forEach(r -> messages.put(r.getId(), r.getMessage()));
+        // 20 passe en premier et prend 2 des 3 unités du produit 2: 21 n'en a plus assez
+        assertNull(messages.get(20L));
+        assertEquals("Stock insuffisant pour le produit: 2", messages.get(21L));
+        assertNull(messages.get(22L));
+        assertEquals("Produit not found with id: 3", messages.get(23L));
+        assertEquals(1, stock(1));
+        assertEquals(1, stock(2));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT sales_count FROM produit WHERE id = 2", Integer.class));
+        assertEquals(OrderStatus.SHIPPED, status(20));
+        assertEquals(OrderStatus.CONFIRMED, status(21));
+        assertEquals(OrderStatus.SHIPPED, status(22));
+        assertEquals(OrderStatus.CONFIRMED, status(23));
+        assertEquals(List.of("UPDATE commande SET status = ? WHERE id IN (?,?)"), jdbcTemplate.updates);
+    }
+
+    @Test
+    void stockChangedBehindTheLocksRollsTheWholeBatchBack() {
+        commande(30, OrderStatus.CONFIRMED, 1L, 1);
+        commande(31, OrderStatus.CONFIRMED, 2L, 1);
+        CommandeService refusant = service(new StockService(null, null, null, jdbcTemplate, mock(ProduitCatalogue.class)) {
+            @Override
+            public StockDecrementResult decrementerStock(Map<Long, Integer> quantites, boolean compterVentes) {
+                StockDecrementResult resultat = super.decrementerStock(quantites, compterVentes);
+                resultat.getLignes().get(0).setAppliquee(false);
+                return resultat;
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                refusant.transitionOrderStatusBulk(List.of(30L, 31L), OrderStatus.SHIPPED)));
+
+        assertEquals(10, stock(1));
+        assertEquals(3, stock(2));
+        assertEquals(OrderStatus.CONFIRMED, status(30));
+        assertEquals(OrderStatus.CONFIRMED, status(31));
+    }
+
+    private CommandeService service(StockService stockService) {
+        return new CommandeService(null, null, null, jdbcTemplate, stockService, null);
+    }
+
+    /** Commande au statut donné avec des lignes (produitId, qte) à plat; hors {@code updates} du compteur. */
+    private void commande(long id, OrderStatus status, Object... lignes) {
+        jdbcTemplate.execute("INSERT INTO commande (id, status) VALUES (" + id + ", "
+                + (status == null ? "NULL" : status.ordinal()) + ")");
+        for (int i = 0; i < lignes.length; i += 2) {
+            jdbcTemplate.execute("INSERT INTO ligne_commande (commande_id, produit_id, qte) VALUES ("
+                    + id + ", " + lignes[i] + ", " + lignes[i + 1] + ")");
+        }
+    }
+
+    private OrderStatus status(long id) {
+        Integer ordinal = jdbcTemplate.queryForObject("SELECT status FROM commande WHERE id = ?", Integer.class, id);
+        return ordinal == null ? null : OrderStatus.values()[ordinal];
+    }
+
+    private int stock(long id) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM produit WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Débit de POST /api/commandes côté service (H2 en mémoire, paniers de 1, 10 et 100 lignes).
+ * Désactivé par défaut: {@code mvn test -Dtest=CommandeIngestionBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CommandeIngestionBenchmarkTest {
+
+    private static final int PRODUITS = 5_000;
+    private static final int LIGNES_MESUREES = 100_000;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void ingestsHundredsOfOrdersPerSecond(int lignesParCommande) {
+        CommandeIngestionTest.Banc banc = new CommandeIngestionTest.Banc(PRODUITS);
+        try {
+            Random random = new Random(42);
+            int commandes = Math.max(200, LIGNES_MESUREES / lignesParCommande);
+            List<List<Long>> paniers = new ArrayList<>(commandes);
+            for (int c = 0; c < commandes; c++) {
+                List<Long> panier = new ArrayList<>(lignesParCommande);
+                for (int l = 0; l < lignesParCommande; l++) {
+                    panier.add(1L + random.nextInt(PRODUITS));
+                }
+                paniers.add(panier);
+            }
+
+            for (int i = 0; i < Math.min(200, commandes); i++) {
+                banc.commandeService.createCommande(CommandeIngestionTest.Banc.requete(paniers.get(i), 1));
+            }
+            long debut = System.nanoTime();
+            for (List<Long> panier : paniers) {
+                banc.commandeService.createCommande(CommandeIngestionTest.Banc.requete(panier, 1));
+            }
+            double parSeconde = commandes / ((System.nanoTime() - debut) / 1e9);
+            System.out.printf("%d commandes de %d lignes, %.0f commandes/s%n", commandes, lignesParCommande, parSeconde);
+            assertTrue(parSeconde > 2_000.0 / lignesParCommande, "débit insuffisant: " + parSeconde);
+        } finally {
+            banc.fermer();
+        }
+    }
+}
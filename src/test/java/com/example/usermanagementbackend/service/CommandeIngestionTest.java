@@ -0,0 +1,211 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.CommandeDTO;
+import com.example.usermanagementbackend.dto.CommandeRequest;
+import com.example.usermanagementbackend.entity.Commande;
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.User;
+import com.example.usermanagementbackend.repository.CommandeRepository;
+import com.example.usermanagementbackend.repository.ProduitRepository;
+import com.example.usermanagementbackend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chemin d'ingestion de POST /api/commandes sur une base H2 en mémoire: un seul findAllById pour
+ * tout le panier, puis les lignes écrites en un seul batch JDBC.
+ */
+class CommandeIngestionTest {
+
+    private Banc banc;
+
+    @BeforeEach
+    void setUp() {
+        banc = new Banc(200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        banc.fermer();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void loadsProductsOnceAndInsertsLinesInOneBatch(int nombreLignes) {
+        List<Long> produits = new ArrayList<>();
+        for (long id = 1; id <= nombreLignes; id++) {
+            produits.add(id);
+        }
+
+        CommandeDTO dto = banc.commandeService.createCommande(Banc.requete(produits, 2));
+
+        verify(banc.userRepository, times(1)).findById(1L);
+        verify(banc.produitRepository, times(1)).findAllById(anyIterable());
+        verify(banc.produitRepository, never()).findById(any());
+        assertEquals(List.of(Banc.INSERT_LIGNE), banc.jdbcTemplate.batchs);
+        assertTrue(banc.jdbcTemplate.updates.stream().noneMatch(sql -> sql.contains("ligne_commande")));
+        assertEquals(nombreLignes, banc.jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ligne_commande WHERE commande_id = ?", Integer.class, dto.getId()));
+        // 10 % sur le produit 2 (promotion en base), prix recalculés côté serveur
+        double attendu = nombreLignes * 20.0 - (nombreLignes >= 2 ? 2.0 : 0.0);
+        assertEquals(attendu, banc.jdbcTemplate.queryForObject(
+                "SELECT SUM(total) FROM ligne_commande WHERE commande_id = ?", Double.class, dto.getId()), 1e-9);
+        assertEquals(attendu * 1.19, banc.jdbcTemplate.queryForObject(
+                "SELECT SUM(ttc) FROM ligne_commande WHERE commande_id = ?", Double.class, dto.getId()), 1e-9);
+    }
+
+    @Test
+    void repeatedProductsAreLookedUpOnce() {
+        CommandeDTO dto = banc.commandeService.createCommande(Banc.requete(List.of(3L, 1L, 3L, 3L), 1));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<Long>> ids = ArgumentCaptor.forClass(Iterable.class);
+        verify(banc.produitRepository, times(1)).findAllById(ids.capture());
+        List<Long> demandes = new ArrayList<>();
+        ids.getValue().forEach(demandes::add);
+        assertEquals(List.of(3L, 1L), demandes);
+        assertEquals(4, banc.jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ligne_commande WHERE commande_id = ?", Integer.class, dto.getId()));
+        assertEquals(1, banc.jdbcTemplate.batchs.size());
+    }
+
+    @Test
+    void rejectedOrderWritesNothing() {
+        assertThrows(IllegalArgumentException.class,
+                () -> banc.commandeService.createCommande(Banc.requete(List.of(1L, 999L), 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> banc.commandeService.createCommande(Banc.requete(List.of(1L), 1_000_001)));
+
+        verify(banc.commandeRepository, never()).save(any(Commande.class));
+        assertTrue(banc.jdbcTemplate.batchs.isEmpty());
+        assertEquals(0, banc.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ligne_commande", Integer.class));
+    }
+
+    /**
+     * Service branché sur H2: les dépôts JPA sont simulés (l'en-tête est écrit par JDBC dans
+     * {@code commande}), les lignes et les remises passent par la base. Partagé avec
+     * {@link CommandeIngestionBenchmarkTest}.
+     */
+    static final class Banc {
+
+        static final String INSERT_LIGNE =
+                "INSERT INTO ligne_commande (commande_id, produit_id, qte, prix_unitaire, total, ttc) VALUES (?, ?, ?, ?, ?, ?)";
+
+        final JdbcTemplateCompteur jdbcTemplate;
+        final CommandeRepository commandeRepository = mock(CommandeRepository.class);
+        final ProduitRepository produitRepository = mock(ProduitRepository.class);
+        final UserRepository userRepository = mock(UserRepository.class);
+        final CommandeService commandeService;
+        private final AtomicLong ids = new AtomicLong();
+
+        Banc(int nombreProduits) {
+            jdbcTemplate = new JdbcTemplateCompteur(new DriverManagerDataSource(
+                    "jdbc:h2:mem:commandes-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+            jdbcTemplate.execute("CREATE TABLE commande (id BIGINT PRIMARY KEY, client_nom VARCHAR(255), total DOUBLE)");
+            jdbcTemplate.execute("CREATE TABLE ligne_commande (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "commande_id BIGINT NOT NULL REFERENCES commande(id), produit_id BIGINT NOT NULL, qte INT, "
+                    + "prix_unitaire DOUBLE, total DOUBLE, ttc DOUBLE)");
+            jdbcTemplate.execute("CREATE TABLE promotion (id INT PRIMARY KEY, nom VARCHAR(255), condition_promotion VARCHAR(64), "
+                    + "pourcentage_reduction DOUBLE, date_debut DATE, date_fin DATE, active BOOLEAN)");
+            jdbcTemplate.execute("CREATE TABLE promotion_produit (promotion_id INT NOT NULL, produit_id BIGINT NOT NULL)");
+            jdbcTemplate.update("INSERT INTO promotion (id, nom, condition_promotion, pourcentage_reduction, active) "
+                    + "VALUES (1, 'Soldes', 'AUCUNE', 10, TRUE)");
+            jdbcTemplate.update("INSERT INTO promotion_produit (promotion_id, produit_id) VALUES (1, 2)");
+
+            Map<Long, Produit> catalogue = new HashMap<>();
+            for (long id = 1; id <= nombreProduits; id++) {
+                Produit produit = new Produit();
+                produit.setId(id);
+                produit.setNom("Produit " + id);
+                produit.setPrix(10.0);
+                produit.setStock(1_000_000);
+                catalogue.put(id, produit);
+            }
+            User user = new User();
+            user.setId(1L);
+            when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+            when(produitRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+                Iterable<Long> demandes = invocation.getArgument(0);
+                List<Produit> trouves = new ArrayList<>();
+                demandes.forEach(id -> Optional.ofNullable(catalogue.get(id)).ifPresent(trouves::add));
+                return trouves;
+            });
+            when(commandeRepository.save(any(Commande.class))).thenAnswer(invocation -> {
+                Commande commande = invocation.getArgument(0);
+                commande.setId(ids.incrementAndGet());
+                jdbcTemplate.update("INSERT INTO commande (id, client_nom, total) VALUES (?, ?, ?)",
+                        commande.getId(), commande.getClientNom(), commande.getTotal());
+                return commande;
+            });
+            commandeService = new CommandeService(commandeRepository, produitRepository, userRepository, jdbcTemplate,
+                    mock(StockService.class), new PrixEffectif(jdbcTemplate));
+        }
+
+        static CommandeRequest requete(List<Long> produitIds, int qte) {
+            CommandeRequest request = new CommandeRequest();
+            request.setClientNom("Client");
+            for (Long produitId : produitIds) {
+                CommandeRequest.Reference produit = new CommandeRequest.Reference();
+                produit.setId(produitId);
+                CommandeRequest.Ligne ligne = new CommandeRequest.Ligne();
+                ligne.setProduit(produit);
+                ligne.setQte(qte);
+                request.getLignesCommande().add(ligne);
+            }
+            return request;
+        }
+
+        void fermer() {
+            jdbcTemplate.execute("SHUTDOWN");
+        }
+    }
+
+    /** Garde le SQL des écritures; l'exécution passe par H2. */
+    static final class JdbcTemplateCompteur extends JdbcTemplate {
+        final List<String> batchs = new CopyOnWriteArrayList<>();
+        final List<String> updates = new CopyOnWriteArrayList<>();
+
+        JdbcTemplateCompteur(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+            batchs.add(sql);
+            return super.batchUpdate(sql, pss);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            updates.add(sql);
+            return super.update(sql, args);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.CommandeDTO;
+import com.example.usermanagementbackend.dto.CursorPage;
+import com.example.usermanagementbackend.entity.Commande;
+import com.example.usermanagementbackend.entity.Commande.OrderStatus;
+import com.example.usermanagementbackend.entity.User;
+import com.example.usermanagementbackend.repository.CommandeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pagination keyset de GET /api/commandes(/page) sur H2: la requête JPQL de
+ * {@link CommandeRepository#findSummaries} est exécutée pour de vrai.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class CommandePaginationTest {
+
+    private static final LocalDate JOUR = LocalDate.of(2025, 3, 10);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private CommandeRepository commandeRepository;
+
+    private CommandeService commandeService;
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        commandeService = new CommandeService(commandeRepository, null, null, null, null, null);
+        alice = user("alice");
+        bob = user("bob");
+    }
+
+    @Test
+    void cursorWalksEveryOrderOnceNewestFirst() {
+        // même jour pour toutes: seul l'id départage
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ids.add(commande(alice, OrderStatus.PENDING, JOUR));
+        }
+
+        List<Long> lus = new ArrayList<>();
+        List<Long> curseurs = new ArrayList<>();
+        Long curseur = null;
+        CursorPage<CommandeDTO> page;
+        do {
+            page = commandeService.getCommandesPage(curseur, 3, null, null, null, null);
+            page.getContent().forEach(c -> lus.add(c.getId()));
+            curseur = page.getNextCursor();
+            curseurs.add(curseur);
+        } while (page.isHasNext());
+
+        Collections.reverse(ids);
+        assertEquals(ids, lus);
+        assertEquals(List.of(ids.get(2), ids.get(5)), curseurs.subList(0, 2));
+        assertNull(curseurs.get(2));
+        assertEquals(3, curseurs.size());
+    }
+
+    @Test
+    void lookaheadRowDoesNotLeaveAnEmptyLastPage() {
+        for (int i = 0; i < 6; i++) {
+            commande(alice, OrderStatus.PENDING, JOUR);
+        }
+
+        CursorPage<CommandeDTO> premiere = commandeService.getCommandesPage(null, 3, null, null, null, null);
+        CursorPage<CommandeDTO> derniere = commandeService.getCommandesPage(premiere.getNextCursor(), 3, null, null, null, null);
+
+        assertTrue(premiere.isHasNext());
+        assertEquals(3, derniere.getContent().size());
+        assertFalse(derniere.isHasNext());
+        assertNull(derniere.getNextCursor());
+    }
+
+    @Test
+    void pageSizeIsClampedBetweenOneAndTheMaximum() {
+        for (int i = 0; i < CommandeService.MAX_PAGE_SIZE + 1; i++) {
+            commande(alice, OrderStatus.PENDING, JOUR);
+        }
+
+        CursorPage<CommandeDTO> grande = commandeService.getCommandesPage(null, 10_000, null, null, null, null);
+        CursorPage<CommandeDTO> vide = commandeService.getCommandesPage(null, 0, null, null, null, null);
+
+        assertEquals(CommandeService.MAX_PAGE_SIZE, grande.getContent().size());
+        assertTrue(grande.isHasNext());
+        assertEquals(1, vide.getContent().size());
+    }
+
+    @Test
+    void eachFilterNarrowsThePage() {
+        long a1 = commande(alice, OrderStatus.PENDING, JOUR.minusDays(2));
+        long a2 = commande(alice, OrderStatus.SHIPPED, JOUR);
+        long b1 = commande(bob, OrderStatus.SHIPPED, JOUR.plusDays(1));
+        long b2 = commande(bob, OrderStatus.CANCELLED, JOUR.plusDays(3));
+
+        assertEquals(List.of(b1, a2), ids(OrderStatus.SHIPPED, null, null, null));
+        assertEquals(List.of(b2, b1), ids(null, bob.getId(), null, null));
+        assertEquals(List.of(b2, b1, a2), ids(null, null, JOUR, null));
+        assertEquals(List.of(a2, a1), ids(null, null, null, JOUR));
+        assertEquals(List.of(b1, a2), ids(null, null, JOUR, JOUR.plusDays(1)));
+        assertEquals(List.of(a2), ids(OrderStatus.SHIPPED, alice.getId(), JOUR, JOUR));
+        assertEquals(List.of(), ids(OrderStatus.DELIVERED, null, null, null));
+        // le curseur se combine aux filtres
+        assertEquals(List.of(a2),
+                commandeService.getCommandesPage(b1, 10, OrderStatus.SHIPPED, null, null, null)
+                        .getContent().stream().map(CommandeDTO::getId).toList());
+    }
+
+    private List<Long> ids(OrderStatus status, Long userId, LocalDate debut, LocalDate fin) {
+        return commandeService.getCommandesPage(null, 10, status, userId, debut, fin)
+                .getContent().stream().map(CommandeDTO::getId).toList();
+    }
+
+    private User user(String nom) {
+        User user = new User();
+        user.setNom(nom);
+        user.setEmail(nom + "@example.com");
+        return entityManager.persist(user);
+    }
+
+    private long commande(User user, OrderStatus status, LocalDate jour) {
+        Commande commande = new Commande();
+        commande.setClientNom(user.getNom());
+        commande.setUser(user);
+        commande.setStatus(status);
+        commande.setDateCreation(jour);
+        commande.setTotal(10.0);
+        return entityManager.persistAndFlush(commande).getId();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Commande;
+import com.example.usermanagementbackend.entity.LigneCommande;
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.User;
+import com.example.usermanagementbackend.repository.CommandeRepository;
+import com.example.usermanagementbackend.repository.ProduitRepository;
+import com.example.usermanagementbackend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CommandeServiceTest {
+
+    @Mock
+    private CommandeRepository commandeRepository;
+    @Mock
+    private ProduitRepository produitRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private StockService stockService;
+
+    private CommandeService commandeService;
+
+    @BeforeEach
+    void setUp() {
+        commandeService = new CommandeService(commandeRepository, produitRepository, userRepository, jdbcTemplate, stockService,
+                new PrixEffectif(jdbcTemplate));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void saveCommandeResolvesProductsAndUserOncePerOrder(int nombreLignes) {
+        User user = new User();
+        user.setId(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        List<Produit> produits = new ArrayList<>();
+        Commande commande = new Commande();
+        User userRef = new User();
+        userRef.setId(1L);
+        commande.setUser(userRef);
+        for (long i = 1; i <= nombreLignes; i++) {
+            Produit produit = new Produit();
+            produit.setId(i);
+            produit.setNom("Produit " + i);
+            produit.setPrix(10.0);
+            produit.setStock(1000);
+            produits.add(produit);
+
+            Produit produitRef = new Produit();
+            produitRef.setId(i);
+            LigneCommande ligne = new LigneCommande();
+            ligne.setProduit(produitRef);
+            ligne.setQte(2);
+            commande.getLignesCommande().add(ligne);
+        }
+        when(produitRepository.findAllById(anyIterable())).thenReturn(produits);
+        when(commandeRepository.save(any(Commande.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        commandeService.saveCommande(commande);
+
+        verify(userRepository, times(1)).findById(1L);
+        verify(produitRepository, times(1)).findAllById(anyIterable());
+        verify(produitRepository, never()).findById(any());
+        assertEquals(nombreLignes * 20.0, commande.getTotal().doubleValue(), 1e-9);
+    }
+}
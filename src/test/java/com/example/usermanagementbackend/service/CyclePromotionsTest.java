@@ -0,0 +1,121 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Promotion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Fin des promotions sur une base H2 en mémoire: rattrapage des promotions échues, échéances de la
+ * roue revérifiées en base, désactivation ciblée.
+ */
+class CyclePromotionsTest {
+
+    private static final LocalDate AUJOURDHUI = LocalDate.now();
+
+    private JdbcTemplate jdbcTemplate;
+    private PrixEffectif prixEffectif;
+    private MoteurPromotions moteur;
+    private VuePromotionsDynamiques vue;
+    private CyclePromotions cycle;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:cycle-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE promotion (id INT PRIMARY KEY, nom VARCHAR(255), condition_promotion VARCHAR(64), "
+                + "pourcentage_reduction DOUBLE, date_debut DATE, date_fin DATE, active BOOLEAN)");
+        jdbcTemplate.execute("CREATE TABLE promotion_produit (promotion_id INT NOT NULL, produit_id BIGINT NOT NULL)");
+        prixEffectif = new PrixEffectif(jdbcTemplate);
+        moteur = mock(MoteurPromotions.class);
+        vue = mock(VuePromotionsDynamiques.class);
+        cycle = new CyclePromotions(jdbcTemplate, prixEffectif, moteur, vue, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cycle.arreter();
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void catchUpDeactivatesOnlyPromotionsPastTheirLastDay() {
+        promotion(1, "Ancienne", true, AUJOURDHUI.minusDays(2));
+        // la date de fin est incluse: la promotion court jusqu'à ce soir
+        promotion(2, "Dernier jour", true, AUJOURDHUI);
+        promotion(3, "Déjà close", false, AUJOURDHUI.minusDays(10));
+        promotion(4, "Sans fin", true, null);
+
+        assertEquals(1, cycle.expirerEchues());
+
+        assertFalse(active(1));
+        assertTrue(active(2));
+        assertFalse(active(3));
+        assertTrue(active(4));
+        verify(moteur, times(1)).invalider();
+        verify(vue, times(1)).invalider();
+        assertEquals(0, cycle.expirerEchues());
+    }
+
+    @Test
+    void wheelDeadlineRechecksTheEndDateInDatabase() {
+        promotion(5, "Échue", true, AUJOURDHUI.minusDays(3));
+        // prolongée en base après son enregistrement dans la roue
+        promotion(6, "Prolongée", true, AUJOURDHUI.plusDays(5));
+        cycle.enregistrer(entite(5, AUJOURDHUI.minusDays(3)));
+        cycle.enregistrer(entite(6, AUJOURDHUI.minusDays(3)));
+
+        cycle.avancer();
+
+        assertFalse(active(5));
+        assertTrue(active(6));
+        verify(moteur, times(1)).invalider();
+        // échéances consommées: rien ne repart au tick suivant
+        cycle.avancer();
+        verify(moteur, times(1)).invalider();
+    }
+
+    @Test
+    void deactivationIsTargetedAndDropsTheDiscount() {
+        jdbcTemplate.update("INSERT INTO promotion (id, nom, condition_promotion, pourcentage_reduction, active) "
+                + "VALUES (7, 'Black Friday', 'BLACK_FRIDAY', 50, TRUE)");
+        assertEquals(5.0, prixEffectif.prix(1L, 10.0), 1e-9);
+
+        assertTrue(cycle.desactiver(7));
+        assertFalse(cycle.desactiver(7));
+        assertFalse(cycle.desactiver(99));
+
+        assertFalse(active(7));
+        assertEquals(10.0, prixEffectif.prix(1L, 10.0), 1e-9);
+        verify(vue, times(1)).invalider();
+    }
+
+    private void promotion(int id, String nom, boolean active, LocalDate fin) {
+        jdbcTemplate.update("INSERT INTO promotion (id, nom, condition_promotion, pourcentage_reduction, date_fin, active) "
+                + "VALUES (?, ?, 'EXPIRATION_PRODUIT', 20, ?, ?)", id, nom, fin == null ? null : Date.valueOf(fin), active);
+    }
+
+    private static Promotion entite(int id, LocalDate fin) {
+        Promotion promotion = new Promotion();
+        promotion.setId(id);
+        promotion.setActive(true);
+        promotion.setDateFin(Date.valueOf(fin));
+        return promotion;
+    }
+
+    private boolean active(int id) {
+        return jdbcTemplate.queryForObject("SELECT active FROM promotion WHERE id = ?", Boolean.class, id);
+    }
+}
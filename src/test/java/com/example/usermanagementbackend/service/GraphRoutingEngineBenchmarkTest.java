@@ -0,0 +1,84 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Distances between Tunisian cities on a synthetic road network covering the country (~280 000 nodes,
+ * one every ~1 km, winding roads and missing links), as a stand-in for a real extract.
+ * Désactivé par défaut: {@code mvn test -Dtest=GraphRoutingEngineBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class GraphRoutingEngineBenchmarkTest {
+
+    private static final double MIN_LAT = 30.3;
+    private static final double MIN_LNG = 7.6;
+    private static final int ROWS = 710;
+    private static final int COLS = 390;
+    private static final double STEP = 0.01;
+
+    private static final Object[][] VILLES = {
+            {"Tunis", 36.8065, 10.1815}, {"Sfax", 34.7406, 10.7603}, {"Sousse", 35.8256, 10.6084},
+            {"Bizerte", 37.2744, 9.8739}, {"Gabès", 33.8815, 10.0982}, {"Kairouan", 35.6781, 10.0963},
+            {"Gafsa", 34.4250, 8.7842}, {"Monastir", 35.7643, 10.8113}, {"Nabeul", 36.4561, 10.7376},
+            {"Tozeur", 33.9197, 8.1335}, {"Médenine", 33.3549, 10.5055}, {"Le Kef", 36.1826, 8.7148}};
+
+    @Test
+    void cityPairsAnswerInMilliseconds() {
+        Random random = new Random(42);
+        GraphRoutingEngine.Builder builder = new GraphRoutingEngine.Builder();
+        long start = System.nanoTime();
+        double[] lat = new double[ROWS * COLS];
+        double[] lng = new double[ROWS * COLS];
+        for (int id = 0; id < ROWS * COLS; id++) {
+            lat[id] = MIN_LAT + (id / COLS) * STEP + random.nextDouble() * STEP / 2;
+            lng[id] = MIN_LNG + (id % COLS) * STEP + random.nextDouble() * STEP / 2;
+            builder.node(id, lat[id], lng[id]);
+        }
+        for (int id = 0; id < ROWS * COLS; id++) {
+            // about one link in twelve missing, roads 1 to 1.4 times the straight line
+            for (int next : new int[]{id % COLS + 1 < COLS ? id + 1 : -1, id + COLS < ROWS * COLS ? id + COLS : -1}) {
+                if (next >= 0 && random.nextInt(12) != 0) {
+                    builder.edge(id, next, RoadDistanceService.haversineKm(lat[id], lng[id], lat[next], lng[next])
+                            * 1000 * (1 + random.nextDouble() * 0.4), false);
+                }
+            }
+        }
+        GraphRoutingEngine engine = builder.build(2_000);
+        System.out.printf("graphe: %d noeuds, %d arcs, construit en %.0f ms%n", engine.nodeCount(), engine.arcCount(),
+                (System.nanoTime() - start) / 1e6);
+
+        // warm-up
+        for (int i = 0; i < 3; i++) {
+            route(engine, 0, 1);
+        }
+        double total = 0;
+        int pairs = 0;
+        for (int i = 0; i < VILLES.length; i++) {
+            for (int j = i + 1; j < VILLES.length; j++) {
+                long debut = System.nanoTime();
+                Double km = route(engine, i, j);
+                double ms = (System.nanoTime() - debut) / 1e6;
+                assertNotNull(km, VILLES[i][0] + " -> " + VILLES[j][0]);
+                double vol = RoadDistanceService.haversineKm((double) VILLES[i][1], (double) VILLES[i][2],
+                        (double) VILLES[j][1], (double) VILLES[j][2]);
+                System.out.printf("%-9s -> %-9s %7.1f km (vol d'oiseau %6.1f km) %7.2f ms%n",
+                        VILLES[i][0], VILLES[j][0], km, vol, ms);
+                total += ms;
+                pairs++;
+            }
+        }
+        System.out.printf("moyenne: %.2f ms sur %d trajets%n", total / pairs, pairs);
+        assertTrue(total / pairs < 100, "A* trop lent: " + total / pairs + " ms");
+    }
+
+    private static Double route(GraphRoutingEngine engine, int from, int to) {
+        return engine.drivingDistanceKm((double) VILLES[from][1], (double) VILLES[from][2],
+                (double) VILLES[to][1], (double) VILLES[to][2]);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphRoutingEngineTest {
+
+    @TempDir
+    Path dir;
+
+    // 1 -- 2 -- 3 along the coast, 1 -> 4 -> 3 inland one way, 5 -- 6 unconnected
+    private static final String EXTRACT = """
+            # node,id,lat,lng
+            node,1,36.8000,10.1800
+            node,2,36.8000,10.2200
+            node,3,36.8000,10.2600
+            node,4,36.7900,10.2200
+            node,5,35.8250,10.6350
+            node,6,35.8300,10.6400
+            # edge,from,to,meters[,oneway]
+            edge,1,2,5000
+            edge,2,3,5000
+            edge,1,4,3000,oneway
+            edge,4,3,3000,oneway
+            edge,5,6,
+            """;
+
+    @Test
+    void loadsTheExtractAndTakesTheShortestWay() throws IOException {
+        GraphRoutingEngine engine = load(EXTRACT);
+
+        assertEquals(6, engine.nodeCount());
+        assertEquals(8, engine.arcCount());
+        // 1 -> 3: inland, 6 km
+        assertEquals(6.0, engine.drivingDistanceKm(36.8000, 10.1800, 36.8000, 10.2600), 1e-3);
+        // 3 -> 1: the inland road is one way, 10 km along the coast
+        assertEquals(10.0, engine.drivingDistanceKm(36.8000, 10.2600, 36.8000, 10.1800), 1e-3);
+    }
+
+    @Test
+    void snappingLegsAreAddedAndFarPointsAreRefused() throws IOException {
+        GraphRoutingEngine engine = load(EXTRACT);
+
+        // ~111 m north of node 1
+        double km = engine.drivingDistanceKm(36.8010, 10.1800, 36.8000, 10.2600);
+        assertEquals(6.111, km, 0.002);
+        // 5 km from any node, beyond routing.graph.max-snap-meters
+        assertNull(engine.drivingDistanceKm(36.8450, 10.1800, 36.8000, 10.2600));
+    }
+
+    @Test
+    void unreachableNodesHaveNoRoute() throws IOException {
+        GraphRoutingEngine engine = load(EXTRACT);
+
+        assertNull(engine.drivingDistanceKm(36.8000, 10.1800, 35.8250, 10.6350));
+        // empty length: straight line between nodes 5 and 6
+        double straight = RoadDistanceService.haversineKm(35.8250, 10.6350, 35.8300, 10.6400);
+        assertEquals(straight, engine.drivingDistanceKm(35.8250, 10.6350, 35.8300, 10.6400), 1e-3);
+    }
+
+    @Test
+    void malformedExtractReportsTheLine() throws IOException {
+        IOException error = assertThrows(IOException.class, () -> load("node,1,36.8,10.18\nedge,1,9,100\n"));
+        assertTrue(error.getMessage().contains(":2:"), error.getMessage());
+    }
+
+    @Test
+    void aStarMatchesDijkstraOnARandomRoadNetwork() {
+        int side = 40;
+        Random random = new Random(7);
+        GraphRoutingEngine.Builder builder = new GraphRoutingEngine.Builder();
+        double[][] coordinates = new double[side * side][];
+        for (int i = 0; i < side * side; i++) {
+            coordinates[i] = new double[]{36.0 + (i / side) * 0.01 + random.nextDouble() * 0.004,
+                    10.0 + (i % side) * 0.01 + random.nextDouble() * 0.004};
+            builder.node(i, coordinates[i][0], coordinates[i][1]);
+        }
+        List<int[]> arcs = new ArrayList<>();
+        List<Float> lengths = new ArrayList<>();
+        for (int i = 0; i < side * side; i++) {
+            for (int j : new int[]{i + 1, i + side}) {
+                if (j >= side * side || (j == i + 1 && j % side == 0) || random.nextInt(10) == 0) {
+                    continue;
+                }
+                // winding roads: 1 to 1.5 times the straight line
+                double meters = RoadDistanceService.haversineKm(coordinates[i][0], coordinates[i][1],
+                        coordinates[j][0], coordinates[j][1]) * 1000 * (1 + random.nextDouble() / 2);
+                boolean oneway = random.nextInt(8) == 0;
+                builder.edge(i, j, meters, oneway);
+                arcs.add(new int[]{i, j});
+                lengths.add((float) meters);
+                if (!oneway) {
+                    arcs.add(new int[]{j, i});
+                    lengths.add((float) meters);
+                }
+            }
+        }
+        GraphRoutingEngine engine = builder.build(1_000);
+
+        for (int q = 0; q < 50; q++) {
+            int from = random.nextInt(side * side);
+            int to = random.nextInt(side * side);
+            double expected = dijkstra(side * side, arcs, lengths, from, to);
+            Double actual = engine.drivingDistanceKm(coordinates[from][0], coordinates[from][1],
+                    coordinates[to][0], coordinates[to][1]);
+            if (Double.isInfinite(expected)) {
+                assertNull(actual);
+            } else {
+                assertEquals(expected / 1000, actual, 1e-3, "route " + from + " -> " + to);
+            }
+        }
+    }
+
+    private GraphRoutingEngine load(String extract) throws IOException {
+        Path file = dir.resolve("graph.csv");
+        Files.writeString(file, extract);
+        return GraphRoutingEngine.load(file, 1_000);
+    }
+
+    private static double dijkstra(int nodes, List<int[]> arcs, List<Float> lengths, int from, int to) {
+        double[] distance = new double[nodes];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        distance[from] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[]{0, from});
+        while (!queue.isEmpty()) {
+            double[] head = queue.poll();
+            int v = (int) head[1];
+            if (head[0] > distance[v]) {
+                continue;
+            }
+            for (int a = 0; a < arcs.size(); a++) {
+                if (arcs.get(a)[0] == v && distance[v] + lengths.get(a) < distance[arcs.get(a)[1]]) {
+                    distance[arcs.get(a)[1]] = distance[v] + lengths.get(a);
+                    queue.add(new double[]{distance[arcs.get(a)[1]], arcs.get(a)[1]});
+                }
+            }
+        }
+        return distance[to];
+    }
+}
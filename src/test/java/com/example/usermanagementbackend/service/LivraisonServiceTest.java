@@ -0,0 +1,93 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.LivraisonDTO;
+import com.example.usermanagementbackend.dto.LivreurDTO;
+import com.example.usermanagementbackend.entity.Commande;
+import com.example.usermanagementbackend.entity.Livraison;
+import com.example.usermanagementbackend.entity.Livreur;
+import com.example.usermanagementbackend.entity.TypeLivraison;
+import com.example.usermanagementbackend.mapper.LivraisonMapper;
+import com.example.usermanagementbackend.repository.CommandeRepository;
+import com.example.usermanagementbackend.repository.LivraisonRepository;
+import com.example.usermanagementbackend.repository.LivreurRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LivraisonServiceTest {
+
+    private static final String CLE = "abababababababababababababababababababababababababababababababab.png";
+
+    @Mock
+    private LivraisonRepository livraisonRepository;
+    @Mock
+    private LivreurRepository livreurRepository;
+    @Mock
+    private CommandeRepository commandeRepository;
+    @Mock
+    private PhotosLivraisons photosLivraisons;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LivraisonService livraisonService;
+
+    @BeforeEach
+    void setUp() {
+        livraisonService = new LivraisonService(livraisonRepository, livreurRepository, commandeRepository,
+                null, null, photosLivraisons, transactionManager);
+        Commande commande = new Commande();
+        commande.setId(3L);
+        commande.setAdresse("Sfax");
+        when(commandeRepository.findById(3L)).thenReturn(Optional.of(commande));
+        when(livreurRepository.findById(7L)).thenReturn(Optional.of(new Livreur()));
+        when(livraisonRepository.save(any(Livraison.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    // base64 brut des anciens clients et data URL
+    @ParameterizedTest
+    @ValueSource(strings = {"iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mP8z8BQDwAEhQGAhKmMIQAAAABJRU5ErkJggg==",
+            "data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mP8z8BQDwAEhQGAhKmMIQAAAABJRU5ErkJggg=="})
+    void base64PhotoIsMovedToThePhotoStoreOnCreate(String photo) {
+        when(photosLivraisons.enregistrerBase64(photo)).thenReturn(CLE);
+
+        LivraisonDTO creee = livraisonService.addLivraison(dto(photo));
+
+        assertEquals(LivraisonMapper.PHOTOS_URL + CLE, creee.getPhoto());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {LivraisonMapper.PHOTOS_URL + CLE, "http://localhost:8080" + LivraisonMapper.PHOTOS_URL + CLE})
+    void photoUrlIsNotDecodedAsBase64(String photo) {
+        LivraisonDTO creee = livraisonService.addLivraison(dto(photo));
+
+        // à la création il n'y a pas encore de photo enregistrée à garder
+        assertNull(creee.getPhoto());
+        verify(photosLivraisons, never()).enregistrerBase64(anyString());
+    }
+
+    private static LivraisonDTO dto(String photo) {
+        LivraisonDTO dto = new LivraisonDTO();
+        dto.setCommandeId(3L);
+        dto.setTypeLivraison(TypeLivraison.VOITURE);
+        LivreurDTO livreur = new LivreurDTO();
+        livreur.setId(7L);
+        dto.setLivreur(livreur);
+        dto.setPhoto(photo);
+        return dto;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.LivraisonDTO;
+import com.example.usermanagementbackend.dto.LivreurDTO;
+import com.example.usermanagementbackend.entity.Commande;
+import com.example.usermanagementbackend.entity.Livraison;
+import com.example.usermanagementbackend.entity.Livreur;
+import com.example.usermanagementbackend.entity.StatusLivraison;
+import com.example.usermanagementbackend.entity.TypeLivraison;
+import com.example.usermanagementbackend.entity.User;
+import com.example.usermanagementbackend.repository.CommandeRepository;
+import com.example.usermanagementbackend.repository.LivraisonRepository;
+import com.example.usermanagementbackend.repository.LivreurRepository;
+import com.example.usermanagementbackend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Passage d'une livraison à LIVRE dans une vraie transaction H2: la trace GPS encore en mémoire est écrite
+ * après le commit et doit rester en base. Pas de transaction de test, sinon afterCommit ne serait jamais appelé.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LivraisonSuiviGpsTest {
+
+    // Tunis centre
+    private static final double LAT = 36.8065;
+    private static final double LNG = 10.1815;
+
+    @Autowired
+    private LivraisonRepository livraisonRepository;
+    @Autowired
+    private LivreurRepository livreurRepository;
+    @Autowired
+    private CommandeRepository commandeRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private PositionsLivreurs positions;
+    private SuiviGps suivi;
+    private LivraisonService livraisonService;
+
+    @BeforeEach
+    void setUp() {
+        positions = new PositionsLivreurs(500, Duration.ofMinutes(5), 50_000, Duration.ofSeconds(30), now::get);
+        suivi = new SuiviGps(jdbcTemplate, positions, 64, 5, Duration.ofSeconds(10), Duration.ofMinutes(10), now::get);
+        livraisonService = new LivraisonService(livraisonRepository, livreurRepository, commandeRepository,
+                null, suivi, null, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        positions.shutdown();
+        suivi.arreter();
+        jdbcTemplate.update("DELETE FROM segment_trace");
+        livraisonRepository.deleteAll();
+        livreurRepository.deleteAll();
+        commandeRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void deliveredTrackIsStillWrittenOnceTheUpdateHasCommitted() {
+        Livreur livreur = livreur();
+        Commande commande = commande();
+        Livraison livraison = new Livraison();
+        livraison.setStatusLivraison(StatusLivraison.EN_COURS);
+        livraison.setTypeLivraison(TypeLivraison.VOITURE);
+        livraison.setLivreur(livreur);
+        livraison.setCommandeId(commande.getId());
+        long livraisonId = livraisonRepository.save(livraison).getId();
+
+        // ~1 km vers l'est, une position toutes les 10 s, rien n'est encore écrit
+        double metreLng = 1 / (111_320.0 * Math.cos(Math.toRadians(LAT)));
+        for (int i = 0; i <= 10; i++) {
+            suivi.recevoir(livreur.getId(), LAT, LNG + i * 100 * metreLng, now.addAndGet(10_000), livraisonId);
+        }
+        Double attendueKm = suivi.distanceParcourueKm(livraisonId, livreur.getId());
+        assertNotNull(attendueKm);
+        assertEquals(0, segments(livraisonId));
+
+        LivraisonDTO dto = new LivraisonDTO();
+        dto.setStatusLivraison(StatusLivraison.LIVRE);
+        dto.setTypeLivraison(TypeLivraison.VOITURE);
+        dto.setCommandeId(commande.getId());
+        LivreurDTO livreurDTO = new LivreurDTO();
+        livreurDTO.setId(livreur.getId());
+        dto.setLivreur(livreurDTO);
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> livraisonService.updateLivraison(livraisonId, dto));
+
+        assertEquals(1, segments(livraisonId));
+        assertEquals(attendueKm, suivi.distanceParcourueKm(livraisonId), 1e-9);
+        assertEquals(Math.round(attendueKm * 0.2 * 100) / 100.0,
+                livraisonRepository.findById(livraisonId).orElseThrow().getCarbonFootprint(), 1e-9);
+    }
+
+    private int segments(long livraisonId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM segment_trace WHERE livraison_id = ?",
+                Integer.class, livraisonId);
+    }
+
+    private Livreur livreur() {
+        Livreur livreur = new Livreur();
+        livreur.setNom("karim");
+        livreur.setEmail("karim@example.com");
+        livreur.setTelephone("20000000");
+        return livreurRepository.save(livreur);
+    }
+
+    private Commande commande() {
+        User user = new User();
+        user.setNom("alice");
+        user.setEmail("alice@example.com");
+        user = userRepository.save(user);
+        Commande commande = new Commande();
+        commande.setClientNom(user.getNom());
+        commande.setUser(user);
+        commande.setStatus(Commande.OrderStatus.EN_COURS);
+        commande.setDateCreation(LocalDate.of(2025, 3, 10));
+        commande.setTotal(10.0);
+        commande.setAdresse("Avenue Habib Bourguiba, Tunis");
+        return commandeRepository.save(commande);
+    }
+}
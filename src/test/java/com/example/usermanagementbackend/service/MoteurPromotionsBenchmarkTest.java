@@ -0,0 +1,60 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.Promotion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Débit d'évaluation des paniers (200 règles compilées, paniers de 1 à 30 lignes).
+ * Désactivé par défaut: {@code mvn test -Dtest=MoteurPromotionsBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MoteurPromotionsBenchmarkTest {
+
+    private static final int PANIERS = 10_000;
+
+    @Test
+    void evaluatesThousandsOfCartsPerSecond() {
+        Random random = new Random(42);
+        List<MoteurPromotions.Regle> regles = new ArrayList<>();
+        for (int id = 1; id <= 200; id++) {
+            Produit[] produits = new Produit[id % 4 == 0 ? 0 : 20];
+            for (int i = 0; i < produits.length; i++) {
+                produits[i] = MoteurPromotionsTest.produit((long) random.nextInt(5000));
+            }
+            Promotion promotion = MoteurPromotionsTest.promotion(id, id % 2 == 0 ? "ACHAT_GROUPE" : "MONTANT_MIN",
+                    5 + random.nextInt(30), produits);
+            regles.add(MoteurPromotions.compiler(promotion, false));
+        }
+        MoteurPromotions.Regle[] compilees = regles.toArray(new MoteurPromotions.Regle[0]);
+
+        List<MoteurPromotions.Panier> paniers = new ArrayList<>(PANIERS);
+        for (int p = 0; p < PANIERS; p++) {
+            MoteurPromotions.Panier panier = new MoteurPromotions.Panier();
+            int lignes = 1 + random.nextInt(30);
+            for (int l = 0; l < lignes; l++) {
+                panier.ajouter(random.nextInt(5000), 1 + random.nextInt(4), 1 + random.nextInt(80));
+            }
+            paniers.add(panier);
+        }
+
+        long maintenant = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            paniers.forEach(panier -> MoteurPromotions.evaluer(panier, compilees, maintenant));
+        }
+        long debut = System.nanoTime();
+        for (MoteurPromotions.Panier panier : paniers) {
+            MoteurPromotions.evaluer(panier, compilees, maintenant);
+        }
+        double parSeconde = PANIERS / ((System.nanoTime() - debut) / 1e9);
+        System.out.printf("%d paniers, %.0f paniers/s%n", PANIERS, parSeconde);
+        assertTrue(parSeconde > 5_000, "débit insuffisant: " + parSeconde);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.EvaluationPanier;
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.Promotion;
+import com.example.usermanagementbackend.repository.PromotionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MoteurPromotionsTest {
+
+    private static final long JOUR = TimeUnit.DAYS.toMillis(1);
+
+    @Mock
+    private PromotionRepository promotionRepository;
+
+    private MoteurPromotions moteur;
+
+    @BeforeEach
+    void setUp() {
+        moteur = new MoteurPromotions(promotionRepository);
+    }
+
+    @Test
+    void stacksBestRulePerConditionInDeterministicOrder() {
+        when(promotionRepository.findActivesAvecProduits()).thenReturn(List.of(
+                promotion(2, "ACHAT_GROUPE", 10),
+                promotion(3, "MONTANT_MIN", 20),
+                promotion(1, "MONTANT_MIN", 20),
+                promotion(4, "EXPIRATION_PRODUIT", 40)));
+
+        EvaluationPanier evaluation = moteur.evaluer(new MoteurPromotions.Panier().ajouter(7L, 4, 30.0));
+
+        assertEquals(120.0, evaluation.getMontantInitial(), 1e-9);
+        assertEquals(List.of(1, 2), evaluation.getRemises().stream().map(EvaluationPanier.RemiseAppliquee::getPromotionId).toList());
+        assertEquals(24.0, evaluation.getRemises().get(0).getMontantRemise(), 1e-9);
+        assertEquals(9.6, evaluation.getRemises().get(1).getMontantRemise(), 1e-9);
+        assertEquals(86.4, evaluation.getMontantFinal(), 1e-9);
+    }
+
+    @Test
+    void thresholdsOnlyCountTargetedProducts() {
+        Promotion groupe = promotion(1, "ACHAT_GROUPE", 10, produit(5L));
+        when(promotionRepository.findActivesAvecProduits()).thenReturn(List.of(groupe));
+
+        EvaluationPanier nonAtteint = moteur.evaluer(new MoteurPromotions.Panier()
+                .ajouter(5L, 2, 10.0).ajouter(6L, 5, 10.0));
+        assertTrue(nonAtteint.getRemises().isEmpty());
+        assertEquals(70.0, nonAtteint.getMontantFinal(), 1e-9);
+
+        EvaluationPanier atteint = moteur.evaluer(new MoteurPromotions.Panier()
+                .ajouter(5L, 3, 10.0).ajouter(6L, 5, 10.0));
+        assertEquals(3.0, atteint.getRemises().get(0).getMontantRemise(), 1e-9);
+        assertEquals(77.0, atteint.getMontantFinal(), 1e-9);
+    }
+
+    @Test
+    void ignoresPromotionsOutsideTheirPeriod() {
+        Promotion future = promotion(1, "MONTANT_MIN", 20);
+        future.setDateDebut(new Date(System.currentTimeMillis() + 2 * JOUR));
+        future.setDateFin(new Date(System.currentTimeMillis() + 5 * JOUR));
+        when(promotionRepository.findActivesAvecProduits()).thenReturn(List.of(future));
+
+        assertEquals(200.0, moteur.evaluer(new MoteurPromotions.Panier().ajouter(1L, 1, 200.0)).getMontantFinal(), 1e-9);
+    }
+
+    @Test
+    void compilesOnceUntilInvalidated() {
+        when(promotionRepository.findActivesAvecProduits()).thenReturn(List.of(promotion(1, "MONTANT_MIN", 20)));
+
+        MoteurPromotions.Regle[] regles = moteur.regles();
+        assertSame(regles, moteur.regles());
+        verify(promotionRepository, times(1)).findActivesAvecProduits();
+
+        moteur.invalider();
+        moteur.regles();
+        verify(promotionRepository, times(2)).findActivesAvecProduits();
+    }
+
+    @Test
+    void previewKeepsSingleAmountBehaviour() {
+        assertEquals(60.0, moteur.previsualiser(promotion(1, "EXPIRATION_PRODUIT", 40), 100.0), 1e-9);
+        assertEquals(50.0, moteur.previsualiser(promotion(1, "MONTANT_MIN", 40), 50.0), 1e-9);
+        assertEquals(4.5, moteur.previsualiser(promotion(1, "ACHAT_GROUPE", 10), 5.0), 1e-9);
+        Promotion inactive = promotion(1, "MONTANT_MIN", 40);
+        inactive.setActive(false);
+        assertEquals(500.0, moteur.previsualiser(inactive, 500.0), 1e-9);
+    }
+
+    static Promotion promotion(Integer id, String condition, double pourcentage, Produit... produits) {
+        Promotion promotion = new Promotion();
+        promotion.setId(id);
+        promotion.setNom("Promotion " + id);
+        promotion.setConditionPromotion(condition);
+        promotion.setPourcentageReduction(pourcentage);
+        promotion.setDateDebut(new Date(System.currentTimeMillis() - JOUR));
+        promotion.setDateFin(new Date(System.currentTimeMillis() + JOUR));
+        promotion.setProduits(new ArrayList<>(List.of(produits)));
+        return promotion;
+    }
+
+    static Produit produit(Long id) {
+        Produit produit = new Produit();
+        produit.setId(id);
+        return produit;
+    }
+}
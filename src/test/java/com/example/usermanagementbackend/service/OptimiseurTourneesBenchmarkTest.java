@@ -0,0 +1,41 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Matrice et optimisation de 3 000 arrêts dans le budget par défaut.
+ * Désactivé par défaut: {@code mvn test -Dtest=OptimiseurTourneesBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OptimiseurTourneesBenchmarkTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final OptimiseurTournees optimiseur = new OptimiseurTournees(pool);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void thousandsOfStopsFitTheBudget() {
+        int arrets = 3_000;
+        double[][] points = OptimiseurTourneesTest.aleatoires(arrets, new Random(3));
+        long debut = System.nanoTime();
+        float[] d = optimiseur.matrice(points[0], points[1], 1.3);
+
+        optimiseur.optimiser(d, arrets + 1, 25, 1_000, OptimiseurTourneesTest.echeance(Duration.ofSeconds(3)));
+
+        long ms = Duration.ofNanos(System.nanoTime() - debut).toMillis();
+        System.out.printf("%d arrêts, %d ms%n", arrets, ms);
+        assertTrue(ms < 6_000, ms + " ms");
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OptimiseurTourneesTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final OptimiseurTournees optimiseur = new OptimiseurTournees(pool);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void everyStopIsVisitedOnceWithinCapacity() {
+        int arrets = 300;
+        double[][] points = aleatoires(arrets, new Random(1));
+        float[] d = optimiseur.matrice(points[0], points[1], 1.3);
+
+        OptimiseurTournees.Resultat resultat = optimiseur.optimiser(d, arrets + 1, 20, 100, echeance(Duration.ofSeconds(5)));
+
+        int[] visites = resultat.tournees().stream().flatMapToInt(Arrays::stream).sorted().toArray();
+        assertArrayEquals(IntStream.rangeClosed(1, arrets).toArray(), visites);
+        assertEquals(0, resultat.nonAffectes().length);
+        assertTrue(resultat.tournees().stream().allMatch(t -> t.length <= 20));
+        assertTrue(resultat.tournees().size() >= arrets / 20);
+    }
+
+    @Test
+    void toursBeyondTheFleetAreLeftUnassigned() {
+        int arrets = 100;
+        double[][] points = aleatoires(arrets, new Random(2));
+        float[] d = optimiseur.matrice(points[0], points[1], 1.0);
+
+        OptimiseurTournees.Resultat resultat = optimiseur.optimiser(d, arrets + 1, 10, 3, echeance(Duration.ofSeconds(5)));
+
+        assertEquals(3, resultat.tournees().size());
+        int places = resultat.tournees().stream().mapToInt(t -> t.length).sum();
+        assertEquals(arrets, places + resultat.nonAffectes().length);
+        assertTrue(places <= 30);
+    }
+
+    @Test
+    void localSearchUncrossesATour() {
+        // dépôt au centre, quatre coins d'un carré visités en croix
+        double[] lat = {36.80, 36.85, 36.75, 36.85, 36.75};
+        double[] lng = {10.18, 10.13, 10.23, 10.23, 10.13};
+        float[] d = optimiseur.matrice(lat, lng, 1.0);
+        int[] croisee = {1, 2, 3, 4};
+        double avant = OptimiseurTournees.longueur(croisee, d, 5);
+
+        OptimiseurTournees.ameliorer(croisee, d, 5, echeance(Duration.ofSeconds(1)));
+
+        double apres = OptimiseurTournees.longueur(croisee, d, 5);
+        assertTrue(apres < avant * 0.9, avant + " -> " + apres);
+        // 1 et 2 sont deux coins opposés: plus côte à côte dans la tournée
+        int p1 = indexOf(croisee, 1);
+        int p2 = indexOf(croisee, 2);
+        assertEquals(2, Math.abs(p1 - p2));
+    }
+
+    @Test
+    void savingsBeatOneTripPerStop() {
+        int arrets = 3_000;
+        double[][] points = aleatoires(arrets, new Random(3));
+        float[] d = optimiseur.matrice(points[0], points[1], 1.3);
+
+        OptimiseurTournees.Resultat resultat = optimiseur.optimiser(d, arrets + 1, 25, 1_000, echeance(Duration.ofSeconds(3)));
+
+        double allerRetour = 0;
+        for (int i = 1; i <= arrets; i++) {
+            allerRetour += 2 * d[i];
+        }
+        assertTrue(resultat.distance() < allerRetour / 5, resultat.distance() + " vs " + allerRetour);
+        assertEquals(arrets, resultat.tournees().stream().mapToInt(t -> t.length).sum());
+    }
+
+    // dépôt à Tunis, arrêts dans le Grand Tunis
+    static double[][] aleatoires(int arrets, Random random) {
+        double[] lat = new double[arrets + 1];
+        double[] lng = new double[arrets + 1];
+        lat[0] = 36.8065;
+        lng[0] = 10.1815;
+        for (int i = 1; i <= arrets; i++) {
+            lat[i] = 36.60 + random.nextDouble() * 0.45;
+            lng[i] = 9.90 + random.nextDouble() * 0.55;
+        }
+        return new double[][]{lat, lng};
+    }
+
+    static long echeance(Duration budget) {
+        return System.nanoTime() + budget.toNanos();
+    }
+
+    private static int indexOf(int[] t, int valeur) {
+        for (int i = 0; i < t.length; i++) {
+            if (t[i] == valeur) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhotosLivraisonsTest {
+
+    /** Rend un seul lot d'anciennes photos et garde les UPDATE. */
+    private static class JdbcTemplateEspion extends JdbcTemplate {
+        List<Map<String, Object>> lot = List.of();
+        final List<Object[]> lots = new ArrayList<>();
+        final List<Object[]> miseAJour = new ArrayList<>();
+
+        @Override
+        public List<Map<String, Object>> queryForList(String sql, Object... args) {
+            lots.add(args);
+            return (Long) args[0] == 0L ? lot : List.of();
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            miseAJour.add(args);
+            return 1;
+        }
+    }
+
+    @TempDir
+    Path dir;
+
+    private final JdbcTemplateEspion jdbcTemplate = new JdbcTemplateEspion();
+    private PhotosLivraisons photos;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        photos = new PhotosLivraisons(jdbcTemplate, dir.toString(), DataSize.ofMegabytes(1), 320, 20);
+    }
+
+    @Test
+    void storesByContentAndWritesASmallThumbnail() throws IOException {
+        byte[] png = png(2_000, 1_000);
+
+        String cle = photos.enregistrer(new ByteArrayInputStream(png));
+
+        assertTrue(cle.matches("[0-9a-f]{64}\\.png"), cle);
+        assertEquals(png.length, Files.size(photos.fichier(cle)));
+        BufferedImage miniature = ImageIO.read(photos.miniature(cle).toFile());
+        assertEquals(320, miniature.getWidth());
+        assertEquals(160, miniature.getHeight());
+        // même contenu, même clé, en flux ou en data URL
+        assertEquals(cle, photos.enregistrer(new ByteArrayInputStream(png)));
+        assertEquals(cle, photos.enregistrerBase64("data:image/png;base64," + Base64.getMimeEncoder().encodeToString(png)));
+        assertEquals(0, fichiersTemporaires());
+    }
+
+    @Test
+    void rejectsUnknownFormatsAndOversizedUploads() throws IOException {
+        ResponseStatusException texte = assertThrows(ResponseStatusException.class,
+                () -> photos.enregistrer(new ByteArrayInputStream("pas une image".getBytes())));
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, texte.getStatusCode());
+
+        byte[] grande = new byte[2 * 1024 * 1024];
+        grande[0] = (byte) 0xFF;
+        grande[1] = (byte) 0xD8;
+        grande[2] = (byte) 0xFF;
+        ResponseStatusException tropGrande = assertThrows(ResponseStatusException.class,
+                () -> photos.enregistrer(new ByteArrayInputStream(grande)));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, tropGrande.getStatusCode());
+        assertEquals(0, fichiersTemporaires());
+    }
+
+    @Test
+    void onlyWellFormedKeysResolveToFiles() throws IOException {
+        String cle = photos.enregistrer(new ByteArrayInputStream(png(10, 10)));
+
+        assertNotEquals(null, photos.fichier(cle));
+        assertNull(photos.fichier("../" + cle));
+        assertNull(photos.fichier(cle.replace(".png", ".jpg")));
+        assertNull(photos.miniature("0".repeat(64) + ".png"));
+    }
+
+    @Test
+    void migrationMovesBase64RowsAndLeavesUnreadableOnes() throws IOException {
+        byte[] png = png(40, 20);
+        String dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+        jdbcTemplate.lot = List.of(Map.of("id", 3L, "photo", dataUrl), Map.of("id", 5L, "photo", "photo.jpg"));
+
+        assertEquals(2, photos.migrer());
+
+        String cle = photos.enregistrer(new ByteArrayInputStream(png));
+        // la ligne 5 n'est pas une image: laissée en place, le lot suivant repart après elle
+        assertEquals(1, jdbcTemplate.miseAJour.size());
+        assertEquals(List.of(cle, 3L), Arrays.asList(jdbcTemplate.miseAJour.get(0)));
+        assertEquals(List.of(5L, 20), Arrays.asList(jdbcTemplate.lots.get(1)));
+    }
+
+    private long fichiersTemporaires() throws IOException {
+        try (Stream<Path> fichiers = Files.list(dir)) {
+            return fichiers.filter(f -> f.getFileName().toString().endsWith(".tmp")).count();
+        }
+    }
+
+    private static byte[] png(int largeur, int hauteur) throws IOException {
+        BufferedImage image = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < largeur; x++) {
+            image.setRGB(x, hauteur / 2, 0xff0000);
+        }
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", sortie);
+        return sortie.toByteArray();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.PropositionTournees;
+import com.example.usermanagementbackend.repository.CommandeRepository;
+import com.example.usermanagementbackend.repository.LivreurRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PlanificationTourneesTest {
+
+    private final CommandeRepository commandeRepository = mock(CommandeRepository.class);
+    private final LivreurRepository livreurRepository = mock(LivreurRepository.class);
+    private final PlanificationTournees planification = new PlanificationTournees(commandeRepository, livreurRepository,
+            mock(RoadDistanceService.class), mock(PlatformTransactionManager.class), 36.8065, 10.1815, 25, 1.3, Duration.ofSeconds(1), 5_000, 1, 1);
+
+    @AfterEach
+    void tearDown() {
+        planification.shutdown();
+    }
+
+    @Test
+    void concurrentRequestIsRejectedWhileAProposalIsBeingComputed() throws Exception {
+        CountDownLatch entre = new CountDownLatch(1);
+        CountDownLatch libere = new CountDownLatch(1);
+        when(commandeRepository.findALivrerSansLivraison(any())).thenAnswer(invocation -> {
+            entre.countDown();
+            assertTrue(libere.await(10, TimeUnit.SECONDS));
+            return List.of();
+        }).thenReturn(List.of());
+        when(livreurRepository.findDisponibles(any())).thenReturn(List.of());
+
+        CompletableFuture<PropositionTournees> premier = CompletableFuture.supplyAsync(() -> planification.proposer(null));
+        assertTrue(entre.await(10, TimeUnit.SECONDS));
+
+        ResponseStatusException refus = assertThrows(ResponseStatusException.class, () -> planification.proposer(null));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, refus.getStatusCode());
+
+        libere.countDown();
+        premier.get(10, TimeUnit.SECONDS);
+        // la place est rendue une fois le calcul terminé
+        assertTrue(planification.proposer(null).getTournees().isEmpty());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PositionsLivreursTest {
+
+    // Tunis centre
+    private static final double LAT = 36.8065;
+    private static final double LNG = 10.1815;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final PositionsLivreurs positions = new PositionsLivreurs(500, Duration.ofMinutes(5), 50_000,
+            Duration.ofSeconds(30), now::get);
+
+    @AfterEach
+    void tearDown() {
+        positions.shutdown();
+    }
+
+    @Test
+    void nearestAndRadiusMatchABruteForceScan() {
+        Random random = new Random(5);
+        double[][] points = new double[2_000][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new double[]{36.60 + random.nextDouble() * 0.45, 9.90 + random.nextDouble() * 0.55};
+            positions.mettreAJour(i, points[i][0], points[i][1], null);
+        }
+
+        for (int q = 0; q < 50; q++) {
+            double lat = 36.60 + random.nextDouble() * 0.45;
+            double lng = 9.90 + random.nextDouble() * 0.55;
+            List<Long> attendus = parDistance(points, lat, lng);
+
+            List<PositionsLivreurs.Proche> proches = positions.plusProches(lat, lng, 10);
+            assertEquals(attendus.subList(0, 10), proches.stream().map(PositionsLivreurs.Proche::livreurId).toList());
+
+            List<PositionsLivreurs.Proche> rayon = positions.dansLeRayon(lat, lng, 1_500);
+            long dansLeRayon = rayon.stream().filter(p -> p.distanceMetres() <= 1_500).count();
+            assertEquals(rayon.size(), dansLeRayon);
+            assertEquals(attendus.subList(0, rayon.size()), rayon.stream().map(PositionsLivreurs.Proche::livreurId).toList());
+        }
+    }
+
+    @Test
+    void fewDriversFarApartAreStillFound() {
+        positions.mettreAJour(1, 34.7406, 10.7603, null); // Sfax
+        positions.mettreAJour(2, 36.7531, 10.2189, null); // Ben Arous
+
+        List<PositionsLivreurs.Proche> proches = positions.plusProches(LAT, LNG, 5);
+
+        // Sfax est à plus de 50 km
+        assertEquals(List.of(2L), proches.stream().map(PositionsLivreurs.Proche::livreurId).toList());
+    }
+
+    @Test
+    void aDriverMovesBetweenCellsAndOlderFixesAreIgnored() {
+        positions.mettreAJour(7, LAT, LNG, 2_000L);
+        assertTrue(positions.mettreAJour(7, 36.8625, 10.1956, 3_000L)); // Ariana
+        assertFalse(positions.mettreAJour(7, LAT, LNG, 2_500L));
+
+        assertTrue(positions.dansLeRayon(LAT, LNG, 1_000).isEmpty());
+        assertEquals(1, positions.dansLeRayon(36.8625, 10.1956, 1_000).size());
+        assertEquals(1, positions.taille());
+    }
+
+    @Test
+    void staleDriversAreHiddenThenEvicted() {
+        positions.mettreAJour(1, LAT, LNG, null);
+        now.addAndGet(Duration.ofMinutes(4).toMillis());
+        positions.mettreAJour(2, LAT, LNG + 0.001, null);
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+
+        assertEquals(List.of(2L), positions.plusProches(LAT, LNG, 5).stream()
+                .map(PositionsLivreurs.Proche::livreurId).toList());
+        assertEquals(1, positions.evincer());
+        assertEquals(1, positions.taille());
+    }
+
+    @Test
+    void concurrentUpdatesKeepOnePositionPerDriver() throws Exception {
+        int livreurs = 1_000;
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<?>> taches = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int graine = t;
+            taches.add(threads.submit(() -> {
+                Random random = new Random(graine);
+                for (int i = 0; i < 20_000; i++) {
+                    positions.mettreAJour(random.nextInt(livreurs), 36.70 + random.nextDouble() * 0.2,
+                            10.10 + random.nextDouble() * 0.2, null);
+                }
+            }));
+        }
+        for (Future<?> tache : taches) {
+            tache.get();
+        }
+        threads.shutdown();
+
+        List<PositionsLivreurs.Proche> tous = positions.dansLeRayon(36.80, 10.20, 30_000);
+        assertEquals(livreurs, positions.taille());
+        assertEquals(livreurs, tous.size());
+        assertEquals(livreurs, tous.stream().map(PositionsLivreurs.Proche::livreurId).distinct().count());
+    }
+
+    private static List<Long> parDistance(double[][] points, double lat, double lng) {
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i < points.length; i++) {
+            ids.add(i);
+        }
+        ids.sort(Comparator.comparingDouble(i -> metres(lat, lng, points[i.intValue()][0], points[i.intValue()][1])));
+        return ids;
+    }
+
+    private static double metres(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * 6_371_000.0;
+    }
+}
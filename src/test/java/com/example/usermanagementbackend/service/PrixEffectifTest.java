@@ -0,0 +1,107 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.Promotion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class PrixEffectifTest {
+
+    private static final long JOUR = TimeUnit.DAYS.toMillis(1);
+
+    private PrixEffectif prixEffectif;
+    private Produit pomme;
+    private Produit poire;
+
+    @BeforeEach
+    void setUp() {
+        // aucune promotion en base: le chargement initial ne trouve rien
+        prixEffectif = new PrixEffectif(mock(JdbcTemplate.class));
+        pomme = produit(1L, 10.0);
+        poire = produit(2L, 20.0);
+    }
+
+    @Test
+    void productPromotionIsAppliedWithoutTouchingBasePrice() {
+        Promotion expiration = promotion(1, "Promotion Expiration Produit", "EXPIRATION_PRODUIT", 40, pomme);
+        prixEffectif.indexer(expiration);
+
+        assertEquals(6.0, prixEffectif.prix(pomme), 1e-9);
+        assertEquals(20.0, prixEffectif.prix(poire), 1e-9);
+        assertEquals(10.0, pomme.getPrix(), 1e-9);
+
+        expiration.setActive(false);
+        prixEffectif.indexer(expiration);
+        assertEquals(10.0, prixEffectif.prix(pomme), 1e-9);
+    }
+
+    @Test
+    void globalPromotionOnlyCoversProductsWithoutOwnDiscount() {
+        prixEffectif.indexer(promotion(1, "Promotion Expiration Produit", "EXPIRATION_PRODUIT", 40, pomme));
+        prixEffectif.indexer(promotion(2, "Black Friday", "BLACK_FRIDAY", 50));
+
+        assertEquals(6.0, prixEffectif.prix(pomme), 1e-9);
+        assertEquals(10.0, prixEffectif.prix(poire), 1e-9);
+        assertTrue(prixEffectif.remisePropreEnCours(1L));
+        assertFalse(prixEffectif.remisePropreEnCours(2L));
+
+        prixEffectif.retirer(2);
+        assertEquals(20.0, prixEffectif.prix(poire), 1e-9);
+    }
+
+    @Test
+    void cartConditionsAndExpiredWindowsDoNotChangeUnitPrice() {
+        prixEffectif.indexer(promotion(1, "Panier", "MONTANT_MIN", 30, poire));
+        Promotion passee = promotion(2, "Ancienne", "EXPIRATION_PRODUIT", 30, poire);
+        passee.setDateDebut(new Date(System.currentTimeMillis() - 10 * JOUR));
+        passee.setDateFin(new Date(System.currentTimeMillis() - 3 * JOUR));
+        prixEffectif.indexer(passee);
+
+        assertEquals(20.0, prixEffectif.prix(poire), 1e-9);
+    }
+
+    @Test
+    void pricingCopiesOnlyDiscountedProducts() {
+        prixEffectif.indexer(promotion(1, "Promotion Expiration Produit", "EXPIRATION_PRODUIT", 40, pomme));
+        Produit catalogue = ProduitCatalogue.copier(poire);
+
+        assertSame(catalogue, prixEffectif.tarifer(catalogue));
+        Produit tarife = prixEffectif.tarifer(ProduitCatalogue.copier(pomme));
+        assertNotSame(pomme, tarife);
+        assertEquals(6.0, tarife.getPrixEffectif(), 1e-9);
+        assertEquals(10.0, tarife.getPrix(), 1e-9);
+    }
+
+    static Produit produit(Long id, double prix) {
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setNom("Produit " + id);
+        produit.setPrix(prix);
+        return produit;
+    }
+
+    static Promotion promotion(Integer id, String nom, String condition, double pourcentage, Produit... produits) {
+        Promotion promotion = new Promotion();
+        promotion.setId(id);
+        promotion.setNom(nom);
+        promotion.setConditionPromotion(condition);
+        promotion.setPourcentageReduction(pourcentage);
+        promotion.setDateDebut(new Date(System.currentTimeMillis() - JOUR));
+        promotion.setDateFin(new Date(System.currentTimeMillis() + JOUR));
+        promotion.setProduits(new ArrayList<>(List.of(produits)));
+        return promotion;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.enums.Category;
+import com.example.usermanagementbackend.repository.ProduitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProduitCatalogueTest {
+
+    @Mock
+    private ProduitRepository produitRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private TopVentes topVentes;
+    @Mock
+    private CalendrierExpiration calendrier;
+
+    private ProduitCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() {
+        catalogue = new ProduitCatalogue(produitRepository, transactionManager, topVentes, calendrier);
+    }
+
+    @Test
+    void readsAreServedFromOneSnapshot() {
+        Category category = Category.FRUITS;
+        when(produitRepository.findAll()).thenReturn(new ArrayList<>(List.of(
+                produit(1L, category, 5), produit(2L, category, 50), produit(3L, null, 20))));
+
+        assertEquals(3, catalogue.tous().size());
+        assertEquals(List.of(1L, 2L), catalogue.parCategorie(category).stream().map(Produit::getId).toList());
+        assertEquals(2L, catalogue.parId(2L).getId());
+
+        verify(produitRepository, times(1)).findAll();
+        assertEquals(1, catalogue.stats().getReconstructions());
+        assertEquals(1.0, catalogue.stats().getHitRatio());
+    }
+
+    @Test
+    void invalidationPatchesChangedAndDeletedProducts() {
+        Category category = Category.FRUITS;
+        when(produitRepository.findAll()).thenReturn(new ArrayList<>(List.of(
+                produit(1L, category, 5), produit(2L, category, 50))));
+        catalogue.tous();
+
+        when(produitRepository.findAllById(anyIterable())).thenReturn(List.of(produit(1L, category, 100)));
+        catalogue.invalider(List.of(1L, 2L));
+
+        assertEquals(List.of(1L), catalogue.tous().stream().map(Produit::getId).toList());
+        assertEquals(100, catalogue.parId(1L).getSalesCount());
+        verify(topVentes).retirer(2L);
+        assertTrue(catalogue.stats().getPatchs() > 0);
+        verify(produitRepository, times(1)).findAll();
+    }
+
+    @Test
+    void pendingWritesAreMergedInIdOrderOnTheNextRead() {
+        Category category = Category.FRUITS;
+        when(produitRepository.findAll()).thenReturn(new ArrayList<>(List.of(
+                produit(2L, category, 5), produit(4L, category, 50), produit(6L, null, 20))));
+        catalogue.tous();
+
+        when(produitRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(produit(5L, category, 1)))
+                .thenReturn(List.of(produit(1L, category, 7), produit(6L, category, 30)))
+                .thenReturn(List.of());
+        catalogue.invalider(5L);
+        catalogue.invalider(List.of(1L, 6L));
+        catalogue.invalider(4L);
+
+        assertEquals(List.of(1L, 2L, 5L, 6L), catalogue.tous().stream().map(Produit::getId).toList());
+        assertEquals(List.of(1L, 2L, 5L, 6L), catalogue.parCategorie(category).stream().map(Produit::getId).toList());
+        assertEquals(30, catalogue.parId(6L).getSalesCount());
+        verify(produitRepository, times(1)).findAll();
+    }
+
+    private static Produit produit(Long id, Category category, int ventes) {
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setNom("Produit " + id);
+        produit.setCategory(category);
+        produit.setSalesCount(ventes);
+        return produit;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compare l'index de recherche à l'ancienne requête LIKE '%x%' (H2 en mémoire, 100 000 produits).
+ * Désactivé par défaut: {@code mvn test -Dtest=ProduitSearchBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProduitSearchBenchmarkTest {
+
+    private static final int PRODUITS = 100_000;
+    private static final String[] NOMS = {"Pâté de campagne", "Tomate cerise bio", "Pomme Golden", "Crème fraîche",
+            "Œufs frais", "Huile d'olive vierge", "Farine de blé", "Fromage de chèvre", "Café moulu", "Thé vert"};
+    private static final String[] FOURNISSEURS = {"Ferme Ben Salah", "Coop Sousse", "Délices du Nord", "BioTunisie"};
+    private static final String LIKE_SQL = "SELECT * FROM produit WHERE (nom LIKE ? OR description LIKE ? OR fournisseur LIKE ?) "
+            + "ORDER BY nom LIMIT 20 OFFSET 0";
+
+    @Test
+    void indexVersusLike() {
+        Random random = new Random(42);
+        List<Produit> produits = new ArrayList<>(PRODUITS);
+        for (long id = 1; id <= PRODUITS; id++) {
+            produits.add(ProduitSearchIndexTest.produit(id, NOMS[random.nextInt(NOMS.length)] + " " + id % 977,
+                    FOURNISSEURS[random.nextInt(FOURNISSEURS.length)], "Lot " + id % 5000));
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE produit (id BIGINT PRIMARY KEY, nom VARCHAR(255), "
+                + "description VARCHAR(255), fournisseur VARCHAR(255))");
+        List<Object[]> lignes = produits.stream()
+                .map(p -> new Object[]{p.getId(), p.getNom(), p.getDescription(), p.getFournisseur()})
+                .toList();
+        jdbcTemplate.batchUpdate("INSERT INTO produit VALUES (?, ?, ?, ?)", lignes);
+
+        ProduitSearchIndex index = new ProduitSearchIndex();
+        long debut = System.nanoTime();
+        index.reconstruire(produits);
+        System.out.printf("construction de l'index: %.1f ms%n", (System.nanoTime() - debut) / 1e6);
+
+        for (String requete : new String[]{"tomate", "fromage", "sousse", "cafe 12"}) {
+            String motif = "%" + requete + "%";
+            double like = mesurer(() -> jdbcTemplate.queryForList(LIKE_SQL, motif, motif, motif));
+            double indexe = mesurer(() -> index.correspondances(requete, ProduitSearchIndex.TOUS_CHAMPS)
+                    .selectionner(0, 20));
+            System.out.printf("%-10s LIKE: %8.3f ms   index: %8.3f ms%n", requete, like, indexe);
+            assertTrue(indexe < like, "l'index devrait battre LIKE pour " + requete);
+        }
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private static double mesurer(Supplier<?> requete) {
+        for (int i = 0; i < 50; i++) {
+            requete.get();
+        }
+        int iterations = 200;
+        long debut = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            requete.get();
+        }
+        return (System.nanoTime() - debut) / 1e6 / iterations;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.entity.Produit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProduitSearchIndexTest {
+
+    private ProduitSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProduitSearchIndex();
+        index.reconstruire(List.of(
+                produit(1L, "Pâté de Campagne", "Ferme Ben Salah", "Terrine artisanale"),
+                produit(2L, "Tomate cerise", "Coop Sousse", "Tomates bio de saison"),
+                produit(3L, "Crème fraîche", "Délices du Nord", "Crème épaisse"),
+                produit(4L, "Fromage de chèvre", "Ferme Ben Salah", null)));
+    }
+
+    @Test
+    void foldsAccentsAndDropsStopWords() {
+        assertEquals(List.of("pate", "campagne"), ProduitSearchIndex.tokeniser("Pâté de Campagne"));
+        assertEquals(List.of("oeufs", "frais"), ProduitSearchIndex.tokeniser("Œufs frais"));
+        assertEquals(List.of(1L), ids("pate"));
+        assertEquals(List.of(3L), ids("CREME"));
+    }
+
+    @Test
+    void tokensDoNotDependOnTheDefaultLocale() {
+        Locale defaut = Locale.getDefault();
+        try {
+            // en turc, "I" donne un i sans point
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            assertEquals(List.of("pizza", "italienne"), ProduitSearchIndex.tokeniser("PIZZA ITALIENNE"));
+        } finally {
+            Locale.setDefault(defaut);
+        }
+    }
+
+    @Test
+    void matchesPrefixesAndTypos() {
+        assertEquals(List.of(2L), ids("toma"));
+        assertEquals(List.of(4L), ids("fromge"));
+    }
+
+    @Test
+    void requiresEveryTermAndRanksNameAboveOtherFields() {
+        assertEquals(List.of(4L), ids("ferme chevre"));
+        // "ferme" est dans le fournisseur des deux produits: égalité départagée par l'id
+        assertEquals(List.of(1L, 4L), ids("ferme"));
+        index.indexer(produit(5L, "Ferme fromagère", null, null));
+        assertEquals(5L, ids("ferme").get(0));
+    }
+
+    @Test
+    void restrictsToRequestedFields() {
+        assertTrue(index.rechercher("sousse", ProduitSearchIndex.CHAMP_NOM).isEmpty());
+        assertEquals(1, index.rechercher("sousse", ProduitSearchIndex.CHAMP_FOURNISSEUR).size());
+    }
+
+    @Test
+    void reindexingAndRemovalAreVisibleImmediately() {
+        index.indexer(produit(2L, "Poivron rouge", "Coop Sousse", null));
+        assertTrue(ids("tomate").isEmpty());
+        assertEquals(List.of(2L), ids("poivron"));
+
+        index.retirer(1L);
+        assertTrue(ids("pate").isEmpty());
+        assertEquals(3, index.taille());
+    }
+
+    @Test
+    void pageSelectionMatchesFullRankingAcrossCompaction() {
+        List<Produit> produits = new ArrayList<>();
+        for (long id = 1; id <= 3000; id++) {
+            produits.add(produit(id, "Produit " + (id % 7 == 0 ? "pomme" : "poire"), null, "lot " + id));
+        }
+        index.reconstruire(produits);
+        // réindexer la moitié déclenche au moins un compactage
+        for (long id = 1; id <= 1500; id++) {
+            index.indexer(produit(id, "Produit pomme verte", null, "lot " + id));
+        }
+
+        List<Long> attendus = ids("pomme");
+        ProduitSearchIndex.Correspondances correspondances =
+                index.correspondances("pomme", ProduitSearchIndex.TOUS_CHAMPS);
+        assertEquals(attendus.size(), correspondances.taille());
+        long[] page = correspondances.selectionner(40, 20);
+        assertArrayEquals(attendus.subList(40, 60).stream().mapToLong(Long::longValue).toArray(), page);
+        assertEquals(0, correspondances.selectionner(attendus.size(), 20).length);
+    }
+
+    private List<Long> ids(String requete) {
+        return index.rechercher(requete, ProduitSearchIndex.TOUS_CHAMPS).stream()
+                .map(ProduitSearchIndex.Resultat::produitId)
+                .toList();
+    }
+
+    static Produit produit(Long id, String nom, String fournisseur, String description) {
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setNom(nom);
+        produit.setFournisseur(fournisseur);
+        produit.setDescription(description);
+        return produit;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromotionAnalyticsTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PromotionAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:analytics;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE promotion_usage (id BIGINT AUTO_INCREMENT PRIMARY KEY, promotion_id INT, "
+                + "montant_initial DOUBLE, montant_apres_reduction DOUBLE, date_application TIMESTAMP)");
+        inserer(1, 100, 80, jour(-2));
+        inserer(1, 50, 45, jour(0));
+        inserer(2, 200, 150, jour(-10));
+        analytics = new PromotionAnalytics(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE promotion_usage");
+    }
+
+    @Test
+    void rebuildsTotalsWithGroupBy() {
+        Map<Integer, PromotionAnalytics.Totaux> totaux = analytics.totaux();
+
+        assertEquals(2, totaux.size());
+        assertEquals(2, totaux.get(1).utilisations());
+        assertEquals(25.0, totaux.get(1).impact(), 1e-9);
+        assertEquals(jour(0), totaux.get(1).derniereUtilisation());
+        assertEquals(50.0, totaux.get(2).impact(), 1e-9);
+
+        Map<LocalDate, PromotionAnalytics.Totaux> parJour = analytics.parJour(1, 7);
+        assertEquals(2, parJour.size());
+        assertEquals(20.0, parJour.get(LocalDate.now().minusDays(2)).impact(), 1e-9);
+        assertTrue(analytics.parJour(2, 7).isEmpty());
+    }
+
+    @Test
+    void writtenBatchesUpdateAggregatesWithoutRereading() {
+        analytics.totaux();
+        Timestamp maintenant = jour(0);
+        List<PromotionUsageWriter.Utilisation> lot = List.of(
+                new PromotionUsageWriter.Utilisation(1, 10, 9, maintenant),
+                new PromotionUsageWriter.Utilisation(3, 40, 30, maintenant));
+
+        analytics.ecrire(lot, () -> {
+            lot.forEach(u -> inserer(u.promotionId(), u.montantInitial(), u.montantApresReduction(), maintenant));
+            return null;
+        });
+
+        Map<Integer, PromotionAnalytics.Totaux> totaux = analytics.totaux();
+        assertEquals(3, totaux.get(1).utilisations());
+        assertEquals(26.0, totaux.get(1).impact(), 1e-9);
+        assertEquals(1, totaux.get(3).utilisations());
+        assertEquals(2, analytics.parJour(1, 1).get(LocalDate.now()).utilisations());
+
+        // la reconstruction retrouve les mêmes valeurs que l'incrément
+        analytics.reconstruire();
+        assertEquals(totaux, analytics.totaux());
+    }
+
+    @Test
+    void failedWriteIsNotCounted() {
+        analytics.totaux();
+
+        assertThrows(IllegalStateException.class, () -> analytics.ecrire(
+                List.of(new PromotionUsageWriter.Utilisation(1, 10, 5, new Date())),
+                () -> {
+                    throw new IllegalStateException("base indisponible");
+                }));
+
+        assertEquals(2, analytics.totaux().get(1).utilisations());
+        assertNull(analytics.totaux().get(4));
+    }
+
+    private void inserer(Integer promotionId, double initial, double apres, Timestamp date) {
+        jdbcTemplate.update("INSERT INTO promotion_usage (promotion_id, montant_initial, montant_apres_reduction, "
+                + "date_application) VALUES (?, ?, ?, ?)", promotionId, initial, apres, date);
+    }
+
+    private static Timestamp jour(int decalage) {
+        return Timestamp.from(LocalDate.now().plusDays(decalage).atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
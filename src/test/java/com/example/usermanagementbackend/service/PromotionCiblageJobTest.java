@@ -0,0 +1,221 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.config.PromotionCiblageJobConfig;
+import com.example.usermanagementbackend.entity.Promotion;
+import com.example.usermanagementbackend.repository.PromotionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBatchTest
+@SpringJUnitConfig(PromotionCiblageJobTest.Config.class)
+// plages [1-5] et [6-10], lots de 2: plusieurs commits par plage
+@TestPropertySource(properties = {"promotion.ciblage.chunk=2", "promotion.ciblage.partitions=2"})
+class PromotionCiblageJobTest {
+
+    private static final long JOUR = TimeUnit.DAYS.toMillis(1);
+
+    @Configuration
+    @EnableBatchProcessing
+    @Import(PromotionCiblageJobConfig.class)
+    static class Config {
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder()
+                    .generateUniqueName(true)
+                    .setType(EmbeddedDatabaseType.H2)
+                    .addScript("/org/springframework/batch/core/schema-h2.sql")
+                    .build();
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PromotionRepository promotionRepository() {
+            return mock(PromotionRepository.class);
+        }
+
+        @Bean
+        PrixEffectif prixEffectif() {
+            return mock(PrixEffectif.class);
+        }
+
+        @Bean
+        MoteurPromotions moteurPromotions() {
+            return mock(MoteurPromotions.class);
+        }
+
+        @Bean
+        VuePromotionsDynamiques vuePromotionsDynamiques() {
+            return mock(VuePromotionsDynamiques.class);
+        }
+    }
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PromotionRepository promotionRepository;
+    @Autowired
+    private PrixEffectif prixEffectif;
+    @Autowired
+    private Job job;
+    @Autowired
+    private JobRepository jobRepository;
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE produit (id BIGINT PRIMARY KEY, category VARCHAR(32))");
+        jdbcTemplate.execute("CREATE TABLE promotion_produit (promotion_id INT, produit_id BIGINT)");
+        for (long id = 1; id <= 10; id++) {
+            jdbcTemplate.update("INSERT INTO produit VALUES (?, ?)", id, id % 2 == 0 ? "FRUITS" : "LEGUMES");
+        }
+        Date debut = new Date(System.currentTimeMillis() - JOUR);
+        Date fin = new Date(System.currentTimeMillis() + JOUR);
+        Promotion promotion = new Promotion();
+        promotion.setId(7);
+        promotion.setNom("Fruits de saison");
+        promotion.setConditionPromotion("SAISON");
+        promotion.setPourcentageReduction(10);
+        promotion.setDateDebut(debut);
+        promotion.setDateFin(fin);
+        when(promotionRepository.findById(7)).thenReturn(Optional.of(promotion));
+        // le produit 4 est déjà dans la promotion active 3 sur la même période
+        when(promotionRepository.findIntervallesActifs())
+                .thenReturn(List.<Object[]>of(new Object[]{4L, 3, "EXPIRATION_PRODUIT", debut, fin}));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE produit");
+        jdbcTemplate.execute("DROP TABLE promotion_produit");
+    }
+
+    @Test
+    void attachesCategoryProductsAndSkipsOverlaps() throws Exception {
+        JobExecution execution = jobLauncherTestUtils.launchJob(parametres("FRUITS"));
+
+        assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+        assertEquals(List.of(2L, 6L, 8L, 10L), rattaches());
+        verify(prixEffectif, atLeastOnce()).recharger(7);
+    }
+
+    @Test
+    void rerunOnlyReadsProductsNotYetAttached() throws Exception {
+        jobLauncherTestUtils.launchJob(parametres(null));
+        jdbcTemplate.update("INSERT INTO produit VALUES (11, 'LEGUMES')");
+
+        JobExecution execution = jobLauncherTestUtils.launchJob(parametres(null));
+
+        assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+        long lus = execution.getStepExecutions().stream()
+                .filter(e -> PromotionCiblageJobConfig.ETAPE.equals(e.getStepName()))
+                .mapToLong(e -> e.getReadCount()).sum();
+        // 11 nouveau, 4 toujours ignoré car en conflit
+        assertEquals(2, lus);
+        assertEquals(List.of(1L, 2L, 3L, 5L, 6L, 7L, 8L, 9L, 10L, 11L), rattaches());
+    }
+
+    @Test
+    void relaunchAfterFailureResumesFromTheLastCommittedChunk() throws Exception {
+        PromotionCiblage ciblage = new PromotionCiblage(job, jobRepository, jobExplorer);
+        // le lot (8, 9) de la plage [6-10] échoue; le lot (6, 7) est déjà commité
+        jdbcTemplate.execute("ALTER TABLE promotion_produit ADD CONSTRAINT sans_9 CHECK (produit_id <> 9)");
+
+        Map<String, Object> echec = attendre(ciblage, ciblage.lancer(7, null));
+
+        assertEquals("FAILED", echec.get("statut"));
+        assertEquals(List.of(1L, 2L, 3L, 5L, 6L, 7L), rattaches());
+
+        jdbcTemplate.execute("ALTER TABLE promotion_produit DROP CONSTRAINT sans_9");
+        Map<String, Object> reprise = attendre(ciblage, ciblage.lancer(7, null));
+
+        assertEquals("COMPLETED", reprise.get("statut"));
+        Long premiere = (Long) echec.get("executionId");
+        Long seconde = (Long) reprise.get("executionId");
+        assertNotEquals(premiere, seconde);
+        assertEquals(jobExplorer.getJobExecution(premiere).getJobInstance().getInstanceId(),
+                jobExplorer.getJobExecution(seconde).getJobInstance().getInstanceId());
+        // seule la plage en échec repart, après son dernier lot commité: 8, 9 et 10
+        assertEquals(3L, reprise.get("produitsLus"));
+        assertEquals(3L, reprise.get("produitsRattaches"));
+        assertEquals(List.of(1L, 2L, 3L, 5L, 6L, 7L, 8L, 9L, 10L), rattaches());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) - COUNT(DISTINCT produit_id) FROM promotion_produit "
+                + "WHERE promotion_id = 7", Integer.class));
+    }
+
+    /** Attend la fin d'une exécution lancée en arrière-plan et renvoie son état final. */
+    private static Map<String, Object> attendre(PromotionCiblage ciblage, Map<String, Object> lance) throws InterruptedException {
+        Long executionId = (Long) lance.get("executionId");
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        Map<String, Object> etat = ciblage.etat(executionId);
+        while (BatchStatus.valueOf((String) etat.get("statut")).isRunning()) {
+            assertTrue(System.nanoTime() < limite, "exécution " + executionId + " toujours en cours");
+            Thread.sleep(20);
+            etat = ciblage.etat(executionId);
+        }
+        return etat;
+    }
+
+    private JobParameters parametres(String categorie) {
+        JobParametersBuilder builder = new JobParametersBuilder()
+                .addLong("promotionId", 7L)
+                .addLong("lancement", System.nanoTime());
+        if (categorie != null) {
+            builder.addString("categorie", categorie);
+        }
+        return builder.toJobParameters();
+    }
+
+    private List<Long> rattaches() {
+        return jdbcTemplate.queryForList(
+                "SELECT produit_id FROM promotion_produit WHERE promotion_id = 7 ORDER BY produit_id", Long.class);
+    }
+}
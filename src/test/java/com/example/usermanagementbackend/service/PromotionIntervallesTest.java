@@ -0,0 +1,72 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromotionIntervallesTest {
+
+    @Test
+    void detectsOverlapWithInclusiveBounds() {
+        PromotionIntervalles index = PromotionIntervalles.de(List.of(
+                ligne(1L, 10, "EXPIRATION_PRODUIT", 10, 20),
+                ligne(1L, 11, "MONTANT_MIN", 30, 40),
+                ligne(2L, 12, "EXPIRATION_PRODUIT", 0, 100)));
+
+        assertTrue(index.chevauche(1L, date(20), date(25), null, null));
+        assertTrue(index.chevauche(1L, date(25), date(30), null, null));
+        assertFalse(index.chevauche(1L, date(21), date(29), null, null));
+        assertFalse(index.chevauche(3L, date(0), date(100), null, null));
+        assertFalse(index.chevauche(1L, null, date(100), null, null));
+    }
+
+    @Test
+    void ignoresExcludedConditionAndPromotion() {
+        PromotionIntervalles index = PromotionIntervalles.de(List.of(
+                ligne(1L, 10, "EXPIRATION_PRODUIT", 10, 20),
+                ligne(1L, 11, "MONTANT_MIN", 15, 40)));
+
+        assertEquals(11, index.premierChevauchement(1L, date(12), date(18), "EXPIRATION_PRODUIT", null).promotionId());
+        assertNull(index.premierChevauchement(1L, date(12), date(18), "EXPIRATION_PRODUIT", 11));
+        assertTrue(index.chevauche(1L, date(12), date(14), "MONTANT_MIN", null));
+    }
+
+    @Test
+    void agreesWithLinearScan() {
+        Random random = new Random(7);
+        List<Object[]> lignes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long debut = random.nextInt(1000);
+            lignes.add(ligne((long) random.nextInt(5), i, i % 3 == 0 ? "A" : "B", debut, debut + random.nextInt(60)));
+        }
+        PromotionIntervalles index = PromotionIntervalles.de(lignes);
+        assertEquals(500, index.taille());
+
+        for (int i = 0; i < 2000; i++) {
+            long produit = random.nextInt(5);
+            long debut = random.nextInt(1100);
+            long fin = debut + random.nextInt(30);
+            String exclue = random.nextBoolean() ? "A" : null;
+            boolean attendu = lignes.stream().anyMatch(l -> l[0].equals(produit)
+                    && !((String) l[2]).equals(exclue)
+                    && ((Date) l[3]).getTime() <= fin && debut <= ((Date) l[4]).getTime());
+            assertEquals(attendu, index.chevauche(produit, new Date(debut), new Date(fin), exclue, null));
+        }
+    }
+
+    private static Object[] ligne(Long produitId, Integer promotionId, String condition, long debut, long fin) {
+        return new Object[]{produitId, promotionId, condition, new Date(debut), new Date(fin)};
+    }
+
+    private static Date date(long millis) {
+        return new Date(millis);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromotionUsageWriterTest {
+
+    /** Enregistre la taille de chaque batch et le thread qui l'a écrit. */
+    private static class JdbcTemplateEspion extends JdbcTemplate {
+        final List<Integer> lots = new CopyOnWriteArrayList<>();
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        final CountDownLatch debloquer;
+        final CountDownLatch premierLot = new CountDownLatch(1);
+
+        JdbcTemplateEspion(CountDownLatch debloquer) {
+            this.debloquer = debloquer;
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> lignes) {
+            premierLot.countDown();
+            try {
+                debloquer.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lots.add(lignes.size());
+            threads.add(Thread.currentThread().getName());
+            return new int[lignes.size()];
+        }
+    }
+
+    @Test
+    void writesInBoundedBatchesAndFlushesOnShutdown() {
+        JdbcTemplateEspion jdbc = new JdbcTemplateEspion(new CountDownLatch(0));
+        PromotionUsageWriter writer = new PromotionUsageWriter(jdbc, new PromotionAnalytics(jdbc), 1000, 100, 50, 50);
+        writer.demarrer();
+        for (int i = 0; i < 250; i++) {
+            writer.enregistrer(utilisation(i));
+        }
+        writer.arreter();
+
+        assertEquals(250, jdbc.lots.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(jdbc.lots.stream().allMatch(taille -> taille <= 100), jdbc.lots.toString());
+        assertEquals(0, writer.enAttente());
+    }
+
+    @Test
+    void callerWritesItselfWhenQueueStaysFull() throws InterruptedException {
+        CountDownLatch debloquer = new CountDownLatch(1);
+        JdbcTemplateEspion jdbc = new JdbcTemplateEspion(debloquer);
+        PromotionUsageWriter writer = new PromotionUsageWriter(jdbc, new PromotionAnalytics(jdbc), 1, 10, 20, 10);
+        writer.demarrer();
+
+        writer.enregistrer(utilisation(1));
+        assertTrue(jdbc.premierLot.await(5, TimeUnit.SECONDS));
+        // le thread d'écriture est bloqué sur son premier lot: une place dans la file, puis écriture directe
+        writer.enregistrer(utilisation(2));
+        Thread appelant = new Thread(() -> writer.enregistrer(utilisation(3)), "appelant");
+        appelant.start();
+        Thread.sleep(100);
+        debloquer.countDown();
+        appelant.join(5000);
+        writer.arreter();
+
+        assertEquals(3, jdbc.lots.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(jdbc.threads.contains("appelant"), jdbc.threads.toString());
+    }
+
+    @Test
+    void shutdownRacingWithCallersLosesNothing() throws InterruptedException {
+        JdbcTemplateEspion jdbc = new JdbcTemplateEspion(new CountDownLatch(0));
+        PromotionUsageWriter writer = new PromotionUsageWriter(jdbc, new PromotionAnalytics(jdbc), 10_000, 50, 5, 50);
+        writer.demarrer();
+        int appelants = 8;
+        int parAppelant = 5_000;
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < appelants; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    depart.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < parAppelant; i++) {
+                    writer.enregistrer(utilisation(i));
+                }
+            }, "appelant-" + t);
+            thread.start();
+            threads.add(thread);
+        }
+
+        depart.countDown();
+        Thread.sleep(5);
+        writer.arreter();
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+
+        assertEquals(appelants * parAppelant, jdbc.lots.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(0, writer.enAttente());
+    }
+
+    private static PromotionUsageWriter.Utilisation utilisation(int i) {
+        return new PromotionUsageWriter.Utilisation(1, 100 + i, 90 + i, new Date());
+    }
+}
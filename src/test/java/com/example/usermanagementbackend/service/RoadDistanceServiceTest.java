@@ -0,0 +1,112 @@
+package com.example.usermanagementbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoadDistanceServiceTest {
+
+    // Tunis centre -> Ariana
+    private static final double START_LAT = 36.8065;
+    private static final double START_LNG = 10.1815;
+    private static final double END_LAT = 36.8625;
+    private static final double END_LNG = 10.1956;
+
+    private HttpServer router;
+    private final ExecutorService routerThreads = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long delayMs;
+    private volatile int status = 200;
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private CircuitBreaker breaker;
+    private RoadDistanceService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        router = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        router.setExecutor(routerThreads);
+        router.createContext("/route/v1/driving/", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"code\":\"Ok\",\"routes\":[{\"distance\":9400.0}]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        router.start();
+        OsrmClient osrm = new OsrmClient(new ObjectMapper(), "http://127.0.0.1:" + router.getAddress().getPort(),
+                Duration.ofSeconds(2));
+        RouteDistanceCache cache = new RouteDistanceCache(50, 100, Duration.ofHours(1), null, now::get);
+        breaker = new CircuitBreaker(2, Duration.ofSeconds(30), now::get);
+        service = new RoadDistanceService(osrm, cache, Duration.ofMillis(300), 2, 10, breaker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        router.stop(0);
+        routerThreads.shutdownNow();
+    }
+
+    @Test
+    void roadDistanceIsFetchedOnceThenServedFromTheCache() {
+        assertFalse(service.cachedOrHaversine(START_LAT, START_LNG, END_LAT, END_LNG).road());
+
+        RoadDistanceService.Estimate estimate = service.roadDistance(START_LAT, START_LNG, END_LAT, END_LNG).join();
+
+        assertTrue(estimate.road());
+        assertEquals(9.4, estimate.distanceKm(), 1e-9);
+        assertEquals(9.4, service.cachedOrHaversine(START_LAT, START_LNG, END_LAT, END_LNG).distanceKm(), 1e-9);
+        service.roadDistance(START_LAT, START_LNG, END_LAT, END_LNG).join();
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void slowRouterFallsBackToHaversineWithinBudget() {
+        delayMs = 1_000;
+        long start = System.nanoTime();
+
+        RoadDistanceService.Estimate estimate = service.roadDistance(START_LAT, START_LNG, END_LAT, END_LNG).join();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 900);
+        assertFalse(estimate.road());
+        assertEquals(RoadDistanceService.haversineKm(START_LAT, START_LNG, END_LAT, END_LNG), estimate.distanceKm(), 1e-9);
+    }
+
+    @Test
+    void circuitOpensAfterRepeatedFailuresThenRetriesOnce() {
+        status = 503;
+        service.roadDistance(START_LAT, START_LNG, END_LAT, END_LNG).join();
+        service.roadDistance(START_LAT, START_LNG, END_LAT, END_LNG).join();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        // open: answered with Haversine, the router is not called
+        assertFalse(service.roadDistance(START_LAT, START_LNG, END_LAT, END_LNG).join().road());
+        assertEquals(2, requests.get());
+
+        status = 200;
+        now.addAndGet(Duration.ofSeconds(31).toMillis());
+        assertTrue(service.roadDistance(START_LAT, START_LNG, END_LAT, END_LNG).join().road());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(3, requests.get());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoueTemporelleTest {
+
+    private static final long MINUTE = 60_000;
+    // départ en milieu de tick et loin des frontières de niveaux
+    private static final long DEBUT = 1_000_003L * MINUTE + 17_000;
+
+    @Test
+    void entriesFireAtTheirMinuteAcrossLevels() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(MINUTE, DEBUT);
+        // niveaux 0, 1, 2 et 3 (64, 4 096, 262 144 minutes)
+        long[] delais = {5, 100, 5_000, 300_000};
+        for (long delai : delais) {
+            roue.ajouter(DEBUT + delai * MINUTE, "+" + delai);
+        }
+
+        List<String> echues = new ArrayList<>();
+        for (long minute = 1; minute <= 300_001; minute++) {
+            List<String> valeurs = roue.avancer(DEBUT + minute * MINUTE);
+            for (String valeur : valeurs) {
+                // l'échéance tombe dans la minute qui suit la date (arrondie au tick suivant)
+                assertEquals("+" + (minute - 1), valeur);
+            }
+            echues.addAll(valeurs);
+        }
+        assertEquals(List.of("+5", "+100", "+5000", "+300000"), echues);
+        assertEquals(0, roue.taille());
+    }
+
+    @Test
+    void cancelledAndPastEntries() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(MINUTE, DEBUT);
+        RoueTemporelle.Entree<String> annulee = roue.ajouter(DEBUT + 10 * MINUTE, "annulee");
+        roue.ajouter(DEBUT + 10 * MINUTE, "gardee");
+        roue.ajouter(DEBUT - 3 * MINUTE, "passee");
+        annulee.annuler();
+
+        // une date passée sort au prochain avancement, même sans tick écoulé
+        assertEquals(List.of("passee"), roue.avancer(DEBUT));
+        assertTrue(roue.avancer(DEBUT + 10 * MINUTE).isEmpty());
+        assertEquals(List.of("gardee"), roue.avancer(DEBUT + 11 * MINUTE));
+        assertEquals(0, roue.taille());
+    }
+
+    @Test
+    void jumpingSeveralTicksFiresInOrder() {
+        RoueTemporelle<Integer> roue = new RoueTemporelle<>(MINUTE, DEBUT);
+        for (int delai = 200; delai > 0; delai -= 7) {
+            roue.ajouter(DEBUT + delai * MINUTE, delai);
+        }
+
+        List<Integer> echues = roue.avancer(DEBUT + 1_000 * MINUTE);
+
+        List<Integer> attendues = new ArrayList<>();
+        for (int delai = 200; delai > 0; delai -= 7) {
+            attendues.add(0, delai);
+        }
+        assertEquals(attendues, echues);
+    }
+}
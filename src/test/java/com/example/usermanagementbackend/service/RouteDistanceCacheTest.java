@@ -0,0 +1,124 @@
+package com.example.usermanagementbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RouteDistanceCacheTest {
+
+    // Tunis centre -> La Marsa
+    private static final double[] ROUTE = {36.8065, 10.1815, 36.8782, 10.3247};
+
+    private HttpServer router;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile String answer = "{\"code\":\"Ok\",\"routes\":[{\"distance\":18250.0,\"duration\":1320.5}]}";
+    private OsrmClient osrm;
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void startStubRouter() throws IOException {
+        router = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        router.createContext("/route/v1/driving/", exchange -> {
+            requests.incrementAndGet();
+            byte[] body = answer.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        router.start();
+        osrm = new OsrmClient(new ObjectMapper(), "http://127.0.0.1:" + router.getAddress().getPort(), Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void stopStubRouter() {
+        router.stop(0);
+    }
+
+    @Test
+    void nearbyPointsReuseTheCachedRoute() {
+        RouteDistanceCache cache = cache(null);
+
+        assertEquals(18.25, distance(cache, 0, 0), 1e-9);
+        // ~10 m away from both ends: same 1 km cells
+        assertEquals(18.25, distance(cache, 0.00009, -0.00009), 1e-9);
+        // ~2 km away: another route
+        distance(cache, 0.02, 0);
+
+        assertEquals(2, requests.get());
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void failedLookupsAreNotCachedAndEntriesExpire() {
+        RouteDistanceCache cache = cache(null);
+        answer = "{\"code\":\"NoRoute\",\"routes\":[]}";
+        assertNull(distance(cache, 0, 0));
+        assertEquals(0, cache.size());
+
+        answer = "{\"code\":\"Ok\",\"routes\":[{\"distance\":18250.0}]}";
+        distance(cache, 0, 0);
+        now.addAndGet(Duration.ofDays(1).toMillis());
+        distance(cache, 0, 0);
+
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void leastRecentlyUsedRouteIsEvicted() {
+        RouteDistanceCache cache = new RouteDistanceCache(1_000, 2, Duration.ofHours(1), null, now::get);
+        distance(cache, 0, 0);
+        distance(cache, 0.02, 0);
+        distance(cache, 0, 0);
+        // evicts the 0.02 route, used least recently
+        distance(cache, 0.04, 0);
+        distance(cache, 0, 0);
+        distance(cache, 0.02, 0);
+
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    void entriesSurviveARestartThroughTheCacheFile() {
+        Path file = dir.resolve("routes.bin");
+        RouteDistanceCache cache = cache(file);
+        distance(cache, 0, 0);
+        cache.save();
+
+        RouteDistanceCache reloaded = cache(file);
+        reloaded.load();
+
+        assertEquals(18.25, distance(reloaded, 0, 0), 1e-9);
+        assertEquals(1, requests.get());
+    }
+
+    private RouteDistanceCache cache(Path file) {
+        return new RouteDistanceCache(1_000, 1_000, Duration.ofHours(1), file, now::get);
+    }
+
+    private Double distance(RouteDistanceCache cache, double dLat, double dLng) {
+        double startLat = ROUTE[0] + dLat;
+        double startLng = ROUTE[1] + dLng;
+        double endLat = ROUTE[2] + dLat;
+        double endLng = ROUTE[3] + dLng;
+        return cache.distanceKm(startLat, startLng, endLat, endLng,
+                () -> osrm.drivingDistanceKm(startLat, startLng, endLat, endLng));
+    }
+}
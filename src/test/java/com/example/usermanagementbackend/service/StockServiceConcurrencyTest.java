@@ -0,0 +1,121 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.StockDecrementResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Décréments concurrents sur une base H2 en mémoire: aucune survente, aucun interblocage,
+ * et une commande refusée sur un produit n'entame pas le stock des autres.
+ */
+class StockServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int COMMANDES = 400;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private StockService stockService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:stock-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        stockService = new StockService(null, null, null, jdbcTemplate, mock(ProduitCatalogue.class));
+
+        jdbcTemplate.execute("CREATE TABLE produit (id BIGINT PRIMARY KEY, stock INT NOT NULL, sales_count INT DEFAULT 0)");
+        jdbcTemplate.update("INSERT INTO produit (id, stock, sales_count) VALUES (1, 100, 0), (2, 100, 0), (3, 50, 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch depart = new CountDownLatch(1);
+        AtomicInteger acceptees = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < COMMANDES; i++) {
+            // la moitié des commandes liste ses produits à l'envers: le verrouillage par id doit l'absorber
+            boolean inverse = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                depart.await();
+                Map<Long, Integer> quantites = new LinkedHashMap<>();
+                for (long id = 1; id <= 3; id++) {
+                    quantites.put(inverse ? 4 - id : id, 1);
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    StockDecrementResult resultat = stockService.decrementerStock(quantites, true);
+                    if (resultat.isComplet()) {
+                        acceptees.incrementAndGet();
+                    } else {
+                        status.setRollbackOnly();
+                    }
+                });
+                return null;
+            }));
+        }
+        depart.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // le produit 3 (stock 50) borne le nombre de commandes complètes
+        assertEquals(50, acceptees.get());
+        assertEquals(50, stock(1));
+        assertEquals(50, stock(2));
+        assertEquals(0, stock(3));
+        assertEquals(50, jdbcTemplate.queryForObject("SELECT sales_count FROM produit WHERE id = 3", Integer.class));
+    }
+
+    @Test
+    void reportsFailedLinesWithoutThrowing() {
+        StockDecrementResult resultat = transactionTemplate.execute(status -> {
+            Map<Long, Integer> quantites = new LinkedHashMap<>();
+            quantites.put(3L, 51);
+            quantites.put(1L, 10);
+            quantites.put(99L, 1);
+            StockDecrementResult r = stockService.decrementerStock(quantites, false);
+            status.setRollbackOnly();
+            return r;
+        });
+
+        assertEquals(List.of(1L, 3L, 99L), resultat.getLignes().stream().map(StockDecrementResult.Ligne::getProduitId).toList());
+        assertTrue(resultat.getLignes().get(0).isAppliquee());
+        assertEquals(90, resultat.getLignes().get(0).getStockRestant());
+        assertEquals(List.of(3L, 99L), resultat.echecs().stream().map(StockDecrementResult.Ligne::getProduitId).toList());
+        assertEquals(100, stock(1));
+    }
+
+    private int stock(long id) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM produit WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.usermanagementbackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SuiviGpsTest {
+
+    /** Garde les lignes de chaque batch INSERT; la somme des distances est calculée sur ces lignes. */
+    private static class JdbcTemplateEspion extends JdbcTemplate {
+        final List<List<Object[]>> lots = new CopyOnWriteArrayList<>();
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> lignes) {
+            lots.add(List.copyOf(lignes));
+            return new int[lignes.size()];
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+            List<Object[]> ecrites = lignes().stream().filter(l -> args[0].equals(l[1])).toList();
+            try {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong(1)).thenReturn((long) ecrites.size());
+                when(rs.getDouble(2)).thenReturn(ecrites.stream().mapToDouble(l -> (double) l[5]).sum());
+                return rowMapper.mapRow(rs, 0);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        List<Object[]> lignes() {
+            return lots.stream().flatMap(List::stream).toList();
+        }
+    }
+
+    // Tunis centre
+    private static final double LAT = 36.8065;
+    private static final double LNG = 10.1815;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final JdbcTemplateEspion jdbc = new JdbcTemplateEspion();
+    private final PositionsLivreurs positions = new PositionsLivreurs(500, Duration.ofMinutes(5), 50_000,
+            Duration.ofSeconds(30), now::get);
+    private final SuiviGps suivi = new SuiviGps(jdbc, positions, 64, 5, Duration.ofSeconds(10),
+            Duration.ofMinutes(10), now::get);
+
+    @AfterEach
+    void tearDown() {
+        positions.shutdown();
+        suivi.arreter();
+    }
+
+    @Test
+    void douglasPeuckerKeepsCornersAndDropsJitter() {
+        // 1 km vers l'est puis 1 km vers le nord, bruit de ±1 m
+        Random random = new Random(1);
+        int n = 201;
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        double metreLat = 1 / 111_320.0;
+        double metreLng = metreLat / Math.cos(Math.toRadians(LAT));
+        for (int i = 0; i < n; i++) {
+            double est = Math.min(i, 100) * 10;
+            double nord = Math.max(0, i - 100) * 10;
+            lat[i] = LAT + (nord + random.nextDouble() * 2 - 1) * metreLat;
+            lng[i] = LNG + (est + random.nextDouble() * 2 - 1) * metreLng;
+        }
+
+        int[] gardes = TraceGps.simplifier(lat, lng, n, 5);
+
+        assertEquals(3, gardes.length);
+        assertEquals(100, gardes[1]);
+        assertEquals(2_000, TraceGps.longueurMetres(lat, lng, gardes), 5);
+        List<double[]> decodes = TraceGps.decoder(TraceGps.encoder(lat, lng, gardes));
+        for (int k = 0; k < gardes.length; k++) {
+            assertEquals(lat[gardes[k]], decodes.get(k)[0], 1e-5);
+            assertEquals(lng[gardes[k]], decodes.get(k)[1], 1e-5);
+        }
+    }
+
+    @Test
+    void consecutiveFlushesAddUpToTheWholeTrack() {
+        double attendu = 0;
+        for (int i = 0; i < 30; i++) {
+            // zigzag: chaque point compte après simplification
+            double lat = LAT + i * 0.001;
+            double lng = LNG + (i % 2) * 0.001;
+            suivi.recevoir(3, lat, lng, 10_000L + i, 42L);
+            if (i > 0) {
+                attendu += RoadDistanceService.haversineKm(LAT + (i - 1) * 0.001, LNG + ((i - 1) % 2) * 0.001, lat, lng);
+            }
+            if (i % 7 == 6) {
+                suivi.vider();
+            }
+        }
+        suivi.vider(3);
+
+        List<Object[]> lignes = jdbc.lignes();
+        assertEquals(5, lignes.size());
+        double km = lignes.stream().mapToDouble(l -> (double) l[5]).sum() / 1000;
+        assertEquals(attendu, km, 1e-6);
+        assertEquals(new Timestamp(10_000L), lignes.get(0)[2]);
+        assertEquals(new Timestamp(10_029L), lignes.get(4)[3]);
+        assertTrue(lignes.stream().allMatch(l -> Long.valueOf(42L).equals(l[1])));
+        assertEquals(1, positions.taille());
+    }
+
+    @Test
+    void flushingOneLivreurLeavesTheOthersQueued() {
+        suivi.recevoir(7, LAT, LNG, 10_000L, 1L);
+        suivi.recevoir(7, LAT + 0.01, LNG, 11_000L, 1L);
+        suivi.recevoir(7, LAT + 0.02, LNG, 12_000L, 2L);
+        suivi.recevoir(8, LAT, LNG, 10_000L, 5L);
+        suivi.recevoir(8, LAT + 0.01, LNG, 11_000L, 5L);
+        suivi.recevoir(8, LAT + 0.02, LNG, 12_000L, 6L);
+
+        assertEquals(1, suivi.vider(7));
+
+        assertEquals(List.of(7L), jdbc.lignes().stream().map(l -> l[0]).toList());
+        // segment fermé de la livraison 5 et position en cours de la 6
+        assertEquals(2, suivi.enAttente());
+        assertEquals(1, suivi.vider());
+        assertEquals(List.of(7L, 8L), jdbc.lignes().stream().map(l -> l[0]).toList());
+    }
+
+    @Test
+    void distanceCountsTheTrackStillInMemoryWithoutWritingIt() {
+        for (int i = 0; i < 10; i++) {
+            suivi.recevoir(3, LAT + i * 0.001, LNG + (i % 2) * 0.001, 10_000L + i, 42L);
+            if (i == 4) {
+                suivi.vider();
+            }
+        }
+        suivi.recevoir(4, LAT, LNG, 10_000L, 42L);
+        suivi.recevoir(4, LAT + 0.05, LNG, 11_000L, 42L);
+
+        Double enMemoire = suivi.distanceParcourueKm(42, 3);
+
+        assertEquals(1, jdbc.lots.size());
+        suivi.vider(3);
+        assertEquals(2, jdbc.lignes().size());
+        assertEquals(suivi.distanceParcourueKm(42), enMemoire, 1e-9);
+        assertEquals(enMemoire, suivi.distanceParcourueKm(42, 3), 1e-9);
+        assertNull(suivi.distanceParcourueKm(43, 3));
+    }
+
+    @Test
+    void fullRingBufferOverwritesTheOldestFixes() {
+        for (int i = 0; i < 100; i++) {
+            suivi.recevoir(5, LAT + i * 0.001, LNG + (i % 2) * 0.001, 10_000L + i, null);
+        }
+        assertEquals(64, suivi.enAttente());
+
+        suivi.vider();
+
+        Object[] ligne = jdbc.lignes().get(0);
+        assertEquals(new Timestamp(10_036L), ligne[2]);
+        assertEquals(64, ligne[4]);
+        assertEquals(0, suivi.enAttente());
+    }
+
+    @Test
+    void aNewLivraisonClosesTheSegmentAndOlderFixesAreIgnored() {
+        suivi.recevoir(7, LAT, LNG, 10_000L, 1L);
+        suivi.recevoir(7, LAT + 0.01, LNG, 11_000L, 1L);
+        assertFalse(suivi.recevoir(7, LAT + 0.02, LNG, 10_500L, 1L));
+        assertFalse(suivi.recevoir(7, 95, LNG, 12_000L, 1L));
+        suivi.recevoir(7, LAT + 0.05, LNG, 20_000L, 2L);
+        suivi.recevoir(7, LAT + 0.06, LNG, 21_000L, 2L);
+
+        suivi.vider();
+
+        List<Object[]> lignes = jdbc.lignes();
+        assertEquals(2, lignes.size());
+        assertEquals(1L, lignes.get(0)[1]);
+        assertEquals(2L, lignes.get(1)[1]);
+        // le trajet entre les deux livraisons n'est compté dans aucune
+        assertEquals(1.11, (double) lignes.get(0)[5] / 1000, 0.01);
+        assertEquals(1.11, (double) lignes.get(1)[5] / 1000, 0.01);
+    }
+
+    @Test
+    void idleBuffersAreReleased() {
+        suivi.recevoir(9, LAT, LNG, null, null);
+        suivi.vider();
+        assertEquals(1, suivi.livreursSuivis());
+        now.addAndGet(Duration.ofMinutes(11).toMillis());
+        suivi.vider();
+
+        assertEquals(0, suivi.livreursSuivis());
+        assertTrue(jdbc.lots.isEmpty());
+        assertNull(positions.plusProches(LAT, LNG, 1).stream().findFirst().orElse(null));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.enums.Category;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopVentesTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TopVentes topVentes;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:topventes;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE produit (id BIGINT PRIMARY KEY, category VARCHAR(32), sales_count INT)");
+        jdbcTemplate.update("INSERT INTO produit VALUES (1, 'FRUITS', 5), (2, 'FRUITS', 50), (3, NULL, 20), (4, 'LEGUMES', NULL)");
+        topVentes = new TopVentes(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE produit");
+    }
+
+    @Test
+    void seedsFromOneQueryOnFirstRead() {
+        assertEquals(List.of(2L, 3L, 1L, 4L), top(null, 10));
+        assertEquals(List.of(2L, 1L), top(Category.FRUITS, 10));
+        assertEquals(List.of(2L, 3L), top(null, 2));
+    }
+
+    @Test
+    void salesAndCategoryChangesReorderWithoutReloading() {
+        top(null, 1);
+        jdbcTemplate.execute("DELETE FROM produit");
+
+        topVentes.mettreAJour(1L, Category.FRUITS, 60);
+        assertEquals(List.of(1L, 2L, 3L, 4L), top(null, 10));
+
+        // une baisse du compteur est appliquée: le produit recule
+        topVentes.mettreAJour(1L, Category.FRUITS, 10);
+        assertEquals(List.of(2L, 3L, 1L, 4L), top(null, 10));
+        assertEquals(List.of(2L, 1L), top(Category.FRUITS, 10));
+
+        topVentes.mettreAJour(2L, Category.LEGUMES, 50);
+        assertEquals(List.of(1L), top(Category.FRUITS, 10));
+        assertEquals(List.of(2L, 4L), top(Category.LEGUMES, 10));
+
+        topVentes.retirer(3L);
+        assertEquals(List.of(2L, 1L, 4L), top(null, 10));
+    }
+
+    private List<Long> top(Category category, int limit) {
+        return (category == null ? topVentes.classement() : topVentes.classement(category)).limit(limit).toList();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.usermanagementbackend.service;
+
+import com.example.usermanagementbackend.dto.PromotionsDynamiques;
+import com.example.usermanagementbackend.entity.Produit;
+import com.example.usermanagementbackend.entity.Promotion;
+import com.example.usermanagementbackend.repository.PromotionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static com.example.usermanagementbackend.service.PrixEffectifTest.produit;
+import static com.example.usermanagementbackend.service.PrixEffectifTest.promotion;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VuePromotionsDynamiquesTest {
+
+    @Mock
+    private PromotionRepository promotionRepository;
+    @Mock
+    private PrixEffectif prixEffectif;
+    @Mock
+    private ProduitCatalogue catalogue;
+
+    private VuePromotionsDynamiques vue;
+
+    @BeforeEach
+    void setUp() {
+        vue = new VuePromotionsDynamiques(promotionRepository, prixEffectif, catalogue, new ObjectMapper(), 60_000);
+        lenient().when(prixEffectif.prix(any(Produit.class))).thenAnswer(i -> ((Produit) i.getArgument(0)).getPrix());
+    }
+
+    @Test
+    void groupsPromotionsAndServesTheSameViewUntilInvalidated() {
+        Produit produit = produit(1L, 10.0);
+        when(promotionRepository.findDynamiquesAvecProduits(eq("Black Friday"), anyCollection())).thenReturn(List.of(
+                active(promotion(1, "Fin de stock", "EXPIRATION_PRODUIT", 30, produit, produit)),
+                active(promotion(2, "Petites ventes", "MONTANT_MIN", 10))));
+
+        VuePromotionsDynamiques.Vue premiere = vue.vue();
+        PromotionsDynamiques promotions = premiere.promotions();
+
+        assertEquals(1, promotions.getExpiration().size());
+        // produit en double dans la jointure: une seule fois dans la vue
+        assertEquals(1, promotions.getExpiration().get(0).getProduits().size());
+        assertEquals(7.0, promotions.getExpiration().get(0).getProduits().get(0).getPrixReduit(), 1e-9);
+        assertEquals(List.of(2), promotions.getLowSales().stream().map(PromotionsDynamiques.PromotionVue::getId).toList());
+        // Black Friday absent: promotion annoncée, inactive
+        assertFalse(promotions.getBlackFriday().get(0).isActive());
+        assertTrue(new String(premiere.json()).contains("\"date_activation_prevue\""));
+
+        assertSame(premiere, vue.vue());
+        verify(promotionRepository, times(1)).findDynamiquesAvecProduits(eq("Black Friday"), anyCollection());
+    }
+
+    @Test
+    void invalidationRecomputesAndEtagFollowsContent() {
+        when(promotionRepository.findDynamiquesAvecProduits(eq("Black Friday"), anyCollection()))
+                .thenReturn(List.of(active(promotion(1, "Fin de stock", "EXPIRATION_PRODUIT", 30, produit(1L, 10.0)))));
+        VuePromotionsDynamiques.Vue premiere = vue.vue();
+
+        // même contenu: même ETag, le client garde son 304
+        vue.invalider();
+        VuePromotionsDynamiques.Vue identique = vue.vue();
+        assertEquals(premiere.etag(), identique.etag());
+
+        when(promotionRepository.findDynamiquesAvecProduits(eq("Black Friday"), anyCollection()))
+                .thenReturn(List.of(active(promotion(1, "Fin de stock", "EXPIRATION_PRODUIT", 40, produit(1L, 10.0)))));
+        vue.invalider();
+        assertNotEquals(premiere.etag(), vue.vue().etag());
+        verify(promotionRepository, times(3)).findDynamiquesAvecProduits(eq("Black Friday"), anyCollection());
+    }
+
+    @Test
+    void catalogueChangeRecomputesTheView() {
+        when(promotionRepository.findDynamiquesAvecProduits(eq("Black Friday"), anyCollection())).thenReturn(List.of());
+        when(catalogue.version()).thenReturn(0L);
+        VuePromotionsDynamiques.Vue premiere = vue.vue();
+        assertSame(premiere, vue.vue());
+
+        when(catalogue.version()).thenReturn(1L);
+        vue.vue();
+
+        verify(promotionRepository, times(2)).findDynamiquesAvecProduits(eq("Black Friday"), anyCollection());
+    }
+
+    @Test
+    void blackFridayListsTheProductsItDiscounts() {
+        when(promotionRepository.findDynamiquesAvecProduits(eq("Black Friday"), anyCollection()))
+                .thenReturn(List.of(active(promotion(5, "Black Friday", "BLACK_FRIDAY", 50))));
+        when(catalogue.tous()).thenReturn(List.of(produit(1L, 10.0), produit(2L, 20.0), produit(3L, 30.0)));
+        // le produit 2 a sa propre remise en cours: Black Friday ne s'y applique pas
+        when(prixEffectif.remisePropreEnCours(any())).thenAnswer(i -> Long.valueOf(2L).equals(i.getArgument(0)));
+        when(prixEffectif.reduction(any())).thenReturn(50.0);
+
+        PromotionsDynamiques.PromotionVue blackFriday = vue.vue().promotions().getBlackFriday().get(0);
+
+        assertEquals(List.of(1L, 3L), blackFriday.getProduits().stream().map(PromotionsDynamiques.ProduitVue::getId).toList());
+        assertEquals(15.0, blackFriday.getProduits().get(1).getPrixReduit(), 1e-9);
+    }
+
+    @Test
+    void inactiveBlackFridayDiscountsNothing() {
+        Promotion blackFriday = promotion(5, "Black Friday", "BLACK_FRIDAY", 50);
+        blackFriday.setActive(false);
+        when(promotionRepository.findDynamiquesAvecProduits(eq("Black Friday"), anyCollection())).thenReturn(List.of(blackFriday));
+
+        PromotionsDynamiques.PromotionVue vueBlackFriday = vue.vue().promotions().getBlackFriday().get(0);
+
+        assertTrue(vueBlackFriday.getProduits().isEmpty());
+        assertEquals(5, vueBlackFriday.getId());
+    }
+
+    // la fenêtre de dates de PrixEffectifTest.promotion ne suffit pas: la vue lit aussi le drapeau active
+    private static Promotion active(Promotion promotion) {
+        promotion.setActive(true);
+        return promotion;
+    }
+}